@@ -0,0 +1,370 @@
+package at.fhtw.journal;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only message log in a local directory, used instead of RabbitMQ on single-node installs.
+ *
+ * <p>
+ * Messages are appended to numbered segment files as length-prefixed, CRC-checked records and forced to
+ * disk before {@link #append} returns. A full segment is closed and a new one started, so a segment that
+ * has a successor is always complete. Consumers are named; each keeps its position in an offset file that
+ * is replaced atomically after a message was handled, which makes delivery at-least-once. A consumer is
+ * known from its first poll on; segments every known consumer has moved past are deleted.
+ * </p>
+ *
+ * <p>
+ * The journal is meant for one writing process per directory and any number of readers, in the same or
+ * another process on the same machine. Readers in the same JVM are woken up on append; others poll.
+ * </p>
+ */
+
+@Slf4j
+public class LocalJournal implements Closeable {
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String OFFSET_SUFFIX = ".offset";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Object appended = new Object();
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+    private final List<Thread> consumers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    private FileChannel writer;
+    private long writerSegment = -1;
+
+    public LocalJournal(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+    }
+
+    public synchronized void append(String message) throws IOException {
+        if (writer == null) {
+            openWriter();
+        }
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .flip();
+        while (record.hasRemaining()) {
+            writer.write(record);
+        }
+        writer.force(false);
+        if (writer.size() >= segmentBytes) {
+            writer.close();
+            writerSegment++;
+            writer = FileChannel.open(segmentPath(writerSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        synchronized (appended) {
+            appended.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the next record after the consumer's committed position, or {@code null} if there is none yet.
+     */
+    public Record poll(String consumer) throws IOException {
+        Position position = position(consumer);
+        while (true) {
+            Record record = readIfExists(position);
+            if (record != null) {
+                return record;
+            }
+            long next = nextSegmentAfter(position.getSegment());
+            if (next < 0) {
+                return null;
+            }
+            // The writer may have completed the record and rolled over since the read above; only a segment
+            // that already had a successor before the read is known to be complete.
+            record = readIfExists(position);
+            if (record != null) {
+                return record;
+            }
+            position = new Position(next, 0);
+        }
+    }
+
+    /**
+     * Marks the record as handled and deletes segments that every consumer has moved past.
+     */
+    public void commit(String consumer, Record record) throws IOException {
+        Position next = new Position(record.getSegment(), record.getNextOffset());
+        writeOffset(consumer, next);
+        Position previous = positions.put(consumer, next);
+        if (previous == null || previous.getSegment() < next.getSegment()) {
+            deleteSegmentsBefore(lowestCommittedSegment());
+        }
+    }
+
+    /**
+     * Bytes appended but not yet handled by the consumer.
+     */
+    public long pendingBytes(String consumer) {
+        Position position;
+        try {
+            position = readOffset(consumer);
+        } catch (IOException e) {
+            return -1;
+        }
+        long pending = 0;
+        for (long segment : segments()) {
+            if (segment >= position.getSegment()) {
+                try {
+                    pending += Files.size(segmentPath(segment));
+                } catch (IOException e) {
+                    return pending;
+                }
+            }
+        }
+        return Math.max(0, pending - position.getOffset());
+    }
+
+    /**
+     * Hands every record to the handler on a dedicated thread, in order. A record is committed once the
+     * handler returned; if it throws, the record is retried after the poll interval.
+     */
+    public void subscribe(String consumer, long pollIntervalMs, Consumer<String> handler) {
+        Thread thread = new Thread(() -> {
+            while (running) {
+                try {
+                    Record record = poll(consumer);
+                    if (record == null) {
+                        synchronized (appended) {
+                            if (running) {
+                                appended.wait(pollIntervalMs);
+                            }
+                        }
+                        continue;
+                    }
+                    handler.accept(record.getMessage());
+                    commit(consumer, record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("[LocalJournal.subscribe] Consumer '{}' on {} failed, retrying: {}", consumer, directory, e.getMessage(), e);
+                    try {
+                        Thread.sleep(pollIntervalMs);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }, "journal-" + directory.getFileName() + "-" + consumer);
+        thread.setDaemon(true);
+        consumers.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Stops the consumers, waiting up to {@code awaitMs} for a message being handled, and closes the writer.
+     */
+    public void close(long awaitMs) throws IOException {
+        running = false;
+        synchronized (appended) {
+            appended.notifyAll();
+        }
+        long deadline = System.currentTimeMillis() + awaitMs;
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        close();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        running = false;
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void openWriter() throws IOException {
+        List<Long> existing = segments();
+        writerSegment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+        Path segment = segmentPath(writerSegment);
+        writer = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        long validEnd = 0;
+        Record record;
+        while ((record = readRecord(segment, new Position(writerSegment, validEnd))) != null) {
+            validEnd = record.getNextOffset();
+        }
+        if (writer.size() > validEnd) {
+            log.warn("[LocalJournal.openWriter] Truncating incomplete record at the end of {}", segment);
+            writer.truncate(validEnd);
+        }
+        writer.position(validEnd);
+    }
+
+    private Record readRecord(Path segment, Position position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            if (channel.size() - position.getOffset() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, position.getOffset());
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || channel.size() - position.getOffset() - HEADER_BYTES < length) {
+                return null;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position.getOffset() + HEADER_BYTES);
+            if (checksum(payload.array()) != checksum) {
+                log.warn("[LocalJournal.readRecord] Checksum mismatch in {} at offset {}", segment, position.getOffset());
+                return null;
+            }
+            return new Record(new String(payload.array(), StandardCharsets.UTF_8), position.getSegment(),
+                    position.getOffset() + HEADER_BYTES + length);
+        }
+    }
+
+    private Record readIfExists(Position position) throws IOException {
+        Path segment = segmentPath(position.getSegment());
+        return Files.exists(segment) ? readRecord(segment, position) : null;
+    }
+
+    /**
+     * The consumer's committed position. A consumer's first poll writes its offset file, so from then on
+     * the segments it has not read are kept for it.
+     */
+    private Position position(String consumer) throws IOException {
+        Position cached = positions.get(consumer);
+        if (cached != null) {
+            return cached;
+        }
+        Position position = readOffset(consumer);
+        if (!Files.exists(offsetPath(consumer))) {
+            writeOffset(consumer, position);
+        }
+        positions.put(consumer, position);
+        return position;
+    }
+
+    private void writeOffset(String consumer, Position position) throws IOException {
+        Path tmp = directory.resolve(consumer + OFFSET_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((position.getSegment() + " " + position.getOffset()).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(tmp, offsetPath(consumer), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The oldest segment any consumer of the directory, in this or another process, still has to read.
+     */
+    private long lowestCommittedSegment() throws IOException {
+        List<String> known;
+        try (Stream<Path> files = Files.list(directory)) {
+            known = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(OFFSET_SUFFIX))
+                    .map(name -> name.substring(0, name.length() - OFFSET_SUFFIX.length()))
+                    .toList();
+        }
+        long lowest = Long.MAX_VALUE;
+        for (String consumer : known) {
+            lowest = Math.min(lowest, readOffset(consumer).getSegment());
+        }
+        return lowest;
+    }
+
+    private Position readOffset(String consumer) throws IOException {
+        Path offsetFile = offsetPath(consumer);
+        if (!Files.exists(offsetFile)) {
+            return new Position(firstSegment(), 0);
+        }
+        String[] parts = Files.readString(offsetFile, StandardCharsets.UTF_8).trim().split(" ");
+        return new Position(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+    }
+
+    private void deleteSegmentsBefore(long segment) {
+        for (long existing : segments()) {
+            if (existing < segment) {
+                try {
+                    Files.deleteIfExists(segmentPath(existing));
+                } catch (IOException e) {
+                    log.warn("[LocalJournal.deleteSegmentsBefore] Could not delete consumed segment {}: {}", existing, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private long firstSegment() {
+        List<Long> existing = segments();
+        return existing.isEmpty() ? 0 : existing.get(0);
+    }
+
+    private long nextSegmentAfter(long segment) {
+        return segments().stream().filter(s -> s > segment).findFirst().orElse(-1L);
+    }
+
+    private List<Long> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("[LocalJournal.segments] Could not list journal directory {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private Path offsetPath(String consumer) {
+        return directory.resolve(consumer + OFFSET_SUFFIX);
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @Value
+    public static class Record {
+        String message;
+        long segment;
+        long nextOffset;
+    }
+
+    @Value
+    private static class Position {
+        long segment;
+        long offset;
+    }
+}
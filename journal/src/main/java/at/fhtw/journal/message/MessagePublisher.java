@@ -0,0 +1,7 @@
+package at.fhtw.journal.message;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface MessagePublisher {
+    CompletableFuture<Void> publish(String exchange, String routingKey, String message);
+}
@@ -0,0 +1,169 @@
+package at.fhtw.journal.message;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes messages with correlated publisher confirms and tracks the confirms asynchronously.
+ *
+ * <p>
+ * Callers get a future that completes once the broker has acknowledged the message. The number of
+ * unconfirmed publishes is bounded by a window, so a slow broker applies backpressure instead of
+ * letting outstanding messages pile up. Nacked messages are re-published up to a configured number
+ * of attempts. Confirm latency, outstanding publishes and re-publishes are exported as metrics.
+ * </p>
+ *
+ * <p>
+ * Confirms are tracked per message; there is no batch API. Callers that publish several messages, like the
+ * outbox relay, collect the futures and wait for them together. The REST server and the OCR worker both
+ * publish through this class.
+ * </p>
+ *
+ * <p>
+ * For publisher confirms, see:
+ * <a href="https://www.rabbitmq.com/docs/confirms#publisher-confirms">RabbitMQ Publisher Confirms</a>.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
+public class PublisherConfirmTracker implements MessagePublisher {
+    private final RabbitTemplate rabbitTemplate;
+    private final Semaphore window;
+    private final int maxOutstanding;
+    private final long windowTimeoutMs;
+    private final int maxAttempts;
+    private final ExecutorService republishExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "publisher-confirm-republish");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer ackLatency;
+    private final Timer nackLatency;
+    private final Counter republished;
+
+    public PublisherConfirmTracker(
+            RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.publisher.max-outstanding:256}") int maxOutstanding,
+            @Value("${rabbitmq.publisher.window-timeout-ms:5000}") long windowTimeoutMs,
+            @Value("${rabbitmq.publisher.max-attempts:3}") int maxAttempts
+    ) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.maxOutstanding = maxOutstanding;
+        this.window = new Semaphore(maxOutstanding);
+        this.windowTimeoutMs = windowTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.ackLatency = Timer.builder("paperless.publisher.confirm.latency")
+                .description("Time from publish until the broker confirmed the message")
+                .tag("result", "ack")
+                .register(meterRegistry);
+        this.nackLatency = Timer.builder("paperless.publisher.confirm.latency")
+                .description("Time from publish until the broker confirmed the message")
+                .tag("result", "nack")
+                .register(meterRegistry);
+        this.republished = Counter.builder("paperless.publisher.republished")
+                .description("Messages re-published after a nack")
+                .register(meterRegistry);
+        Gauge.builder("paperless.publisher.outstanding", this, PublisherConfirmTracker::getOutstanding)
+                .description("Published messages still waiting for a broker confirm")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes a message and returns a future that completes when the broker acked it.
+     * Blocks only while the outstanding window is full, and at most for the configured window timeout.
+     *
+     * @throws AmqpException if the message could not be handed to the broker at all
+     */
+    @Override
+    public CompletableFuture<Void> publish(String exchange, String routingKey, String message) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        acquireSlot();
+        send(exchange, routingKey, message, 1, result);
+        return result;
+    }
+
+    public int getOutstanding() {
+        return maxOutstanding - window.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        republishExecutor.shutdown();
+    }
+
+    private void acquireSlot() {
+        try {
+            if (!window.tryAcquire(windowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new AmqpException("Publisher confirm window full (" + maxOutstanding + " outstanding)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for publisher confirm window", e);
+        }
+    }
+
+    private void send(String exchange, String routingKey, String message, int attempt, CompletableFuture<Void> result) {
+        CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+        AtomicBoolean settled = new AtomicBoolean(false);
+        long start = System.nanoTime();
+        correlation.getFuture().whenComplete((confirm, error) -> {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (error == null && confirm.isAck() && correlation.getReturned() == null) {
+                ackLatency.record(elapsed, TimeUnit.NANOSECONDS);
+                window.release();
+                result.complete(null);
+                return;
+            }
+            nackLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            String reason = error != null ? error.getMessage()
+                    : correlation.getReturned() != null ? "unroutable: " + correlation.getReturned().getReplyText()
+                    : confirm.getReason();
+            if (attempt < maxAttempts && correlation.getReturned() == null) {
+                log.warn("[PublisherConfirmTracker.send] Nack for message to '{}' (attempt {}/{}): {}. Re-publishing.",
+                        routingKey, attempt, maxAttempts, reason);
+                republished.increment();
+                republishExecutor.execute(() -> send(exchange, routingKey, message, attempt + 1, result));
+                return;
+            }
+            log.error("[PublisherConfirmTracker.send] Message to '{}' not confirmed after {} attempt(s): {}",
+                    routingKey, attempt, reason);
+            window.release();
+            result.completeExceptionally(new AmqpException("Message not confirmed by broker: " + reason));
+        });
+        try {
+            rabbitTemplate.convertAndSend(exchange, routingKey, message, correlation);
+        } catch (AmqpException e) {
+            if (settled.compareAndSet(false, true)) {
+                window.release();
+                result.completeExceptionally(e);
+            }
+            if (attempt == 1) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package at.fhtw.journal.unit;
+
+import at.fhtw.journal.LocalJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LocalJournalTest {
+
+    private static final String CONSUMER = "test";
+    // Two 608-byte records fill a 1 KiB segment, so five records span three segments.
+    private static final int RECORDS = 5;
+
+    @TempDir
+    Path directory;
+
+    private LocalJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new LocalJournal(directory, 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close(1000);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Records are read in order and only advance once committed")
+    void pollAndCommit() throws IOException {
+        journal.append("first");
+        journal.append("second");
+
+        LocalJournal.Record first = journal.poll(CONSUMER);
+        assertThat(first.getMessage()).isEqualTo("first");
+        assertThat(journal.poll(CONSUMER).getMessage()).isEqualTo("first");
+
+        journal.commit(CONSUMER, first);
+        LocalJournal.Record second = journal.poll(CONSUMER);
+        assertThat(second.getMessage()).isEqualTo("second");
+        journal.commit(CONSUMER, second);
+        assertThat(journal.poll(CONSUMER)).isNull();
+        assertThat(journal.pendingBytes(CONSUMER)).isZero();
+    }
+
+    @Test
+    @DisplayName("Committed positions and appended records survive a restart")
+    void survivesRestart() throws IOException {
+        journal.append("first");
+        journal.append("second");
+        journal.commit(CONSUMER, journal.poll(CONSUMER));
+        journal.close();
+
+        journal = new LocalJournal(directory, 1024);
+        journal.append("third");
+        LocalJournal.Record next = journal.poll(CONSUMER);
+        assertThat(next.getMessage()).isEqualTo("second");
+        journal.commit(CONSUMER, next);
+        assertThat(journal.poll(CONSUMER).getMessage()).isEqualTo("third");
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the journal is discarded on restart")
+    void truncatesTornRecord() throws IOException {
+        journal.append("complete");
+        journal.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        journal = new LocalJournal(directory, 1024);
+        journal.append("after restart");
+        LocalJournal.Record first = journal.poll(CONSUMER);
+        journal.commit(CONSUMER, first);
+        assertThat(first.getMessage()).isEqualTo("complete");
+        assertThat(journal.poll(CONSUMER).getMessage()).isEqualTo("after restart");
+    }
+
+    @Test
+    @DisplayName("Full segments are rolled and deleted once consumed")
+    void rollsAndDeletesSegments() throws IOException {
+        String payload = "x".repeat(600);
+        for (int i = 0; i < RECORDS; i++) {
+            journal.append(payload);
+        }
+        assertThat(segmentCount()).isEqualTo(3);
+
+        for (int i = 0; i < RECORDS; i++) {
+            LocalJournal.Record record = journal.poll(CONSUMER);
+            assertThat(record.getMessage()).isEqualTo(payload);
+            journal.commit(CONSUMER, record);
+        }
+        assertThat(journal.poll(CONSUMER)).isNull();
+        assertThat(segmentCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Segments are kept until every consumer has moved past them")
+    void keepsSegmentsForSlowerConsumers() throws IOException {
+        String payload = "x".repeat(600);
+        assertThat(journal.poll("slow")).isNull();
+        for (int i = 0; i < RECORDS; i++) {
+            journal.append(payload);
+        }
+
+        for (int i = 0; i < RECORDS; i++) {
+            journal.commit(CONSUMER, journal.poll(CONSUMER));
+        }
+        assertThat(segmentCount()).isEqualTo(3);
+
+        for (int i = 0; i < RECORDS; i++) {
+            LocalJournal.Record record = journal.poll("slow");
+            assertThat(record.getMessage()).isEqualTo(payload);
+            journal.commit("slow", record);
+        }
+        assertThat(segmentCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Subscribers receive appended records and retry failed ones")
+    @SuppressWarnings("unchecked")
+    void subscribeRetriesFailures() throws IOException {
+        Consumer<String> handler = mock(Consumer.class);
+        doThrow(new IllegalStateException("first attempt fails")).doNothing().when(handler).accept("message");
+        journal.subscribe(CONSUMER, 20, handler);
+
+        journal.append("message");
+
+        verify(handler, timeout(2000).times(2)).accept("message");
+        verify(handler, after(200).times(2)).accept("message");
+    }
+}
@@ -0,0 +1,139 @@
+package at.fhtw.journal.unit;
+
+import at.fhtw.journal.message.PublisherConfirmTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class PublisherConfirmTrackerTest {
+
+    private static final String EXCHANGE = "document_exchange";
+    private static final String ROUTING_KEY = "document_routing_key";
+    private static final String MESSAGE = "{\"documentId\":\"doc1\",\"filename\":\"file.pdf\"}";
+    private static final int MAX_OUTSTANDING = 2;
+    private static final long WINDOW_TIMEOUT_MS = 50;
+    private static final int MAX_ATTEMPTS = 2;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private PublisherConfirmTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new PublisherConfirmTracker(rabbitTemplate, new SimpleMeterRegistry(), MAX_OUTSTANDING, WINDOW_TIMEOUT_MS, MAX_ATTEMPTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.shutdown();
+    }
+
+    private List<CorrelationData> capturedCorrelations(int times) {
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, timeout(1000).times(times)).convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY), eq(MESSAGE), captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Nested
+    @DisplayName("Confirm handling")
+    class ConfirmHandlingTests {
+
+        @Test
+        @DisplayName("Ack completes the future and frees the window slot")
+        void ackCompletesFuture() {
+            CompletableFuture<Void> result = tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE);
+            assertThat(result).isNotDone();
+            assertThat(tracker.getOutstanding()).isEqualTo(1);
+
+            capturedCorrelations(1).get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+            assertThat(result).isCompleted();
+            assertThat(tracker.getOutstanding()).isZero();
+        }
+
+        @Test
+        @DisplayName("Nack is re-published and the retry ack completes the future")
+        void nackIsRepublished() throws Exception {
+            CompletableFuture<Void> result = tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE);
+            capturedCorrelations(1).get(0).getFuture().complete(new CorrelationData.Confirm(false, "simulated nack"));
+
+            List<CorrelationData> correlations = capturedCorrelations(2);
+            assertThat(result).isNotDone();
+            assertThat(tracker.getOutstanding()).isEqualTo(1);
+            correlations.get(1).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+            result.get(1, TimeUnit.SECONDS);
+            assertThat(tracker.getOutstanding()).isZero();
+        }
+
+        @Test
+        @DisplayName("Nack after the last attempt fails the future")
+        void nackAfterMaxAttemptsFails() {
+            CompletableFuture<Void> result = tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE);
+            capturedCorrelations(1).get(0).getFuture().complete(new CorrelationData.Confirm(false, "first nack"));
+            capturedCorrelations(2).get(1).getFuture().complete(new CorrelationData.Confirm(false, "second nack"));
+
+            assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(AmqpException.class)
+                    .hasMessageContaining("second nack");
+            assertThat(tracker.getOutstanding()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Backpressure and failures")
+    class BackpressureTests {
+
+        @Test
+        @DisplayName("Publishing beyond the outstanding window fails after the window timeout")
+        void fullWindowRejectsPublish() {
+            tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE);
+            tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE);
+
+            assertThatThrownBy(() -> tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE))
+                    .isInstanceOf(AmqpException.class)
+                    .hasMessageContaining("window full");
+            assertThat(tracker.getOutstanding()).isEqualTo(MAX_OUTSTANDING);
+        }
+
+        @Test
+        @DisplayName("Synchronous send failure is propagated and frees the slot")
+        void sendFailurePropagates() {
+            doThrow(new AmqpException("connection refused"))
+                    .when(rabbitTemplate).convertAndSend(anyString(), anyString(), anyString(), any(CorrelationData.class));
+
+            assertThatThrownBy(() -> tracker.publish(EXCHANGE, ROUTING_KEY, MESSAGE))
+                    .isInstanceOf(AmqpException.class)
+                    .hasMessageContaining("connection refused");
+            assertThat(tracker.getOutstanding()).isZero();
+        }
+    }
+}
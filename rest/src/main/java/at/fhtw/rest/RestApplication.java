@@ -3,9 +3,11 @@ package at.fhtw.rest;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "at.fhtw")
 @EnableAspectJAutoProxy
+@EnableScheduling
 public class RestApplication {
     public static void main(String[] args) {
         SpringApplication.run(RestApplication.class, args);
@@ -1,19 +1,36 @@
 package at.fhtw.rest.api;
 
+import at.fhtw.rest.core.CachedFileResponder;
+import at.fhtw.rest.core.DocumentEventService;
 import at.fhtw.rest.core.DocumentService;
+import at.fhtw.rest.core.DocumentView;
+import at.fhtw.rest.core.FeatureDisabledException;
+import at.fhtw.rest.persistence.StoredObject;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Validated
@@ -21,8 +38,14 @@ import java.util.List;
 @RequestMapping("/documents")
 @RequiredArgsConstructor
 public class DocumentController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final DocumentService documentService;
+    private final DocumentEventService documentEventService;
+    private final CachedFileResponder cachedFileResponder;
+
+    @Value("${minio.presigned.enabled:false}")
+    private boolean presignedEnabled;
 
     @Operation(summary = "Upload a new document")
     @PostMapping
@@ -35,11 +58,48 @@ public class DocumentController {
         return ResponseEntity.status(201).body(result);
     }
 
-    @Operation(summary = "Get all documents")
+    @Operation(summary = "Request a ticket to upload a document directly to storage")
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadTicket> createUploadTicket() {
+        requirePresigned();
+        UploadTicket ticket = documentService.createUploadTicket();
+        log.info("Issued direct upload ticket for document ID: {}", ticket.getDocumentId());
+        return ResponseEntity.status(201).body(ticket);
+    }
+
+    @Operation(summary = "Register a document uploaded directly to storage")
+    @PostMapping("/uploads/{id}/finalize")
+    public ResponseEntity<DocumentRequest> finalizeUpload(
+            @PathVariable("id") @NotBlank(message = "Document ID must not be blank") String id,
+            @RequestParam("filename") @NotBlank(message = "File name must not be blank") String filename
+    ) {
+        requirePresigned();
+        log.info("Received finalize request for document ID: {}, File Name: {}", id, filename);
+        DocumentRequest result = documentService.finalizeUpload(id, filename);
+        log.info("Finalize successful. Document ID: {}, File Name: {}", result.getId(), result.getFilename());
+        return ResponseEntity.status(201).body(result);
+    }
+
+    @Operation(summary = "List documents, newest first, one page at a time")
     @GetMapping
-    public ResponseEntity<List<DocumentRequest>> listAllDocuments() {
-        List<DocumentRequest> docs = documentService.getAllDocuments();
-        return ResponseEntity.ok(docs);
+    public ResponseEntity<List<DocumentRequest>> listDocuments(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "${documents.page.default-size:50}") int limit,
+            @RequestParam(value = "view", required = false) String view
+    ) {
+        DocumentPage page = documentService.listDocuments(cursor, limit, DocumentView.of(view));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getDocuments());
+    }
+
+    @Operation(summary = "Stream document status changes")
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        log.info("Client subscribed to document status events");
+        return documentEventService.subscribe();
     }
 
     @Operation(summary = "Rename document")
@@ -54,15 +114,108 @@ public class DocumentController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * Streams the document from MinIO without buffering it. A single byte range is answered with 206 and
+     * fetched from MinIO as a ranged read; several ranges, or an {@code If-Range} that no longer matches, get
+     * the whole document. A matching {@code If-None-Match} is answered with 304 before MinIO is read.
+     * In presigned mode the client is redirected to a short-lived MinIO URL instead, and MinIO serves the
+     * bytes, ranges and conditional requests itself.
+     */
     @Operation(summary = "Download document")
     @GetMapping("/{id}/download")
-    public ResponseEntity<byte[]> download(
-            @PathVariable("id") @NotBlank(message = "Document ID must not be blank") String id
+    public ResponseEntity<StreamingResponseBody> download(
+            @PathVariable("id") @NotBlank(message = "Document ID must not be blank") String id,
+            @RequestHeader HttpHeaders requestHeaders,
+            HttpServletRequest request
     ) {
         log.info("Received download request for document ID: {}", id);
-        byte[] data = documentService.getFileBytes(id);
-        log.info("Download successful for document ID: {} ({} bytes)", id, data.length);
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_PDF).body(data);
+        if (presignedEnabled) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(documentService.getDownloadUrl(id))).build();
+        }
+        StoredObject file = documentService.getFileInfo(id);
+        String etag = "\"" + file.getEtag() + "\"";
+        if (matchesAny(requestHeaders.getIfNoneMatch(), etag)) {
+            log.info("Document ID: {} not modified", id);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ResponseEntity.BodyBuilder response;
+        long offset = 0;
+        Long length = null;
+        HttpRange range = requestedRange(requestHeaders, etag);
+        if (range != null) {
+            long end;
+            try {
+                offset = range.getRangeStart(file.getSize());
+                end = range.getRangeEnd(file.getSize());
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(file.getSize());
+            }
+            if (offset >= file.getSize() || offset > end) {
+                return rangeNotSatisfiable(file.getSize());
+            }
+            length = end - offset + 1;
+            response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + end + "/" + file.getSize())
+                    .contentLength(length);
+        } else {
+            response = ResponseEntity.ok().contentLength(file.getSize());
+        }
+        long start = offset;
+        long count = length == null ? file.getSize() : length;
+        response.eTag(etag)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(mediaType(file.getContentType()));
+        Optional<Path> cached = documentService.getCachedFile(id, file, count);
+        if (cached.isPresent()) {
+            return cachedFileResponder.respond(request, response, id, cached.get(), start, count);
+        }
+        log.info("Streaming document ID: {} ({} of {} bytes)", id, count, file.getSize());
+        Long storageLength = length;
+        return response.body(out -> {
+            try (InputStream in = documentService.openFile(id, start, storageLength)) {
+                in.transferTo(out);
+            }
+        });
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+
+    private void requirePresigned() {
+        if (!presignedEnabled) {
+            throw new FeatureDisabledException("Direct uploads are not enabled");
+        }
+    }
+
+    private static boolean matchesAny(List<String> etags, String etag) {
+        return etags.stream().anyMatch(candidate -> candidate.equals("*") || candidate.replaceFirst("^W/", "").equals(etag));
+    }
+
+    /**
+     * The single range to serve, or {@code null} for the whole document. Malformed ranges are ignored.
+     */
+    private static HttpRange requestedRange(HttpHeaders requestHeaders, String etag) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = requestHeaders.getRange();
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static MediaType mediaType(String contentType) {
+        try {
+            return contentType == null ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
     }
 
     @Operation(summary = "Delete document")
@@ -79,10 +232,11 @@ public class DocumentController {
     @Operation(summary = "Get document details")
     @GetMapping("/{id}")
     public ResponseEntity<DocumentRequest> getDocument(
-            @PathVariable("id") @NotBlank(message = "Document ID must not be blank") String id
+            @PathVariable("id") @NotBlank(message = "Document ID must not be blank") String id,
+            @RequestParam(value = "view", required = false) String view
     ) {
         log.info("Received request for document details with ID: {}", id);
-        DocumentRequest doc = documentService.getDocument(id);
+        DocumentRequest doc = documentService.getDocument(id, DocumentView.of(view));
         log.info("Document details retrieved for ID: {}", id);
         return ResponseEntity.ok(doc);
     }
@@ -90,7 +244,8 @@ public class DocumentController {
     @Operation(summary = "Search documents")
     @GetMapping("/search")
     public ResponseEntity<List<DocumentRequest>> search(
-            @RequestParam(value = "query", required = false) String query
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam(value = "view", required = false) String view
     ) {
         log.info("Received search request with query: '{}'", query);
 
@@ -99,7 +254,7 @@ public class DocumentController {
             return ResponseEntity.ok(Collections.emptyList());
         }
 
-        List<DocumentRequest> results = documentService.searchDocuments(query);
+        List<DocumentRequest> results = documentService.searchDocuments(query, DocumentView.of(view));
         log.info("Search completed. Query: '{}', Results count: {}", query, results.size());
         return ResponseEntity.ok(results);
     }
@@ -0,0 +1,17 @@
+package at.fhtw.rest.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentPage {
+    private List<DocumentRequest> documents;
+    private String nextCursor;
+}
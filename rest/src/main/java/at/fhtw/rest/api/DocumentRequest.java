@@ -1,5 +1,6 @@
 package at.fhtw.rest.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +10,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class DocumentRequest {
     private String id;
     private String filename;
@@ -17,5 +18,6 @@ public class DocumentRequest {
     private String filetype;
     private LocalDateTime uploadDate;
     private boolean ocrJobDone;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String ocrText;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package at.fhtw.rest.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Permission to upload one document directly to MinIO. Before the ticket expires, the client posts a
+ * multipart form to the upload URL with all form fields followed by the file in a field named {@code file},
+ * then finalizes the upload under the document ID. Files above the size limit are rejected by MinIO.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadTicket {
+    private String documentId;
+    private String uploadUrl;
+    private String method;
+    private Map<String, String> formFields;
+    private long maxSize;
+    private LocalDateTime expiresAt;
+}
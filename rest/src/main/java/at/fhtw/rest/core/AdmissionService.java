@@ -0,0 +1,7 @@
+package at.fhtw.rest.core;
+
+public interface AdmissionService {
+    String resolveClientClass(String clientKey, String requestedClass);
+    void checkUpload(String clientClass);
+    void recordCompletion();
+}
@@ -0,0 +1,288 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.message.ProcessingShards;
+import at.fhtw.rest.persistence.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides whether a new upload is admitted, based on how long it would wait for OCR.
+ *
+ * <p>
+ * The backlog is the depth of the processing queue, or of all shard queues, plus pending outbox entries,
+ * refreshed periodically.
+ * Throughput is measured from the OCR completions in a sliding window, counted in a fixed number of time
+ * buckets, and divided by the time within the window during which documents were waiting; idle time does
+ * not make the workers look slow. Results are shared among the replicas consuming the result queue, so the
+ * local count is scaled by the ratio of all result consumers to this replica's own. The projected wait is
+ * backlog divided by throughput; once it exceeds the threshold for the caller's client class the upload is
+ * rejected with 429, or with 503 when no worker consumes the queue at all. Both carry a Retry-After
+ * estimate. Uploads are admitted while the backlog cannot be determined and while the workers have not
+ * been observed with waiting documents for the minimum observation time, for example after startup or
+ * after an idle period, since the throughput is unknown then.
+ * </p>
+ *
+ * <p>
+ * The client class comes from configuration: callers present a client key that is mapped to its class.
+ * A caller without a known key may only ask for the bulk class, whose threshold is lower than the
+ * default.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class AdmissionServiceImp implements AdmissionService {
+    public static final String CLIENT_BULK = "bulk";
+    public static final String CLIENT_PRIORITY = "priority";
+    private static final int THROUGHPUT_BUCKETS = 60;
+
+    private final AmqpAdmin amqpAdmin;
+    private final OutboxRepository outboxRepository;
+    private final boolean enabled;
+    private final ProcessingShards processingShards;
+    private final long throughputWindowMs;
+    private final long minObservedMs;
+    private final String resultQueueName;
+    private final int resultConsumersPerReplica;
+    private final double minThroughputPerSecond;
+    private final long defaultMaxWaitSeconds;
+    private final long bulkMaxWaitSeconds;
+    private final long priorityMaxWaitSeconds;
+    private final long maxRetryAfterSeconds;
+    private final Map<String, String> clientClasses = new HashMap<>();
+    private final long bucketMs;
+    private final long[] bucketSlots = new long[THROUGHPUT_BUCKETS];
+    private final long[] bucketCounts = new long[THROUGHPUT_BUCKETS];
+    private final long[] bucketBusyMs = new long[THROUGHPUT_BUCKETS];
+    private final Counter tooManyRequests;
+    private final Counter unavailable;
+    private volatile long backlog = -1;
+    private volatile int consumers = -1;
+    private volatile double replicaScale = 1;
+    private long lastRefreshAt = -1;
+
+    public AdmissionServiceImp(
+            AmqpAdmin amqpAdmin,
+            OutboxRepository outboxRepository,
+            MeterRegistry meterRegistry,
+            @Value("${admission.enabled:true}") boolean enabled,
+            ProcessingShards processingShards,
+            @Value("${admission.throughput-window-seconds:300}") long throughputWindowSeconds,
+            @Value("${admission.min-throughput-per-second:0.05}") double minThroughputPerSecond,
+            @Value("${admission.min-observed-seconds:60}") long minObservedSeconds,
+            @Value("${rabbitmq.queue.result:document_result_queue}") String resultQueueName,
+            @Value("${spring.rabbitmq.listener.simple.concurrency:1}") int resultConsumersPerReplica,
+            @Value("${admission.max-wait-seconds.default:900}") long defaultMaxWaitSeconds,
+            @Value("${admission.max-wait-seconds.bulk:300}") long bulkMaxWaitSeconds,
+            @Value("${admission.max-wait-seconds.priority:3600}") long priorityMaxWaitSeconds,
+            @Value("${admission.max-retry-after-seconds:3600}") long maxRetryAfterSeconds,
+            @Value("${admission.client-keys:}") List<String> clientKeys
+    ) {
+        this.amqpAdmin = amqpAdmin;
+        this.outboxRepository = outboxRepository;
+        this.enabled = enabled;
+        this.processingShards = processingShards;
+        this.throughputWindowMs = throughputWindowSeconds * 1000;
+        this.minThroughputPerSecond = minThroughputPerSecond;
+        this.minObservedMs = minObservedSeconds * 1000;
+        this.resultQueueName = resultQueueName;
+        this.resultConsumersPerReplica = Math.max(1, resultConsumersPerReplica);
+        this.defaultMaxWaitSeconds = defaultMaxWaitSeconds;
+        this.bulkMaxWaitSeconds = bulkMaxWaitSeconds;
+        this.priorityMaxWaitSeconds = priorityMaxWaitSeconds;
+        this.maxRetryAfterSeconds = maxRetryAfterSeconds;
+        this.bucketMs = Math.max(1, throughputWindowMs / THROUGHPUT_BUCKETS);
+        for (String entry : clientKeys) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("admission.client-keys entries must be key=class: " + entry);
+            }
+            clientClasses.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        this.tooManyRequests = Counter.builder("paperless.admission.rejected")
+                .description("Uploads rejected by admission control")
+                .tag("status", "429")
+                .register(meterRegistry);
+        this.unavailable = Counter.builder("paperless.admission.rejected")
+                .description("Uploads rejected by admission control")
+                .tag("status", "503")
+                .register(meterRegistry);
+        Gauge.builder("paperless.admission.backlog", this, AdmissionServiceImp::getBacklog)
+                .description("Documents waiting for OCR (processing queue plus outbox)")
+                .register(meterRegistry);
+        Gauge.builder("paperless.admission.projected.wait", this, AdmissionServiceImp::getProjectedWaitSeconds)
+                .description("Projected OCR wait for a new upload")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("paperless.ocr.throughput", this, AdmissionServiceImp::getThroughputPerSecond)
+                .description("OCR completions per second of all replicas while documents were waiting")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${admission.refresh-interval-ms:5000}")
+    public void refresh() {
+        refresh(System.currentTimeMillis());
+    }
+
+    public void refresh(long now) {
+        if (!enabled) {
+            return;
+        }
+        long previousBacklog = backlog;
+        try {
+            long pendingOutbox = outboxRepository.count();
+            long queued = 0;
+            int queueConsumers = 0;
+            boolean known = false;
+            for (String queue : processingShards.queueNames()) {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                if (info != null) {
+                    known = true;
+                    queued += info.getMessageCount();
+                    queueConsumers += info.getConsumerCount();
+                }
+            }
+            QueueInformation results = amqpAdmin.getQueueInfo(resultQueueName);
+            backlog = queued + pendingOutbox;
+            consumers = known ? queueConsumers : -1;
+            replicaScale = results == null ? 1 : Math.max(1, (double) results.getConsumerCount() / resultConsumersPerReplica);
+        } catch (Exception e) {
+            log.warn("[AdmissionServiceImp.refresh] Could not determine OCR backlog, admitting all uploads: {}", e.getMessage());
+            backlog = -1;
+            consumers = -1;
+        }
+        recordBusy(now, previousBacklog > 0);
+    }
+
+    @Override
+    public String resolveClientClass(String clientKey, String requestedClass) {
+        String configured = clientKey == null ? null : clientClasses.get(clientKey);
+        if (configured != null) {
+            return configured;
+        }
+        return CLIENT_BULK.equalsIgnoreCase(requestedClass) ? CLIENT_BULK : null;
+    }
+
+    @Override
+    public void checkUpload(String clientClass) {
+        checkUpload(clientClass, System.currentTimeMillis());
+    }
+
+    public void checkUpload(String clientClass, long now) {
+        if (!enabled || backlog <= 0) {
+            return;
+        }
+        double projectedWait = getProjectedWaitSeconds(now);
+        long maxWait = maxWaitFor(clientClass);
+        if (Double.isNaN(projectedWait) || projectedWait <= maxWait) {
+            return;
+        }
+        long retryAfter = Math.min(maxRetryAfterSeconds, Math.max(1, (long) Math.ceil(projectedWait - maxWait)));
+        if (consumers == 0) {
+            unavailable.increment();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfter,
+                    String.format("OCR workers unavailable, %d documents waiting", backlog));
+        }
+        tooManyRequests.increment();
+        throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                String.format("OCR backlog too large: projected wait %.0f s exceeds %d s", projectedWait, maxWait));
+    }
+
+    @Override
+    public void recordCompletion() {
+        recordCompletion(System.currentTimeMillis());
+    }
+
+    public synchronized void recordCompletion(long now) {
+        bucketCounts[bucket(now)]++;
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Completions per second of all replicas, or {@code NaN} while documents have been waiting for less
+     * than the minimum observation time within the window.
+     */
+    public double getThroughputPerSecond() {
+        return getThroughputPerSecond(System.currentTimeMillis());
+    }
+
+    public synchronized double getThroughputPerSecond(long now) {
+        long slot = now / bucketMs;
+        long count = 0;
+        long busyMs = 0;
+        for (int bucket = 0; bucket < THROUGHPUT_BUCKETS; bucket++) {
+            if (slot - bucketSlots[bucket] < THROUGHPUT_BUCKETS) {
+                count += bucketCounts[bucket];
+                busyMs += bucketBusyMs[bucket];
+            }
+        }
+        if (busyMs < minObservedMs || busyMs == 0) {
+            return Double.NaN;
+        }
+        return count * replicaScale / (busyMs / 1000.0);
+    }
+
+    public double getProjectedWaitSeconds() {
+        return getProjectedWaitSeconds(System.currentTimeMillis());
+    }
+
+    /**
+     * The projected wait for a new upload, or {@code NaN} while the throughput is unknown.
+     */
+    public double getProjectedWaitSeconds(long now) {
+        if (backlog <= 0) {
+            return 0;
+        }
+        double throughput = getThroughputPerSecond(now);
+        return Double.isNaN(throughput) ? Double.NaN : backlog / Math.max(throughput, minThroughputPerSecond);
+    }
+
+    /**
+     * Accounts the time since the previous refresh as busy if documents were waiting at its start.
+     */
+    private synchronized void recordBusy(long now, boolean busy) {
+        if (busy && lastRefreshAt >= 0 && now > lastRefreshAt) {
+            bucketBusyMs[bucket(now)] += Math.min(now - lastRefreshAt, throughputWindowMs);
+        }
+        lastRefreshAt = now;
+    }
+
+    private int bucket(long now) {
+        long slot = now / bucketMs;
+        int bucket = (int) (slot % THROUGHPUT_BUCKETS);
+        if (bucketSlots[bucket] != slot) {
+            bucketSlots[bucket] = slot;
+            bucketCounts[bucket] = 0;
+            bucketBusyMs[bucket] = 0;
+        }
+        return bucket;
+    }
+
+    private long maxWaitFor(String clientClass) {
+        if (CLIENT_BULK.equalsIgnoreCase(clientClass)) {
+            return bulkMaxWaitSeconds;
+        }
+        if (CLIENT_PRIORITY.equalsIgnoreCase(clientClass)) {
+            return priorityMaxWaitSeconds;
+        }
+        return defaultMaxWaitSeconds;
+    }
+}
@@ -0,0 +1,17 @@
+package at.fhtw.rest.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Path;
+
+public interface CachedFileResponder {
+    /**
+     * Completes the response with {@code count} bytes of the local file starting at {@code start}.
+     *
+     * @param response the response with status and headers already set
+     */
+    ResponseEntity<StreamingResponseBody> respond(
+            HttpServletRequest request, ResponseEntity.BodyBuilder response, String docId, Path file, long start, long count);
+}
@@ -0,0 +1,57 @@
+package at.fhtw.rest.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.Globals;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serves cached copies without copying them through the heap.
+ *
+ * <p>
+ * When Tomcat offers sendfile, the file is handed to it through the request attributes and sent by the
+ * connector once the request returns. On other containers the file channel transfers the range to the
+ * response stream.
+ * </p>
+ */
+
+@Slf4j
+@Component
+public class CachedFileResponderImp implements CachedFileResponder {
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> respond(
+            HttpServletRequest request, ResponseEntity.BodyBuilder response, String docId, Path file, long start, long count
+    ) {
+        if (Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+            log.info("[CachedFileResponderImp.respond] Sending cached document ID: {} ({} bytes)", docId, count);
+            request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, start);
+            request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, start + count);
+            return response.build();
+        }
+        log.info("[CachedFileResponderImp.respond] Streaming cached document ID: {} ({} bytes)", docId, count);
+        return response.body(out -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = start;
+                while (position < start + count) {
+                    long transferred = channel.transferTo(position, start + count - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("Cached file of document " + docId + " is truncated");
+                    }
+                    position += transferred;
+                }
+            }
+        });
+    }
+}
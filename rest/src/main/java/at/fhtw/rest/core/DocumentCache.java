@@ -0,0 +1,12 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.api.DocumentRequest;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+public interface DocumentCache {
+    Optional<DocumentRequest> get(String docId, Function<String, Optional<DocumentRequest>> loader);
+    void invalidate(String docId);
+    void evict(String docId);
+}
@@ -0,0 +1,141 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.message.CacheInvalidationDispatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, in-process cache of document metadata.
+ *
+ * <p>
+ * Entries are invalidated locally when a document is renamed, deleted or its OCR completes, and the
+ * invalidation is broadcast to the other REST replicas through the {@link CacheInvalidationDispatcher}.
+ * Broadcasts are best-effort, so every entry also expires a fixed time after it was loaded; that time is
+ * the maximum staleness a replica can serve after a missed invalidation. A load that overlaps with an
+ * invalidation is returned to its caller but not cached, so an invalidation is never undone by a
+ * concurrent miss. Callers receive copies and may modify them freely.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class DocumentCacheImp implements DocumentCache {
+    private final Optional<CacheInvalidationDispatcher> invalidationDispatcher;
+    private final boolean enabled;
+    private final Cache<String, CachedDocument> cache;
+    private final Cache<String, Boolean> recentInvalidations;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter localInvalidations;
+    private final Counter remoteInvalidations;
+    private final Timer staleness;
+
+    public DocumentCacheImp(
+            Optional<CacheInvalidationDispatcher> invalidationDispatcher,
+            MeterRegistry meterRegistry,
+            @Value("${documents.cache.enabled:true}") boolean enabled,
+            @Value("${documents.cache.max-size:10000}") long maxSize,
+            @Value("${documents.cache.max-staleness-ms:60000}") long maxStalenessMs,
+            @Value("${documents.cache.invalidation-grace-ms:2000}") long invalidationGraceMs
+    ) {
+        this.invalidationDispatcher = invalidationDispatcher;
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxStalenessMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.recentInvalidations = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(invalidationGraceMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.hits = Counter.builder("paperless.cache.documents.requests")
+                .description("Document metadata lookups served by the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("paperless.cache.documents.requests")
+                .description("Document metadata lookups served by the cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.localInvalidations = Counter.builder("paperless.cache.documents.invalidations")
+                .description("Document metadata cache invalidations")
+                .tag("source", "local")
+                .register(meterRegistry);
+        this.remoteInvalidations = Counter.builder("paperless.cache.documents.invalidations")
+                .description("Document metadata cache invalidations")
+                .tag("source", "remote")
+                .register(meterRegistry);
+        this.staleness = Timer.builder("paperless.cache.documents.staleness")
+                .description("Age of the cached document metadata when it is served")
+                .register(meterRegistry);
+        Gauge.builder("paperless.cache.documents.size", cache, Cache::size)
+                .description("Documents held in the metadata cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<DocumentRequest> get(String docId, Function<String, Optional<DocumentRequest>> loader) {
+        if (!enabled) {
+            return loader.apply(docId);
+        }
+        CachedDocument cached = cache.getIfPresent(docId);
+        if (cached != null) {
+            hits.increment();
+            staleness.record(System.currentTimeMillis() - cached.getLoadedAt(), TimeUnit.MILLISECONDS);
+            return Optional.of(cached.getDocument().toBuilder().build());
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        long loadedAt = System.currentTimeMillis();
+        Optional<DocumentRequest> loaded = loader.apply(docId);
+        loaded.ifPresent(document -> {
+            if (recentInvalidations.getIfPresent(docId) != null) {
+                return;
+            }
+            cache.put(docId, new CachedDocument(document.toBuilder().build(), loadedAt));
+            if (invalidations.get() != generation) {
+                cache.invalidate(docId);
+            }
+        });
+        return loaded;
+    }
+
+    @Override
+    public void invalidate(String docId) {
+        remove(docId);
+        localInvalidations.increment();
+        invalidationDispatcher.ifPresent(dispatcher -> dispatcher.sendInvalidation(docId));
+    }
+
+    @Override
+    public void evict(String docId) {
+        remove(docId);
+        remoteInvalidations.increment();
+        log.debug("[DocumentCacheImp.evict] Evicted document {} on remote invalidation", docId);
+    }
+
+    private void remove(String docId) {
+        invalidations.incrementAndGet();
+        recentInvalidations.put(docId, Boolean.TRUE);
+        cache.invalidate(docId);
+    }
+
+    @lombok.Value
+    private static class CachedDocument {
+        DocumentRequest document;
+        long loadedAt;
+    }
+}
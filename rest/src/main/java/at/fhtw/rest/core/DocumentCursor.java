@@ -0,0 +1,44 @@
+package at.fhtw.rest.core;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the document listing: upload date and ID of the last document of a page.
+ *
+ * <p>
+ * Clients receive it as an opaque, URL-safe token and pass it back to get the next page. The next page
+ * starts strictly after this position, so documents uploaded in between neither shift nor repeat entries.
+ * </p>
+ */
+
+@Value
+public class DocumentCursor {
+    private static final char SEPARATOR = '|';
+
+    LocalDateTime uploadDate;
+    UUID id;
+
+    public String encode() {
+        String raw = uploadDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static DocumentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new DocumentCursor(LocalDateTime.parse(raw.substring(0, separator)), DocumentIds.parse(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
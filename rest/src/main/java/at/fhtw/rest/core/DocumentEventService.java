@@ -0,0 +1,9 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.api.DocumentRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface DocumentEventService {
+    SseEmitter subscribe();
+    void publishStatus(DocumentRequest document);
+}
@@ -0,0 +1,169 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.api.DocumentRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes document status changes to connected browsers over Server-Sent Events.
+ *
+ * <p>
+ * Each open UI tab holds one {@link SseEmitter}. Status changes are sent to every subscriber as a
+ * {@value #STATUS_EVENT} event carrying the updated {@link DocumentRequest}; emitters whose connection
+ * broke are dropped on the next send. A periodic comment keeps idle connections open through proxies.
+ * Events are delivered to subscribers of this instance only; clients resynchronise with a list request
+ * after reconnecting.
+ * </p>
+ *
+ * <p>
+ * Publishing only queues the event per subscriber; a small pool of sender threads writes it to the
+ * connections, so a slow client never blocks the thread that reported the status change. A subscriber
+ * whose queue is full has fallen too far behind and is disconnected, to reconnect and resynchronise.
+ * </p>
+ *
+ * <p>
+ * For SSE in Spring MVC, see:
+ * <a href="https://docs.spring.io/spring-framework/reference/web/webmvc/mvc-ann-async.html#mvc-ann-async-sse">Spring MVC SSE</a>.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class DocumentEventServiceImp implements DocumentEventService {
+    public static final String STATUS_EVENT = "document-status";
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final long emitterTimeoutMs;
+    private final long reconnectDelayMs;
+    private final int maxQueuedEvents;
+    private final ExecutorService senderExecutor;
+
+    public DocumentEventServiceImp(
+            @Value("${documents.events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${documents.events.reconnect-delay-ms:3000}") long reconnectDelayMs,
+            @Value("${documents.events.max-queued-events:100}") int maxQueuedEvents,
+            @Value("${documents.events.sender-threads:2}") int senderThreads
+    ) {
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.senderExecutor = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "sse-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(maxQueuedEvents));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        try {
+            emitter.send(SseEmitter.event().reconnectTime(reconnectDelayMs).comment("connected"));
+        } catch (IOException e) {
+            subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+        }
+        log.debug("[DocumentEventServiceImp.subscribe] {} subscribers connected", subscribers.size());
+        return emitter;
+    }
+
+    @Override
+    public void publishStatus(DocumentRequest document) {
+        send(SseEmitter.event()
+                .id(document.getId())
+                .name(STATUS_EVENT)
+                .data(document, MediaType.APPLICATION_JSON));
+    }
+
+    @Scheduled(fixedDelayString = "${documents.events.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) {
+            send(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senderExecutor.shutdown();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) {
+        Set<ResponseBodyEmitter.DataWithMediaType> data = event.build();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.getQueue().offer(data)) {
+                log.debug("[DocumentEventServiceImp.send] Dropping subscriber with {} unsent events", maxQueuedEvents);
+                subscribers.remove(subscriber);
+                subscriber.getDropped().set(true);
+            }
+            if (subscriber.getScheduled().compareAndSet(false, true)) {
+                try {
+                    senderExecutor.execute(() -> flush(subscriber));
+                } catch (RejectedExecutionException e) {
+                    log.debug("[DocumentEventServiceImp.send] Shutting down, event not sent");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the subscriber's queued events. Only one flush per subscriber runs at a time; an event
+     * queued while the flush finishes is picked up by re-checking the queue after releasing it. A dropped
+     * subscriber is completed here as well, since completing waits for a write in progress.
+     */
+    private void flush(Subscriber subscriber) {
+        do {
+            Set<ResponseBodyEmitter.DataWithMediaType> data;
+            while (!subscriber.getDropped().get() && (data = subscriber.getQueue().poll()) != null) {
+                try {
+                    subscriber.getEmitter().send(data);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("[DocumentEventServiceImp.flush] Dropping disconnected subscriber: {}", e.getMessage());
+                    subscribers.remove(subscriber);
+                    subscriber.getQueue().clear();
+                    subscriber.getEmitter().completeWithError(e);
+                    return;
+                }
+            }
+            if (subscriber.getDropped().get()) {
+                subscriber.getQueue().clear();
+                subscriber.getEmitter().complete();
+                return;
+            }
+            subscriber.getScheduled().set(false);
+        } while (!subscriber.getQueue().isEmpty() && subscriber.getScheduled().compareAndSet(false, true));
+    }
+
+    @lombok.Value
+    private static class Subscriber {
+        SseEmitter emitter;
+        BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        AtomicBoolean scheduled = new AtomicBoolean(false);
+        AtomicBoolean dropped = new AtomicBoolean(false);
+    }
+}
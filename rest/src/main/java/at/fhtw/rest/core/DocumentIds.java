@@ -0,0 +1,48 @@
+package at.fhtw.rest.core;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Document identifiers.
+ *
+ * <p>
+ * New documents get time-ordered UUIDs in the version 7 layout: the first 48 bits are the creation time in
+ * milliseconds, the rest is random. Consecutive uploads therefore land next to each other in the primary key
+ * index instead of at random pages. Identifiers are stored in a native {@code uuid} column and exchanged as
+ * their canonical string form, so URLs, object keys and index entries look the same as for the random UUIDs
+ * issued before.
+ * </p>
+ */
+public final class DocumentIds {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private DocumentIds() {
+    }
+
+    public static UUID newId() {
+        return newId(System.currentTimeMillis());
+    }
+
+    public static UUID newId(long epochMillis) {
+        long mostSigBits = (epochMillis << 16) | 0x7000L | (RANDOM.nextInt() & 0x0FFFL);
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Parses a document ID received from a client or another service.
+     *
+     * @throws IllegalArgumentException if the value is not a UUID in canonical form
+     */
+    public static UUID parse(String id) {
+        if (id == null || id.length() != 36) {
+            throw new IllegalArgumentException("Invalid document ID: " + id);
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid document ID: " + id);
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package at.fhtw.rest.core;
 
+import at.fhtw.rest.api.DocumentPage;
 import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.api.UploadTicket;
+import at.fhtw.rest.persistence.StoredObject;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 public interface DocumentService {
     DocumentRequest uploadFile(MultipartFile file) throws IOException;
     DocumentRequest renameFile(String docId, String newName) throws IOException;
-    byte[] getFileBytes(String docId);
+    StoredObject getFileInfo(String docId);
+    InputStream openFile(String docId, long offset, Long length) throws IOException;
+    Optional<Path> getCachedFile(String docId, StoredObject file, long servedBytes);
+    String getDownloadUrl(String docId);
+    UploadTicket createUploadTicket();
+    DocumentRequest finalizeUpload(String docId, String filename);
     void deleteDocument(String docId);
-    DocumentRequest getDocument(String docId);
-    List<DocumentRequest> searchDocuments(String query);
-    List<DocumentRequest> getAllDocuments();
+    DocumentRequest getDocument(String docId, DocumentView view);
+    List<DocumentRequest> searchDocuments(String query, DocumentView view);
+    DocumentPage listDocuments(String cursor, int limit, DocumentView view);
 }
\ No newline at end of file
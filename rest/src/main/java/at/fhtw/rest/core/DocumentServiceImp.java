@@ -1,22 +1,44 @@
 package at.fhtw.rest.core;
 
+import at.fhtw.rest.api.DocumentPage;
 import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.api.UploadTicket;
 import at.fhtw.rest.infrastructure.mapper.DocumentMapper;
 import at.fhtw.rest.message.ProcessingEventDispatcher;
+import at.fhtw.rest.message.TombstoneDispatcher;
 import at.fhtw.rest.persistence.DocumentEntity;
 import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentSummary;
+import at.fhtw.rest.persistence.DocumentTextRepository;
 import at.fhtw.rest.persistence.MinioStorageService;
+import at.fhtw.rest.persistence.OcrTextArchive;
+import at.fhtw.rest.persistence.PresignedPost;
+import at.fhtw.rest.persistence.PresignedUrlService;
+import at.fhtw.rest.persistence.StoredObject;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -36,82 +58,286 @@ import java.util.stream.Collectors;
 public class DocumentServiceImp implements DocumentService {
 
     private final DocumentRepository documentRepository;
+    private final DocumentTextRepository documentTextRepository;
     private final DocumentMapper mapper;
     private final MinioStorageService minioStorageService;
     private final ProcessingEventDispatcher processingEventDispatcher;
     private final ElasticsearchService elasticsearchService;
+    private final TombstoneDispatcher tombstoneDispatcher;
+    private final DocumentCache documentCache;
+    private final OcrTextArchive ocrTextArchive;
+    private final PresignedUrlService presignedUrlService;
+    private final FileCache fileCache;
+    private final TransactionTemplate transactionTemplate;
 
+    @Value("${documents.page.max-size:500}")
+    private int maxPageSize = 500;
+
+    @Value("${documents.search.index-only:false}")
+    private boolean searchIndexOnly;
+
+    @Value("${minio.presigned.max-upload-size:104857600}")
+    private long maxDirectUploadSize = 104857600;
+
+    /**
+     * Streams the file to MinIO, computing its digest on the way, before any database connection is taken.
+     * Only the document row and its processing request are written in a transaction. If that transaction
+     * fails, the stored file is removed again.
+     */
     @Override
     public DocumentRequest uploadFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File must not be empty");
         }
-        String docId = generateDocId();
-        minioStorageService.storeFile(docId, file);
+        UUID id = DocumentIds.newId();
+        String docId = id.toString();
+        String contentDigest = minioStorageService.storeFile(docId, file);
         DocumentEntity entity = new DocumentEntity();
-        entity.setId(docId);
+        entity.setId(id);
         entity.setFilename(file.getOriginalFilename());
         entity.setUploadDate(LocalDateTime.now());
         entity.setFilesize(file.getSize());
         entity.setFiletype(file.getContentType());
-        documentRepository.save(entity);
-        DocumentRequest request = mapper.toDto(entity);
-        processingEventDispatcher.sendProcessingRequest(docId, file.getOriginalFilename());
-        return request;
+        entity.setContentDigest(contentDigest);
+        try {
+            return transactionTemplate.execute(status -> {
+                documentRepository.save(entity);
+                DocumentRequest request = mapper.toDto(entity);
+                processingEventDispatcher.sendProcessingRequest(docId, file.getOriginalFilename(), contentDigest);
+                return request;
+            });
+        } catch (RuntimeException e) {
+            try {
+                minioStorageService.deleteFile(docId);
+            } catch (RuntimeException cleanupFailure) {
+                e.addSuppressed(cleanupFailure);
+            }
+            throw e;
+        }
     }
 
     @Override
     public DocumentRequest renameFile(String docId, String newName) {
         String sanitized = ensurePdfExtension(newName);
         elasticsearchService.updateFilename(docId, sanitized);
-        DocumentEntity entity = documentRepository.findById(docId)
+        DocumentEntity entity = documentRepository.findById(DocumentIds.parse(docId))
                 .orElseThrow(() -> new IllegalArgumentException("Document not found: " + docId));
         entity.setFilename(sanitized);
         documentRepository.save(entity);
+        documentCache.invalidate(docId);
         return mapper.toDto(entity);
     }
 
     @Override
-    public byte[] getFileBytes(String docId) {
-        return minioStorageService.loadFile(docId)
+    public StoredObject getFileInfo(String docId) {
+        return minioStorageService.statFile(docId)
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + docId));
     }
 
     @Override
-    public void deleteDocument(String docId) {
-        minioStorageService.deleteFile(docId);
-        documentRepository.deleteById(docId);
-        elasticsearchService.deleteDocument(docId);
+    public InputStream openFile(String docId, long offset, Long length) throws IOException {
+        return minioStorageService.openFile(docId, offset, length);
     }
 
     @Override
-    public List<DocumentRequest> getAllDocuments() {
-        return documentRepository.findAll().stream().map(mapper::toDto).collect(Collectors.toList());
+    public Optional<Path> getCachedFile(String docId, StoredObject file, long servedBytes) {
+        return fileCache.get(file, servedBytes, () -> minioStorageService.openFile(docId, 0, null));
     }
 
+    /**
+     * Signs a download URL once the document is known; the existence check is served from the
+     * {@link DocumentCache}, so a redirect does not touch Postgres or MinIO.
+     */
     @Override
-    public DocumentRequest getDocument(String docId) {
-        DocumentEntity entity = documentRepository.findById(docId)
+    public String getDownloadUrl(String docId) {
+        UUID id = DocumentIds.parse(docId);
+        documentCache.get(docId, key -> documentRepository.findSummaryById(id).map(mapper::toSummaryDto))
                 .orElseThrow(() -> new IllegalArgumentException("Document not found: " + docId));
+        return presignedUrlService.presignDownload(docId);
+    }
+
+    @Override
+    public UploadTicket createUploadTicket() {
+        String docId = DocumentIds.newId().toString();
+        PresignedPost upload = presignedUrlService.presignUpload(MinioStorageService.uploadKey(docId), maxDirectUploadSize);
+        return UploadTicket.builder()
+                .documentId(docId)
+                .uploadUrl(upload.getUrl())
+                .method("POST")
+                .formFields(upload.getFormFields())
+                .maxSize(maxDirectUploadSize)
+                .expiresAt(LocalDateTime.now().plus(presignedUrlService.getExpiry()))
+                .build();
+    }
+
+    /**
+     * Registers a document whose bytes the client uploaded to MinIO directly. The upload is staged under
+     * {@link MinioStorageService#UPLOAD_PREFIX} and copied to the document key inside MinIO; the staged copy
+     * is removed once the document is committed, or expires with the bucket's lifecycle rule. Size and type
+     * are taken from the stored object, and its ETag stands in for the content digest, as the bytes never
+     * pass through this service. The file name is normalized like on a rename.
+     *
+     * <p>
+     * Finalizing an already registered document returns it unchanged, also when two requests race: each
+     * takes an advisory lock on the document ID first, so the second one waits for the first to commit and
+     * then finds its row. The insert itself skips an existing row instead of failing on the key.
+     * </p>
+     */
+    @Override
+    @Transactional
+    public DocumentRequest finalizeUpload(String docId, String filename) {
+        UUID id = DocumentIds.parse(docId);
+        documentRepository.lockId(id);
+        Optional<DocumentEntity> existing = documentRepository.findById(id);
+        if (existing.isPresent()) {
+            return mapper.toDto(existing.get());
+        }
+        String uploadKey = MinioStorageService.uploadKey(docId);
+        StoredObject staged = minioStorageService.statFile(uploadKey)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found: " + docId));
+        if (staged.getSize() == 0 || staged.getSize() > maxDirectUploadSize) {
+            minioStorageService.deleteFile(uploadKey);
+            throw new IllegalArgumentException("Uploaded file must not be empty or larger than " + maxDirectUploadSize + " bytes");
+        }
+        String sanitized = ensurePdfExtension(filename);
+        String contentDigest = "etag:" + staged.getEtag();
+        int inserted = documentRepository.insertIfAbsent(id, sanitized, staged.getSize(), staged.getContentType(), contentDigest, LocalDateTime.now());
+        DocumentEntity entity = documentRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Finalized document not found: " + docId));
+        if (inserted == 0) {
+            log.info("[DocumentServiceImp.finalizeUpload] Document {} was finalized by a concurrent request", docId);
+            return mapper.toDto(entity);
+        }
+        minioStorageService.copyFile(uploadKey, docId);
+        afterCommit(() -> deleteStagedUpload(uploadKey));
+        processingEventDispatcher.sendProcessingRequest(docId, sanitized, contentDigest);
         return mapper.toDto(entity);
     }
 
+    /**
+     * Deletes the row and its pending processing request in one transaction. The tombstone and the
+     * deletes in MinIO, the caches and Elasticsearch only run once that transaction committed, so a failed
+     * commit leaves the document complete. Each of them is attempted even if an earlier one fails.
+     */
+    @Override
+    @Transactional
+    public void deleteDocument(String docId) {
+        UUID id = DocumentIds.parse(docId);
+        processingEventDispatcher.cancelProcessingRequest(docId);
+        documentRepository.deleteById(id);
+        afterCommit(() -> {
+            runCleanup("tombstone", docId, () -> tombstoneDispatcher.sendTombstone(docId));
+            runCleanup("file", docId, () -> minioStorageService.deleteFile(docId));
+            runCleanup("cached file", docId, () -> fileCache.evict(docId));
+            runCleanup("archived OCR text", docId, () -> ocrTextArchive.delete(id));
+            runCleanup("cache entry", docId, () -> documentCache.invalidate(docId));
+            runCleanup("index entry", docId, () -> elasticsearchService.deleteDocument(docId));
+        });
+    }
+
+    /**
+     * Lists documents newest first, one page at a time, by seeking past the cursor on the
+     * {@code (upload_date, doc_id)} index. Only metadata columns are read, so the cost of a page does not
+     * depend on the size of the library or on how far the client has paged. The full view adds the OCR text
+     * of the page with one batched query.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public DocumentPage listDocuments(String cursor, int limit, DocumentView view) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        Limit fetch = Limit.of(pageSize + 1);
+        DocumentCursor after = cursor == null || cursor.isBlank() ? null : DocumentCursor.decode(cursor);
+        List<DocumentSummary> rows = after == null
+                ? documentRepository.findFirstSummaries(fetch)
+                : documentRepository.findSummariesBefore(after.getUploadDate(), after.getId(), fetch);
+        DocumentPage page = page(rows, pageSize, summary -> new DocumentCursor(summary.getUploadDate(), summary.getId()), mapper::toSummaryDto);
+        if (view == DocumentView.FULL) {
+            attachOcrText(page.getDocuments());
+        }
+        return page;
+    }
+
+    /**
+     * Serves the document's metadata from the {@link DocumentCache}; only the OCR text of the full view is
+     * always read from Postgres, or from the {@link OcrTextArchive} once it was offloaded.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public DocumentRequest getDocument(String docId, DocumentView view) {
+        UUID id = DocumentIds.parse(docId);
+        DocumentRequest document = documentCache.get(docId, key -> documentRepository.findSummaryById(id).map(mapper::toSummaryDto))
+                .orElseThrow(() -> new IllegalArgumentException("Document not found: " + docId));
+        if (view == DocumentView.FULL) {
+            documentTextRepository.findById(id).ifPresent(text -> document.setOcrText(ocrTextArchive.textOf(text)));
+        }
+        return document;
+    }
+
+    /**
+     * Searches Elasticsearch and returns the hits in relevance order. By default the hits are hydrated from
+     * Postgres with one batched query. In index-only mode the results are built from the Elasticsearch
+     * {@code _source}, and only hits indexed without metadata are hydrated from Postgres.
+     */
     @Override
-    public List<DocumentRequest> searchDocuments(String query) {
+    @Transactional(readOnly = true)
+    public List<DocumentRequest> searchDocuments(String query, DocumentView view) {
+        if (searchIndexOnly) {
+            List<DocumentRequest> hits = elasticsearchService.searchDocuments(query, view);
+            List<String> incomplete = hits.stream()
+                    .filter(hit -> hit.getUploadDate() == null)
+                    .map(DocumentRequest::getId)
+                    .toList();
+            if (incomplete.isEmpty()) {
+                return hits;
+            }
+            Map<String, DocumentRequest> hydrated = hydrate(incomplete, view);
+            return hits.stream()
+                    .map(hit -> hit.getUploadDate() == null ? hydrated.get(hit.getId()) : hit)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
         List<String> docIds = elasticsearchService.searchIdsByQuery(query);
-        if (docIds == null) {
-            docIds = Collections.emptyList();
+        if (docIds == null || docIds.isEmpty()) {
+            return Collections.emptyList();
         }
+        Map<String, DocumentRequest> hydrated = hydrate(docIds, view);
         return docIds.stream()
-                .map(documentRepository::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(mapper::toDto)
+                .map(hydrated::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    private String generateDocId() {
-        return UUID.randomUUID().toString();
+    private Map<String, DocumentRequest> hydrate(List<String> docIds, DocumentView view) {
+        Map<String, DocumentRequest> byId = new HashMap<>();
+        List<UUID> ids = docIds.stream().map(DocumentIds::parse).toList();
+        documentRepository.findSummariesByIdIn(ids).forEach(summary -> byId.put(summary.getId().toString(), mapper.toSummaryDto(summary)));
+        if (view == DocumentView.FULL) {
+            attachOcrText(byId.values());
+        }
+        return byId;
+    }
+
+    /**
+     * Loads the OCR text of the given documents with one query; the text lives in its own table and is only
+     * read by the full view. Offloaded texts are fetched from the archive one by one.
+     */
+    private void attachOcrText(Collection<DocumentRequest> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        Map<String, String> texts = new HashMap<>();
+        documentTextRepository.findAllById(documents.stream().map(document -> DocumentIds.parse(document.getId())).toList())
+                .forEach(text -> texts.put(text.getId().toString(), ocrTextArchive.textOf(text)));
+        documents.forEach(document -> document.setOcrText(texts.get(document.getId())));
+    }
+
+    private <T> DocumentPage page(List<T> rows, int pageSize, Function<T, DocumentCursor> position, Function<T, DocumentRequest> toDto) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return DocumentPage.builder()
+                .documents(page.stream().map(toDto).collect(Collectors.toList()))
+                .nextCursor(hasMore ? position.apply(page.get(page.size() - 1)).encode() : null)
+                .build();
     }
 
     public String ensurePdfExtension(String name) {
@@ -129,4 +355,40 @@ public class DocumentServiceImp implements DocumentService {
         }
         return name + ".pdf";
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs after the document is committed, so a finalize racing this one still finds the staged upload until
+     * the document is visible.
+     */
+    private void deleteStagedUpload(String uploadKey) {
+        try {
+            minioStorageService.deleteFile(uploadKey);
+        } catch (RuntimeException e) {
+            log.warn("[DocumentServiceImp.finalizeUpload] Could not delete staged upload {}, it expires with the bucket lifecycle: {}", uploadKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction committed, or right away outside of a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void runCleanup(String what, String docId, Runnable cleanup) {
+        try {
+            cleanup.run();
+        } catch (RuntimeException e) {
+            log.error("[DocumentServiceImp.deleteDocument] Could not remove the {} of deleted document {}: {}", what, docId, e.getMessage());
+        }
+    }
+}
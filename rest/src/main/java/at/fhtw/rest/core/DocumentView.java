@@ -0,0 +1,31 @@
+package at.fhtw.rest.core;
+
+import java.util.Arrays;
+
+/**
+ * How much of a document an endpoint returns.
+ *
+ * <p>
+ * {@link #SUMMARY} carries the metadata only and is the default. {@link #FULL} adds the OCR text. The view
+ * is passed down to the queries, so a summary never reads the OCR text from Postgres or Elasticsearch.
+ * </p>
+ */
+public enum DocumentView {
+    SUMMARY,
+    FULL;
+
+    public static final String OCR_TEXT_FIELD = "ocrText";
+
+    /**
+     * Resolves the view from the {@code view} request parameter.
+     */
+    public static DocumentView of(String view) {
+        if (view == null || view.isBlank()) {
+            return SUMMARY;
+        }
+        return Arrays.stream(values())
+                .filter(candidate -> candidate.name().equalsIgnoreCase(view.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown view: " + view));
+    }
+}
@@ -1,9 +1,19 @@
 package at.fhtw.rest.core;
 
+import at.fhtw.rest.api.DocumentRequest;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ElasticsearchService {
     void updateFilename(String docId, String newFilename);
     void deleteDocument(String docId);
+    void updateMetadata(String docId, long filesize, String filetype, LocalDateTime uploadDate);
     List<String> searchIdsByQuery(String query);
+
+    /**
+     * Searches and builds the results from the indexed {@code _source} alone, reading the OCR text only for
+     * the full view. Hits indexed without metadata come back with only their ID and no upload date.
+     */
+    List<DocumentRequest> searchDocuments(String query, DocumentView view);
 }
\ No newline at end of file
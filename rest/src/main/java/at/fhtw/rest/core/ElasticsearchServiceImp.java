@@ -2,19 +2,28 @@ package at.fhtw.rest.core;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.DeleteRequest;
 import co.elastic.clients.elasticsearch.core.UpdateRequest;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import at.fhtw.rest.api.DocumentRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.*;
 
+/**
+ * Search engine backed by Elasticsearch. Searches that fail throw a {@link SearchUnavailableException}, so
+ * the {@link SearchRouter} can tell an unavailable engine from a query without hits.
+ */
+
 @Slf4j
 @Service
 public class ElasticsearchServiceImp implements ElasticsearchService {
+    private static final List<String> SUMMARY_FIELDS = List.of("filename", "filesize", "filetype", "uploadDate", "ocrJobDone");
 
     private final ElasticsearchClient esClient;
     private final String indexName;
@@ -44,6 +53,27 @@ public class ElasticsearchServiceImp implements ElasticsearchService {
         }
     }
 
+    @Override
+    public void updateMetadata(String docId, long filesize, String filetype, LocalDateTime uploadDate) {
+        Map<String, Object> updateFields = new HashMap<>();
+        updateFields.put("filesize", filesize);
+        updateFields.put("filetype", filetype);
+        updateFields.put("uploadDate", uploadDate == null ? null : uploadDate.toString());
+        updateFields.put("ocrJobDone", true);
+        try {
+            esClient.update(
+                    UpdateRequest.of(u -> u
+                            .index(indexName)
+                            .id(docId)
+                            .doc(updateFields)
+                    ),
+                    Map.class
+            );
+        } catch (ElasticsearchException | IOException e) {
+            log.error("Error updating metadata for document {}: {}", docId, e.getMessage());
+        }
+    }
+
     @Override
     public void deleteDocument(String docId) {
         try {
@@ -64,18 +94,68 @@ public class ElasticsearchServiceImp implements ElasticsearchService {
                             .index(indexName)
                             .allowNoIndices(true)
                             .ignoreUnavailable(true)
-                            .query(q -> q.multiMatch(mm -> mm
-                                    .fields("filename", "ocrText")
-                                    .query(query)
-                                    .fuzziness("AUTO")
-                            ))
+                            .query(matching(query))
+                            .source(src -> src.fetch(false))
                             .size(50),
                     Map.class
             );
             return response.hits().hits().stream().map(Hit::id).toList();
         } catch (ElasticsearchException | IOException e) {
             log.error("Search failed for query {}: {}", query, e.getMessage());
+            throw new SearchUnavailableException("Elasticsearch search failed", e);
+        }
+    }
+
+    @Override
+    public List<DocumentRequest> searchDocuments(String query, DocumentView view) {
+        if (query == null || query.isBlank()) {
             return Collections.emptyList();
         }
+        List<String> includes = new ArrayList<>(SUMMARY_FIELDS);
+        if (view == DocumentView.FULL) {
+            includes.add(DocumentView.OCR_TEXT_FIELD);
+        }
+        try {
+            var response = esClient.search(
+                    s -> s
+                            .index(indexName)
+                            .allowNoIndices(true)
+                            .ignoreUnavailable(true)
+                            .query(matching(query))
+                            .source(src -> src.filter(f -> f.includes(includes)))
+                            .size(50),
+                    Map.class
+            );
+            List<DocumentRequest> documents = new ArrayList<>();
+            for (Hit<Map> hit : response.hits().hits()) {
+                documents.add(toDocument(hit.id(), hit.source()));
+            }
+            return documents;
+        } catch (ElasticsearchException | IOException e) {
+            log.error("Search failed for query {}: {}", query, e.getMessage());
+            throw new SearchUnavailableException("Elasticsearch search failed", e);
+        }
+    }
+
+    private Query matching(String query) {
+        return Query.of(q -> q.multiMatch(mm -> mm
+                .fields("filename", DocumentView.OCR_TEXT_FIELD)
+                .query(query)
+                .fuzziness("AUTO")
+        ));
+    }
+
+    private DocumentRequest toDocument(String docId, Map<?, ?> source) {
+        DocumentRequest document = DocumentRequest.builder().id(docId).build();
+        if (source == null || source.get("uploadDate") == null) {
+            return document;
+        }
+        document.setFilename((String) source.get("filename"));
+        document.setFilesize(source.get("filesize") instanceof Number size ? size.longValue() : 0);
+        document.setFiletype((String) source.get("filetype"));
+        document.setUploadDate(LocalDateTime.parse(source.get("uploadDate").toString()));
+        document.setOcrJobDone(!Boolean.FALSE.equals(source.get("ocrJobDone")));
+        document.setOcrText((String) source.get(DocumentView.OCR_TEXT_FIELD));
+        return document;
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package at.fhtw.rest.core;
+
+/**
+ * Thrown when a request targets an optional feature that is switched off in this deployment.
+ */
+public class FeatureDisabledException extends RuntimeException {
+    public FeatureDisabledException(String message) {
+        super(message);
+    }
+}
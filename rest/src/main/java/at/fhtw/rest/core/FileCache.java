@@ -0,0 +1,25 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.persistence.StoredObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface FileCache {
+    /**
+     * Returns the local copy of the stored object, filling it through the loader on a miss.
+     *
+     * @param servedBytes the number of bytes the caller is about to serve from the copy
+     * @return the cached file, or empty when the object is not cached and has to be read from storage
+     */
+    Optional<Path> get(StoredObject object, long servedBytes, FileLoader loader);
+
+    void evict(String objectKey);
+
+    @FunctionalInterface
+    interface FileLoader {
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,283 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.persistence.StoredObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed cache of frequently downloaded documents, bounded by the bytes it holds.
+ *
+ * <p>
+ * On a miss the whole object is copied from storage into the cache directory and the least recently used
+ * files are evicted until the cache fits its budget again. Concurrent misses for the same object share a
+ * single fill; the other requests wait for it instead of fetching the object themselves. Objects larger
+ * than the per-object limit are never cached. A cached copy is only served while its ETag matches the
+ * stored object, so callers keep checking the object in storage, which also makes deletes on other
+ * replicas visible immediately.
+ * </p>
+ *
+ * <p>
+ * Callers receive the path of the cached file and may hand it to the servlet container for a zero-copy
+ * transfer after the request returned. Evicted files are therefore deleted only after a grace period.
+ * Leftover files from a previous run are removed on startup.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class FileCacheImp implements FileCache {
+    private static final String FILE_SUFFIX = ".cache";
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final long evictionGraceMs;
+    private final LinkedHashMap<String, CachedFile> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<RetiredFile> retired = new ArrayDeque<>();
+    private final Map<String, CompletableFuture<CachedFile>> fills = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+    private final Counter bytesSaved;
+    private final Counter evictions;
+    private volatile boolean enabled;
+    private long cachedBytes;
+
+    public FileCacheImp(
+            MeterRegistry meterRegistry,
+            @Value("${documents.file-cache.enabled:true}") boolean enabled,
+            @Value("${documents.file-cache.directory:${java.io.tmpdir}/paperless-file-cache}") Path directory,
+            @Value("${documents.file-cache.max-bytes:1073741824}") long maxBytes,
+            @Value("${documents.file-cache.max-object-bytes:33554432}") long maxObjectBytes,
+            @Value("${documents.file-cache.eviction-grace-ms:60000}") long evictionGraceMs
+    ) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = Math.min(maxObjectBytes, maxBytes);
+        this.evictionGraceMs = evictionGraceMs;
+        this.hits = Counter.builder("paperless.cache.files.requests")
+                .description("Document downloads looked up in the file cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("paperless.cache.files.requests")
+                .description("Document downloads looked up in the file cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("paperless.cache.files.requests")
+                .description("Document downloads looked up in the file cache")
+                .tag("result", "bypass")
+                .register(meterRegistry);
+        this.bytesSaved = Counter.builder("paperless.cache.files.bytes.saved")
+                .description("Bytes served from the file cache instead of storage")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("paperless.cache.files.evictions")
+                .description("Files evicted from the file cache to stay within its size")
+                .register(meterRegistry);
+        Gauge.builder("paperless.cache.files.size", this, FileCacheImp::getCachedBytes)
+                .description("Bytes held in the file cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("paperless.cache.files.hit.ratio", this, FileCacheImp::getHitRatio)
+                .description("Share of cacheable downloads served from an existing cached file")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (isCacheFile(file)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            log.info("[FileCacheImp.init] Caching up to {} bytes of documents in {}", maxBytes, directory);
+        } catch (IOException e) {
+            log.warn("[FileCacheImp.init] Cache directory {} is not usable, documents are served from storage: {}", directory, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    @Override
+    public Optional<Path> get(StoredObject object, long servedBytes, FileLoader loader) {
+        if (!enabled || object.getSize() <= 0 || object.getSize() > maxObjectBytes) {
+            bypassed.increment();
+            return Optional.empty();
+        }
+        String objectKey = object.getObjectKey();
+        CachedFile cached = lookup(objectKey, object.getEtag());
+        if (cached != null) {
+            hits.increment();
+            bytesSaved.increment(servedBytes);
+            return Optional.of(cached.getPath());
+        }
+        misses.increment();
+        CompletableFuture<CachedFile> fill = new CompletableFuture<>();
+        CompletableFuture<CachedFile> running = fills.putIfAbsent(objectKey, fill);
+        if (running != null) {
+            cached = running.join();
+            if (cached == null || !cached.getEtag().equals(object.getEtag())) {
+                return Optional.empty();
+            }
+            bytesSaved.increment(servedBytes);
+            return Optional.of(cached.getPath());
+        }
+        try {
+            cached = lookup(objectKey, object.getEtag());
+            if (cached == null) {
+                cached = fill(object, loader);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("[FileCacheImp.get] Could not cache object {}, serving it from storage: {}", objectKey, e.getMessage());
+            cached = null;
+        } finally {
+            fill.complete(cached);
+            fills.remove(objectKey, fill);
+        }
+        return Optional.ofNullable(cached).map(CachedFile::getPath);
+    }
+
+    @Override
+    public synchronized void evict(String objectKey) {
+        CachedFile cached = entries.remove(objectKey);
+        if (cached != null) {
+            retire(cached, System.currentTimeMillis());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${documents.file-cache.purge-interval-ms:10000}")
+    public void purgeRetired() {
+        purgeRetired(System.currentTimeMillis());
+    }
+
+    /**
+     * Deletes the evicted files whose grace period has passed.
+     */
+    public void purgeRetired(long now) {
+        List<Path> expired = new ArrayList<>();
+        synchronized (this) {
+            while (!retired.isEmpty() && now - retired.peekFirst().getRetiredAt() >= evictionGraceMs) {
+                expired.add(retired.pollFirst().getPath());
+            }
+        }
+        for (Path file : expired) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("[FileCacheImp.purgeRetired] Could not delete evicted file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public double getHitRatio() {
+        double lookups = hits.count() + misses.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+
+    private synchronized CachedFile lookup(String objectKey, String etag) {
+        CachedFile cached = entries.get(objectKey);
+        if (cached == null || cached.getEtag().equals(etag)) {
+            return cached;
+        }
+        entries.remove(objectKey);
+        retire(cached, System.currentTimeMillis());
+        return null;
+    }
+
+    private CachedFile fill(StoredObject object, FileLoader loader) throws IOException {
+        String name = UUID.randomUUID().toString();
+        Path part = directory.resolve(name + PART_SUFFIX);
+        try {
+            long copied;
+            try (InputStream in = loader.open()) {
+                copied = Files.copy(in, part);
+            }
+            if (copied != object.getSize()) {
+                throw new IOException(String.format("expected %d bytes but read %d", object.getSize(), copied));
+            }
+            Path file = directory.resolve(name + FILE_SUFFIX);
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            CachedFile cached = new CachedFile(file, object.getEtag(), copied);
+            insert(object.getObjectKey(), cached);
+            log.debug("[FileCacheImp.fill] Cached object {} ({} bytes)", object.getObjectKey(), copied);
+            return cached;
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private synchronized void insert(String objectKey, CachedFile cached) {
+        long now = System.currentTimeMillis();
+        CachedFile previous = entries.put(objectKey, cached);
+        if (previous != null) {
+            retire(previous, now);
+        }
+        cachedBytes += cached.getSize();
+        Iterator<CachedFile> eldest = entries.values().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            CachedFile victim = eldest.next();
+            eldest.remove();
+            retire(victim, now);
+            evictions.increment();
+        }
+    }
+
+    private void retire(CachedFile cached, long now) {
+        cachedBytes -= cached.getSize();
+        retired.addLast(new RetiredFile(cached.getPath(), now));
+    }
+
+    private static boolean isCacheFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(FILE_SUFFIX) || name.endsWith(PART_SUFFIX);
+    }
+
+    @lombok.Value
+    private static class CachedFile {
+        Path path;
+        String etag;
+        long size;
+    }
+
+    @lombok.Value
+    private static class RetiredFile {
+        Path path;
+        long retiredAt;
+    }
+}
@@ -0,0 +1,80 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.persistence.DocumentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Search engine backed by Postgres full-text search.
+ *
+ * <p>
+ * File names and OCR text carry plain {@code search_vector} columns with GIN indexes. The triggers
+ * {@code documents_search_vector_update} and {@code document_texts_search_vector_update} (V5, the latter
+ * replaced in V7) fill them on every insert and on updates of the file name or text, and V6 backfilled the
+ * rows written before, so the update methods have nothing to do. Queries use the web search syntax
+ * (quoted phrases, {@code or}, {@code -word}) and are ranked with {@code ts_rank}, file name matches first.
+ * Unlike Elasticsearch there is no fuzzy matching. Results carry only the document ID and are hydrated by
+ * the {@link DocumentService}.
+ * </p>
+ *
+ * <p>
+ * For details, see:
+ * <a href="https://www.postgresql.org/docs/current/textsearch.html">PostgreSQL Full Text Search</a>.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class PostgresSearchServiceImp implements ElasticsearchService {
+    private final DocumentRepository documentRepository;
+    private final int maxResults;
+
+    public PostgresSearchServiceImp(DocumentRepository documentRepository,
+                                    @Value("${search.postgres.max-results:50}") int maxResults) {
+        this.documentRepository = documentRepository;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public void updateFilename(String docId, String newFilename) {
+        // The trigger on documents recomputes the search vector when the file name changes.
+    }
+
+    @Override
+    public void deleteDocument(String docId) {
+        // The search vectors are columns of the rows deleted with the document.
+    }
+
+    @Override
+    public void updateMetadata(String docId, long filesize, String filetype, LocalDateTime uploadDate) {
+        // Metadata is read from the documents row.
+    }
+
+    @Override
+    public List<String> searchIdsByQuery(String query) {
+        if (query == null || query.isBlank()) {
+            return Collections.emptyList();
+        }
+        try {
+            return documentRepository.searchIds(query, maxResults).stream().map(UUID::toString).toList();
+        } catch (DataAccessException e) {
+            log.error("[PostgresSearchServiceImp.searchIdsByQuery] Search failed for query {}: {}", query, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public List<DocumentRequest> searchDocuments(String query, DocumentView view) {
+        return searchIdsByQuery(query).stream()
+                .map(docId -> DocumentRequest.builder().id(docId).build())
+                .toList();
+    }
+}
@@ -0,0 +1,122 @@
+package at.fhtw.rest.core;
+
+import at.fhtw.rest.api.DocumentRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Chooses the search engine for each request.
+ *
+ * <p>
+ * With {@code search.engine=postgres} all searches go to the {@link PostgresSearchServiceImp} and
+ * Elasticsearch is not used at all. With the default {@code elasticsearch} engine, a failed Elasticsearch
+ * search is answered from Postgres instead, and further searches skip Elasticsearch until the retry
+ * interval has passed, so requests do not wait for a degraded cluster. Index updates always go to the
+ * primary engine only; the Postgres vectors are generated from the tables and need none.
+ * </p>
+ */
+
+@Slf4j
+@Service
+@Primary
+public class SearchRouter implements ElasticsearchService {
+    public static final String ENGINE_ELASTICSEARCH = "elasticsearch";
+    public static final String ENGINE_POSTGRES = "postgres";
+
+    private final ElasticsearchServiceImp elasticsearch;
+    private final PostgresSearchServiceImp postgres;
+    private final boolean postgresPrimary;
+    private final boolean fallbackEnabled;
+    private final long retryAfterMs;
+    private final Counter fallbacks;
+    private volatile long elasticsearchRetryAt;
+
+    public SearchRouter(
+            ElasticsearchServiceImp elasticsearch,
+            PostgresSearchServiceImp postgres,
+            MeterRegistry meterRegistry,
+            @Value("${search.engine:elasticsearch}") String engine,
+            @Value("${search.fallback.enabled:true}") boolean fallbackEnabled,
+            @Value("${search.fallback.retry-after-ms:30000}") long retryAfterMs
+    ) {
+        if (!ENGINE_ELASTICSEARCH.equalsIgnoreCase(engine) && !ENGINE_POSTGRES.equalsIgnoreCase(engine)) {
+            throw new IllegalArgumentException("Unknown search engine: " + engine);
+        }
+        this.elasticsearch = elasticsearch;
+        this.postgres = postgres;
+        this.postgresPrimary = ENGINE_POSTGRES.equalsIgnoreCase(engine);
+        this.fallbackEnabled = fallbackEnabled;
+        this.retryAfterMs = retryAfterMs;
+        this.fallbacks = Counter.builder("paperless.search.fallbacks")
+                .description("Searches answered by Postgres because Elasticsearch was degraded")
+                .register(meterRegistry);
+        Gauge.builder("paperless.search.elasticsearch.degraded", this, router -> router.isElasticsearchDegraded() ? 1 : 0)
+                .description("Whether searches currently bypass Elasticsearch")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void updateFilename(String docId, String newFilename) {
+        primary().updateFilename(docId, newFilename);
+    }
+
+    @Override
+    public void deleteDocument(String docId) {
+        primary().deleteDocument(docId);
+    }
+
+    @Override
+    public void updateMetadata(String docId, long filesize, String filetype, LocalDateTime uploadDate) {
+        primary().updateMetadata(docId, filesize, filetype, uploadDate);
+    }
+
+    @Override
+    public List<String> searchIdsByQuery(String query) {
+        return search(engine -> engine.searchIdsByQuery(query));
+    }
+
+    @Override
+    public List<DocumentRequest> searchDocuments(String query, DocumentView view) {
+        return search(engine -> engine.searchDocuments(query, view));
+    }
+
+    public boolean isElasticsearchDegraded() {
+        return !postgresPrimary && System.currentTimeMillis() < elasticsearchRetryAt;
+    }
+
+    private ElasticsearchService primary() {
+        return postgresPrimary ? postgres : elasticsearch;
+    }
+
+    private <T> List<T> search(Function<ElasticsearchService, List<T>> search) {
+        if (postgresPrimary) {
+            return search.apply(postgres);
+        }
+        if (fallbackEnabled && isElasticsearchDegraded()) {
+            fallbacks.increment();
+            return search.apply(postgres);
+        }
+        try {
+            return search.apply(elasticsearch);
+        } catch (SearchUnavailableException e) {
+            if (!fallbackEnabled) {
+                log.error("[SearchRouter.search] Elasticsearch unavailable and fallback disabled: {}", e.getMessage());
+                return Collections.emptyList();
+            }
+            elasticsearchRetryAt = System.currentTimeMillis() + retryAfterMs;
+            log.warn("[SearchRouter.search] Elasticsearch unavailable, searching Postgres for the next {} ms: {}", retryAfterMs, e.getMessage());
+            fallbacks.increment();
+            return search.apply(postgres);
+        }
+    }
+}
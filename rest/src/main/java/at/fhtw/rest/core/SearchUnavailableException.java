@@ -0,0 +1,10 @@
+package at.fhtw.rest.core;
+
+/**
+ * Thrown by a search engine that could not answer a query, as opposed to a query without hits.
+ */
+public class SearchUnavailableException extends RuntimeException {
+    public SearchUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
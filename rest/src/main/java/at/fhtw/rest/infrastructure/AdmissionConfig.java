@@ -0,0 +1,45 @@
+package at.fhtw.rest.infrastructure;
+
+import at.fhtw.rest.core.AdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Applies admission control to uploads before the multipart body is read.
+ *
+ * <p>
+ * Multipart resolution is lazy, so a rejected upload is answered without buffering the file. Requests for
+ * a direct-upload ticket are admitted the same way, before any bytes reach MinIO. Callers
+ * identify themselves with a configured key in the {@value #CLIENT_KEY_HEADER} header; the
+ * {@value #CLIENT_CLASS_HEADER} header is only honoured where it cannot raise the caller's limits.
+ * </p>
+ */
+
+@Configuration
+@RequiredArgsConstructor
+public class AdmissionConfig implements WebMvcConfigurer {
+    public static final String CLIENT_CLASS_HEADER = "X-Client-Class";
+    public static final String CLIENT_KEY_HEADER = "X-Client-Key";
+
+    private final AdmissionService admissionService;
+
+    @Override
+    public void addInterceptors(@NotNull InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull Object handler) {
+                if ("POST".equals(request.getMethod())) {
+                    admissionService.checkUpload(admissionService.resolveClientClass(
+                            request.getHeader(CLIENT_KEY_HEADER), request.getHeader(CLIENT_CLASS_HEADER)));
+                }
+                return true;
+            }
+        }).addPathPatterns("/documents", "/documents/uploads");
+    }
+}
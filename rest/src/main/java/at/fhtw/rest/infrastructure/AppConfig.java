@@ -1,16 +1,35 @@
 package at.fhtw.rest.infrastructure;
 
+import at.fhtw.rest.message.ProcessingShards;
+import at.fhtw.rest.persistence.MultipartMinioClient;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.CustomExchange;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Configuration
@@ -37,6 +56,12 @@ public class AppConfig {
     @Value("${rabbitmq.routing-key.processing:document_routing_key}")
     private String processingRoutingKey;
 
+    @Value("${rabbitmq.tombstone.exchange:document_tombstone_exchange}")
+    private String tombstoneExchangeName;
+
+    @Value("${rabbitmq.cache-invalidation.exchange:document_cache_invalidation_exchange}")
+    private String cacheInvalidationExchangeName;
+
     @Value("${rabbitmq.routing-key.result:document_result_key}")
     private String resultRoutingKey;
 
@@ -47,9 +72,12 @@ public class AppConfig {
         log.debug("Exchange Name: {}", exchangeName);
         log.debug("Processing Routing Key: {}", processingRoutingKey);
         log.debug("Result Routing Key: {}", resultRoutingKey);
+        log.debug("Tombstone Exchange Name: {}", tombstoneExchangeName);
+        log.debug("Cache Invalidation Exchange Name: {}", cacheInvalidationExchangeName);
     }
 
     @Bean
+    @Primary
     public MinioClient minioClient() {
         return MinioClient.builder()
                 .endpoint(minioEndpoint)
@@ -57,6 +85,42 @@ public class AppConfig {
                 .build();
     }
 
+    /**
+     * Client that only signs URLs for clients outside the cluster. It uses the endpoint they reach MinIO on
+     * and a fixed region, so signing stays offline.
+     */
+    @Bean
+    public MinioClient presigningMinioClient(
+            @Value("${minio.presigned.public-endpoint:${minio.endpoint}}") String publicEndpoint,
+            @Value("${minio.region:us-east-1}") String region
+    ) {
+        return MinioClient.builder()
+                .endpoint(publicEndpoint)
+                .region(region)
+                .credentials(minioAccessKey, minioSecretKey)
+                .build();
+    }
+
+    /**
+     * Client for the parallel part uploads. Its dispatcher allows as many concurrent requests to MinIO as
+     * all uploads together may have parts in flight, instead of OkHttp's default of five per host.
+     */
+    @Bean
+    public MultipartMinioClient multipartMinioClient(@Value("${minio.upload.max-concurrent-parts:32}") int maxConcurrentParts) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentParts);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentParts);
+        long timeout = TimeUnit.MINUTES.toMillis(5);
+        OkHttpClient httpClient = HttpUtils.newDefaultHttpClient(timeout, timeout, timeout).newBuilder()
+                .dispatcher(dispatcher)
+                .build();
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(minioEndpoint)
+                .credentials(minioAccessKey, minioSecretKey)
+                .httpClient(httpClient)
+                .build());
+    }
+
     @Bean
     public Queue processingQueue() {
         return new Queue(processingQueueName, true);
@@ -72,12 +136,56 @@ public class AppConfig {
         return new TopicExchange(exchangeName);
     }
 
+    @Bean
+    public FanoutExchange tombstoneExchange() {
+        return new FanoutExchange(tombstoneExchangeName);
+    }
+
+    /**
+     * Every REST replica binds its own temporary queue to the cache invalidation fanout.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
+    public FanoutExchange cacheInvalidationExchange() {
+        return new FanoutExchange(cacheInvalidationExchangeName);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("document_cache_invalidation."));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
+    public Binding cacheInvalidationBinding(@Qualifier("cacheInvalidationQueue") Queue cacheInvalidationQueue,
+                                            @Qualifier("cacheInvalidationExchange") FanoutExchange cacheInvalidationExchange) {
+        return BindingBuilder.bind(cacheInvalidationQueue).to(cacheInvalidationExchange);
+    }
+
     @Bean
     public Binding processingBinding(@Qualifier("processingQueue") Queue processingQueue,
                                      TopicExchange documentExchange) {
         return BindingBuilder.bind(processingQueue).to(documentExchange).with(processingRoutingKey);
     }
 
+    /**
+     * Consistent-hash exchange with one equally weighted, single-active-consumer queue per shard.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Declarables shardedProcessingDeclarables(ProcessingShards processingShards) {
+        CustomExchange exchange = new CustomExchange(processingShards.getExchange(), ProcessingShards.EXCHANGE_TYPE, true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        for (String queueName : processingShards.queueNames()) {
+            Queue shard = QueueBuilder.durable(queueName).singleActiveConsumer().build();
+            declarables.add(shard);
+            declarables.add(BindingBuilder.bind(shard).to(exchange).with("1").noargs());
+        }
+        return new Declarables(declarables);
+    }
+
     @Bean
     public Binding resultBinding(@Qualifier("resultQueue") Queue resultQueue,
                                  TopicExchange documentExchange) {
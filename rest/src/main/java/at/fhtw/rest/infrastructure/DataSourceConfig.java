@@ -0,0 +1,113 @@
+package at.fhtw.rest.infrastructure;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source when reads are split off to a replica or when HTTP requests and
+ * listeners get separate connection pools.
+ *
+ * <p>
+ * With {@code datasource.bulkhead.enabled} the primary is reached through a {@link WorkloadRoutingDataSource}
+ * over a web pool, configured under {@code spring.datasource.hikari}, and a listener pool, configured under
+ * {@code datasource.bulkhead.listener.hikari}. With {@code datasource.replica.enabled} a
+ * {@link ReplicaRoutingDataSource} sends read-only transactions to a replica pool configured under
+ * {@code datasource.replica}. Every pool is named, so the Hikari metrics, such as the connection wait time
+ * {@code hikaricp.connections.acquire}, are reported per pool. Schema migrations and all writes use the
+ * primary.
+ * </p>
+ */
+
+@Configuration
+@ConditionalOnExpression("${datasource.replica.enabled:false} or ${datasource.bulkhead.enabled:false}")
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(
+            DataSourceProperties properties,
+            @Value("${datasource.bulkhead.enabled:false}") boolean bulkheadEnabled
+    ) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(bulkheadEnabled ? "web" : "primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.bulkhead.enabled", havingValue = "true")
+    @ConfigurationProperties("datasource.bulkhead.listener.hikari")
+    public HikariDataSource listenerDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("listener");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password}}") String password
+    ) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("listenerDataSource") ObjectProvider<DataSource> listenerDataSource,
+            @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+            ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+            MeterRegistry meterRegistry
+    ) {
+        DataSource primary = primaryDataSource;
+        DataSource listener = listenerDataSource.getIfAvailable();
+        if (listener != null) {
+            WorkloadRoutingDataSource workloads = new WorkloadRoutingDataSource();
+            workloads.setTargetDataSources(Map.of(
+                    WorkloadRoutingDataSource.Workload.WEB, primaryDataSource,
+                    WorkloadRoutingDataSource.Workload.LISTENER, listener));
+            workloads.setDefaultTargetDataSource(listener);
+            workloads.afterPropertiesSet();
+            primary = workloads;
+        }
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null) {
+            return new LazyConnectionDataSourceProxy(primary);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaLagMonitor.getObject(), meterRegistry);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, primary,
+                ReplicaRoutingDataSource.Target.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,79 @@
+package at.fhtw.rest.infrastructure;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Set;
+
+/**
+ * Lets a client read its own writes while the replica catches up.
+ *
+ * <p>
+ * Every write request sets the {@value #COOKIE} cookie to the time until which that client's reads go to
+ * the primary. Reads carrying a cookie that has not yet expired are pinned to the primary for the rest of
+ * the request. Other clients keep reading from the replica, so the read load on the primary only grows with
+ * the number of recently writing clients.
+ * </p>
+ */
+
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReadYourWritesConfig implements WebMvcConfigurer {
+    public static final String COOKIE = "paperless-read-primary-until";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final long stickyMs;
+
+    public ReadYourWritesConfig(@Value("${datasource.replica.sticky-ms:5000}") long stickyMs) {
+        this.stickyMs = stickyMs;
+    }
+
+    @Override
+    public void addInterceptors(@NotNull InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull Object handler) {
+                long now = System.currentTimeMillis();
+                if (!SAFE_METHODS.contains(request.getMethod())) {
+                    Cookie cookie = new Cookie(COOKIE, Long.toString(now + stickyMs));
+                    cookie.setPath("/");
+                    cookie.setHttpOnly(true);
+                    cookie.setMaxAge((int) Math.max(1, (stickyMs + 999) / 1000));
+                    response.addCookie(cookie);
+                } else if (pinnedUntil(request) > now) {
+                    ReplicaRoutingDataSource.pinToPrimary();
+                }
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull Object handler, Exception ex) {
+                ReplicaRoutingDataSource.unpin();
+            }
+        });
+    }
+
+    static long pinnedUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,106 @@
+package at.fhtw.rest.infrastructure;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Periodically measures how far the read replica lags behind the primary.
+ *
+ * <p>
+ * A replica that has replayed everything it received counts as current, even if the primary has been idle
+ * for a while, but only while its WAL receiver is streaming and has heard from the primary recently; the
+ * primary sends keepalives on an idle connection, so a longer silence means the connection is gone and the
+ * lag is the time since the last message. A replica whose WAL receiver is not streaming has an unknown lag.
+ * Otherwise the lag is the age of the last replayed transaction. The replica serves reads only while the
+ * lag is within the configured maximum and the last check is recent; a failed check takes it out of
+ * rotation until the next successful one.
+ * </p>
+ *
+ * <p>
+ * The receiver status is only visible to roles with {@code pg_read_all_stats}; without it the replica is
+ * never used.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+    static final String LAG_QUERY = "SELECT CASE "
+            + "WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN r.status IS DISTINCT FROM 'streaming' OR r.last_msg_receipt_time IS NULL THEN -1 "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN CASE "
+            + "WHEN now() - r.last_msg_receipt_time <= ? * interval '1 millisecond' THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - r.last_msg_receipt_time) * 1000 END "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, -1) END "
+            + "FROM (SELECT 1) AS one LEFT JOIN pg_stat_wal_receiver r ON true";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxLagMs;
+    private final long checkIntervalMs;
+    private final long receiverTimeoutMs;
+    private volatile long lagMs = -1;
+    private volatile long checkedAt;
+
+    public ReplicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${datasource.replica.max-lag-ms:1000}") long maxLagMs,
+            @Value("${datasource.replica.lag-check-interval-ms:1000}") long checkIntervalMs,
+            @Value("${datasource.replica.receiver-timeout-ms:60000}") long receiverTimeoutMs
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLagMs = maxLagMs;
+        this.checkIntervalMs = checkIntervalMs;
+        this.receiverTimeoutMs = receiverTimeoutMs;
+        Gauge.builder("paperless.datasource.replica.lag", this, ReplicaLagMonitor::getLagMs)
+                .description("Replication lag of the read replica, -1 if unknown")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("paperless.datasource.replica.available", this, monitor -> monitor.isReplicaAvailable() ? 1 : 0)
+                .description("Whether read-only transactions are routed to the replica")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        boolean wasAvailable = isReplicaAvailable();
+        try {
+            Number lag = jdbcTemplate.queryForObject(LAG_QUERY, Number.class, receiverTimeoutMs);
+            lagMs = lag == null ? -1 : lag.longValue();
+            if (lagMs < 0 && wasAvailable) {
+                log.warn("[ReplicaLagMonitor.check] Replica is not streaming from the primary, reading from the primary");
+            }
+        } catch (DataAccessException e) {
+            lagMs = -1;
+            if (wasAvailable) {
+                log.warn("[ReplicaLagMonitor.check] Replica unreachable, reading from the primary: {}", e.getMessage());
+            }
+        }
+        checkedAt = System.currentTimeMillis();
+        boolean available = isReplicaAvailable();
+        if (available && !wasAvailable) {
+            log.info("[ReplicaLagMonitor.check] Replica lag {} ms, reading from the replica", lagMs);
+        } else if (!available && wasAvailable && lagMs >= 0) {
+            log.warn("[ReplicaLagMonitor.check] Replica lag {} ms exceeds {} ms, reading from the primary", lagMs, maxLagMs);
+        }
+    }
+
+    public boolean isReplicaAvailable() {
+        return lagMs >= 0 && lagMs <= maxLagMs && System.currentTimeMillis() - checkedAt <= 3 * checkIntervalMs;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+}
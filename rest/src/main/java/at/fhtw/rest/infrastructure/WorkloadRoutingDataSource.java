@@ -0,0 +1,27 @@
+package at.fhtw.rest.infrastructure;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Keeps HTTP requests and background work on separate connection pools.
+ *
+ * <p>
+ * Threads serving an HTTP request take connections from the web pool. All other threads, such as the
+ * RabbitMQ listeners, the outbox relay and scheduled jobs, use the listener pool. A flood of completion
+ * events can then exhaust only the listener pool, while interactive requests keep their own connections,
+ * and the other way round.
+ * </p>
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Workload { WEB, LISTENER }
+
+    public static Workload currentWorkload() {
+        return RequestContextHolder.getRequestAttributes() != null ? Workload.WEB : Workload.LISTENER;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentWorkload();
+    }
+}
@@ -2,8 +2,10 @@ package at.fhtw.rest.infrastructure.mapper;
 
 import at.fhtw.rest.api.DocumentRequest;
 import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentSummary;
 
 public interface DocumentMapper {
     DocumentEntity toEntity(DocumentRequest request);
     DocumentRequest toDto(DocumentEntity entity);
+    DocumentRequest toSummaryDto(DocumentSummary summary);
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package at.fhtw.rest.infrastructure.mapper;
 
 import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.DocumentIds;
 import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentSummary;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Objects;
+
 @Slf4j
 @Component
 public class DocumentMapperImp implements DocumentMapper {
@@ -17,13 +21,12 @@ public class DocumentMapperImp implements DocumentMapper {
         }
         log.debug("[DocumentMapperImp.toEntity] Mapping DocumentRequest with id: {}", request.getId());
         DocumentEntity entity = new DocumentEntity();
-        entity.setId(request.getId());
+        entity.setId(request.getId() == null ? null : DocumentIds.parse(request.getId()));
         entity.setFilename(request.getFilename());
         entity.setFilesize(request.getFilesize());
         entity.setFiletype(request.getFiletype());
         entity.setUploadDate(request.getUploadDate());
         entity.setOcrJobDone(request.isOcrJobDone());
-        entity.setOcrText(request.getOcrText());
         entity.setObjectKey(request.getId());
         log.debug("[DocumentMapperImp.toEntity] Mapped entity: {}", entity);
         return entity;
@@ -37,15 +40,30 @@ public class DocumentMapperImp implements DocumentMapper {
         }
         log.debug("[DocumentMapperImp.toDto] Mapping DocumentEntity with id: {}", entity.getId());
         DocumentRequest dto = DocumentRequest.builder()
-                .id(entity.getId())
+                .id(Objects.toString(entity.getId(), null))
                 .filename(entity.getFilename())
                 .filesize(entity.getFilesize())
                 .filetype(entity.getFiletype())
                 .uploadDate(entity.getUploadDate())
                 .ocrJobDone(entity.isOcrJobDone())
-                .ocrText(entity.getOcrText())
                 .build();
         log.debug("[DocumentMapperImp.toDto] Mapped DTO: {}", dto);
         return dto;
     }
+
+    @Override
+    public DocumentRequest toSummaryDto(DocumentSummary summary) {
+        if (summary == null) {
+            log.warn("[DocumentMapperImp.toSummaryDto] Received null DocumentSummary");
+            return null;
+        }
+        return DocumentRequest.builder()
+                .id(Objects.toString(summary.getId(), null))
+                .filename(summary.getFilename())
+                .filesize(summary.getFilesize())
+                .filetype(summary.getFiletype())
+                .uploadDate(summary.getUploadDate())
+                .ocrJobDone(summary.isOcrJobDone())
+                .build();
+    }
 }
\ No newline at end of file
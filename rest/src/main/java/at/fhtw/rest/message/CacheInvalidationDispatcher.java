@@ -0,0 +1,6 @@
+package at.fhtw.rest.message;
+
+public interface CacheInvalidationDispatcher {
+    void sendInvalidation(String docId);
+    String getInstanceId();
+}
@@ -0,0 +1,56 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.journal.message.MessagePublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Tells the other REST replicas to drop a document from their metadata cache.
+ *
+ * <p>
+ * Invalidations go to a fanout exchange that every replica binds its own temporary queue to. They carry the
+ * ID of the sending replica, so a replica ignores its own broadcasts. Like tombstones they are best-effort
+ * and bypass the outbox; a lost invalidation is bounded by the cache's maximum staleness.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
+public class CacheInvalidationDispatcherImp implements CacheInvalidationDispatcher {
+    private final MessagePublisher messagePublisher;
+    private final String exchangeName;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public CacheInvalidationDispatcherImp(
+            MessagePublisher messagePublisher,
+            @Value("${rabbitmq.cache-invalidation.exchange:document_cache_invalidation_exchange}") String exchangeName
+    ) {
+        this.messagePublisher = messagePublisher;
+        this.exchangeName = exchangeName;
+    }
+
+    @Override
+    public void sendInvalidation(String docId) {
+        String message = String.format("{\"documentId\":\"%s\",\"origin\":\"%s\"}", docId, instanceId);
+        try {
+            messagePublisher.publish(exchangeName, "", message).whenComplete((ok, error) -> {
+                if (error != null) {
+                    log.warn("[CacheInvalidationDispatcherImp.sendInvalidation] Invalidation for document {} was not delivered: {}", docId, error.getMessage());
+                }
+            });
+            log.debug("[CacheInvalidationDispatcherImp.sendInvalidation] Invalidation sent for document {}", docId);
+        } catch (RuntimeException e) {
+            log.warn("[CacheInvalidationDispatcherImp.sendInvalidation] Could not send invalidation for document {}: {}", docId, e.getMessage());
+        }
+    }
+
+    @Override
+    public String getInstanceId() {
+        return instanceId;
+    }
+}
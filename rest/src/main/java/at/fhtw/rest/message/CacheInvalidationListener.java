@@ -0,0 +1,42 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.rest.core.DocumentCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts documents from the local metadata cache when another REST replica changed them.
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
+public class CacheInvalidationListener {
+    private final DocumentCache documentCache;
+    private final CacheInvalidationDispatcher cacheInvalidationDispatcher;
+    private final ObjectMapper objectMapper;
+
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}")
+    public void handleInvalidation(String message) {
+        try {
+            JsonNode json = objectMapper.readTree(message);
+            if (cacheInvalidationDispatcher.getInstanceId().equals(json.path("origin").asText())) {
+                return;
+            }
+            String docId = json.path("documentId").asText();
+            if (docId.isBlank()) {
+                log.warn("[CacheInvalidationListener.handleInvalidation] Document ID is blank in message: {}", message);
+                return;
+            }
+            documentCache.evict(docId);
+        } catch (Exception e) {
+            log.error("[CacheInvalidationListener.handleInvalidation] Failed to process invalidation: {}", e.getMessage(), e);
+        }
+    }
+}
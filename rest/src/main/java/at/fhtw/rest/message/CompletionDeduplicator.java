@@ -0,0 +1,92 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.rest.core.DocumentIds;
+import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Recognises OCR results that were already applied, so redelivered results cause no database write.
+ *
+ * <p>
+ * A result is identified by document ID and content digest. Applied results are remembered in an
+ * in-memory Bloom filter; a positive answer is confirmed with an existence query instead of loading the
+ * document. The document row itself is the durable record: results the filter does not know, for example
+ * after a restart, are still compared against the loaded entity before it is written.
+ * </p>
+ */
+
+@Component
+public class CompletionDeduplicator {
+    private final DocumentRepository documentRepository;
+    private final DocumentTextRepository documentTextRepository;
+    private final BloomFilter<CharSequence> applied;
+    private final Counter duplicates;
+
+    public CompletionDeduplicator(
+            DocumentRepository documentRepository,
+            DocumentTextRepository documentTextRepository,
+            MeterRegistry meterRegistry,
+            @Value("${dedup.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${dedup.false-positive-probability:0.01}") double falsePositiveProbability
+    ) {
+        this.documentRepository = documentRepository;
+        this.documentTextRepository = documentTextRepository;
+        this.applied = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+        this.duplicates = Counter.builder("paperless.dedup.duplicates")
+                .description("Redelivered OCR results skipped because they were already applied")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cheap check before the document is loaded.
+     */
+    public boolean isKnownDuplicate(DocumentMessageProcessed result) {
+        String digest = result.getContentDigest();
+        if (digest == null || !applied.mightContain(key(result.getDocumentId(), digest))) {
+            return false;
+        }
+        boolean duplicate = documentRepository.existsByIdAndContentDigestAndOcrJobDoneTrue(DocumentIds.parse(result.getDocumentId()), digest);
+        if (duplicate) {
+            duplicates.increment();
+        }
+        return duplicate;
+    }
+
+    /**
+     * Check against the loaded document. Results without a digest are compared by their stored text.
+     */
+    public boolean isAlreadyApplied(DocumentEntity entity, DocumentMessageProcessed result) {
+        if (!entity.isOcrJobDone()) {
+            return false;
+        }
+        boolean duplicate = result.getContentDigest() != null
+                ? result.getContentDigest().equals(entity.getContentDigest())
+                : Objects.equals(documentTextRepository.findById(entity.getId()).map(DocumentTextEntity::getOcrText).orElse(null),
+                        result.getOcrText());
+        if (duplicate) {
+            duplicates.increment();
+        }
+        return duplicate;
+    }
+
+    public void recordApplied(DocumentMessageProcessed result) {
+        if (result.getContentDigest() != null) {
+            applied.put(key(result.getDocumentId(), result.getContentDigest()));
+        }
+    }
+
+    private static String key(String documentId, String contentDigest) {
+        return documentId + ":" + contentDigest;
+    }
+}
@@ -1,7 +1,15 @@
 package at.fhtw.rest.message;
 
+import at.fhtw.rest.core.AdmissionService;
+import at.fhtw.rest.core.DocumentCache;
+import at.fhtw.rest.core.DocumentEventService;
+import at.fhtw.rest.core.DocumentIds;
+import at.fhtw.rest.core.ElasticsearchService;
+import at.fhtw.rest.infrastructure.mapper.DocumentMapper;
 import at.fhtw.rest.persistence.DocumentRepository;
 import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,7 +21,14 @@ import org.springframework.stereotype.Component;
  *
  * <p>
  * Listens for completion events, deserializes them into {@link DocumentMessageProcessed} DTOs,
- * and updates the corresponding {@link DocumentEntity} in the repository with the OCR results.
+ * and updates the corresponding {@link DocumentEntity} in the repository with the OCR results. The text
+ * itself is stored in its own {@link DocumentTextEntity} row, so the document row only changes its status;
+ * a text that had been offloaded is stored inline again.
+ * The cached metadata of the document is invalidated, and the new status is pushed to connected clients
+ * through the {@link DocumentEventService}.
+ * Redelivered results are recognised by the {@link CompletionDeduplicator} and not written again.
+ * The document's metadata is copied into its search index entry, so search results can be served from
+ * the index alone.
  * </p>
  *
  * <p>
@@ -27,7 +42,14 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class CompletionEventHandler {
     private final DocumentRepository documentRepository;
+    private final DocumentTextRepository documentTextRepository;
     private final ObjectMapper objectMapper;
+    private final AdmissionService admissionService;
+    private final DocumentEventService documentEventService;
+    private final DocumentMapper documentMapper;
+    private final CompletionDeduplicator completionDeduplicator;
+    private final ElasticsearchService elasticsearchService;
+    private final DocumentCache documentCache;
 
     @RabbitListener(queues = "${rabbitmq.queue.result:document_result_queue}")
     public void handleCompletion(String message) {
@@ -39,14 +61,33 @@ public class CompletionEventHandler {
                 log.warn("[CompletionEventHandler.handleCompletion] Document ID is blank in message: {}", message);
                 throw new IllegalArgumentException("Document ID in message is blank");
             }
-            DocumentEntity entity = documentRepository.findById(dto.getDocumentId())
+            if (completionDeduplicator.isKnownDuplicate(dto)) {
+                log.info("[CompletionEventHandler.handleCompletion] Skipping duplicate result for documentId: {}", dto.getDocumentId());
+                return;
+            }
+            DocumentEntity entity = documentRepository.findById(DocumentIds.parse(dto.getDocumentId()))
                     .orElseThrow(() -> {
                         log.warn("[CompletionEventHandler.handleCompletion] Document not found for ID: {}", dto.getDocumentId());
                         return new IllegalArgumentException("Not found: " + dto.getDocumentId());
                     });
+            if (completionDeduplicator.isAlreadyApplied(entity, dto)) {
+                completionDeduplicator.recordApplied(dto);
+                log.info("[CompletionEventHandler.handleCompletion] Skipping duplicate result for documentId: {}", dto.getDocumentId());
+                return;
+            }
+            DocumentTextEntity text = documentTextRepository.findById(entity.getId()).orElseGet(DocumentTextEntity::new);
+            text.setDocument(entity);
+            text.setOcrText(dto.getOcrText());
+            text.setOcrTextObjectKey(null);
+            text.setOffloadedAt(null);
+            documentTextRepository.save(text);
             entity.setOcrJobDone(true);
-            entity.setOcrText(dto.getOcrText());
             documentRepository.save(entity);
+            completionDeduplicator.recordApplied(dto);
+            documentCache.invalidate(dto.getDocumentId());
+            elasticsearchService.updateMetadata(dto.getDocumentId(), entity.getFilesize(), entity.getFiletype(), entity.getUploadDate());
+            admissionService.recordCompletion();
+            documentEventService.publishStatus(documentMapper.toDto(entity));
             log.info("[CompletionEventHandler.handleCompletion] Successfully processed completion event for documentId: {}", dto.getDocumentId());
         } catch (Exception e) {
             log.error("[CompletionEventHandler.handleCompletion] Failed to process completion event: {}", e.getMessage(), e);
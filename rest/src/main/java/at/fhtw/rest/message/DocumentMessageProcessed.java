@@ -13,6 +13,9 @@ public class DocumentMessageProcessed {
     @JsonProperty("ocrText")
     private String ocrText;
 
+    @JsonProperty("contentDigest")
+    private String contentDigest;
+
     @JsonProperty("processedAt")
     private Instant processedAt;
 }
\ No newline at end of file
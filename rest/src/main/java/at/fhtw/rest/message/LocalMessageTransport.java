@@ -0,0 +1,123 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.journal.LocalJournal;
+import at.fhtw.journal.message.MessagePublisher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Messaging without RabbitMQ, for installs where the REST service and the OCR worker share one machine.
+ *
+ * <p>
+ * Every queue is a {@link LocalJournal} in a directory both services mount. Messages are routed the way the
+ * RabbitMQ bindings would route them: processing requests, sharded or not, go to the processing queue's journal, fanout
+ * messages to the journal named after the exchange, everything else to the journal named after the routing
+ * key. A message counts as confirmed once it is on disk. OCR results are read from the result journal and
+ * handed to the {@link CompletionEventHandler}.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "local")
+public class LocalMessageTransport implements MessagePublisher {
+    public static final String CONSUMER = "rest";
+
+    private final CompletionEventHandler completionEventHandler;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long pollIntervalMs;
+    private final String processingRoutingKey;
+    private final String shardedExchange;
+    private final String processingQueue;
+    private final String resultQueue;
+    private final Map<String, LocalJournal> journals = new ConcurrentHashMap<>();
+
+    public LocalMessageTransport(
+            CompletionEventHandler completionEventHandler,
+            MeterRegistry meterRegistry,
+            @Value("${messaging.local.directory:/var/lib/paperless/journal}") String directory,
+            @Value("${messaging.local.segment-bytes:67108864}") long segmentBytes,
+            @Value("${messaging.local.poll-interval-ms:200}") long pollIntervalMs,
+            @Value("${rabbitmq.routing-key.processing:document_routing_key}") String processingRoutingKey,
+            @Value("${rabbitmq.sharding.exchange:document_processing_sharded}") String shardedExchange,
+            @Value("${rabbitmq.queue.processing:document_processing_queue}") String processingQueue,
+            @Value("${rabbitmq.queue.result:document_result_queue}") String resultQueue
+    ) {
+        this.completionEventHandler = completionEventHandler;
+        this.meterRegistry = meterRegistry;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.pollIntervalMs = pollIntervalMs;
+        this.processingRoutingKey = processingRoutingKey;
+        this.shardedExchange = shardedExchange;
+        this.processingQueue = processingQueue;
+        this.resultQueue = resultQueue;
+    }
+
+    @PostConstruct
+    public void start() {
+        LocalJournal results = journal(resultQueue);
+        results.subscribe(CONSUMER, pollIntervalMs, completionEventHandler::handleCompletion);
+        Gauge.builder("paperless.journal.pending", results, journal -> journal.pendingBytes(CONSUMER))
+                .description("Bytes in the local journal not yet handled by the consumer")
+                .baseUnit("bytes")
+                .tag("journal", resultQueue)
+                .register(meterRegistry);
+        log.info("[LocalMessageTransport.start] Using local journals in {}", directory);
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(String exchange, String routingKey, String message) {
+        String topic = topicFor(exchange, routingKey);
+        try {
+            journal(topic).append(message);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("[LocalMessageTransport.publish] Could not append message to journal '{}': {}", topic, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        journals.values().forEach(journal -> {
+            try {
+                journal.close(pollIntervalMs * 10);
+            } catch (IOException e) {
+                log.warn("[LocalMessageTransport.shutdown] Could not close journal: {}", e.getMessage());
+            }
+        });
+    }
+
+    public String topicFor(String exchange, String routingKey) {
+        if (processingRoutingKey.equals(routingKey) || shardedExchange.equals(exchange)) {
+            return processingQueue;
+        }
+        return routingKey == null || routingKey.isEmpty() ? exchange : routingKey;
+    }
+
+    private LocalJournal journal(String topic) {
+        return journals.computeIfAbsent(topic, name -> {
+            try {
+                return new LocalJournal(directory.resolve(name), segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
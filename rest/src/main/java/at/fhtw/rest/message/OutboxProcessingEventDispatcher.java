@@ -0,0 +1,92 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.rest.core.DocumentIds;
+import at.fhtw.rest.persistence.OutboxEntity;
+import at.fhtw.rest.persistence.OutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records processing requests in the transactional outbox instead of publishing them directly.
+ *
+ * <p>
+ * The outbox entry is written in the caller's transaction, so it commits or rolls back together with the
+ * document row. Publishing is left to the {@link OutboxRelay}, which is woken up once the transaction
+ * has committed; the upload request never waits for the broker. Deleting the document removes an entry
+ * that was not relayed yet.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@Getter
+@Setter
+@ConditionalOnProperty(name = "rabbitmq.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxProcessingEventDispatcher implements ProcessingEventDispatcher {
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper;
+
+    @Value("${rabbitmq.exchange:document_exchange}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.routing-key.processing:document_routing_key}")
+    private String routingKey;
+
+    @Value("${rabbitmq.sharding.enabled:false}")
+    private boolean shardingEnabled;
+
+    @Value("${rabbitmq.sharding.exchange:document_processing_sharded}")
+    private String shardedExchangeName;
+
+    public OutboxProcessingEventDispatcher(OutboxRepository outboxRepository, OutboxRelay outboxRelay, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.outboxRelay = outboxRelay;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendProcessingRequest(String docId, String filename, String contentDigest) {
+        OutboxEntity entry = new OutboxEntity();
+        entry.setExchange(shardingEnabled ? shardedExchangeName : exchangeName);
+        entry.setRoutingKey(shardingEnabled ? docId : routingKey);
+        entry.setDocumentId(DocumentIds.parse(docId));
+        entry.setPayload(objectMapper.createObjectNode()
+                .put("documentId", docId)
+                .put("filename", filename)
+                .put("contentDigest", contentDigest)
+                .toString());
+        LocalDateTime now = LocalDateTime.now();
+        entry.setCreatedAt(now);
+        entry.setNextAttemptAt(now);
+        outboxRepository.save(entry);
+        log.info("[OutboxProcessingEventDispatcher.sendProcessingRequest] Queued processing request for document {} in outbox", docId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancelProcessingRequest(String docId) {
+        int removed = outboxRepository.deleteByDocumentId(DocumentIds.parse(docId));
+        if (removed > 0) {
+            log.info("[OutboxProcessingEventDispatcher.cancelProcessingRequest] Removed {} pending processing request(s) for document {}", removed, docId);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.journal.message.MessagePublisher;
+import at.fhtw.rest.persistence.OutboxDeadLetterEntity;
+import at.fhtw.rest.persistence.OutboxDeadLetterRepository;
+import at.fhtw.rest.persistence.OutboxEntity;
+import at.fhtw.rest.persistence.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the transactional outbox to RabbitMQ.
+ *
+ * <p>
+ * A run claims a batch of due entries in a short transaction: the rows are locked with
+ * {@code SKIP LOCKED} and their next attempt is moved past the claim period, so other replicas leave them
+ * alone once the lock is released. The entries are then published through the {@link MessagePublisher}
+ * and their confirms awaited without holding a lock or a database connection. A second short transaction
+ * deletes the confirmed entries and reschedules the others. Should the relay die in between, the claim
+ * expires and the entries are published again, so delivery is at-least-once. A run is triggered right
+ * after an upload commits and, as a safety net, on a fixed poll interval. Under load a run keeps draining
+ * full batches until the outbox is empty.
+ * </p>
+ *
+ * <p>
+ * Every entry that was not confirmed, because the broker nacked or returned it, did not confirm it in time
+ * or could not be reached at all, counts as a failed attempt and is retried with exponential backoff; after
+ * the maximum number of attempts it is moved to the dead-letter table, so a message that can never be
+ * delivered does not hold up the entries behind it. The confirm timeout has to stay well below the claim
+ * period, otherwise another replica could publish an entry while its confirm is still awaited.
+ * </p>
+ *
+ * <p>
+ * For the outbox pattern, see:
+ * <a href="https://microservices.io/patterns/data/transactional-outbox.html">Transactional Outbox</a>.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rabbitmq.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+    private final OutboxDeadLetterRepository deadLetterRepository;
+    private final MessagePublisher messagePublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final long claimMs;
+    private final int maxAttempts;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+    private final Counter deadLettered;
+    private final AtomicBoolean runPending = new AtomicBoolean(false);
+    private final ExecutorService relayExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OutboxRelay(
+            OutboxRepository outboxRepository,
+            OutboxDeadLetterRepository deadLetterRepository,
+            MessagePublisher messagePublisher,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.outbox.batch-size:100}") int batchSize,
+            @Value("${rabbitmq.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+            @Value("${rabbitmq.outbox.claim-ms:60000}") long claimMs,
+            @Value("${rabbitmq.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${rabbitmq.outbox.backoff-initial-ms:1000}") long backoffInitialMs,
+            @Value("${rabbitmq.outbox.backoff-max-ms:300000}") long backoffMaxMs
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.messagePublisher = messagePublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        if (confirmTimeoutMs * 2 > claimMs) {
+            throw new IllegalArgumentException("Outbox confirm timeout (" + confirmTimeoutMs
+                    + " ms) must be at most half the claim period (" + claimMs + " ms)");
+        }
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.claimMs = claimMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.deadLettered = Counter.builder("paperless.outbox.dead.lettered")
+                .description("Outbox entries moved to the dead-letter table after too many failed attempts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Requests a relay run. Requests arriving while a run is already queued are coalesced into it.
+     */
+    public void wakeUp() {
+        if (runPending.compareAndSet(false, true)) {
+            relayExecutor.execute(() -> {
+                runPending.set(false);
+                drain();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rabbitmq.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relayExecutor.shutdown();
+    }
+
+    public void drain() {
+        try {
+            int confirmed;
+            do {
+                confirmed = relayBatch();
+            } while (confirmed == batchSize);
+        } catch (Exception e) {
+            log.error("[OutboxRelay.drain] Relaying outbox failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Claims one batch, publishes it and awaits the confirms outside any transaction, then removes the
+     * entries the broker confirmed and schedules or dead-letters the others.
+     *
+     * @return the number of confirmed entries
+     */
+    public int relayBatch() {
+        List<OutboxEntity> batch = transactionTemplate.execute(status -> claimNextBatch(LocalDateTime.now()));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        Map<Long, CompletableFuture<Void>> confirms = new LinkedHashMap<>();
+        for (OutboxEntity entry : batch) {
+            try {
+                confirms.put(entry.getId(), messagePublisher.publish(entry.getExchange(), entry.getRoutingKey(), entry.getPayload()));
+            } catch (AmqpException e) {
+                log.warn("[OutboxRelay.relayBatch] Broker unavailable, {} entries are retried after a backoff: {}",
+                        batch.size() - confirms.size(), e.getMessage());
+                break;
+            }
+        }
+        awaitConfirms(confirms.values());
+
+        List<Long> confirmedIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (OutboxEntity entry : batch) {
+            CompletableFuture<Void> confirm = confirms.get(entry.getId());
+            if (confirm != null && confirm.isDone() && !confirm.isCompletedExceptionally()) {
+                confirmedIds.add(entry.getId());
+            } else {
+                failedIds.add(entry.getId());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.deleteAllByIdInBatch(confirmedIds);
+            reschedule(failedIds, LocalDateTime.now());
+        });
+        log.debug("[OutboxRelay.relayBatch] Relayed {}/{} outbox entries", confirmedIds.size(), batch.size());
+        return confirmedIds.size();
+    }
+
+    /**
+     * The delay before the next attempt: the initial backoff, doubled with every failed attempt, capped.
+     */
+    public Duration backoff(int attempts) {
+        long delay = backoffInitialMs << Math.min(attempts - 1, 30);
+        return Duration.ofMillis(delay <= 0 ? backoffMaxMs : Math.min(delay, backoffMaxMs));
+    }
+
+    private List<OutboxEntity> claimNextBatch(LocalDateTime now) {
+        List<OutboxEntity> batch = outboxRepository.lockNextBatch(batchSize, now);
+        LocalDateTime claimedUntil = now.plus(Duration.ofMillis(claimMs));
+        batch.forEach(entry -> entry.setNextAttemptAt(claimedUntil));
+        return batch;
+    }
+
+    /**
+     * Counts a failed attempt for the entries that are still in the outbox; entries deleted meanwhile,
+     * because their document was deleted, are gone.
+     */
+    private void reschedule(List<Long> ids, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<OutboxEntity> failed = new ArrayList<>();
+        for (OutboxEntity entry : outboxRepository.lockAllById(ids)) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            if (entry.getAttempts() >= maxAttempts) {
+                failed.add(entry);
+            } else {
+                entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts())));
+            }
+        }
+        deadLetter(failed, now);
+    }
+
+    private void deadLetter(List<OutboxEntity> entries, LocalDateTime now) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        deadLetterRepository.saveAll(entries.stream().map(entry -> OutboxDeadLetterEntity.of(entry, now)).toList());
+        outboxRepository.deleteAllInBatch(entries);
+        deadLettered.increment(entries.size());
+        entries.forEach(entry -> log.error("[OutboxRelay.deadLetter] Outbox entry {} to '{}' failed {} times, moved to dead letters",
+                entry.getId(), entry.getRoutingKey(), entry.getAttempts()));
+    }
+
+    private void awaitConfirms(Iterable<CompletableFuture<Void>> confirms) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        confirms.forEach(pending::add);
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("[OutboxRelay.awaitConfirms] Not all outbox entries were confirmed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
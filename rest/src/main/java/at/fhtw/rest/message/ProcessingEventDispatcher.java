@@ -3,6 +3,9 @@ package at.fhtw.rest.message;
 public interface ProcessingEventDispatcher {
     void sendProcessingRequest(
             String docId,
-            String filename
+            String filename,
+            String contentDigest
     );
+
+    void cancelProcessingRequest(String docId);
 }
\ No newline at end of file
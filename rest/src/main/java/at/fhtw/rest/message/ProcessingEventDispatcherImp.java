@@ -1,10 +1,12 @@
 package at.fhtw.rest.message;
 
+import at.fhtw.journal.message.MessagePublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 /**
@@ -13,6 +15,10 @@ import org.springframework.stereotype.Component;
  * <p>
  * Creates JSON messages with document ID and filename, sending them through RabbitMQ
  * to trigger OCR processing. Results are later returned via a separate completion queue.
+ * Publishing goes through the configured {@link MessagePublisher}, so the caller is not blocked
+ * waiting for the broker confirm. With sharding enabled, requests go to the consistent-hash exchange
+ * with the document ID as routing key (see {@link ProcessingShards}). Only active when the transactional outbox is disabled,
+ * otherwise {@link OutboxProcessingEventDispatcher} takes over.
  * </p>
  *
  * <p>
@@ -25,8 +31,10 @@ import org.springframework.stereotype.Component;
 @Component
 @Getter
 @Setter
+@ConditionalOnProperty(name = "rabbitmq.outbox.enabled", havingValue = "false")
 public class ProcessingEventDispatcherImp implements ProcessingEventDispatcher {
-    private final RabbitTemplate rabbitTemplate;
+    private final MessagePublisher messagePublisher;
+    private final ObjectMapper objectMapper;
 
     @Value("${rabbitmq.exchange:document_exchange}")
     private String exchangeName;
@@ -34,15 +42,42 @@ public class ProcessingEventDispatcherImp implements ProcessingEventDispatcher {
     @Value("${rabbitmq.routing-key.processing:document_routing_key}")
     private String routingKey;
 
-    public ProcessingEventDispatcherImp(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    @Value("${rabbitmq.sharding.enabled:false}")
+    private boolean shardingEnabled;
+
+    @Value("${rabbitmq.sharding.exchange:document_processing_sharded}")
+    private String shardedExchangeName;
+
+    public ProcessingEventDispatcherImp(MessagePublisher messagePublisher, ObjectMapper objectMapper) {
+        this.messagePublisher = messagePublisher;
+        this.objectMapper = objectMapper;
     }
 
     @Override
-    public void sendProcessingRequest(String docId, String filename) {
-        String message = String.format("{\"documentId\":\"%s\",\"filename\":\"%s\"}", docId, filename);
+    public void sendProcessingRequest(String docId, String filename, String contentDigest) {
+        String message = objectMapper.createObjectNode()
+                .put("documentId", docId)
+                .put("filename", filename)
+                .put("contentDigest", contentDigest)
+                .toString();
         log.info("[ProcessingEventDispatcherImp.sendProcessingRequest] Sending processing request: {}", message);
-        rabbitTemplate.convertAndSend(exchangeName, routingKey, message);
-        log.info("[ProcessingEventDispatcherImp.sendProcessingRequest] Request sent to exchange '{}' with routing key '{}'", exchangeName, routingKey);
+        String exchange = shardingEnabled ? shardedExchangeName : exchangeName;
+        String key = shardingEnabled ? docId : routingKey;
+        messagePublisher.publish(exchange, key, message).whenComplete((ok, error) -> {
+            if (error != null) {
+                log.error("[ProcessingEventDispatcherImp.sendProcessingRequest] Processing request for document {} was not confirmed: {}", docId, error.getMessage());
+            } else {
+                log.debug("[ProcessingEventDispatcherImp.sendProcessingRequest] Processing request for document {} confirmed", docId);
+            }
+        });
+        log.info("[ProcessingEventDispatcherImp.sendProcessingRequest] Request sent to exchange '{}' with routing key '{}'", exchange, key);
+    }
+
+    /**
+     * Requests are published right away, so there is nothing left to withdraw; a request still queued at
+     * the broker is dropped by the workers once the document is gone.
+     */
+    @Override
+    public void cancelProcessingRequest(String docId) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package at.fhtw.rest.message;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Layout of the processing queues.
+ *
+ * <p>
+ * Without sharding there is the single processing queue. With sharding, processing requests go to a
+ * consistent-hash exchange that routes by document ID to one of N shard queues, so the load is spread
+ * over several queues and broker cores while all messages for one document stay in the same shard.
+ * The exchange type needs the {@code rabbitmq_consistent_hash_exchange} plugin.
+ * </p>
+ */
+
+@Getter
+@Component
+public class ProcessingShards {
+    public static final String EXCHANGE_TYPE = "x-consistent-hash";
+
+    private final boolean enabled;
+    private final int shardCount;
+    private final String exchange;
+    private final String processingQueue;
+
+    public ProcessingShards(
+            @Value("${rabbitmq.sharding.enabled:false}") boolean enabled,
+            @Value("${rabbitmq.sharding.shards:4}") int shardCount,
+            @Value("${rabbitmq.sharding.exchange:document_processing_sharded}") String exchange,
+            @Value("${rabbitmq.queue.processing:document_processing_queue}") String processingQueue
+    ) {
+        this.enabled = enabled;
+        this.shardCount = shardCount;
+        this.exchange = exchange;
+        this.processingQueue = processingQueue;
+    }
+
+    /**
+     * The queues processing requests end up in: the shard queues, or the single processing queue.
+     */
+    public List<String> queueNames() {
+        if (!enabled) {
+            return List.of(processingQueue);
+        }
+        return IntStream.range(0, shardCount).mapToObj(shard -> shardQueueName(processingQueue, shard)).toList();
+    }
+
+    public static String shardQueueName(String processingQueue, int shard) {
+        return processingQueue + ".shard-" + shard;
+    }
+}
@@ -0,0 +1,5 @@
+package at.fhtw.rest.message;
+
+public interface TombstoneDispatcher {
+    void sendTombstone(String docId);
+}
@@ -0,0 +1,46 @@
+package at.fhtw.rest.message;
+
+import at.fhtw.journal.message.MessagePublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Announces deleted documents to the OCR workers.
+ *
+ * <p>
+ * Tombstones go to a fanout exchange that every worker instance binds its own queue to, so each worker
+ * learns about the deletion and drops queued or running work for the document. Tombstones are
+ * best-effort and bypass the outbox: if no worker is connected, there is no work to cancel.
+ * </p>
+ */
+
+@Slf4j
+@Component
+public class TombstoneDispatcherImp implements TombstoneDispatcher {
+    private final MessagePublisher messagePublisher;
+    private final String exchangeName;
+
+    public TombstoneDispatcherImp(
+            MessagePublisher messagePublisher,
+            @Value("${rabbitmq.tombstone.exchange:document_tombstone_exchange}") String exchangeName
+    ) {
+        this.messagePublisher = messagePublisher;
+        this.exchangeName = exchangeName;
+    }
+
+    @Override
+    public void sendTombstone(String docId) {
+        String message = String.format("{\"documentId\":\"%s\"}", docId);
+        try {
+            messagePublisher.publish(exchangeName, "", message).whenComplete((ok, error) -> {
+                if (error != null) {
+                    log.warn("[TombstoneDispatcherImp.sendTombstone] Tombstone for document {} was not delivered: {}", docId, error.getMessage());
+                }
+            });
+            log.info("[TombstoneDispatcherImp.sendTombstone] Tombstone sent for document {}", docId);
+        } catch (RuntimeException e) {
+            log.warn("[TombstoneDispatcherImp.sendTombstone] Could not send tombstone for document {}: {}", docId, e.getMessage());
+        }
+    }
+}
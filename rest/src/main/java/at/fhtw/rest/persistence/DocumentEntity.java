@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "documents")
@@ -14,19 +15,19 @@ import java.time.LocalDateTime;
 public class DocumentEntity {
     @Id
     @Column(name = "doc_id", nullable = false)
-    private String id;
+    private UUID id;
     @Column(name = "filename")
     private String filename;
     @Column(name = "filesize")
     private long filesize;
     @Column(name = "filetype")
     private String filetype;
+    @Column(name = "content_digest", length = 64)
+    private String contentDigest;
     @Column(name = "object_key")
     private String objectKey;
     @Column(name = "upload_date")
     private LocalDateTime uploadDate;
     @Column(name = "ocr_job_done")
     private boolean ocrJobDone;
-    @Column(name = "ocr_text", columnDefinition = "TEXT")
-    private String ocrText;
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package at.fhtw.rest.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the monthly partitions of the documents table ahead of time.
+ *
+ * <p>
+ * Uploads always land in the current month, so keeping a few future months created means a new month never
+ * starts without its partition; rows that still miss one fall into the default partition. The work is done
+ * by the {@code ensure_documents_partitions} database function, which serialises concurrent calls, so every
+ * REST instance may run it.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "documents.partitioning.enabled", havingValue = "true")
+public class DocumentPartitionMaintainer {
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+
+    public DocumentPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                       @Value("${documents.partitioning.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @Scheduled(fixedDelayString = "${documents.partitioning.maintenance-interval-ms:21600000}")
+    public void createFuturePartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject("SELECT ensure_documents_partitions(?)", Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                log.info("[DocumentPartitionMaintainer.createFuturePartitions] Created {} documents partitions", created);
+            }
+        } catch (DataAccessException e) {
+            log.warn("[DocumentPartitionMaintainer.createFuturePartitions] Could not create documents partitions: {}", e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,77 @@
 package at.fhtw.rest.persistence;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
 @Repository
-public interface DocumentRepository extends JpaRepository<DocumentEntity, String> {
-}
\ No newline at end of file
+public interface DocumentRepository extends JpaRepository<DocumentEntity, UUID> {
+    boolean existsByIdAndContentDigestAndOcrJobDoneTrue(UUID id, String contentDigest);
+
+    @Query("select d.id as id, d.filename as filename, d.filesize as filesize, d.filetype as filetype, "
+            + "d.uploadDate as uploadDate, d.ocrJobDone as ocrJobDone from DocumentEntity d where d.id = :id")
+    Optional<DocumentSummary> findSummaryById(@Param("id") UUID id);
+
+    @Query("select d.id as id, d.filename as filename, d.filesize as filesize, d.filetype as filetype, "
+            + "d.uploadDate as uploadDate, d.ocrJobDone as ocrJobDone from DocumentEntity d where d.id in :ids")
+    List<DocumentSummary> findSummariesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("select d.id as id, d.filename as filename, d.filesize as filesize, d.filetype as filetype, "
+            + "d.uploadDate as uploadDate, d.ocrJobDone as ocrJobDone from DocumentEntity d "
+            + "order by d.uploadDate desc, d.id desc")
+    List<DocumentSummary> findFirstSummaries(Limit limit);
+
+    /**
+     * The plain upper bound on the upload date is implied by the row comparison; it is spelled out so a
+     * partitioned table skips the partitions of newer months.
+     */
+    @Query("select d.id as id, d.filename as filename, d.filesize as filesize, d.filetype as filetype, "
+            + "d.uploadDate as uploadDate, d.ocrJobDone as ocrJobDone from DocumentEntity d "
+            + "where d.uploadDate <= :uploadDate and (d.uploadDate, d.id) < (:uploadDate, :id) "
+            + "order by d.uploadDate desc, d.id desc")
+    List<DocumentSummary> findSummariesBefore(@Param("uploadDate") LocalDateTime uploadDate, @Param("id") UUID id, Limit limit);
+
+    /**
+     * Takes a transaction-scoped advisory lock on the document ID, so concurrent registrations of the same
+     * document run one after the other. The lock is released when the transaction ends.
+     */
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(hashtextextended(cast(:id as text), 0))) l", nativeQuery = true)
+    long lockId(@Param("id") UUID id);
+
+    /**
+     * Inserts a document unless a row with the same key exists. An insert racing a concurrent one for the
+     * same key waits for the other transaction and, if that commits, writes nothing instead of failing on
+     * the primary key, so the current transaction stays usable.
+     *
+     * @return the number of inserted rows, {@code 0} if the document already existed
+     */
+    @Modifying
+    @Query(value = "insert into documents (doc_id, filename, filesize, filetype, content_digest, upload_date, ocr_job_done) "
+            + "values (:id, :filename, :filesize, :filetype, :contentDigest, :uploadDate, false) "
+            + "on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("filename") String filename, @Param("filesize") long filesize,
+                       @Param("filetype") String filetype, @Param("contentDigest") String contentDigest,
+                       @Param("uploadDate") LocalDateTime uploadDate);
+
+    /**
+     * Full-text search over file names and OCR text, best matches first. Both tables are searched through
+     * their own GIN index and only the union of the hits is ranked.
+     */
+    @Query(value = "with q as (select websearch_to_tsquery('simple', :query) as query), "
+            + "hits as (select d.doc_id from documents d, q where d.search_vector @@ q.query "
+            + "union select t.doc_id from document_texts t, q where t.search_vector @@ q.query) "
+            + "select d.doc_id from hits h join documents d on d.doc_id = h.doc_id "
+            + "left join document_texts t on t.doc_id = h.doc_id cross join q "
+            + "order by ts_rank(d.search_vector || coalesce(t.search_vector, cast('' as tsvector)), q.query) desc, d.upload_date desc "
+            + "limit :limit", nativeQuery = true)
+    List<UUID> searchIds(@Param("query") String query, @Param("limit") int limit);
+}
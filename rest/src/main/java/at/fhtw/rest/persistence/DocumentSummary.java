@@ -0,0 +1,16 @@
+package at.fhtw.rest.persistence;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Metadata of a document without its OCR text, read by the listing queries.
+ */
+public interface DocumentSummary {
+    UUID getId();
+    String getFilename();
+    long getFilesize();
+    String getFiletype();
+    LocalDateTime getUploadDate();
+    boolean isOcrJobDone();
+}
@@ -0,0 +1,41 @@
+package at.fhtw.rest.persistence;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * OCR text of a document, kept out of the {@code documents} row so metadata reads and updates stay narrow.
+ * It shares the document's primary key and is removed together with the document.
+ * Text of cold documents is moved to the {@link OcrTextArchive}; the row then only keeps the object key.
+ */
+@Entity
+@Table(name = "document_texts")
+@Getter
+@Setter
+@SuppressWarnings("JpaDataSourceORMInspection")
+public class DocumentTextEntity {
+    @Id
+    @Column(name = "doc_id", nullable = false)
+    private UUID id;
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "doc_id", foreignKey = @ForeignKey(name = "fk_document_texts_document"))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private DocumentEntity document;
+    @Column(name = "ocr_text", columnDefinition = "TEXT")
+    private String ocrText;
+    @Column(name = "ocr_text_object_key")
+    private String ocrTextObjectKey;
+    @Column(name = "offloaded_at")
+    private LocalDateTime offloadedAt;
+
+    public boolean isOffloaded() {
+        return ocrText == null && ocrTextObjectKey != null;
+    }
+}
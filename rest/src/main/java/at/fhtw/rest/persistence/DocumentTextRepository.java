@@ -0,0 +1,23 @@
+package at.fhtw.rest.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DocumentTextRepository extends JpaRepository<DocumentTextEntity, UUID> {
+
+    /**
+     * Locks the inline texts of the oldest documents uploaded before the cutoff. Rows already locked by
+     * another instance are skipped, so several REST replicas can run the tiering job at the same time.
+     */
+    @Query(value = "SELECT t.* FROM document_texts t JOIN documents d ON d.doc_id = t.doc_id "
+            + "WHERE t.ocr_text IS NOT NULL AND d.upload_date < :cutoff "
+            + "ORDER BY d.upload_date LIMIT :limit FOR UPDATE OF t SKIP LOCKED", nativeQuery = true)
+    List<DocumentTextEntity> lockColdTexts(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
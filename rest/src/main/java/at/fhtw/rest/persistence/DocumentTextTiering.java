@@ -0,0 +1,112 @@
+package at.fhtw.rest.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves the OCR text of cold documents out of Postgres into the {@link OcrTextArchive}.
+ *
+ * <p>
+ * A document is cold once it was uploaded longer ago than the configured age. Each run offloads at most a
+ * fixed number of texts, oldest first, in small batches with a pause in between, so the job never competes
+ * with regular traffic for long. A batch is locked, stored in MinIO and only then replaced by pointers, all
+ * inside one transaction: a text rewritten by a new OCR result in the meantime waits for the lock, and a
+ * failed batch leaves the texts inline for the next run. Reads fetch offloaded texts back transparently.
+ * Offloading keeps the row's full-text search vector, so cold documents stay searchable with either
+ * search engine.
+ * </p>
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "documents.text-tiering.enabled", havingValue = "true")
+public class DocumentTextTiering {
+    private final DocumentTextRepository documentTextRepository;
+    private final OcrTextArchive ocrTextArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final long coldAfterDays;
+    private final int batchSize;
+    private final int maxPerRun;
+    private final long pauseMs;
+    private final Counter offloaded;
+    private final Counter offloadedBytes;
+
+    public DocumentTextTiering(
+            DocumentTextRepository documentTextRepository,
+            OcrTextArchive ocrTextArchive,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${documents.text-tiering.cold-after-days:180}") long coldAfterDays,
+            @Value("${documents.text-tiering.batch-size:50}") int batchSize,
+            @Value("${documents.text-tiering.max-per-run:1000}") int maxPerRun,
+            @Value("${documents.text-tiering.pause-ms:500}") long pauseMs
+    ) {
+        this.documentTextRepository = documentTextRepository;
+        this.ocrTextArchive = ocrTextArchive;
+        this.transactionTemplate = transactionTemplate;
+        this.coldAfterDays = coldAfterDays;
+        this.batchSize = batchSize;
+        this.maxPerRun = maxPerRun;
+        this.pauseMs = pauseMs;
+        this.offloaded = Counter.builder("paperless.ocr.text.offloaded")
+                .description("OCR texts moved from Postgres to object storage")
+                .register(meterRegistry);
+        this.offloadedBytes = Counter.builder("paperless.ocr.text.offloaded.bytes")
+                .description("Uncompressed bytes of OCR text moved from Postgres to object storage")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${documents.text-tiering.interval-ms:300000}")
+    public void offloadColdTexts() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(coldAfterDays);
+        int total = 0;
+        try {
+            while (total < maxPerRun) {
+                int limit = Math.min(batchSize, maxPerRun - total);
+                Integer moved = transactionTemplate.execute(status -> offloadBatch(cutoff, limit));
+                total += moved == null ? 0 : moved;
+                if (moved == null || moved < limit) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("[DocumentTextTiering.offloadColdTexts] Offloading OCR text failed: {}", e.getMessage(), e);
+        }
+        if (total > 0) {
+            log.info("[DocumentTextTiering.offloadColdTexts] Offloaded the OCR text of {} documents", total);
+        }
+    }
+
+    /**
+     * Offloads one locked batch of cold texts. Must run inside a transaction.
+     *
+     * @return the number of offloaded texts
+     */
+    public int offloadBatch(LocalDateTime cutoff, int limit) {
+        List<DocumentTextEntity> batch = documentTextRepository.lockColdTexts(cutoff, limit);
+        for (DocumentTextEntity text : batch) {
+            String objectKey = ocrTextArchive.store(text.getId(), text.getOcrText());
+            offloadedBytes.increment(text.getOcrText().getBytes(StandardCharsets.UTF_8).length);
+            text.setOcrTextObjectKey(objectKey);
+            text.setOffloadedAt(LocalDateTime.now());
+            text.setOcrText(null);
+            offloaded.increment();
+        }
+        documentTextRepository.saveAll(batch);
+        return batch.size();
+    }
+}
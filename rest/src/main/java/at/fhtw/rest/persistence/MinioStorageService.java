@@ -3,12 +3,46 @@ package at.fhtw.rest.persistence;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Optional;
 
 public interface MinioStorageService {
-    void storeFile(String objectKey, MultipartFile file) throws IOException;
+    /**
+     * Prefix of the objects clients upload directly. Objects under it are only staged: they expire unless
+     * the upload is finalized and the object is moved to its document key.
+     */
+    String UPLOAD_PREFIX = "uploads/";
+
+    static String uploadKey(String docId) {
+        return UPLOAD_PREFIX + docId;
+    }
+
+    /**
+     * Streams the file into storage.
+     *
+     * @return the SHA-256 digest of the stored bytes, hex encoded, computed while they were sent
+     */
+    String storeFile(String objectKey, MultipartFile file) throws IOException;
 
     Optional<byte[]> loadFile(String objectKey);
 
+    Optional<StoredObject> statFile(String objectKey);
+
+    /**
+     * Opens the stored file for reading, starting at the offset. Only the requested bytes are fetched from
+     * MinIO.
+     *
+     * @param length the number of bytes to read, or {@code null} to read to the end
+     */
+    InputStream openFile(String objectKey, long offset, Long length) throws IOException;
+
     void deleteFile(String objectKey);
-}
\ No newline at end of file
+
+    /**
+     * Copies a staged upload to its final key inside the bucket, without the bytes passing through this
+     * service. The staged object is left in place.
+     *
+     * @return the stored object under the final key
+     */
+    StoredObject copyFile(String sourceKey, String objectKey);
+}
@@ -1,51 +1,118 @@
 package at.fhtw.rest.persistence;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import io.minio.GetObjectArgs;
+import io.minio.ObjectWriteResponse;
 import io.minio.RemoveObjectArgs;
+import io.minio.SetBucketLifecycleArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Expiration;
+import io.minio.messages.LifecycleConfiguration;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.Part;
+import io.minio.messages.RuleFilter;
+import io.minio.messages.Status;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores the uploaded documents in MinIO.
+ *
+ * <p>
+ * Uploads are streamed from the multipart request instead of being copied onto the heap. Files up to one
+ * part are sent with a single PUT; larger files become an S3 multipart upload whose parts are read into a
+ * fixed set of buffers and sent concurrently. A request never holds more than part size times parallel
+ * parts bytes, and reading the next part waits until one of its buffers is free again. The SHA-256 digest
+ * of the file is computed on the way, so the file is read only once. The bucket is
+ * created at startup; a store into a bucket that disappeared since creates it and retries once.
+ * </p>
+ *
+ * <p>
+ * At startup the bucket also gets a lifecycle rule that expires the objects under
+ * {@link MinioStorageService#UPLOAD_PREFIX}, so direct uploads that are never finalized are removed by MinIO.
+ * </p>
+ *
+ * <p>
+ * For multipart uploads, see:
+ * <a href="https://min.io/docs/minio/linux/developers/java/API.html">MinIO Java API Reference</a>.
+ * </p>
+ */
 
 @Slf4j
 @Service
 public class MinioStorageServiceImp implements MinioStorageService {
+    private static final String NO_SUCH_BUCKET = "NoSuchBucket";
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final String UPLOAD_EXPIRY_RULE = "expire-unfinished-uploads";
+
     private final MinioClient minioClient;
+    private final MultipartMinioClient multipartClient;
     private final String bucketName;
+    private final int partSize;
+    private final int parallelParts;
+    private final int unfinishedUploadExpiryDays;
 
-    public MinioStorageServiceImp(MinioClient minioClient, @Value("${minio.bucket-name}") String bucketName) {
+    public MinioStorageServiceImp(
+            MinioClient minioClient,
+            MultipartMinioClient multipartClient,
+            @Value("${minio.bucket-name}") String bucketName,
+            @Value("${minio.upload.part-size:8388608}") int partSize,
+            @Value("${minio.upload.parallel-parts:4}") int parallelParts,
+            @Value("${minio.presigned.unfinished-upload-expiry-days:1}") int unfinishedUploadExpiryDays
+    ) {
         this.minioClient = minioClient;
+        this.multipartClient = multipartClient;
         this.bucketName = bucketName;
+        this.partSize = partSize;
+        this.parallelParts = Math.max(1, parallelParts);
+        this.unfinishedUploadExpiryDays = Math.max(1, unfinishedUploadExpiryDays);
+    }
+
+    @PostConstruct
+    public void ensureBucket() {
+        try {
+            createBucketIfMissing();
+            expireUnfinishedUploads();
+        } catch (Exception e) {
+            log.warn("Could not set up bucket '{}' at startup, it is created on the first upload: {}", bucketName, e.getMessage());
+        }
     }
 
     @Override
-    public void storeFile(String objectKey, MultipartFile file) throws IOException {
-        try (InputStream is = new ByteArrayInputStream(file.getBytes())) {
-            boolean bucketExists = minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
-            if (!bucketExists) {
-                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
-                log.info("Bucket '{}' created.", bucketName);
+    public String storeFile(String objectKey, MultipartFile file) throws IOException {
+        try {
+            return store(objectKey, file);
+        } catch (Exception e) {
+            if (!isNoSuchBucket(e)) {
+                throw new IOException("Failed to store file", e);
             }
-            String contentType = file.getContentType();
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+            try {
+                createBucketIfMissing();
+                return store(objectKey, file);
+            } catch (Exception retryFailure) {
+                throw new IOException("Failed to store file", retryFailure);
             }
-            minioClient.putObject(PutObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectKey)
-                    .stream(is, file.getSize(), -1)
-                    .contentType(contentType)
-                    .build());
-        } catch (Exception e) {
-            throw new IOException("Failed to store file", e);
         }
     }
 
@@ -59,17 +126,170 @@ public class MinioStorageServiceImp implements MinioStorageService {
         }
     }
 
+    @Override
+    public Optional<StoredObject> statFile(String objectKey) {
+        try {
+            StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+            return Optional.of(StoredObject.builder()
+                    .objectKey(objectKey)
+                    .size(stat.size())
+                    .etag(stat.etag())
+                    .contentType(stat.contentType())
+                    .build());
+        } catch (Exception e) {
+            if (isErrorCode(e, NO_SUCH_KEY) || isNoSuchBucket(e)) {
+                return Optional.empty();
+            }
+            throw new RuntimeException("Failed to read file metadata", e);
+        }
+    }
+
+    @Override
+    public InputStream openFile(String objectKey, long offset, Long length) throws IOException {
+        GetObjectArgs.Builder args = GetObjectArgs.builder().bucket(bucketName).object(objectKey);
+        if (offset > 0) {
+            args.offset(offset);
+        }
+        if (length != null) {
+            args.length(length);
+        }
+        try {
+            return minioClient.getObject(args.build());
+        } catch (Exception e) {
+            throw new IOException("Failed to load file", e);
+        }
+    }
+
     @Override
     public void deleteFile(String objectKey) {
         try {
-            boolean bucketExists = minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
-            if (!bucketExists) {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+        } catch (Exception e) {
+            if (isNoSuchBucket(e)) {
                 log.warn("Bucket '{}' does not exist", bucketName);
                 return;
             }
-            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectKey).build());
-        } catch (Exception e) {
             throw new RuntimeException("Failed to delete file", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public StoredObject copyFile(String sourceKey, String objectKey) {
+        try {
+            ObjectWriteResponse response = minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectKey)
+                    .source(CopySource.builder().bucket(bucketName).object(sourceKey).build())
+                    .build());
+            log.debug("Copied '{}' to '{}' (etag {})", sourceKey, objectKey, response.etag());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to copy file", e);
+        }
+        return statFile(objectKey).orElseThrow(() -> new IllegalStateException("Copied file disappeared: " + objectKey));
+    }
+
+    private String store(String objectKey, MultipartFile file) throws Exception {
+        String contentType = file.getContentType();
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        }
+        if (file.getSize() <= partSize) {
+            try (HashingInputStream is = new HashingInputStream(Hashing.sha256(), file.getInputStream())) {
+                minioClient.putObject(PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectKey)
+                        .stream(is, file.getSize(), -1)
+                        .contentType(contentType)
+                        .build());
+                return is.hash().toString();
+            }
+        }
+        String uploadId = multipartClient.startUpload(bucketName, objectKey, contentType).join();
+        try (HashingInputStream is = new HashingInputStream(Hashing.sha256(), file.getInputStream())) {
+            Part[] parts = uploadParts(objectKey, uploadId, is);
+            multipartClient.completeUpload(bucketName, objectKey, uploadId, parts).join();
+            return is.hash().toString();
+        } catch (Exception e) {
+            abort(objectKey, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the stream part by part into the request's buffers and uploads each part as soon as it is full.
+     */
+    private Part[] uploadParts(String objectKey, String uploadId, InputStream is) throws Exception {
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(parallelParts);
+        int allocated = 0;
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        for (int partNumber = 1; ; partNumber++) {
+            byte[] buffer = freeBuffers.poll();
+            if (buffer == null && allocated < parallelParts) {
+                buffer = new byte[partSize];
+                allocated++;
+            } else if (buffer == null) {
+                buffer = freeBuffers.take();
+            }
+            failIfAnyPartFailed(parts);
+            int length = is.readNBytes(buffer, 0, partSize);
+            if (length == 0 && partNumber > 1) {
+                break;
+            }
+            byte[] partBuffer = buffer;
+            parts.add(multipartClient.uploadPart(bucketName, objectKey, uploadId, partNumber, partBuffer, length)
+                    .whenComplete((part, failure) -> freeBuffers.offer(partBuffer)));
+            if (length < partSize) {
+                break;
+            }
+        }
+        CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).join();
+        return parts.stream().map(CompletableFuture::join).toArray(Part[]::new);
+    }
+
+    private static void failIfAnyPartFailed(List<CompletableFuture<Part>> parts) {
+        parts.stream().filter(CompletableFuture::isCompletedExceptionally).findFirst().ifPresent(CompletableFuture::join);
+    }
+
+    private void abort(String objectKey, String uploadId) {
+        try {
+            multipartClient.abortUpload(bucketName, objectKey, uploadId);
+        } catch (Exception e) {
+            log.warn("Could not abort multipart upload of '{}': {}", objectKey, e.getMessage());
+        }
+    }
+
+    private void createBucketIfMissing() throws Exception {
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+            log.info("Bucket '{}' created.", bucketName);
+        }
+    }
+
+    /**
+     * Replaces the bucket's lifecycle configuration with the single rule for staged uploads; the bucket is
+     * owned by this application, so there are no other rules to keep.
+     */
+    private void expireUnfinishedUploads() throws Exception {
+        LifecycleRule rule = new LifecycleRule(Status.ENABLED, null,
+                new Expiration((ZonedDateTime) null, unfinishedUploadExpiryDays, null),
+                new RuleFilter(UPLOAD_PREFIX), UPLOAD_EXPIRY_RULE, null, null, null);
+        minioClient.setBucketLifecycle(SetBucketLifecycleArgs.builder()
+                .bucket(bucketName)
+                .config(new LifecycleConfiguration(List.of(rule)))
+                .build());
+        log.info("Unfinished uploads in bucket '{}' expire after {} day(s).", bucketName, unfinishedUploadExpiryDays);
+    }
+
+    private static boolean isNoSuchBucket(Throwable e) {
+        return isErrorCode(e, NO_SUCH_BUCKET);
+    }
+
+    private static boolean isErrorCode(Throwable e, String code) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ErrorResponseException response && code.equals(response.errorResponse().code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+package at.fhtw.rest.persistence;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.errors.MinioException;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exposes the S3 multipart upload calls of the asynchronous MinIO client, which only offers them to
+ * subclasses, so uploads can send their parts concurrently.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public CompletableFuture<String> startUpload(String bucket, String objectKey, String contentType)
+            throws IOException, GeneralSecurityException, MinioException {
+        Multimap<String, String> headers = ImmutableMultimap.of("Content-Type", contentType);
+        return createMultipartUploadAsync(bucket, null, objectKey, headers, null)
+                .thenApply(response -> response.result().uploadId());
+    }
+
+    /**
+     * Uploads the first {@code length} bytes of the buffer as one part. The buffer must not be reused before
+     * the returned future completes.
+     */
+    public CompletableFuture<Part> uploadPart(String bucket, String objectKey, String uploadId, int partNumber,
+                                              byte[] buffer, int length)
+            throws IOException, GeneralSecurityException, MinioException {
+        return uploadPartAsync(bucket, null, objectKey, buffer, length, uploadId, partNumber, null, null)
+                .thenApply(response -> new Part(partNumber, response.etag()));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> completeUpload(String bucket, String objectKey, String uploadId, Part[] parts)
+            throws IOException, GeneralSecurityException, MinioException {
+        return completeMultipartUploadAsync(bucket, null, objectKey, uploadId, parts, null, null);
+    }
+
+    public void abortUpload(String bucket, String objectKey, String uploadId)
+            throws IOException, GeneralSecurityException, MinioException {
+        abortMultipartUploadAsync(bucket, null, objectKey, uploadId, null, null).join();
+    }
+}
@@ -0,0 +1,23 @@
+package at.fhtw.rest.persistence;
+
+import java.util.UUID;
+
+public interface OcrTextArchive {
+    /**
+     * Stores the compressed text of a document.
+     *
+     * @return the object key to keep in the document's text row
+     */
+    String store(UUID docId, String text);
+
+    String load(String objectKey);
+
+    void delete(UUID docId);
+
+    /**
+     * The OCR text of the row, fetched from the archive if it was offloaded.
+     */
+    default String textOf(DocumentTextEntity text) {
+        return text.isOffloaded() ? load(text.getOcrTextObjectKey()) : text.getOcrText();
+    }
+}
@@ -0,0 +1,96 @@
+package at.fhtw.rest.persistence;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps offloaded OCR text as gzip-compressed objects next to the documents in MinIO.
+ *
+ * <p>
+ * The object key is derived from the document ID, so storing a text again overwrites the previous object,
+ * and deleting a document can remove its text without reading the row first.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class OcrTextArchiveImp implements OcrTextArchive {
+    private static final String KEY_PREFIX = "ocr-text/";
+    private static final String KEY_SUFFIX = ".txt.gz";
+
+    private final MinioClient minioClient;
+    private final String bucketName;
+
+    public OcrTextArchiveImp(MinioClient minioClient, @Value("${minio.bucket-name}") String bucketName) {
+        this.minioClient = minioClient;
+        this.bucketName = bucketName;
+    }
+
+    public static String objectKey(UUID docId) {
+        return KEY_PREFIX + docId + KEY_SUFFIX;
+    }
+
+    @Override
+    public String store(UUID docId, String text) {
+        String objectKey = objectKey(docId);
+        byte[] compressed = compress(text);
+        try (InputStream is = new ByteArrayInputStream(compressed)) {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectKey)
+                    .stream(is, compressed.length, -1)
+                    .contentType("text/plain; charset=utf-8")
+                    .headers(Map.of("Content-Encoding", "gzip"))
+                    .build());
+            return objectKey;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to store OCR text of document " + docId, e);
+        }
+    }
+
+    @Override
+    public String load(String objectKey) {
+        try (InputStream response = minioClient.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+             InputStream in = new GZIPInputStream(response)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load OCR text " + objectKey, e);
+        }
+    }
+
+    @Override
+    public void delete(UUID docId) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectKey(docId)).build());
+        } catch (Exception e) {
+            log.warn("[OcrTextArchiveImp.delete] Could not delete OCR text of document {}: {}", docId, e.getMessage());
+        }
+    }
+
+    private static byte[] compress(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
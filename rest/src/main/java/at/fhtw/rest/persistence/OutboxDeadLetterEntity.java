@@ -0,0 +1,42 @@
+package at.fhtw.rest.persistence;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_dead_letters")
+@Getter
+@Setter
+@SuppressWarnings("JpaDataSourceORMInspection")
+public class OutboxDeadLetterEntity {
+    @Id
+    @Column(name = "id", nullable = false)
+    private Long id;
+    @Column(name = "exchange", nullable = false)
+    private String exchange;
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    @Column(name = "failed_at", nullable = false)
+    private LocalDateTime failedAt;
+
+    public static OutboxDeadLetterEntity of(OutboxEntity entry, LocalDateTime failedAt) {
+        OutboxDeadLetterEntity deadLetter = new OutboxDeadLetterEntity();
+        deadLetter.setId(entry.getId());
+        deadLetter.setExchange(entry.getExchange());
+        deadLetter.setRoutingKey(entry.getRoutingKey());
+        deadLetter.setPayload(entry.getPayload());
+        deadLetter.setCreatedAt(entry.getCreatedAt());
+        deadLetter.setAttempts(entry.getAttempts());
+        deadLetter.setFailedAt(failedAt);
+        return deadLetter;
+    }
+}
@@ -0,0 +1,37 @@
+package at.fhtw.rest.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEntity, Long> {
+
+    /**
+     * Locks the oldest entries that are due. Rows already locked by another relay are skipped,
+     * so several REST replicas can drain the outbox concurrently without double-publishing; rows
+     * waiting out a retry backoff are skipped until their next attempt is due.
+     */
+    @Query(value = "SELECT * FROM outbox WHERE next_attempt_at <= :now ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEntity> lockNextBatch(@Param("limit") int limit, @Param("now") LocalDateTime now);
+
+    /**
+     * Locks the given entries to record the outcome of a relay attempt. Entries deleted meanwhile are missing.
+     */
+    @Query(value = "SELECT * FROM outbox WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<OutboxEntity> lockAllById(@Param("ids") List<Long> ids);
+
+    /**
+     * Removes the entries of a document that have not been relayed yet. An entry a relay has already
+     * claimed may still reach the broker; the tombstone sent for the deleted document cancels it there.
+     */
+    @Modifying
+    @Query("delete from OutboxEntity o where o.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") UUID documentId);
+}
@@ -0,0 +1,17 @@
+package at.fhtw.rest.persistence;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * A signed browser-style upload: the file is sent as a multipart form POST to the URL, together with all
+ * form fields, and the file itself as the last field named {@code file}.
+ */
+@Value
+@Builder
+public class PresignedPost {
+    String url;
+    Map<String, String> formFields;
+}
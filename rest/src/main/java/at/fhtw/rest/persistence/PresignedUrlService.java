@@ -0,0 +1,15 @@
+package at.fhtw.rest.persistence;
+
+import java.time.Duration;
+
+public interface PresignedUrlService {
+    String presignDownload(String objectKey);
+
+    /**
+     * Signs an upload of at most {@code maxSize} bytes to the object key. The limit is part of the signed
+     * policy, so storage rejects a larger file before it is written.
+     */
+    PresignedPost presignUpload(String objectKey, long maxSize);
+
+    Duration getExpiry();
+}
@@ -0,0 +1,89 @@
+package at.fhtw.rest.persistence;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.http.Method;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs short-lived MinIO URLs, so clients transfer document bytes with MinIO directly.
+ *
+ * <p>
+ * The URLs are signed by a client configured with the endpoint clients reach MinIO on, which may differ
+ * from the one the REST service uses, since the host is part of the signature. Its region is fixed, so
+ * signing never needs a round-trip to MinIO.
+ * </p>
+ *
+ * <p>
+ * Uploads are signed as a POST policy rather than a PUT URL: the policy pins the object key and the allowed
+ * content length, so MinIO itself refuses empty or oversized files.
+ * </p>
+ */
+
+@Service
+public class PresignedUrlServiceImp implements PresignedUrlService {
+    private final MinioClient presigningClient;
+    private final String bucketName;
+    private final String uploadUrl;
+    private final Duration expiry;
+
+    public PresignedUrlServiceImp(
+            @Qualifier("presigningMinioClient") MinioClient presigningClient,
+            @Value("${minio.bucket-name}") String bucketName,
+            @Value("${minio.presigned.public-endpoint:${minio.endpoint}}") String publicEndpoint,
+            @Value("${minio.presigned.expiry-seconds:300}") long expirySeconds
+    ) {
+        this.presigningClient = presigningClient;
+        this.bucketName = bucketName;
+        this.uploadUrl = publicEndpoint.replaceAll("/+$", "") + "/" + bucketName;
+        this.expiry = Duration.ofSeconds(expirySeconds);
+    }
+
+    @Override
+    public String presignDownload(String objectKey) {
+        return presign(Method.GET, objectKey);
+    }
+
+    @Override
+    public PresignedPost presignUpload(String objectKey, long maxSize) {
+        PostPolicy policy = new PostPolicy(bucketName, ZonedDateTime.now().plus(expiry));
+        policy.addEqualsCondition("key", objectKey);
+        policy.addStartsWithCondition("Content-Type", "");
+        policy.addContentLengthRangeCondition(1, maxSize);
+        try {
+            Map<String, String> formFields = new LinkedHashMap<>();
+            formFields.put("key", objectKey);
+            formFields.putAll(presigningClient.getPresignedPostFormData(policy));
+            return PresignedPost.builder().url(uploadUrl).formFields(formFields).build();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to sign upload for " + objectKey, e);
+        }
+    }
+
+    @Override
+    public Duration getExpiry() {
+        return expiry;
+    }
+
+    private String presign(Method method, String objectKey) {
+        try {
+            return presigningClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(method)
+                    .bucket(bucketName)
+                    .object(objectKey)
+                    .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
+                    .build());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to sign URL for " + objectKey, e);
+        }
+    }
+}
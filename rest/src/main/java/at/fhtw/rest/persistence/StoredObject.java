@@ -0,0 +1,16 @@
+package at.fhtw.rest.persistence;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Metadata of a stored document file, as needed to answer a download before any content is read.
+ */
+@Value
+@Builder
+public class StoredObject {
+    String objectKey;
+    long size;
+    String etag;
+    String contentType;
+}
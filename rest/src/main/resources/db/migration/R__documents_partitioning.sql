@@ -0,0 +1,128 @@
+-- Optional monthly range partitioning of documents by upload_date, enabled with the documents_partitioning
+-- placeholder (DOCUMENTS_PARTITIONING_ENABLED). The script is idempotent: it does nothing while the flag is
+-- off or once documents is partitioned, so it is safe to run again.
+--
+-- A partitioned table can only enforce keys that contain the partition column, so the primary key becomes
+-- (doc_id, upload_date) and upload_date becomes NOT NULL. Document IDs are generated and unique anyway.
+-- document_texts can no longer reference documents with a foreign key; a trigger deletes the text together
+-- with its document instead. The conversion copies all rows while holding a lock on documents, so enable it
+-- during a maintenance window on large libraries. Partitioning cannot be switched off again by this script.
+
+-- Creates the partitions for the current month and the given number of months ahead, if missing.
+-- Returns the number of partitions created. Called by the application on a schedule.
+CREATE OR REPLACE FUNCTION ensure_documents_partitions(months_ahead integer) RETURNS integer
+    LANGUAGE plpgsql AS
+$fn$
+DECLARE
+    part_month     date    := date_trunc('month', now())::date;
+    last_month     date    := (date_trunc('month', now()) + make_interval(months => months_ahead))::date;
+    partition_name text;
+    created        integer := 0;
+BEGIN
+    IF NOT EXISTS (SELECT 1
+                   FROM pg_partitioned_table p
+                            JOIN pg_class c ON c.oid = p.partrelid
+                   WHERE c.relname = 'documents'
+                     AND c.relnamespace = current_schema()::regnamespace) THEN
+        RETURN 0;
+    END IF;
+    PERFORM pg_advisory_xact_lock(hashtext('ensure_documents_partitions'));
+    WHILE part_month <= last_month
+        LOOP
+            partition_name := 'documents_p' || to_char(part_month, 'YYYYMM');
+            IF to_regclass(quote_ident(partition_name)) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF documents FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, part_month, (part_month + interval '1 month')::date);
+                created := created + 1;
+            END IF;
+            part_month := (part_month + interval '1 month')::date;
+        END LOOP;
+    RETURN created;
+END
+$fn$;
+
+CREATE OR REPLACE FUNCTION delete_document_text() RETURNS trigger
+    LANGUAGE plpgsql AS
+$fn$
+BEGIN
+    DELETE FROM document_texts WHERE doc_id = OLD.doc_id;
+    RETURN OLD;
+END
+$fn$;
+
+DO
+$convert$
+    DECLARE
+        first_month date;
+        part_month  date;
+    BEGIN
+        IF '${documents_partitioning}' <> 'true' OR EXISTS (SELECT 1
+                                                           FROM pg_partitioned_table p
+                                                                    JOIN pg_class c ON c.oid = p.partrelid
+                                                           WHERE c.relname = 'documents'
+                                                             AND c.relnamespace = current_schema()::regnamespace) THEN
+            RETURN;
+        END IF;
+
+        LOCK TABLE documents IN ACCESS EXCLUSIVE MODE;
+        SELECT coalesce(date_trunc('month', min(upload_date))::date, date_trunc('month', now())::date)
+        INTO first_month
+        FROM documents;
+        UPDATE documents SET upload_date = first_month WHERE upload_date IS NULL;
+
+        ALTER TABLE document_texts
+            DROP CONSTRAINT IF EXISTS fk_document_texts_document;
+        ALTER TABLE documents
+            RENAME TO documents_unpartitioned;
+        ALTER TABLE documents_unpartitioned
+            RENAME CONSTRAINT documents_pkey TO documents_unpartitioned_pkey;
+
+        CREATE TABLE documents
+        (
+            doc_id         uuid         NOT NULL,
+            filename       varchar(255),
+            filesize       bigint       NOT NULL,
+            filetype       varchar(255),
+            content_digest varchar(64),
+            object_key     varchar(255),
+            upload_date    timestamp(6) NOT NULL,
+            ocr_job_done   boolean      NOT NULL,
+            search_vector  tsvector,
+            CONSTRAINT documents_pkey PRIMARY KEY (doc_id, upload_date)
+        ) PARTITION BY RANGE (upload_date);
+
+        CREATE TRIGGER trg_documents_search_vector
+            BEFORE INSERT OR UPDATE OF filename
+            ON documents
+            FOR EACH ROW
+        EXECUTE FUNCTION documents_search_vector_update();
+
+        CREATE TABLE documents_default PARTITION OF documents DEFAULT;
+        part_month := first_month;
+        WHILE part_month < date_trunc('month', now())::date
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF documents FOR VALUES FROM (%L) TO (%L)',
+                               'documents_p' || to_char(part_month, 'YYYYMM'), part_month, (part_month + interval '1 month')::date);
+                part_month := (part_month + interval '1 month')::date;
+            END LOOP;
+        PERFORM ensure_documents_partitions(3);
+
+        INSERT INTO documents (doc_id, filename, filesize, filetype, content_digest, object_key, upload_date, ocr_job_done)
+        SELECT doc_id, filename, filesize, filetype, content_digest, object_key, upload_date, ocr_job_done
+        FROM documents_unpartitioned;
+        DROP TABLE documents_unpartitioned;
+
+        -- The secondary indexes of V4 and V6, now created on every partition.
+        CREATE INDEX idx_documents_upload_date_doc_id ON documents (upload_date, doc_id);
+        CREATE INDEX idx_documents_filename ON documents (filename);
+        CREATE INDEX idx_documents_filetype ON documents (filetype);
+        CREATE INDEX idx_documents_ocr_pending ON documents (upload_date) WHERE NOT ocr_job_done;
+        CREATE INDEX idx_documents_search_vector ON documents USING gin (search_vector);
+
+        CREATE TRIGGER trg_documents_delete_text
+            AFTER DELETE
+            ON documents
+            FOR EACH ROW
+        EXECUTE FUNCTION delete_document_text();
+    END
+$convert$;
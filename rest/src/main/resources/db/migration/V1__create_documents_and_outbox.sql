@@ -0,0 +1,40 @@
+-- Base schema. Tables are only created when missing, so databases that were set up by Hibernate before
+-- migrations were introduced are adopted and brought up to date by the following versions. An adopted table
+-- may predate some of the mapped columns, so every column is added when missing; the defaults only fill
+-- existing rows of such tables.
+
+CREATE TABLE IF NOT EXISTS documents
+(
+    doc_id         uuid         NOT NULL,
+    filename       varchar(255),
+    filesize       bigint       NOT NULL,
+    filetype       varchar(255),
+    content_digest varchar(64),
+    object_key     varchar(255),
+    upload_date    timestamp(6),
+    ocr_job_done   boolean      NOT NULL,
+    CONSTRAINT documents_pkey PRIMARY KEY (doc_id)
+);
+
+ALTER TABLE documents
+    ADD COLUMN IF NOT EXISTS filename       varchar(255),
+    ADD COLUMN IF NOT EXISTS filesize       bigint  NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS filetype       varchar(255),
+    ADD COLUMN IF NOT EXISTS content_digest varchar(64),
+    ADD COLUMN IF NOT EXISTS object_key     varchar(255),
+    ADD COLUMN IF NOT EXISTS upload_date    timestamp(6),
+    ADD COLUMN IF NOT EXISTS ocr_job_done   boolean NOT NULL DEFAULT false;
+
+CREATE TABLE IF NOT EXISTS outbox
+(
+    id          bigint GENERATED BY DEFAULT AS IDENTITY,
+    exchange    varchar(255) NOT NULL,
+    routing_key varchar(255) NOT NULL,
+    payload     text         NOT NULL,
+    created_at  timestamp(6) NOT NULL,
+    attempts    integer      NOT NULL,
+    CONSTRAINT outbox_pkey PRIMARY KEY (id)
+);
+
+ALTER TABLE outbox
+    ADD COLUMN IF NOT EXISTS attempts integer NOT NULL DEFAULT 0;
@@ -0,0 +1,28 @@
+-- Converts document IDs created as VARCHAR to the native uuid type.
+--
+-- IDs issued before are random UUIDs in canonical text form, so they cast directly and keep working in
+-- URLs, object keys and the search index. The cast fails, and the migration rolls back, if a row holds
+-- anything else. Rewriting the column locks the table for the duration; fresh databases skip this step.
+
+DO
+$$
+    BEGIN
+        IF (SELECT data_type
+            FROM information_schema.columns
+            WHERE table_schema = current_schema()
+              AND table_name = 'documents'
+              AND column_name = 'doc_id') <> 'uuid' THEN
+            ALTER TABLE IF EXISTS document_texts
+                DROP CONSTRAINT IF EXISTS fk_document_texts_document;
+            ALTER TABLE documents
+                ALTER COLUMN doc_id TYPE uuid USING doc_id::uuid;
+            IF to_regclass('document_texts') IS NOT NULL THEN
+                ALTER TABLE document_texts
+                    ALTER COLUMN doc_id TYPE uuid USING doc_id::uuid;
+                ALTER TABLE document_texts
+                    ADD CONSTRAINT fk_document_texts_document
+                        FOREIGN KEY (doc_id) REFERENCES documents (doc_id) ON DELETE CASCADE;
+            END IF;
+        END IF;
+    END
+$$;
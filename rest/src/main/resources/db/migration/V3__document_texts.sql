@@ -0,0 +1,29 @@
+-- OCR text lives in its own table, keyed by the document ID, so the documents row stays narrow.
+-- Text still stored on the documents row of an older schema is moved over.
+
+CREATE TABLE IF NOT EXISTS document_texts
+(
+    doc_id   uuid NOT NULL,
+    ocr_text text,
+    CONSTRAINT document_texts_pkey PRIMARY KEY (doc_id),
+    CONSTRAINT fk_document_texts_document FOREIGN KEY (doc_id) REFERENCES documents (doc_id) ON DELETE CASCADE
+);
+
+DO
+$$
+    BEGIN
+        IF EXISTS (SELECT 1
+                   FROM information_schema.columns
+                   WHERE table_schema = current_schema()
+                     AND table_name = 'documents'
+                     AND column_name = 'ocr_text') THEN
+            INSERT INTO document_texts (doc_id, ocr_text)
+            SELECT doc_id, ocr_text
+            FROM documents
+            WHERE ocr_text IS NOT NULL
+            ON CONFLICT (doc_id) DO NOTHING;
+            ALTER TABLE documents
+                DROP COLUMN ocr_text;
+        END IF;
+    END
+$$;
@@ -0,0 +1,13 @@
+-- Secondary indexes for the documents queries. They are built concurrently, so a running instance keeps
+-- reading and writing the table while an existing database is upgraded.
+
+-- Listing: newest first, keyset pagination on (upload_date, doc_id).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_upload_date_doc_id ON documents (upload_date, doc_id);
+
+-- Lookups and sorting by name and type.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_filename ON documents (filename);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_filetype ON documents (filetype);
+
+-- Documents still waiting for OCR. Only pending rows are indexed, so the index stays small however large
+-- the library grows, and finished documents drop out of it.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_ocr_pending ON documents (upload_date) WHERE NOT ocr_job_done;
@@ -0,0 +1,60 @@
+-- Full-text search vectors for the Postgres search engine. Separators in file names are turned into spaces
+-- so their parts are searchable words; file name matches rank above text matches. The 'simple'
+-- configuration does not stem, as the library mixes languages. Only the first 500,000 characters of a text
+-- are indexed, which keeps every vector below the 1 MB tsvector limit.
+--
+-- The columns are plain and nullable, so adding them only changes the catalog and does not rewrite the
+-- tables. Triggers keep them current on every write from now on; V6 fills them for existing rows in batches
+-- and then builds the indexes.
+
+CREATE OR REPLACE FUNCTION filename_search_vector(filename text) RETURNS tsvector
+    LANGUAGE sql
+    IMMUTABLE AS
+$fn$
+SELECT setweight(to_tsvector('simple', translate(coalesce(filename, ''), '._-', '   ')), 'A')
+$fn$;
+
+CREATE OR REPLACE FUNCTION ocr_text_search_vector(ocr_text text) RETURNS tsvector
+    LANGUAGE sql
+    IMMUTABLE AS
+$fn$
+SELECT setweight(to_tsvector('simple', left(coalesce(ocr_text, ''), 500000)), 'B')
+$fn$;
+
+CREATE OR REPLACE FUNCTION documents_search_vector_update() RETURNS trigger
+    LANGUAGE plpgsql AS
+$fn$
+BEGIN
+    NEW.search_vector := filename_search_vector(NEW.filename);
+    RETURN NEW;
+END
+$fn$;
+
+CREATE OR REPLACE FUNCTION document_texts_search_vector_update() RETURNS trigger
+    LANGUAGE plpgsql AS
+$fn$
+BEGIN
+    NEW.search_vector := ocr_text_search_vector(NEW.ocr_text);
+    RETURN NEW;
+END
+$fn$;
+
+ALTER TABLE documents
+    ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+ALTER TABLE document_texts
+    ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+DROP TRIGGER IF EXISTS trg_documents_search_vector ON documents;
+CREATE TRIGGER trg_documents_search_vector
+    BEFORE INSERT OR UPDATE OF filename
+    ON documents
+    FOR EACH ROW
+EXECUTE FUNCTION documents_search_vector_update();
+
+DROP TRIGGER IF EXISTS trg_document_texts_search_vector ON document_texts;
+CREATE TRIGGER trg_document_texts_search_vector
+    BEFORE INSERT OR UPDATE OF ocr_text
+    ON document_texts
+    FOR EACH ROW
+EXECUTE FUNCTION document_texts_search_vector_update();
@@ -0,0 +1,57 @@
+-- Fills the search vectors of rows written before V5 and builds their GIN indexes. The script runs outside
+-- a transaction: every batch of the backfill commits on its own, so only the rows of the current batch are
+-- locked, and the indexes are built concurrently like the other secondary indexes. Rows written meanwhile
+-- already have their vectors from the V5 triggers. An interrupted run resumes where the vectors are missing.
+
+DO
+$backfill$
+    DECLARE
+        last_id uuid := '00000000-0000-0000-0000-000000000000';
+        next_id uuid;
+    BEGIN
+        LOOP
+            WITH batch AS (SELECT doc_id FROM documents WHERE doc_id > last_id ORDER BY doc_id LIMIT 5000),
+                 filled AS (UPDATE documents d
+                            SET search_vector = filename_search_vector(d.filename)
+                            FROM batch b
+                            WHERE d.doc_id = b.doc_id
+                              AND d.search_vector IS NULL)
+            SELECT doc_id
+            INTO next_id
+            FROM batch
+            ORDER BY doc_id DESC
+            LIMIT 1;
+            EXIT WHEN next_id IS NULL;
+            last_id := next_id;
+            COMMIT;
+        END LOOP;
+    END
+$backfill$;
+
+DO
+$backfill$
+    DECLARE
+        last_id uuid := '00000000-0000-0000-0000-000000000000';
+        next_id uuid;
+    BEGIN
+        LOOP
+            WITH batch AS (SELECT doc_id FROM document_texts WHERE doc_id > last_id ORDER BY doc_id LIMIT 1000),
+                 filled AS (UPDATE document_texts t
+                            SET search_vector = ocr_text_search_vector(t.ocr_text)
+                            FROM batch b
+                            WHERE t.doc_id = b.doc_id
+                              AND t.search_vector IS NULL)
+            SELECT doc_id
+            INTO next_id
+            FROM batch
+            ORDER BY doc_id DESC
+            LIMIT 1;
+            EXIT WHEN next_id IS NULL;
+            last_id := next_id;
+            COMMIT;
+        END LOOP;
+    END
+$backfill$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_search_vector ON documents USING gin (search_vector);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_document_texts_search_vector ON document_texts USING gin (search_vector);
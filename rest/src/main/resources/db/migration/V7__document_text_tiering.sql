@@ -0,0 +1,25 @@
+-- Cold OCR text is moved out of Postgres into compressed objects in MinIO. The row keeps a pointer to the
+-- object and the time it was moved, and its ocr_text is cleared. Its search vector is kept, so the Postgres
+-- search engine still finds cold documents by their text.
+
+ALTER TABLE document_texts
+    ADD COLUMN IF NOT EXISTS ocr_text_object_key varchar(255),
+    ADD COLUMN IF NOT EXISTS offloaded_at timestamp;
+
+-- Texts still stored inline. Only they are candidates for the tiering job, and offloaded rows drop out of
+-- the index.
+CREATE INDEX IF NOT EXISTS idx_document_texts_inline ON document_texts (doc_id) WHERE ocr_text IS NOT NULL;
+
+-- Replaces the V5 trigger function: clearing the text of an offloaded row leaves its vector as it was,
+-- every other write of the text recomputes it.
+CREATE OR REPLACE FUNCTION document_texts_search_vector_update() RETURNS trigger
+    LANGUAGE plpgsql AS
+$fn$
+BEGIN
+    IF NEW.ocr_text IS NULL AND NEW.ocr_text_object_key IS NOT NULL THEN
+        RETURN NEW;
+    END IF;
+    NEW.search_vector := ocr_text_search_vector(NEW.ocr_text);
+    RETURN NEW;
+END
+$fn$;
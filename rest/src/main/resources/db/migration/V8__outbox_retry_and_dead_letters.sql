@@ -0,0 +1,19 @@
+-- Outbox entries the broker rejected are retried with backoff: next_attempt_at is the earliest time the
+-- relay picks them up again. After too many attempts they are moved to outbox_dead_letters, so they no
+-- longer hold up the entries behind them. The default only applies to existing rows and does not rewrite
+-- the table.
+
+ALTER TABLE outbox
+    ADD COLUMN IF NOT EXISTS next_attempt_at timestamp(6) NOT NULL DEFAULT now();
+
+CREATE TABLE IF NOT EXISTS outbox_dead_letters
+(
+    id          bigint       NOT NULL,
+    exchange    varchar(255) NOT NULL,
+    routing_key varchar(255) NOT NULL,
+    payload     text         NOT NULL,
+    created_at  timestamp(6) NOT NULL,
+    attempts    integer      NOT NULL,
+    failed_at   timestamp(6) NOT NULL,
+    CONSTRAINT outbox_dead_letters_pkey PRIMARY KEY (id)
+);
@@ -0,0 +1,8 @@
+-- Outbox entries name the document they belong to, so deleting a document also removes its processing
+-- request if the relay has not published it yet. Existing rows keep a null document_id and are relayed
+-- as before.
+
+ALTER TABLE outbox
+    ADD COLUMN IF NOT EXISTS document_id uuid;
+
+CREATE INDEX IF NOT EXISTS outbox_document_id_idx ON outbox (document_id);
@@ -1,7 +1,10 @@
 package at.fhtw.rest.integration;
 
+import at.fhtw.journal.message.PublisherConfirmTracker;
 import at.fhtw.rest.infrastructure.AppConfig;
 import at.fhtw.rest.message.ProcessingEventDispatcherImp;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.minio.MinioClient;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,15 +12,18 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 
-@SpringBootTest(classes = {AppConfig.class, ProcessingEventDispatcherImp.class})
+@SpringBootTest(classes = {AppConfig.class, ProcessingEventDispatcherImp.class, PublisherConfirmTracker.class, SimpleMeterRegistry.class, ObjectMapper.class},
+        properties = "rabbitmq.outbox.enabled=false")
 public class AppConfigIntegrationTest {
 
     @MockBean
@@ -127,7 +133,7 @@ public class AppConfigIntegrationTest {
         String docId = "doc123";
         String filename = "testFile.pdf";
 
-        dispatcher.sendProcessingRequest(docId, filename);
+        dispatcher.sendProcessingRequest(docId, filename, "abc123");
 
         ArgumentCaptor<String> exchangeCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> routingKeyCaptor = ArgumentCaptor.forClass(String.class);
@@ -136,13 +142,15 @@ public class AppConfigIntegrationTest {
         verify(rabbitTemplate).convertAndSend(
                 exchangeCaptor.capture(),
                 routingKeyCaptor.capture(),
-                messageCaptor.capture()
+                messageCaptor.capture(),
+                any(CorrelationData.class)
         );
 
         assertThat(exchangeCaptor.getValue()).isEqualTo("document_exchange");
         assertThat(routingKeyCaptor.getValue()).isEqualTo("document_routing_key");
         assertThat(messageCaptor.getValue())
                 .contains("\"documentId\":\"doc123\"")
-                .contains("\"filename\":\"testFile.pdf\"");
+                .contains("\"filename\":\"testFile.pdf\"")
+                .contains("\"contentDigest\":\"abc123\"");
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package at.fhtw.rest.integration;
 
+import at.fhtw.rest.api.DocumentPage;
 import at.fhtw.rest.api.DocumentRequest;
 import at.fhtw.rest.core.DocumentService;
+import at.fhtw.rest.core.DocumentView;
+import at.fhtw.rest.persistence.StoredObject;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.BeforeAll;
@@ -16,6 +19,7 @@ import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -92,7 +96,7 @@ class DocumentControllerIntegrationTest {
     void shouldGetDocument() {
         String docId = UUID.randomUUID().toString();
         DocumentRequest expectedDoc = createDocumentRequest(docId, "test.pdf");
-        when(documentService.getDocument(docId)).thenReturn(expectedDoc);
+        when(documentService.getDocument(docId, DocumentView.SUMMARY)).thenReturn(expectedDoc);
 
         given()
                 .contentType(ContentType.JSON)
@@ -105,10 +109,12 @@ class DocumentControllerIntegrationTest {
     }
 
     @Test
-    void shouldDownloadDocument() {
+    void shouldDownloadDocument() throws IOException {
         String docId = UUID.randomUUID().toString();
         byte[] fileContent = "test content".getBytes();
-        when(documentService.getFileBytes(docId)).thenReturn(fileContent);
+        when(documentService.getFileInfo(docId)).thenReturn(StoredObject.builder()
+                .objectKey(docId).size(fileContent.length).etag("etag").contentType(MediaType.APPLICATION_PDF_VALUE).build());
+        when(documentService.openFile(docId, 0, null)).thenReturn(new ByteArrayInputStream(fileContent));
 
         given()
                 .when()
@@ -169,7 +175,7 @@ class DocumentControllerIntegrationTest {
                 createDocumentRequest(UUID.randomUUID().toString(), "test1.pdf"),
                 createDocumentRequest(UUID.randomUUID().toString(), "test2.pdf")
         );
-        when(documentService.searchDocuments("test")).thenReturn(expectedDocs);
+        when(documentService.searchDocuments("test", DocumentView.SUMMARY)).thenReturn(expectedDocs);
 
         given()
                 .queryParam("query", "test")
@@ -185,7 +191,7 @@ class DocumentControllerIntegrationTest {
     @Test
     void shouldHandleServiceException() {
         String docId = UUID.randomUUID().toString();
-        when(documentService.getDocument(docId)).thenThrow(new RuntimeException("Document not found"));
+        when(documentService.getDocument(docId, DocumentView.SUMMARY)).thenThrow(new RuntimeException("Document not found"));
 
         given()
                 .when()
@@ -258,7 +264,7 @@ class DocumentControllerIntegrationTest {
     @Test
     void shouldHandleIllegalArgumentException() {
         String docId = UUID.randomUUID().toString();
-        when(documentService.getDocument(docId)).thenThrow(new IllegalArgumentException("Document not found"));
+        when(documentService.getDocument(docId, DocumentView.SUMMARY)).thenThrow(new IllegalArgumentException("Document not found"));
 
         given()
                 .when()
@@ -274,13 +280,14 @@ class DocumentControllerIntegrationTest {
                 createDocumentRequest("id1", "filename1.pdf"),
                 createDocumentRequest("id2", "filename2.pdf")
         );
-        when(documentService.getAllDocuments()).thenReturn(expectedDocs);
+        when(documentService.listDocuments(null, 50, DocumentView.SUMMARY)).thenReturn(new DocumentPage(expectedDocs, "next-cursor"));
 
         given()
                 .when()
                 .get("/documents")
                 .then()
                 .statusCode(200)
+                .header("X-Next-Cursor", equalTo("next-cursor"))
                 .body(".", hasSize(2))
                 .body("[0].id", equalTo("id1"))
                 .body("[0].filename", equalTo("filename1.pdf"))
@@ -2,6 +2,10 @@ package at.fhtw.rest.integration;
 
 import at.fhtw.rest.persistence.DocumentEntity;
 import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
+import at.fhtw.rest.persistence.OcrTextArchiveImp;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
@@ -13,7 +17,9 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.lifecycle.Startables;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -40,26 +46,36 @@ class DocumentRepositoryIntegrationTest {
         registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
     }
 
+    private static final UUID DOC_1 = UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41");
+    private static final UUID DOC_2 = UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a42");
+    private static final UUID DOC_3 = UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a43");
+    private static final UUID DOC_4 = UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a44");
+
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private DocumentTextRepository documentTextRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Test
     void testSaveAndFindById() {
         DocumentEntity doc = new DocumentEntity();
-        doc.setId("doc-001");
+        doc.setId(DOC_1);
         doc.setFilename("test_file.pdf");
         doc.setFilesize(12345L);
         doc.setFiletype("application/pdf");
         doc.setObjectKey("some/s3/path/test_file.pdf");
         doc.setUploadDate(LocalDateTime.now());
         doc.setOcrJobDone(false);
-        doc.setOcrText(null);
 
         documentRepository.save(doc);
 
-        Optional<DocumentEntity> found = documentRepository.findById("doc-001");
+        Optional<DocumentEntity> found = documentRepository.findById(DOC_1);
         assertThat(found)
-                .as("Expected document to be found by ID 'doc-001'")
+                .as("Expected document to be found by its ID")
                 .isPresent();
         assertThat(found.get().getFilename()).isEqualTo("test_file.pdf");
     }
@@ -67,24 +83,23 @@ class DocumentRepositoryIntegrationTest {
     @Test
     void testUpdateDocument() {
         DocumentEntity doc = new DocumentEntity();
-        doc.setId("doc-002");
+        doc.setId(DOC_2);
         doc.setFilename("old_name.pdf");
         doc.setFilesize(500L);
         doc.setFiletype("application/pdf");
         doc.setObjectKey("some/s3/path/old_name.pdf");
         doc.setUploadDate(LocalDateTime.now());
         doc.setOcrJobDone(false);
-        doc.setOcrText(null);
 
         documentRepository.save(doc);
 
-        DocumentEntity savedDoc = documentRepository.findById("doc-002").orElseThrow();
+        DocumentEntity savedDoc = documentRepository.findById(DOC_2).orElseThrow();
         savedDoc.setFilename("new_name.pdf");
         savedDoc.setFilesize(600L);
 
         documentRepository.save(savedDoc);
 
-        DocumentEntity updatedDoc = documentRepository.findById("doc-002").orElseThrow();
+        DocumentEntity updatedDoc = documentRepository.findById(DOC_2).orElseThrow();
         assertThat(updatedDoc.getFilename()).isEqualTo("new_name.pdf");
         assertThat(updatedDoc.getFilesize()).isEqualTo(600L);
     }
@@ -92,7 +107,7 @@ class DocumentRepositoryIntegrationTest {
     @Test
     void testDeleteDocument() {
         DocumentEntity doc = new DocumentEntity();
-        doc.setId("doc-003");
+        doc.setId(DOC_3);
         doc.setFilename("to_be_deleted.pdf");
         doc.setFilesize(200L);
         doc.setFiletype("application/pdf");
@@ -100,12 +115,135 @@ class DocumentRepositoryIntegrationTest {
 
         documentRepository.save(doc);
 
-        Optional<DocumentEntity> savedDoc = documentRepository.findById("doc-003");
+        Optional<DocumentEntity> savedDoc = documentRepository.findById(DOC_3);
         assertThat(savedDoc).isPresent();
 
-        documentRepository.deleteById("doc-003");
+        documentRepository.deleteById(DOC_3);
 
-        Optional<DocumentEntity> deletedDoc = documentRepository.findById("doc-003");
+        Optional<DocumentEntity> deletedDoc = documentRepository.findById(DOC_3);
         assertThat(deletedDoc).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOcrTextIsStoredSeparatelyAndDeletedWithDocument() {
+        DocumentEntity doc = new DocumentEntity();
+        doc.setId(DOC_4);
+        doc.setFilename("with_text.pdf");
+        doc.setUploadDate(LocalDateTime.now());
+        doc.setOcrJobDone(true);
+        documentRepository.save(doc);
+
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setDocument(doc);
+        text.setOcrText("Recognised text");
+        documentTextRepository.save(text);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(documentTextRepository.findById(DOC_4))
+                .get()
+                .extracting(DocumentTextEntity::getOcrText)
+                .isEqualTo("Recognised text");
+
+        documentRepository.deleteById(DOC_4);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(documentTextRepository.findById(DOC_4)).isEmpty();
+    }
+
+    @Test
+    void testInsertIfAbsentKeepsTheExistingRow() {
+        LocalDateTime uploadDate = LocalDateTime.now();
+        assertThat(documentRepository.insertIfAbsent(DOC_1, "first.pdf", 10L, "application/pdf", "etag:a", uploadDate)).isEqualTo(1);
+        assertThat(documentRepository.insertIfAbsent(DOC_1, "second.pdf", 20L, "application/pdf", "etag:b", uploadDate)).isZero();
+        entityManager.clear();
+
+        DocumentEntity found = documentRepository.findById(DOC_1).orElseThrow();
+        assertThat(found.getFilename()).isEqualTo("first.pdf");
+        assertThat(found.isOcrJobDone()).isFalse();
+        assertThat(documentRepository.searchIds("first", 10)).containsExactly(DOC_1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMigrationsCreateDocumentIndexes() {
+        List<String> indexes = entityManager.createNativeQuery(
+                        "SELECT indexdef FROM pg_indexes WHERE tablename = 'documents'")
+                .getResultList();
+
+        assertThat(indexes)
+                .anySatisfy(def -> assertThat(def).contains("idx_documents_upload_date_doc_id"))
+                .anySatisfy(def -> assertThat(def).contains("idx_documents_filename"))
+                .anySatisfy(def -> assertThat(def).contains("idx_documents_filetype"))
+                .anySatisfy(def -> assertThat(def).contains("idx_documents_ocr_pending").contains("WHERE (NOT ocr_job_done)"))
+                .anySatisfy(def -> assertThat(def).contains("idx_documents_search_vector").contains("USING gin"));
+    }
+
+    @Test
+    void testFullTextSearchRanksFilenameMatchesFirst() {
+        DocumentEntity byName = new DocumentEntity();
+        byName.setId(DOC_1);
+        byName.setFilename("Invoice_March.pdf");
+        byName.setUploadDate(LocalDateTime.now());
+        documentRepository.save(byName);
+
+        DocumentEntity byText = new DocumentEntity();
+        byText.setId(DOC_2);
+        byText.setFilename("scan.pdf");
+        byText.setUploadDate(LocalDateTime.now());
+        documentRepository.save(byText);
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setDocument(byText);
+        text.setOcrText("Please pay this invoice within 14 days");
+        documentTextRepository.save(text);
+
+        DocumentEntity unrelated = new DocumentEntity();
+        unrelated.setId(DOC_3);
+        unrelated.setFilename("holiday.pdf");
+        unrelated.setUploadDate(LocalDateTime.now());
+        documentRepository.save(unrelated);
+        entityManager.flush();
+
+        assertThat(documentRepository.searchIds("invoice", 10)).containsExactly(DOC_1, DOC_2);
+        assertThat(documentRepository.searchIds("march", 10)).containsExactly(DOC_1);
+        assertThat(documentRepository.searchIds("invoice -march", 10)).containsExactly(DOC_2);
+    }
+
+    @Test
+    void testOffloadedTextStaysSearchable() {
+        DocumentEntity doc = new DocumentEntity();
+        doc.setId(DOC_2);
+        doc.setFilename("scan.pdf");
+        doc.setUploadDate(LocalDateTime.now());
+        documentRepository.save(doc);
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setDocument(doc);
+        text.setOcrText("Please pay this invoice within 14 days");
+        documentTextRepository.save(text);
+        entityManager.flush();
+
+        text.setOcrTextObjectKey(OcrTextArchiveImp.objectKey(DOC_2));
+        text.setOffloadedAt(LocalDateTime.now());
+        text.setOcrText(null);
+        entityManager.flush();
+
+        assertThat(documentRepository.searchIds("invoice", 10)).containsExactly(DOC_2);
+    }
+
+    @Test
+    void testSearchVectorFollowsRename() {
+        DocumentEntity doc = new DocumentEntity();
+        doc.setId(DOC_1);
+        doc.setFilename("draft.pdf");
+        doc.setUploadDate(LocalDateTime.now());
+        documentRepository.save(doc);
+        entityManager.flush();
+
+        doc.setFilename("contract-final.pdf");
+        entityManager.flush();
+
+        assertThat(documentRepository.searchIds("contract", 10)).containsExactly(DOC_1);
+        assertThat(documentRepository.searchIds("draft", 10)).isEmpty();
+    }
+}
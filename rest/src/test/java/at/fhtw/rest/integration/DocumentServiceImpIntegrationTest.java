@@ -1,12 +1,16 @@
 package at.fhtw.rest.integration;
 
 import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.DocumentIds;
 import at.fhtw.rest.core.DocumentServiceImp;
+import at.fhtw.rest.core.DocumentView;
 import at.fhtw.rest.core.ElasticsearchServiceImp;
 import at.fhtw.rest.infrastructure.mapper.DocumentMapper;
 import at.fhtw.rest.message.ProcessingEventDispatcher;
 import at.fhtw.rest.persistence.DocumentEntity;
 import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
 import at.fhtw.rest.persistence.MinioStorageService;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
@@ -27,16 +31,20 @@ import org.testcontainers.elasticsearch.ElasticsearchContainer;
 import org.testcontainers.utility.DockerImageName;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatCode;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -83,6 +91,9 @@ class DocumentServiceImpIntegrationTest {
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private DocumentTextRepository documentTextRepository;
+
     @Autowired
     private MinioStorageService minioStorageService;
 
@@ -193,11 +204,12 @@ class DocumentServiceImpIntegrationTest {
             DocumentRequest response = documentServiceImp.uploadFile(file);
             assertThat(response).isNotNull();
             assertThat(response.getId()).isNotBlank();
+            assertThat(UUID.fromString(response.getId()).version()).isEqualTo(7);
             assertThat(response.getFilename()).isEqualTo(TEST_PDF_FILENAME);
-            Optional<DocumentEntity> persistedEntity = documentRepository.findById(response.getId());
+            Optional<DocumentEntity> persistedEntity = documentRepository.findById(UUID.fromString(response.getId()));
             assertThat(persistedEntity).isPresent();
             assertThat(persistedEntity.get().getFilename()).isEqualTo(TEST_PDF_FILENAME);
-            verify(processingEventDispatcher).sendProcessingRequest(response.getId(), TEST_PDF_FILENAME);
+            verify(processingEventDispatcher).sendProcessingRequest(eq(response.getId()), eq(TEST_PDF_FILENAME), anyString());
         }
 
         @Test
@@ -223,7 +235,7 @@ class DocumentServiceImpIntegrationTest {
             String newFilename = "renamed.pdf";
             DocumentRequest renameResponse = documentServiceImp.renameFile(docId, newFilename);
             assertThat(renameResponse.getFilename()).isEqualTo(newFilename);
-            Optional<DocumentEntity> persistedEntity = documentRepository.findById(docId);
+            Optional<DocumentEntity> persistedEntity = documentRepository.findById(UUID.fromString(docId));
             assertThat(persistedEntity).isPresent();
             assertThat(persistedEntity.get().getFilename()).isEqualTo(newFilename);
         }
@@ -233,9 +245,13 @@ class DocumentServiceImpIntegrationTest {
         void shouldDownloadFileContent() throws IOException {
             MockMultipartFile file = createTestFile(TEST_PDF_FILENAME, TEST_FILE_CONTENT);
             DocumentRequest uploadResponse = documentServiceImp.uploadFile(file);
-            byte[] downloadedContent = documentServiceImp.getFileBytes(uploadResponse.getId());
-            assertThat(downloadedContent).isNotNull();
-            assertThat(new String(downloadedContent, StandardCharsets.UTF_8)).isEqualTo(TEST_FILE_CONTENT);
+            assertThat(documentServiceImp.getFileInfo(uploadResponse.getId()).getSize()).isEqualTo(TEST_FILE_CONTENT.length());
+            try (InputStream in = documentServiceImp.openFile(uploadResponse.getId(), 0, null)) {
+                assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(TEST_FILE_CONTENT);
+            }
+            try (InputStream in = documentServiceImp.openFile(uploadResponse.getId(), 1, 3L)) {
+                assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(TEST_FILE_CONTENT.substring(1, 4));
+            }
         }
 
         @Test
@@ -245,7 +261,7 @@ class DocumentServiceImpIntegrationTest {
             DocumentRequest response = documentServiceImp.uploadFile(file);
             String docId = response.getId();
             documentServiceImp.deleteDocument(docId);
-            assertThat(documentRepository.findById(docId)).isEmpty();
+            assertThat(documentRepository.findById(UUID.fromString(docId))).isEmpty();
             assertThat(minioStorageService.loadFile(docId)).isEmpty();
             assertThat(elasticsearchServiceImp.searchIdsByQuery(TEST_PDF_FILENAME)).isEmpty();
         }
@@ -258,32 +274,36 @@ class DocumentServiceImpIntegrationTest {
         @Test
         @DisplayName("Should return HelloWorld.pdf when searching for 'Hello'")
         void shouldReturnMatchingDocuments() {
-            String docId = "doc1";
             DocumentEntity entity = new DocumentEntity();
-            entity.setId(docId);
+            entity.setId(DocumentIds.newId());
             entity.setFilename("HelloWorld.pdf");
             entity.setFilesize(2048L);
             entity.setFiletype("pdf");
             entity.setUploadDate(LocalDateTime.now());
             entity.setOcrJobDone(true);
-            entity.setOcrText("Integration testing document");
             documentRepository.save(entity);
+            DocumentTextEntity text = new DocumentTextEntity();
+            text.setDocument(entity);
+            text.setOcrText("Integration testing document");
+            documentTextRepository.save(text);
             List<String> docIds = elasticsearchServiceImp.searchIdsByQuery("Hello");
             assertThat(docIds).isNotNull();
             List<DocumentRequest> expectedResults = docIds.stream()
+                    .map(UUID::fromString)
                     .map(documentRepository::findById)
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .map(documentMapper::toDto)
+                    .peek(dto -> dto.setOcrText(documentTextRepository.findById(UUID.fromString(dto.getId())).map(DocumentTextEntity::getOcrText).orElse(null)))
                     .collect(Collectors.toList());
-            List<DocumentRequest> actualResults = documentServiceImp.searchDocuments("Hello");
+            List<DocumentRequest> actualResults = documentServiceImp.searchDocuments("Hello", DocumentView.FULL);
             assertThat(actualResults).isEqualTo(expectedResults);
         }
 
         @Test
         @DisplayName("Should return empty list for non-matching query")
         void shouldReturnEmptyListForNonMatch() {
-            List<DocumentRequest> results = documentServiceImp.searchDocuments("nonexistent");
+            List<DocumentRequest> results = documentServiceImp.searchDocuments("nonexistent", DocumentView.SUMMARY);
             assertThat(results).isEmpty();
         }
     }
@@ -295,7 +315,7 @@ class DocumentServiceImpIntegrationTest {
         @Test
         @DisplayName("Should handle non-existent document retrieval")
         void shouldHandleNonExistentDocument() {
-            assertThatThrownBy(() -> documentServiceImp.getDocument("nonexistent-id"))
+            assertThatThrownBy(() -> documentServiceImp.getDocument("nonexistent-id", DocumentView.SUMMARY))
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessageContaining("Document not found");
         }
@@ -303,7 +323,7 @@ class DocumentServiceImpIntegrationTest {
         @Test
         @DisplayName("Should handle non-existent file download")
         void shouldHandleNonExistentFileDownload() {
-            assertThatThrownBy(() -> documentServiceImp.getFileBytes("nonexistent-id"))
+            assertThatThrownBy(() -> documentServiceImp.getFileInfo("nonexistent-id"))
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessageContaining("File not found");
         }
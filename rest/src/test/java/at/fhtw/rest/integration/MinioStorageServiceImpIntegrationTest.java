@@ -1,8 +1,10 @@
 package at.fhtw.rest.integration;
 
 import at.fhtw.rest.persistence.MinioStorageServiceImp;
+import at.fhtw.rest.persistence.MultipartMinioClient;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterAll;
@@ -20,6 +22,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.Random;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -31,6 +34,7 @@ public class MinioStorageServiceImpIntegrationTest {
 
     private static final Network SHARED_NETWORK = Network.newNetwork();
     private static final String MINIO_VERSION = "RELEASE.2023-09-04T19-57-37Z";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
 
     @Container
     public static final MinIOContainer minioContainer = new MinIOContainer(
@@ -41,6 +45,7 @@ public class MinioStorageServiceImpIntegrationTest {
 
     private MinioStorageServiceImp minioStorageServiceImp;
     private MinioClient minioClient;
+    private MultipartMinioClient multipartClient;
 
     @BeforeAll
     @DisplayName("Initialize MinIO Client and Bucket")
@@ -52,7 +57,11 @@ public class MinioStorageServiceImpIntegrationTest {
                 .endpoint(endpoint)
                 .credentials("paperless", "paperless")
                 .build();
-        minioStorageServiceImp = new MinioStorageServiceImp(minioClient, "documents");
+        multipartClient = new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials("paperless", "paperless")
+                .build());
+        minioStorageServiceImp = new MinioStorageServiceImp(minioClient, multipartClient, "documents", PART_SIZE, 2, 1);
         try {
             minioClient.makeBucket(MakeBucketArgs.builder().bucket("documents").build());
         } catch (Exception e) {
@@ -101,6 +110,18 @@ public class MinioStorageServiceImpIntegrationTest {
         assertThat(minioStorageServiceImp.loadFile("test-delete.txt")).isEmpty();
     }
 
+    @Test
+    @DisplayName("Store and Retrieve a File Larger Than One Part")
+    void testStoreAndLoadMultipartFile() throws IOException {
+        byte[] content = new byte[2 * PART_SIZE + 12345];
+        new Random(42).nextBytes(content);
+        MockMultipartFile file = new MockMultipartFile("file", "large.pdf", "application/pdf", content);
+        minioStorageServiceImp.storeFile("large.pdf", file);
+        Optional<byte[]> loadedFileBytes = minioStorageServiceImp.loadFile("large.pdf");
+        assertThat(loadedFileBytes).isPresent();
+        assertThat(loadedFileBytes.get()).isEqualTo(content);
+    }
+
     private static class FailingMultipartFile implements MultipartFile {
         @NotNull
         @Override
@@ -155,7 +176,7 @@ public class MinioStorageServiceImpIntegrationTest {
                 .endpoint("http://127.0.0.1:12345")
                 .credentials("paperless", "paperless")
                 .build();
-        MinioStorageServiceImp brokenStorageService = new MinioStorageServiceImp(brokenClient, "documents");
+        MinioStorageServiceImp brokenStorageService = new MinioStorageServiceImp(brokenClient, multipartClient, "documents", PART_SIZE, 2, 1);
         Optional<byte[]> result = brokenStorageService.loadFile("any-key");
         assertThat(result).isEmpty();
     }
@@ -164,7 +185,7 @@ public class MinioStorageServiceImpIntegrationTest {
     @DisplayName("Dynamically Creates Bucket If Not Exists")
     void testDynamicBucketCreation() throws Exception {
         String dynamicBucketName = "documents-dynamic";
-        MinioStorageServiceImp dynamicService = new MinioStorageServiceImp(minioClient, dynamicBucketName);
+        MinioStorageServiceImp dynamicService = new MinioStorageServiceImp(minioClient, multipartClient, dynamicBucketName, PART_SIZE, 2, 1);
         boolean exists = minioClient.bucketExists(BucketExistsArgs.builder().bucket(dynamicBucketName).build());
         assertThat(exists).isFalse();
         MockMultipartFile file = createTestFile("dynamic-test.txt", "Test dynamic bucket creation");
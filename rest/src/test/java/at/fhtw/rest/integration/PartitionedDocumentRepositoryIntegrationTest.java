@@ -0,0 +1,113 @@
+package at.fhtw.rest.integration;
+
+import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentSummary;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.lifecycle.Startables;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "documents.partitioning.enabled=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+class PartitionedDocumentRepositoryIntegrationTest {
+
+    static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static {
+        Startables.deepStart(Stream.of(POSTGRES)).join();
+    }
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () ->
+                String.format("jdbc:postgresql://localhost:%d/%s",
+                        POSTGRES.getFirstMappedPort(), POSTGRES.getDatabaseName()));
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    private static final UUID DOC_OLD = UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41");
+    private static final UUID DOC_NEW = UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a42");
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentTextRepository documentTextRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private DocumentEntity document(UUID id, LocalDateTime uploadDate) {
+        DocumentEntity doc = new DocumentEntity();
+        doc.setId(id);
+        doc.setFilename(id + ".pdf");
+        doc.setUploadDate(uploadDate);
+        return documentRepository.save(doc);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDocumentsArePartitionedByMonth() {
+        List<String> partitions = entityManager.createNativeQuery(
+                        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                                + "WHERE i.inhparent = 'documents'::regclass")
+                .getResultList();
+
+        String currentMonth = String.format("documents_p%tY%<tm", LocalDateTime.now());
+        assertThat(partitions).contains("documents_default", currentMonth);
+        assertThat(entityManager.createNativeQuery("SELECT ensure_documents_partitions(3)").getSingleResult())
+                .isEqualTo(0);
+    }
+
+    @Test
+    void testKeysetListingAcrossPartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        document(DOC_OLD, now.minusMonths(2));
+        document(DOC_NEW, now);
+        entityManager.flush();
+
+        List<DocumentSummary> first = documentRepository.findFirstSummaries(Limit.of(1));
+        assertThat(first).extracting(DocumentSummary::getId).containsExactly(DOC_NEW);
+        List<DocumentSummary> next = documentRepository.findSummariesBefore(first.get(0).getUploadDate(), DOC_NEW, Limit.of(10));
+        assertThat(next).extracting(DocumentSummary::getId).containsExactly(DOC_OLD);
+        assertThat(documentRepository.findSummaryById(DOC_OLD)).isPresent();
+    }
+
+    @Test
+    void testTextIsDeletedWithDocument() {
+        DocumentEntity doc = document(DOC_NEW, LocalDateTime.now());
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setDocument(doc);
+        text.setOcrText("Recognised text");
+        documentTextRepository.save(text);
+        entityManager.flush();
+        entityManager.clear();
+
+        documentRepository.deleteById(DOC_NEW);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(documentTextRepository.findById(DOC_NEW)).isEmpty();
+    }
+}
@@ -0,0 +1,277 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.core.AdmissionRejectedException;
+import at.fhtw.rest.core.AdmissionServiceImp;
+import at.fhtw.rest.message.ProcessingShards;
+import at.fhtw.rest.persistence.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.http.HttpStatus;
+
+import java.net.ConnectException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class AdmissionServiceImpTest {
+
+    private static final String QUEUE = "document_processing_queue";
+    private static final String RESULT_QUEUE = "document_result_queue";
+    private static final long WINDOW_SECONDS = 10;
+    private static final double MIN_THROUGHPUT = 0.1;
+    private static final long MIN_OBSERVED_SECONDS = 5;
+    private static final long MAX_WAIT_DEFAULT = 100;
+    private static final long MAX_WAIT_BULK = 20;
+    private static final long MAX_WAIT_PRIORITY = 1000;
+    private static final long MAX_RETRY_AFTER = 600;
+    private static final String PRIORITY_KEY = "priority-key";
+
+    @Mock
+    private AmqpAdmin amqpAdmin;
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    private AdmissionServiceImp admissionService;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        admissionService = create(true);
+        now = System.currentTimeMillis();
+    }
+
+    private AdmissionServiceImp create(boolean enabled) {
+        return new AdmissionServiceImp(amqpAdmin, outboxRepository, new SimpleMeterRegistry(), enabled,
+                new ProcessingShards(false, 1, "document_processing_sharded", QUEUE),
+                WINDOW_SECONDS, MIN_THROUGHPUT, MIN_OBSERVED_SECONDS, RESULT_QUEUE, 1,
+                MAX_WAIT_DEFAULT, MAX_WAIT_BULK, MAX_WAIT_PRIORITY, MAX_RETRY_AFTER,
+                List.of(PRIORITY_KEY + "=" + AdmissionServiceImp.CLIENT_PRIORITY));
+    }
+
+    private void completions(int count, long at) {
+        for (int i = 0; i < count; i++) {
+            admissionService.recordCompletion(at);
+        }
+    }
+
+    private void backlog(int queued, long outbox, int consumers) {
+        backlogAt(queued, outbox, consumers, now);
+    }
+
+    private void backlogAt(int queued, long outbox, int consumers, long at) {
+        when(outboxRepository.count()).thenReturn(outbox);
+        when(amqpAdmin.getQueueInfo(QUEUE)).thenReturn(new QueueInformation(QUEUE, queued, consumers));
+        admissionService.refresh(at);
+    }
+
+    /**
+     * Refreshes at the start and the end of a period during which documents were waiting.
+     */
+    private void waitingFor(long seconds, int queued, int consumers) {
+        backlogAt(queued, 0, consumers, now - seconds * 1000);
+        backlogAt(queued, 0, consumers, now);
+    }
+
+    @Nested
+    @DisplayName("refresh")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("Backlog is queue depth plus pending outbox entries")
+        void backlogIncludesOutbox() {
+            backlog(5, 3, 1);
+            assertThat(admissionService.getBacklog()).isEqualTo(8);
+        }
+
+        @Test
+        @DisplayName("With sharding enabled the backlog and consumers are summed over all shard queues")
+        void backlogSumsShards() {
+            admissionService = new AdmissionServiceImp(amqpAdmin, outboxRepository, new SimpleMeterRegistry(), true,
+                    new ProcessingShards(true, 2, "document_processing_sharded", QUEUE),
+                    WINDOW_SECONDS, MIN_THROUGHPUT, MIN_OBSERVED_SECONDS, RESULT_QUEUE, 1,
+                    MAX_WAIT_DEFAULT, MAX_WAIT_BULK, MAX_WAIT_PRIORITY, MAX_RETRY_AFTER, List.of());
+            String shard0 = ProcessingShards.shardQueueName(QUEUE, 0);
+            String shard1 = ProcessingShards.shardQueueName(QUEUE, 1);
+            when(outboxRepository.count()).thenReturn(1L);
+            when(amqpAdmin.getQueueInfo(shard0)).thenReturn(new QueueInformation(shard0, 4, 1));
+            when(amqpAdmin.getQueueInfo(shard1)).thenReturn(new QueueInformation(shard1, 6, 0));
+
+            admissionService.refresh();
+
+            assertThat(admissionService.getBacklog()).isEqualTo(11);
+        }
+
+        @Test
+        @DisplayName("Unreachable broker makes the backlog unknown and admits uploads")
+        void brokerUnreachable() {
+            when(outboxRepository.count()).thenReturn(0L);
+            when(amqpAdmin.getQueueInfo(QUEUE)).thenThrow(new AmqpConnectException(new ConnectException("refused")));
+            admissionService.refresh();
+
+            assertThat(admissionService.getBacklog()).isEqualTo(-1);
+            assertThatCode(() -> admissionService.checkUpload(null)).doesNotThrowAnyException();
+        }
+    }
+
+    @Nested
+    @DisplayName("checkUpload")
+    class CheckUploadTests {
+
+        @Test
+        @DisplayName("Admits uploads while the projected wait is below the threshold")
+        void admitsBelowThreshold() {
+            // 10 completions in 10 s with documents waiting = 1 doc/s, 50 queued -> 50 s
+            completions(10, now);
+            waitingFor(WINDOW_SECONDS, 50, 2);
+
+            assertThat(admissionService.getProjectedWaitSeconds(now)).isEqualTo(50.0);
+            assertThatCode(() -> admissionService.checkUpload(null, now)).doesNotThrowAnyException();
+        }
+
+        @Test
+        @DisplayName("Rejects with 429 and a Retry-After once the projected wait exceeds the threshold")
+        void rejectsAboveThreshold() {
+            // no completions while documents were waiting -> min throughput 0.1 doc/s, 20 queued -> 200 s
+            waitingFor(WINDOW_SECONDS, 20, 1);
+
+            assertThatThrownBy(() -> admissionService.checkUpload(null, now))
+                    .isInstanceOfSatisfying(AdmissionRejectedException.class, ex -> {
+                        assertThat(ex.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                        assertThat(ex.getRetryAfterSeconds()).isEqualTo(100);
+                    });
+        }
+
+        @Test
+        @DisplayName("Client classes get their own thresholds")
+        void clientClassThresholds() {
+            // 1 doc/s, 50 queued -> 50 s: above bulk (20), below default (100)
+            completions(10, now);
+            waitingFor(WINDOW_SECONDS, 50, 1);
+
+            assertThatThrownBy(() -> admissionService.checkUpload(AdmissionServiceImp.CLIENT_BULK, now))
+                    .isInstanceOf(AdmissionRejectedException.class);
+            assertThatCode(() -> admissionService.checkUpload(null, now)).doesNotThrowAnyException();
+            assertThatCode(() -> admissionService.checkUpload(AdmissionServiceImp.CLIENT_PRIORITY, now)).doesNotThrowAnyException();
+        }
+
+        @Test
+        @DisplayName("Admits everything until documents were seen waiting for the minimum observation time")
+        void admitsUntilObserved() {
+            backlogAt(20, 0, 1, now - (MIN_OBSERVED_SECONDS - 1) * 1000);
+            backlog(20, 0, 1);
+
+            assertThat(admissionService.getProjectedWaitSeconds(now)).isNaN();
+            assertThatCode(() -> admissionService.checkUpload(null, now)).doesNotThrowAnyException();
+
+            backlogAt(20, 0, 1, now + 1000);
+            assertThatThrownBy(() -> admissionService.checkUpload(null, now + 1000)).isInstanceOf(AdmissionRejectedException.class);
+        }
+
+        @Test
+        @DisplayName("A burst after an idle period is admitted, idle time does not count as slow workers")
+        void admitsBurstAfterIdle() {
+            waitingFor(WINDOW_SECONDS, 0, 1);
+            backlogAt(46, 0, 1, now + 1000);
+
+            assertThat(admissionService.getThroughputPerSecond(now + 1000)).isNaN();
+            assertThatCode(() -> admissionService.checkUpload(AdmissionServiceImp.CLIENT_BULK, now + 1000)).doesNotThrowAnyException();
+        }
+
+        @Test
+        @DisplayName("Rejects with 503 when no worker consumes the queue")
+        void rejectsWithoutConsumers() {
+            waitingFor(WINDOW_SECONDS, 20, 0);
+
+            assertThatThrownBy(() -> admissionService.checkUpload(null, now))
+                    .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                            ex -> assertThat(ex.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        @Test
+        @DisplayName("Retry-After is capped")
+        void retryAfterCapped() {
+            waitingFor(WINDOW_SECONDS, 10_000, 1);
+
+            assertThatThrownBy(() -> admissionService.checkUpload(AdmissionServiceImp.CLIENT_PRIORITY, now))
+                    .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                            ex -> assertThat(ex.getRetryAfterSeconds()).isEqualTo(MAX_RETRY_AFTER));
+        }
+
+        @Test
+        @DisplayName("Disabled admission control admits everything")
+        void disabled() {
+            AdmissionServiceImp disabled = create(false);
+            disabled.refresh();
+            assertThatCode(() -> disabled.checkUpload(AdmissionServiceImp.CLIENT_BULK, now)).doesNotThrowAnyException();
+        }
+    }
+
+    @Nested
+    @DisplayName("throughput")
+    class ThroughputTests {
+
+        @Test
+        @DisplayName("Completions older than the window no longer count")
+        void slidingWindow() {
+            completions(5, now - WINDOW_SECONDS * 1000 - 1000);
+            completions(2, now);
+            waitingFor(WINDOW_SECONDS, 1, 1);
+
+            assertThat(admissionService.getThroughputPerSecond(now)).isEqualTo(0.2);
+        }
+
+        @Test
+        @DisplayName("Throughput is measured over the time documents were waiting, not the whole window")
+        void measuredWhileWaiting() {
+            completions(6, now);
+            waitingFor(MIN_OBSERVED_SECONDS + 1, 1, 1);
+
+            assertThat(admissionService.getThroughputPerSecond(now)).isEqualTo(1.0);
+        }
+
+        @Test
+        @DisplayName("Local completions are scaled to all replicas consuming the result queue")
+        void scaledToAllReplicas() {
+            when(amqpAdmin.getQueueInfo(RESULT_QUEUE)).thenReturn(new QueueInformation(RESULT_QUEUE, 0, 3));
+            completions(2, now);
+            waitingFor(WINDOW_SECONDS, 1, 3);
+
+            assertThat(admissionService.getThroughputPerSecond(now)).isEqualTo(0.6);
+        }
+    }
+
+    @Nested
+    @DisplayName("resolveClientClass")
+    class ResolveClientClassTests {
+
+        @Test
+        @DisplayName("A configured client key determines the class")
+        void configuredKey() {
+            assertThat(admissionService.resolveClientClass(PRIORITY_KEY, null)).isEqualTo(AdmissionServiceImp.CLIENT_PRIORITY);
+        }
+
+        @Test
+        @DisplayName("Without a known key the requested class is ignored unless it is bulk")
+        void requestedClassCannotRaiseLimits() {
+            assertThat(admissionService.resolveClientClass("unknown", AdmissionServiceImp.CLIENT_PRIORITY)).isNull();
+            assertThat(admissionService.resolveClientClass(null, AdmissionServiceImp.CLIENT_PRIORITY)).isNull();
+            assertThat(admissionService.resolveClientClass(null, "BULK")).isEqualTo(AdmissionServiceImp.CLIENT_BULK);
+        }
+    }
+}
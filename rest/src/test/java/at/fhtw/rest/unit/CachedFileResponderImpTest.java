@@ -0,0 +1,69 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.core.CachedFileResponderImp;
+import org.apache.catalina.Globals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachedFileResponderImpTest {
+
+    private static final String DOC_ID = "doc123";
+    private static final String CONTENT = "pdf content";
+
+    @TempDir
+    private Path tempDir;
+
+    private final CachedFileResponderImp responder = new CachedFileResponderImp();
+
+    @Test
+    @DisplayName("respond - hands the range to the container when it supports sendfile")
+    void respondWithSendfile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("doc.cache"), CONTENT);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(Globals.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+
+        ResponseEntity<StreamingResponseBody> response = responder.respond(request, ResponseEntity.ok(), DOC_ID, file, 4, 3);
+
+        assertThat(response.getBody()).isNull();
+        assertThat(request.getAttribute(Globals.SENDFILE_FILENAME_ATTR)).isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute(Globals.SENDFILE_FILE_START_ATTR)).isEqualTo(4L);
+        assertThat(request.getAttribute(Globals.SENDFILE_FILE_END_ATTR)).isEqualTo(7L);
+    }
+
+    @Test
+    @DisplayName("respond - streams the range from the file channel without sendfile")
+    void respondWithStream() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("doc.cache"), CONTENT);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        responder.respond(request, ResponseEntity.ok(), DOC_ID, file, 4, 3).getBody().writeTo(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("con");
+        assertThat(request.getAttribute(Globals.SENDFILE_FILENAME_ATTR)).isNull();
+    }
+
+    @Test
+    @DisplayName("respond - fails when the cached file is shorter than the range")
+    void respondWithTruncatedFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("doc.cache"), "pdf");
+        StreamingResponseBody body = responder.respond(new MockHttpServletRequest(), ResponseEntity.ok(), DOC_ID, file, 0, 10).getBody();
+
+        assertThatThrownBy(() -> body.writeTo(new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(DOC_ID);
+    }
+}
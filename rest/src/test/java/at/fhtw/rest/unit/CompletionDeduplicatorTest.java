@@ -0,0 +1,103 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.message.CompletionDeduplicator;
+import at.fhtw.rest.message.DocumentMessageProcessed;
+import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class CompletionDeduplicatorTest {
+
+    private static final String DOC_ID = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40";
+    private static final UUID DOC_UUID = UUID.fromString(DOC_ID);
+    private static final String DIGEST = "3f2a9c";
+
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private DocumentTextRepository documentTextRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CompletionDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deduplicator = new CompletionDeduplicator(documentRepository, documentTextRepository, meterRegistry, 1000, 0.01);
+    }
+
+    private DocumentMessageProcessed result(String digest, String ocrText) {
+        DocumentMessageProcessed result = new DocumentMessageProcessed();
+        result.setDocumentId(DOC_ID);
+        result.setOcrText(ocrText);
+        result.setContentDigest(digest);
+        return result;
+    }
+
+    @Test
+    @DisplayName("Unknown results are not looked up in the database")
+    void unknownResultSkipsLookup() {
+        assertThat(deduplicator.isKnownDuplicate(result(DIGEST, "text"))).isFalse();
+        verify(documentRepository, never()).existsByIdAndContentDigestAndOcrJobDoneTrue(any(UUID.class), anyString());
+    }
+
+    @Test
+    @DisplayName("Recorded results are confirmed against the database")
+    void recordedResultConfirmed() {
+        deduplicator.recordApplied(result(DIGEST, "text"));
+        when(documentRepository.existsByIdAndContentDigestAndOcrJobDoneTrue(DOC_UUID, DIGEST)).thenReturn(true);
+
+        assertThat(deduplicator.isKnownDuplicate(result(DIGEST, "text"))).isTrue();
+        assertThat(meterRegistry.get("paperless.dedup.duplicates").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A filter hit that the database does not confirm is not a duplicate")
+    void unconfirmedFilterHit() {
+        deduplicator.recordApplied(result(DIGEST, "text"));
+        when(documentRepository.existsByIdAndContentDigestAndOcrJobDoneTrue(DOC_UUID, DIGEST)).thenReturn(false);
+
+        assertThat(deduplicator.isKnownDuplicate(result(DIGEST, "text"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Loaded documents are compared by digest, or by text when the result has none")
+    void alreadyApplied() {
+        DocumentEntity entity = new DocumentEntity();
+        entity.setId(DOC_UUID);
+        entity.setContentDigest(DIGEST);
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setId(DOC_UUID);
+        text.setOcrText("text");
+        when(documentTextRepository.findById(DOC_UUID)).thenReturn(Optional.of(text));
+
+        assertThat(deduplicator.isAlreadyApplied(entity, result(DIGEST, "text"))).isFalse();
+        entity.setOcrJobDone(true);
+        assertThat(deduplicator.isAlreadyApplied(entity, result(DIGEST, "other"))).isTrue();
+        assertThat(deduplicator.isAlreadyApplied(entity, result("changed", "text"))).isFalse();
+        assertThat(deduplicator.isAlreadyApplied(entity, result(null, "text"))).isTrue();
+        assertThat(deduplicator.isAlreadyApplied(entity, result(null, "other"))).isFalse();
+    }
+}
@@ -1,9 +1,19 @@
 package at.fhtw.rest.unit;
 
+import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.AdmissionService;
+import at.fhtw.rest.core.DocumentCache;
+import at.fhtw.rest.core.DocumentEventService;
+import at.fhtw.rest.core.ElasticsearchService;
+import at.fhtw.rest.infrastructure.mapper.DocumentMapper;
+import at.fhtw.rest.message.CompletionDeduplicator;
 import at.fhtw.rest.message.CompletionEventHandler;
 import at.fhtw.rest.persistence.DocumentEntity;
 import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.Getter;
 import lombok.Setter;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,12 +21,15 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,10 +38,12 @@ import static org.mockito.Mockito.*;
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
 public class CompletionEventHandlerTest {
 
-    private static final String DOC_ID_VALID = "doc1";
-    private static final String DOC_ID_NONEXISTENT = "nonexistent";
+    private static final String DOC_ID_VALID = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40";
+    private static final UUID DOC_UUID = UUID.fromString(DOC_ID_VALID);
+    private static final String DOC_ID_NONEXISTENT = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41";
     private static final String DOC_ID_BLANK = "";
     private static final String OCR_TEXT = "OCR result";
+    private static final String CONTENT_DIGEST = "3f2a9c";
     private static final String INVALID_JSON = "this is not a valid json";
     private static final String SIMULATED_EXCEPTION_MESSAGE = "Simulated exception";
     private static final String ASSERTION_MSG_OCR_JOB_DONE_AFTER_PROCESSING = "OCR job done flag should be true after processing";
@@ -38,14 +53,34 @@ public class CompletionEventHandlerTest {
 
     @Mock
     private DocumentRepository documentRepository;
+    @Mock
+    private DocumentTextRepository documentTextRepository;
+    @Mock
+    private AdmissionService admissionService;
+    @Mock
+    private DocumentEventService documentEventService;
+    @Mock
+    private DocumentMapper documentMapper;
+    @Mock
+    private ElasticsearchService elasticsearchService;
+    @Mock
+    private DocumentCache documentCache;
 
     private ObjectMapper objectMapper;
+    private CompletionDeduplicator deduplicator;
     private CompletionEventHandler handler;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        handler = new CompletionEventHandler(documentRepository, objectMapper);
+        deduplicator = new CompletionDeduplicator(documentRepository, documentTextRepository, new SimpleMeterRegistry(), 1000, 0.01);
+        handler = new CompletionEventHandler(documentRepository, documentTextRepository, objectMapper, admissionService, documentEventService, documentMapper, deduplicator, elasticsearchService, documentCache);
+    }
+
+    private String savedOcrText() {
+        ArgumentCaptor<DocumentTextEntity> captor = ArgumentCaptor.forClass(DocumentTextEntity.class);
+        verify(documentTextRepository).save(captor.capture());
+        return captor.getValue().getOcrText();
     }
 
     @Setter
@@ -53,11 +88,17 @@ public class CompletionEventHandlerTest {
     public static class DocumentMessageProcessed {
         private String documentId;
         private String ocrText;
+        private String contentDigest;
 
         public DocumentMessageProcessed(String documentId, String ocrText) {
             this.documentId = documentId;
             this.ocrText = ocrText;
         }
+
+        public DocumentMessageProcessed(String documentId, String ocrText, String contentDigest) {
+            this(documentId, ocrText);
+            this.contentDigest = contentDigest;
+        }
     }
 
     @Nested
@@ -70,15 +111,104 @@ public class CompletionEventHandlerTest {
             DocumentMessageProcessed messageDto = new DocumentMessageProcessed(DOC_ID_VALID, OCR_TEXT);
             String messageJson = objectMapper.writeValueAsString(messageDto);
             DocumentEntity entity = new DocumentEntity();
-            entity.setId(DOC_ID_VALID);
+            entity.setId(DOC_UUID);
             entity.setOcrJobDone(false);
-            entity.setOcrText("");
-            when(documentRepository.findById(DOC_ID_VALID)).thenReturn(Optional.of(entity));
+            DocumentRequest dto = DocumentRequest.builder().id(DOC_ID_VALID).ocrJobDone(true).ocrText(OCR_TEXT).build();
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(entity));
+            when(documentMapper.toDto(entity)).thenReturn(dto);
             handler.handleCompletion(messageJson);
-            verify(documentRepository, times(1)).findById(DOC_ID_VALID);
+            verify(documentRepository, times(1)).findById(DOC_UUID);
             verify(documentRepository, times(1)).save(entity);
+            verify(admissionService, times(1)).recordCompletion();
+            verify(documentEventService, times(1)).publishStatus(dto);
+            verify(documentCache, times(1)).invalidate(DOC_ID_VALID);
+            verify(elasticsearchService, times(1)).updateMetadata(DOC_ID_VALID, entity.getFilesize(), entity.getFiletype(), entity.getUploadDate());
             assertThat(entity.isOcrJobDone()).as(ASSERTION_MSG_OCR_JOB_DONE_AFTER_PROCESSING).isTrue();
-            assertThat(entity.getOcrText()).as(ASSERTION_MSG_OCR_TEXT_UPDATED_AFTER_PROCESSING).isEqualTo(OCR_TEXT);
+            assertThat(savedOcrText()).as(ASSERTION_MSG_OCR_TEXT_UPDATED_AFTER_PROCESSING).isEqualTo(OCR_TEXT);
+        }
+    }
+
+    @Nested
+    @DisplayName("Deduplication Tests")
+    class DeduplicationTests {
+
+        private DocumentEntity completedEntity() {
+            DocumentEntity entity = new DocumentEntity();
+            entity.setId(DOC_UUID);
+            entity.setOcrJobDone(true);
+            entity.setContentDigest(CONTENT_DIGEST);
+            return entity;
+        }
+
+        @Test
+        @DisplayName("handleCompletion - result already applied to the document is not written again")
+        void testHandleCompletionAlreadyApplied() throws Exception {
+            String messageJson = objectMapper.writeValueAsString(new DocumentMessageProcessed(DOC_ID_VALID, OCR_TEXT, CONTENT_DIGEST));
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(completedEntity()));
+            handler.handleCompletion(messageJson);
+            verify(documentRepository, never()).save(any());
+            verify(admissionService, never()).recordCompletion();
+            verify(documentEventService, never()).publishStatus(any());
+        }
+
+        @Test
+        @DisplayName("handleCompletion - redelivery of an applied result is skipped without loading the document")
+        void testHandleCompletionRedeliveredResult() throws Exception {
+            DocumentEntity entity = new DocumentEntity();
+            entity.setId(DOC_UUID);
+            entity.setContentDigest(CONTENT_DIGEST);
+            String messageJson = objectMapper.writeValueAsString(new DocumentMessageProcessed(DOC_ID_VALID, OCR_TEXT, CONTENT_DIGEST));
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(entity));
+            handler.handleCompletion(messageJson);
+
+            when(documentRepository.existsByIdAndContentDigestAndOcrJobDoneTrue(DOC_UUID, CONTENT_DIGEST)).thenReturn(true);
+            handler.handleCompletion(messageJson);
+
+            verify(documentRepository, times(1)).findById(DOC_UUID);
+            verify(documentRepository, times(1)).save(entity);
+            verify(admissionService, times(1)).recordCompletion();
+        }
+
+        @Test
+        @DisplayName("handleCompletion - result for changed content is applied")
+        void testHandleCompletionDifferentDigest() throws Exception {
+            DocumentEntity entity = completedEntity();
+            String messageJson = objectMapper.writeValueAsString(new DocumentMessageProcessed(DOC_ID_VALID, "new text", "other"));
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(entity));
+            handler.handleCompletion(messageJson);
+            verify(documentRepository, times(1)).save(entity);
+            assertThat(savedOcrText()).isEqualTo("new text");
+        }
+
+        @Test
+        @DisplayName("handleCompletion - a new result for an offloaded text is stored inline again")
+        void testHandleCompletionOffloadedText() throws Exception {
+            DocumentEntity entity = completedEntity();
+            DocumentTextEntity offloaded = new DocumentTextEntity();
+            offloaded.setId(DOC_UUID);
+            offloaded.setOcrTextObjectKey("ocr-text/" + DOC_ID_VALID + ".txt.gz");
+            offloaded.setOffloadedAt(LocalDateTime.now());
+            String messageJson = objectMapper.writeValueAsString(new DocumentMessageProcessed(DOC_ID_VALID, "new text", "other"));
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(entity));
+            when(documentTextRepository.findById(DOC_UUID)).thenReturn(Optional.of(offloaded));
+            handler.handleCompletion(messageJson);
+            assertThat(savedOcrText()).isEqualTo("new text");
+            assertThat(offloaded.getOcrTextObjectKey()).isNull();
+            assertThat(offloaded.getOffloadedAt()).isNull();
+        }
+
+        @Test
+        @DisplayName("handleCompletion - result without digest is compared by its text")
+        void testHandleCompletionWithoutDigest() throws Exception {
+            String messageJson = objectMapper.writeValueAsString(new DocumentMessageProcessed(DOC_ID_VALID, OCR_TEXT));
+            DocumentTextEntity text = new DocumentTextEntity();
+            text.setId(DOC_UUID);
+            text.setOcrText(OCR_TEXT);
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(completedEntity()));
+            when(documentTextRepository.findById(DOC_UUID)).thenReturn(Optional.of(text));
+            handler.handleCompletion(messageJson);
+            verify(documentRepository, never()).save(any());
+            verify(documentTextRepository, never()).save(any());
         }
     }
 
@@ -101,9 +231,9 @@ public class CompletionEventHandlerTest {
         void testHandleCompletionDocumentNotFound() throws Exception {
             DocumentMessageProcessed messageDto = new DocumentMessageProcessed(DOC_ID_NONEXISTENT, OCR_TEXT);
             String messageJson = objectMapper.writeValueAsString(messageDto);
-            when(documentRepository.findById(DOC_ID_NONEXISTENT)).thenReturn(Optional.empty());
+            when(documentRepository.findById(UUID.fromString(DOC_ID_NONEXISTENT))).thenReturn(Optional.empty());
             handler.handleCompletion(messageJson);
-            verify(documentRepository, times(1)).findById(DOC_ID_NONEXISTENT);
+            verify(documentRepository, times(1)).findById(UUID.fromString(DOC_ID_NONEXISTENT));
             verify(documentRepository, never()).save(any());
         }
 
@@ -121,16 +251,17 @@ public class CompletionEventHandlerTest {
             DocumentMessageProcessed messageDto = new DocumentMessageProcessed(DOC_ID_VALID, OCR_TEXT);
             String messageJson = objectMapper.writeValueAsString(messageDto);
             DocumentEntity entity = new DocumentEntity();
-            entity.setId(DOC_ID_VALID);
+            entity.setId(DOC_UUID);
             entity.setOcrJobDone(false);
-            entity.setOcrText("");
-            when(documentRepository.findById(DOC_ID_VALID)).thenReturn(Optional.of(entity));
+            when(documentRepository.findById(DOC_UUID)).thenReturn(Optional.of(entity));
             doThrow(new RuntimeException(SIMULATED_EXCEPTION_MESSAGE)).when(documentRepository).save(entity);
             handler.handleCompletion(messageJson);
-            verify(documentRepository, times(1)).findById(DOC_ID_VALID);
+            verify(documentRepository, times(1)).findById(DOC_UUID);
             verify(documentRepository, times(1)).save(entity);
+            verify(admissionService, never()).recordCompletion();
+            verify(documentEventService, never()).publishStatus(any());
             assertThat(entity.isOcrJobDone()).as(ASSERTION_MSG_OCR_JOB_DONE_AFTER_SAVE_EXCEPTION).isTrue();
-            assertThat(entity.getOcrText()).as(ASSERTION_MSG_OCR_TEXT_UPDATED_AFTER_SAVE_EXCEPTION).isEqualTo(OCR_TEXT);
+            assertThat(savedOcrText()).as(ASSERTION_MSG_OCR_TEXT_UPDATED_AFTER_SAVE_EXCEPTION).isEqualTo(OCR_TEXT);
         }
 
         @Nested
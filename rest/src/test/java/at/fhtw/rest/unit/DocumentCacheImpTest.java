@@ -0,0 +1,186 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.DocumentCacheImp;
+import at.fhtw.rest.message.CacheInvalidationDispatcher;
+import at.fhtw.rest.message.CacheInvalidationListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class DocumentCacheImpTest {
+
+    private static final String DOC_ID = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40";
+    private static final String INSTANCE_ID = "replica-a";
+
+    @Mock
+    private CacheInvalidationDispatcher dispatcher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DocumentCacheImp cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = create(true, 60_000);
+        loads = new AtomicInteger();
+    }
+
+    private DocumentCacheImp create(boolean enabled, long maxStalenessMs) {
+        return new DocumentCacheImp(Optional.of(dispatcher), meterRegistry, enabled, 100, maxStalenessMs, 0);
+    }
+
+    private Function<String, Optional<DocumentRequest>> loader(String filename) {
+        return docId -> {
+            loads.incrementAndGet();
+            return Optional.of(DocumentRequest.builder().id(docId).filename(filename).build());
+        };
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("paperless.cache.documents.requests").tag("result", result).counter().count();
+    }
+
+    @Nested
+    @DisplayName("get")
+    class GetTests {
+
+        @Test
+        @DisplayName("A second read is a hit and does not load again")
+        void hit() {
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(cache.get(DOC_ID, loader("b.pdf"))).get().extracting(DocumentRequest::getFilename).isEqualTo("a.pdf");
+            assertThat(loads).hasValue(1);
+            assertThat(requests("miss")).isEqualTo(1);
+            assertThat(requests("hit")).isEqualTo(1);
+            assertThat(meterRegistry.get("paperless.cache.documents.staleness").timer().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Callers get copies, so changing a result does not change the cache")
+        void copies() {
+            cache.get(DOC_ID, loader("a.pdf")).get().setOcrText("text");
+            cache.get(DOC_ID, loader("a.pdf")).get().setFilename("changed.pdf");
+            DocumentRequest cached = cache.get(DOC_ID, loader("a.pdf")).get();
+            assertThat(cached.getOcrText()).isNull();
+            assertThat(cached.getFilename()).isEqualTo("a.pdf");
+        }
+
+        @Test
+        @DisplayName("Missing documents are not cached")
+        void missingNotCached() {
+            assertThat(cache.get(DOC_ID, docId -> Optional.empty())).isEmpty();
+            assertThat(cache.get(DOC_ID, loader("a.pdf"))).isPresent();
+            assertThat(loads).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("A load overlapping with an invalidation is not cached")
+        void loadRacingInvalidation() {
+            cache.get(DOC_ID, docId -> {
+                cache.evict(DOC_ID);
+                return loader("old.pdf").apply(docId);
+            });
+            assertThat(cache.get(DOC_ID, loader("new.pdf"))).get().extracting(DocumentRequest::getFilename).isEqualTo("new.pdf");
+        }
+
+        @Test
+        @DisplayName("Entries expire after the maximum staleness")
+        void expires() throws InterruptedException {
+            cache = create(true, 1);
+            cache.get(DOC_ID, loader("a.pdf"));
+            Thread.sleep(5);
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        @DisplayName("A disabled cache always loads")
+        void disabled() {
+            cache = create(false, 60_000);
+            cache.get(DOC_ID, loader("a.pdf"));
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(loads).hasValue(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("invalidation")
+    class InvalidationTests {
+
+        @Test
+        @DisplayName("Local invalidation evicts and broadcasts")
+        void invalidate() {
+            cache.get(DOC_ID, loader("a.pdf"));
+            cache.invalidate(DOC_ID);
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(loads).hasValue(2);
+            verify(dispatcher).sendInvalidation(DOC_ID);
+        }
+
+        @Test
+        @DisplayName("Loads shortly after an invalidation are not cached, as a replica may still be behind")
+        void graceAfterInvalidation() {
+            cache = new DocumentCacheImp(Optional.of(dispatcher), meterRegistry, true, 100, 60_000, 60_000);
+            cache.evict(DOC_ID);
+            cache.get(DOC_ID, loader("old.pdf"));
+            assertThat(cache.get(DOC_ID, loader("new.pdf"))).get().extracting(DocumentRequest::getFilename).isEqualTo("new.pdf");
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        @DisplayName("Remote invalidation evicts without broadcasting again")
+        void evict() {
+            cache.get(DOC_ID, loader("a.pdf"));
+            cache.evict(DOC_ID);
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(loads).hasValue(2);
+            verify(dispatcher, never()).sendInvalidation(DOC_ID);
+        }
+
+        @Test
+        @DisplayName("The listener evicts invalidations from other replicas and ignores its own")
+        void listener() {
+            CacheInvalidationListener listener = new CacheInvalidationListener(cache, dispatcher, new ObjectMapper());
+            when(dispatcher.getInstanceId()).thenReturn(INSTANCE_ID);
+            cache.get(DOC_ID, loader("a.pdf"));
+
+            listener.handleInvalidation("{\"documentId\":\"" + DOC_ID + "\",\"origin\":\"" + INSTANCE_ID + "\"}");
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(loads).hasValue(1);
+
+            listener.handleInvalidation("{\"documentId\":\"" + DOC_ID + "\",\"origin\":\"replica-b\"}");
+            cache.get(DOC_ID, loader("a.pdf"));
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        @DisplayName("Without a dispatcher invalidation stays local")
+        void withoutDispatcher() {
+            cache = new DocumentCacheImp(Optional.empty(), meterRegistry, true, 100, 60_000, 0);
+            cache.invalidate(DOC_ID);
+            verifyNoInteractions(dispatcher);
+        }
+    }
+}
@@ -2,38 +2,60 @@ package at.fhtw.rest.unit;
 
 import at.fhtw.rest.api.DocumentController;
 import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.AdmissionService;
+import at.fhtw.rest.core.CachedFileResponderImp;
+import at.fhtw.rest.core.DocumentEventService;
 import at.fhtw.rest.core.DocumentService;
+import at.fhtw.rest.core.DocumentView;
+import at.fhtw.rest.persistence.StoredObject;
+import org.apache.catalina.Globals;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(DocumentController.class)
+@Import(CachedFileResponderImp.class)
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
 public class DocumentControllerTest {
 
@@ -43,6 +65,7 @@ public class DocumentControllerTest {
     private static final String FILE_NAME_NEW = "newname.pdf";
     private static final String FILE_NAME_WITH_EXTENSION = "name.pdf";
     private static final String PDF_CONTENT = "pdf content";
+    private static final String ETAG = "9a0364b9e99bb480dd25e1f0284c8555";
     private static final String SEARCH_QUERY = "test";
     private static final String DOC_ID_1 = "doc1";
     private static final String FILE_NAME_1 = "file1.pdf";
@@ -55,6 +78,15 @@ public class DocumentControllerTest {
     @MockBean
     private DocumentService documentService;
 
+    @TempDir
+    private Path tempDir;
+
+    @MockBean
+    private AdmissionService admissionService;
+
+    @MockBean
+    private DocumentEventService documentEventService;
+
     @Test
     @DisplayName("Successful upload returns 201 and DocumentRequest")
     void testUpload_Success() throws Exception {
@@ -92,13 +124,114 @@ public class DocumentControllerTest {
         mockMvc.perform(patch("/documents/{id}", DOC_ID_VALID).param("newName", DOC_ID_BLANK)).andExpect(status().isBadRequest()).andExpect(jsonPath("$.error").exists());
     }
 
+    private void givenStoredFile() throws Exception {
+        when(documentService.getFileInfo(DOC_ID_VALID)).thenReturn(StoredObject.builder()
+                .objectKey(DOC_ID_VALID).size(PDF_CONTENT.length()).etag(ETAG).contentType("application/pdf").build());
+    }
+
     @Test
-    @DisplayName("Successful download returns PDF bytes")
+    @DisplayName("Successful download streams the file with its stored content type and ETag")
     void testDownload_Success() throws Exception {
-        byte[] fileBytes = PDF_CONTENT.getBytes();
-        when(documentService.getFileBytes(eq(DOC_ID_VALID))).thenReturn(fileBytes);
-        mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID)).andExpect(status().isOk()).andExpect(content().contentType(MediaType.APPLICATION_PDF)).andExpect(content().bytes(fileBytes));
-        verify(documentService, times(1)).getFileBytes(DOC_ID_VALID);
+        givenStoredFile();
+        when(documentService.openFile(DOC_ID_VALID, 0, null)).thenReturn(new ByteArrayInputStream(PDF_CONTENT.getBytes()));
+        MvcResult result = mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ETAG + "\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, PDF_CONTENT.length()))
+                .andExpect(content().bytes(PDF_CONTENT.getBytes()));
+    }
+
+    @Test
+    @DisplayName("Range request returns 206 with only the requested bytes read from storage")
+    void testDownload_Range() throws Exception {
+        givenStoredFile();
+        when(documentService.openFile(DOC_ID_VALID, 4, 3L)).thenReturn(new ByteArrayInputStream("con".getBytes()));
+        MvcResult result = mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID).header(HttpHeaders.RANGE, "bytes=4-6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-6/" + PDF_CONTENT.length()))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 3))
+                .andExpect(content().bytes("con".getBytes()));
+    }
+
+    @Test
+    @DisplayName("Cached range is transferred from the local file without reading storage")
+    void testDownload_CachedRange() throws Exception {
+        givenStoredFile();
+        Path cached = Files.writeString(tempDir.resolve("doc.cache"), PDF_CONTENT);
+        when(documentService.getCachedFile(eq(DOC_ID_VALID), any(), eq(3L))).thenReturn(Optional.of(cached));
+        MvcResult result = mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID).header(HttpHeaders.RANGE, "bytes=4-6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-6/" + PDF_CONTENT.length()))
+                .andExpect(content().bytes("con".getBytes()));
+        verify(documentService, never()).openFile(any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Cached file is handed to the container for sendfile when it supports it")
+    void testDownload_CachedSendfile() throws Exception {
+        givenStoredFile();
+        Path cached = Files.writeString(tempDir.resolve("doc.cache"), PDF_CONTENT);
+        when(documentService.getCachedFile(eq(DOC_ID_VALID), any(), eq((long) PDF_CONTENT.length()))).thenReturn(Optional.of(cached));
+        mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID).requestAttr(Globals.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, PDF_CONTENT.length()))
+                .andExpect(request().attribute(Globals.SENDFILE_FILENAME_ATTR, cached.toAbsolutePath().toString()))
+                .andExpect(request().attribute(Globals.SENDFILE_FILE_START_ATTR, 0L))
+                .andExpect(request().attribute(Globals.SENDFILE_FILE_END_ATTR, (long) PDF_CONTENT.length()));
+        verify(documentService, never()).openFile(any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Stale If-Range returns the whole file")
+    void testDownload_StaleIfRange() throws Exception {
+        givenStoredFile();
+        when(documentService.openFile(DOC_ID_VALID, 0, null)).thenReturn(new ByteArrayInputStream(PDF_CONTENT.getBytes()));
+        MvcResult result = mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID)
+                        .header(HttpHeaders.RANGE, "bytes=4-6")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(PDF_CONTENT.getBytes()));
+    }
+
+    @Test
+    @DisplayName("Unsatisfiable range returns 416 without reading the file")
+    void testDownload_UnsatisfiableRange() throws Exception {
+        givenStoredFile();
+        mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID).header(HttpHeaders.RANGE, "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + PDF_CONTENT.length()));
+        verify(documentService, never()).openFile(any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Matching If-None-Match returns 304 without reading the file")
+    void testDownload_NotModified() throws Exception {
+        givenStoredFile();
+        mockMvc.perform(get("/documents/{id}/download", DOC_ID_VALID).header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ETAG + "\""));
+        verify(documentService, never()).openFile(any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Direct upload tickets are refused while presigned mode is off")
+    void testUploadTicket_Disabled() throws Exception {
+        mockMvc.perform(post("/documents/uploads")).andExpect(status().isNotFound()).andExpect(jsonPath("$.error").exists());
+        verify(documentService, never()).createUploadTicket();
     }
 
     @Test
@@ -125,9 +258,32 @@ public class DocumentControllerTest {
     @DisplayName("Successful get document returns 200 and DocumentRequest")
     void testGetDocument_Success() throws Exception {
         DocumentRequest dto = DocumentRequest.builder().id(DOC_ID_VALID).filename(FILE_NAME_TEST_PDF).build();
-        when(documentService.getDocument(eq(DOC_ID_VALID))).thenReturn(dto);
+        when(documentService.getDocument(DOC_ID_VALID, DocumentView.SUMMARY)).thenReturn(dto);
         mockMvc.perform(get("/documents/{id}", DOC_ID_VALID)).andExpect(status().isOk()).andExpect(jsonPath("$.id", is(DOC_ID_VALID))).andExpect(jsonPath("$.filename", is(FILE_NAME_TEST_PDF)));
-        verify(documentService, times(1)).getDocument(DOC_ID_VALID);
+        verify(documentService, times(1)).getDocument(DOC_ID_VALID, DocumentView.SUMMARY);
+    }
+
+    @Test
+    @DisplayName("Get document with view=full requests the full representation")
+    void testGetDocument_FullView() throws Exception {
+        DocumentRequest dto = DocumentRequest.builder().id(DOC_ID_VALID).ocrText("text").build();
+        when(documentService.getDocument(DOC_ID_VALID, DocumentView.FULL)).thenReturn(dto);
+        mockMvc.perform(get("/documents/{id}", DOC_ID_VALID).param("view", "full")).andExpect(status().isOk()).andExpect(jsonPath("$.ocrText", is("text")));
+        verify(documentService, times(1)).getDocument(DOC_ID_VALID, DocumentView.FULL);
+    }
+
+    @Test
+    @DisplayName("Summary responses omit the OCR text")
+    void testGetDocument_SummaryOmitsOcrText() throws Exception {
+        DocumentRequest dto = DocumentRequest.builder().id(DOC_ID_VALID).filename(FILE_NAME_TEST_PDF).build();
+        when(documentService.getDocument(DOC_ID_VALID, DocumentView.SUMMARY)).thenReturn(dto);
+        mockMvc.perform(get("/documents/{id}", DOC_ID_VALID)).andExpect(status().isOk()).andExpect(jsonPath("$.ocrText").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Get document with an unknown view returns 400")
+    void testGetDocument_UnknownView() throws Exception {
+        mockMvc.perform(get("/documents/{id}", DOC_ID_VALID).param("view", "everything")).andExpect(status().isBadRequest()).andExpect(jsonPath("$.error", is("Unknown view: everything")));
     }
 
     @Test
@@ -142,9 +298,9 @@ public class DocumentControllerTest {
         DocumentRequest dto1 = DocumentRequest.builder().id(DOC_ID_1).filename(FILE_NAME_1).build();
         DocumentRequest dto2 = DocumentRequest.builder().id(DOC_ID_2).filename(FILE_NAME_2).build();
         List<DocumentRequest> results = Arrays.asList(dto1, dto2);
-        when(documentService.searchDocuments(eq(SEARCH_QUERY))).thenReturn(results);
+        when(documentService.searchDocuments(SEARCH_QUERY, DocumentView.SUMMARY)).thenReturn(results);
         mockMvc.perform(get("/documents/search").param("query", SEARCH_QUERY)).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(2))).andExpect(jsonPath("$[0].id", is(DOC_ID_1))).andExpect(jsonPath("$[0].filename", is(FILE_NAME_1))).andExpect(jsonPath("$[1].id", is(DOC_ID_2))).andExpect(jsonPath("$[1].filename", is(FILE_NAME_2)));
-        verify(documentService, times(1)).searchDocuments(SEARCH_QUERY);
+        verify(documentService, times(1)).searchDocuments(SEARCH_QUERY, DocumentView.SUMMARY);
     }
 
     @Test
@@ -178,4 +334,13 @@ public class DocumentControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Status event stream starts an async SSE response")
+    void testEventsSubscribes() throws Exception {
+        when(documentEventService.subscribe()).thenReturn(new SseEmitter());
+        mockMvc.perform(get("/documents/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(documentEventService, times(1)).subscribe();
+    }
+}
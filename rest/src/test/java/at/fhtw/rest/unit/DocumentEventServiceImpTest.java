@@ -0,0 +1,93 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.DocumentEventServiceImp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class DocumentEventServiceImpTest {
+
+    private static final long EMITTER_TIMEOUT_MS = 60_000;
+    private static final long RECONNECT_DELAY_MS = 3_000;
+    private static final int MAX_QUEUED_EVENTS = 1;
+
+    private DocumentEventServiceImp eventService;
+
+    @BeforeEach
+    void setUp() {
+        eventService = new DocumentEventServiceImp(EMITTER_TIMEOUT_MS, RECONNECT_DELAY_MS, MAX_QUEUED_EVENTS, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventService.shutdown();
+    }
+
+    private void awaitSubscriberCount(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && eventService.getSubscriberCount() != expected; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(eventService.getSubscriberCount()).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("subscribe registers an emitter with the configured timeout")
+    void subscribeRegistersEmitter() {
+        SseEmitter emitter = eventService.subscribe();
+
+        assertThat(emitter.getTimeout()).isEqualTo(EMITTER_TIMEOUT_MS);
+        assertThat(eventService.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("publishStatus reaches every subscriber without failing")
+    void publishToSubscribers() {
+        eventService.subscribe();
+        eventService.subscribe();
+        DocumentRequest doc = DocumentRequest.builder().id("doc1").filename("file.pdf").ocrJobDone(true).build();
+
+        assertThatCode(() -> eventService.publishStatus(doc)).doesNotThrowAnyException();
+        assertThat(eventService.getSubscriberCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Completed emitters are dropped on the next send")
+    void completedEmitterDropped() throws InterruptedException {
+        SseEmitter emitter = eventService.subscribe();
+        emitter.complete();
+
+        eventService.heartbeat();
+
+        awaitSubscriberCount(0);
+    }
+
+    @Test
+    @DisplayName("A subscriber falling behind by more than the queue size is dropped without blocking the publisher")
+    void slowSubscriberDropped() {
+        eventService.shutdown();
+        eventService.subscribe();
+        DocumentRequest doc = DocumentRequest.builder().id("doc1").filename("file.pdf").ocrJobDone(true).build();
+
+        // no sender thread is left, so the first event stays queued and the second one overflows the queue
+        eventService.publishStatus(doc);
+        eventService.publishStatus(doc);
+
+        assertThat(eventService.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("heartbeat without subscribers is a no-op")
+    void heartbeatWithoutSubscribers() {
+        assertThatCode(() -> eventService.heartbeat()).doesNotThrowAnyException();
+        assertThat(eventService.getSubscriberCount()).isZero();
+    }
+}
@@ -0,0 +1,53 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.core.DocumentIds;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentIdsTest {
+
+    @Test
+    @DisplayName("New IDs are version 7 UUIDs carrying their creation time")
+    void newIdLayout() {
+        long now = 1_720_000_000_000L;
+        UUID id = DocumentIds.newId(now);
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(now);
+    }
+
+    @Test
+    @DisplayName("IDs of later uploads sort after earlier ones")
+    void timeOrdered() {
+        UUID earlier = DocumentIds.newId(1_720_000_000_000L);
+        UUID later = DocumentIds.newId(1_720_000_000_001L);
+        assertThat(later.toString()).isGreaterThan(earlier.toString());
+        assertThat(Long.compareUnsigned(later.getMostSignificantBits(), earlier.getMostSignificantBits())).isPositive();
+    }
+
+    @Test
+    @DisplayName("Existing random UUIDs and new IDs round-trip through their string form")
+    void parseRoundTrip() {
+        UUID legacy = UUID.randomUUID();
+        UUID current = DocumentIds.newId();
+        assertThat(DocumentIds.parse(legacy.toString())).isEqualTo(legacy);
+        assertThat(DocumentIds.parse(current.toString())).isEqualTo(current);
+    }
+
+    @Test
+    @DisplayName("Values that are not canonical UUIDs are rejected")
+    void parseRejectsInvalid() {
+        assertThatThrownBy(() -> DocumentIds.parse("doc123"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid document ID");
+        assertThatThrownBy(() -> DocumentIds.parse("1-1-1-1-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DocumentIds.parse(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
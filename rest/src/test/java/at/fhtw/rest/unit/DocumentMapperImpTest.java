@@ -3,6 +3,7 @@ package at.fhtw.rest.unit;
 import at.fhtw.rest.api.DocumentRequest;
 import at.fhtw.rest.infrastructure.mapper.DocumentMapperImp;
 import at.fhtw.rest.persistence.DocumentEntity;
+import at.fhtw.rest.persistence.DocumentSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -11,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,7 +34,7 @@ public class DocumentMapperImpTest {
         @DisplayName("toEntity - should correctly map a valid DocumentRequest")
         void testToEntityWithValidRequest() {
             DocumentRequest request = DocumentRequest.builder()
-                    .id("123")
+                    .id("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40")
                     .filename("test.pdf")
                     .filesize(1024L)
                     .filetype("application/pdf")
@@ -44,15 +46,14 @@ public class DocumentMapperImpTest {
             DocumentEntity entity = documentMapperImp.toEntity(request);
 
             assertThat(entity).as("Mapped entity should not be null").isNotNull();
-            assertThat(entity.getId()).as("ID should be mapped correctly").isEqualTo("123");
+            assertThat(entity.getId()).as("ID should be mapped correctly").isEqualTo(UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40"));
             assertThat(entity.getFilename()).as("Filename should be mapped correctly").isEqualTo("test.pdf");
             assertThat(entity.getFilesize()).as("Filesize should be mapped correctly").isEqualTo(1024L);
             assertThat(entity.getFiletype()).as("Filetype should be mapped correctly").isEqualTo("application/pdf");
             assertThat(entity.getUploadDate()).as("Upload date should be mapped correctly")
                     .isEqualTo(LocalDateTime.of(2025, 2, 9, 12, 0));
             assertThat(entity.isOcrJobDone()).as("OCR job done flag should be mapped correctly").isEqualTo(false);
-            assertThat(entity.getOcrText()).as("OCR text should be mapped correctly").isEqualTo("Sample OCR text");
-            assertThat(entity.getObjectKey()).as("Object key should be set to the document id").isEqualTo("123");
+            assertThat(entity.getObjectKey()).as("Object key should be set to the document id").isEqualTo("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40");
         }
 
         @Test
@@ -71,25 +72,24 @@ public class DocumentMapperImpTest {
         @DisplayName("toDto - should correctly map a valid DocumentEntity")
         void testToDtoWithValidEntity() {
             DocumentEntity entity = new DocumentEntity();
-            entity.setId("456");
+            entity.setId(UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41"));
             entity.setFilename("document.pdf");
             entity.setFilesize(2048L);
             entity.setFiletype("application/pdf");
             entity.setUploadDate(LocalDateTime.of(2025, 2, 9, 12, 30));
             entity.setOcrJobDone(true);
-            entity.setOcrText("Extracted text");
 
             DocumentRequest dto = documentMapperImp.toDto(entity);
 
             assertThat(dto).as("Mapped DTO should not be null").isNotNull();
-            assertThat(dto.getId()).as("ID should be mapped correctly").isEqualTo("456");
+            assertThat(dto.getId()).as("ID should be mapped correctly").isEqualTo("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41");
             assertThat(dto.getFilename()).as("Filename should be mapped correctly").isEqualTo("document.pdf");
             assertThat(dto.getFilesize()).as("Filesize should be mapped correctly").isEqualTo(2048L);
             assertThat(dto.getFiletype()).as("Filetype should be mapped correctly").isEqualTo("application/pdf");
             assertThat(dto.getUploadDate()).as("Upload date should be mapped correctly")
                     .isEqualTo(LocalDateTime.of(2025, 2, 9, 12, 30));
             assertThat(dto.isOcrJobDone()).as("OCR job done flag should be mapped correctly").isEqualTo(true);
-            assertThat(dto.getOcrText()).as("OCR text should be mapped correctly").isEqualTo("Extracted text");
+            assertThat(dto.getOcrText()).as("OCR text is stored separately and not mapped").isNull();
         }
 
         @Test
@@ -99,4 +99,38 @@ public class DocumentMapperImpTest {
             assertThat(dto).as("Mapping null DocumentEntity should return null").isNull();
         }
     }
+
+    @Nested
+    @DisplayName("toSummaryDto Tests")
+    class ToSummaryDtoTests {
+
+        @Test
+        @DisplayName("toSummaryDto - should map metadata and leave the OCR text empty")
+        void testToSummaryDto() {
+            DocumentSummary summary = new DocumentSummary() {
+                public UUID getId() { return UUID.fromString("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a42"); }
+                public String getFilename() { return "file.pdf"; }
+                public long getFilesize() { return 2048L; }
+                public String getFiletype() { return "application/pdf"; }
+                public LocalDateTime getUploadDate() { return LocalDateTime.of(2025, 2, 9, 12, 30); }
+                public boolean isOcrJobDone() { return true; }
+            };
+
+            DocumentRequest dto = documentMapperImp.toSummaryDto(summary);
+
+            assertThat(dto.getId()).isEqualTo("0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a42");
+            assertThat(dto.getFilename()).isEqualTo("file.pdf");
+            assertThat(dto.getFilesize()).isEqualTo(2048L);
+            assertThat(dto.getFiletype()).isEqualTo("application/pdf");
+            assertThat(dto.getUploadDate()).isEqualTo(LocalDateTime.of(2025, 2, 9, 12, 30));
+            assertThat(dto.isOcrJobDone()).isTrue();
+            assertThat(dto.getOcrText()).isNull();
+        }
+
+        @Test
+        @DisplayName("toSummaryDto - should return null when given a null DocumentSummary")
+        void testToSummaryDtoWithNull() {
+            assertThat(documentMapperImp.toSummaryDto(null)).isNull();
+        }
+    }
 }
\ No newline at end of file
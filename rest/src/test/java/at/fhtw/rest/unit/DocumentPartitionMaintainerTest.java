@@ -0,0 +1,47 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.persistence.DocumentPartitionMaintainer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class DocumentPartitionMaintainerTest {
+
+    private static final String ENSURE_PARTITIONS = "SELECT ensure_documents_partitions(?)";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Asks the database for the configured number of future months")
+    void createsFuturePartitions() {
+        when(jdbcTemplate.queryForObject(eq(ENSURE_PARTITIONS), eq(Integer.class), eq(6))).thenReturn(2);
+
+        new DocumentPartitionMaintainer(jdbcTemplate, 6).createFuturePartitions();
+
+        verify(jdbcTemplate).queryForObject(ENSURE_PARTITIONS, Integer.class, 6);
+    }
+
+    @Test
+    @DisplayName("A failed run is logged and retried on the next schedule")
+    void survivesDatabaseErrors() {
+        when(jdbcTemplate.queryForObject(eq(ENSURE_PARTITIONS), eq(Integer.class), eq(3)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThatCode(() -> new DocumentPartitionMaintainer(jdbcTemplate, 3).createFuturePartitions())
+                .doesNotThrowAnyException();
+    }
+}
@@ -1,13 +1,28 @@
 package at.fhtw.rest.unit;
 
+import at.fhtw.rest.api.DocumentPage;
 import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.api.UploadTicket;
+import at.fhtw.rest.core.DocumentCacheImp;
+import at.fhtw.rest.core.DocumentCursor;
 import at.fhtw.rest.core.DocumentServiceImp;
+import at.fhtw.rest.core.DocumentView;
 import at.fhtw.rest.core.ElasticsearchService;
+import at.fhtw.rest.core.FileCache;
 import at.fhtw.rest.infrastructure.mapper.DocumentMapper;
 import at.fhtw.rest.message.ProcessingEventDispatcher;
+import at.fhtw.rest.message.TombstoneDispatcher;
 import at.fhtw.rest.persistence.DocumentEntity;
 import at.fhtw.rest.persistence.DocumentRepository;
+import at.fhtw.rest.persistence.DocumentSummary;
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
 import at.fhtw.rest.persistence.MinioStorageService;
+import at.fhtw.rest.persistence.OcrTextArchive;
+import at.fhtw.rest.persistence.PresignedPost;
+import at.fhtw.rest.persistence.PresignedUrlService;
+import at.fhtw.rest.persistence.StoredObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -15,28 +30,50 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Limit;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
@@ -44,7 +81,13 @@ public class DocumentServiceImpTest {
 
     private static final String TEST_FILENAME = "testfile.pdf";
     private static final String NEW_FILENAME = "newfile.pdf";
-    private static final String TEST_DOC_ID = "test-doc-id";
+    private static final String TEST_DOC_ID = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40";
+    private static final UUID TEST_DOC_UUID = UUID.fromString(TEST_DOC_ID);
+    private static final String UPLOAD_KEY = "uploads/" + TEST_DOC_ID;
+    private static final String DOC_1 = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41";
+    private static final String DOC_2 = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a42";
+    private static final String DOC_3 = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a43";
+    private static final String DOC_GONE = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a44";
     private static final byte[] TEST_FILE_BYTES = "dummy content".getBytes();
     private static final String MIME_TYPE_PDF = "application/pdf";
     private static final String ERROR_FILE_EMPTY = "File must not be empty";
@@ -56,6 +99,8 @@ public class DocumentServiceImpTest {
     @Mock
     private DocumentRepository documentRepository;
     @Mock
+    private DocumentTextRepository documentTextRepository;
+    @Mock
     private DocumentMapper mapper;
     @Mock
     private MinioStorageService minioStorageService;
@@ -63,17 +108,36 @@ public class DocumentServiceImpTest {
     private ProcessingEventDispatcher processingEventDispatcher;
     @Mock
     private ElasticsearchService elasticsearchService;
+    @Mock
+    private TombstoneDispatcher tombstoneDispatcher;
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private OcrTextArchive ocrTextArchive;
+    @Mock
+    private PresignedUrlService presignedUrlService;
+    @Mock
+    private FileCache fileCache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
+    private DocumentCacheImp documentCache;
     private DocumentServiceImp documentServiceImp;
 
     @BeforeEach
     void setUp() {
+        documentCache = spy(new DocumentCacheImp(Optional.empty(), new SimpleMeterRegistry(), true, 100, 60_000, 0));
         documentServiceImp = new DocumentServiceImp(
                 documentRepository,
+                documentTextRepository,
                 mapper,
                 minioStorageService,
                 processingEventDispatcher,
-                elasticsearchService
+                elasticsearchService,
+                tombstoneDispatcher,
+                documentCache,
+                ocrTextArchive,
+                presignedUrlService,
+                fileCache,
+                new TransactionTemplate(transactionManager)
         );
     }
 
@@ -81,39 +145,59 @@ public class DocumentServiceImpTest {
         return new MockMultipartFile("file", TEST_FILENAME, MIME_TYPE_PDF, content);
     }
 
+    private DocumentTextEntity text(String docId, String ocrText) {
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setId(UUID.fromString(docId));
+        text.setOcrText(ocrText);
+        return text;
+    }
+
     @Nested
     @DisplayName("Happy Path Tests")
     class HappyPathTests {
 
         @Test
-        @DisplayName("uploadFile - successful upload")
+        @DisplayName("uploadFile - stores the file before the transaction and records the streamed digest")
         void uploadFileSuccessful() throws IOException {
             MultipartFile file = createMockMultipartFile(TEST_FILE_BYTES);
-            doAnswer(invocation -> {
-                DocumentEntity entity = invocation.getArgument(0);
-                entity.setId(TEST_DOC_ID);
-                return null;
-            }).when(documentRepository).save(any(DocumentEntity.class));
+            ArgumentCaptor<String> docIdCaptor = ArgumentCaptor.forClass(String.class);
             DocumentRequest expectedDto = DocumentRequest.builder().build();
+            when(minioStorageService.storeFile(anyString(), eq(file))).thenReturn("digest");
             when(mapper.toDto(any(DocumentEntity.class))).thenReturn(expectedDto);
 
             DocumentRequest result = documentServiceImp.uploadFile(file);
             assertThat(result).isNotNull();
 
-            InOrder inOrder = inOrder(minioStorageService, documentRepository, mapper, processingEventDispatcher);
-            inOrder.verify(minioStorageService).storeFile(anyString(), eq(file));
-            inOrder.verify(documentRepository).save(any(DocumentEntity.class));
+            InOrder inOrder = inOrder(minioStorageService, transactionManager, documentRepository, mapper, processingEventDispatcher);
+            inOrder.verify(minioStorageService).storeFile(docIdCaptor.capture(), eq(file));
+            inOrder.verify(transactionManager).getTransaction(any());
+            inOrder.verify(documentRepository).save(argThat(entity -> "digest".equals(entity.getContentDigest())));
             inOrder.verify(mapper).toDto(any(DocumentEntity.class));
-            inOrder.verify(processingEventDispatcher).sendProcessingRequest(anyString(), eq(TEST_FILENAME));
+            inOrder.verify(processingEventDispatcher).sendProcessingRequest(docIdCaptor.getValue(), TEST_FILENAME, "digest");
+            inOrder.verify(transactionManager).commit(any());
+            assertThat(UUID.fromString(docIdCaptor.getValue()).version()).as("New documents get time-ordered IDs").isEqualTo(7);
+        }
+
+        @Test
+        @DisplayName("uploadFile - a failed transaction removes the stored file")
+        void uploadFileRollsBackStorage() throws IOException {
+            MultipartFile file = createMockMultipartFile(TEST_FILE_BYTES);
+            ArgumentCaptor<String> docIdCaptor = ArgumentCaptor.forClass(String.class);
+            when(minioStorageService.storeFile(docIdCaptor.capture(), eq(file))).thenReturn("digest");
+            when(documentRepository.save(any(DocumentEntity.class))).thenThrow(new RuntimeException("database down"));
+
+            assertThatThrownBy(() -> documentServiceImp.uploadFile(file)).hasMessage("database down");
+            verify(minioStorageService).deleteFile(docIdCaptor.getValue());
+            verifyNoInteractions(processingEventDispatcher);
         }
 
         @Test
         @DisplayName("renameFile - successful rename")
         void renameFileSuccessful() {
             DocumentEntity entity = new DocumentEntity();
-            entity.setId(TEST_DOC_ID);
+            entity.setId(TEST_DOC_UUID);
             entity.setFilename(TEST_FILENAME);
-            when(documentRepository.findById(TEST_DOC_ID)).thenReturn(Optional.of(entity));
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.of(entity));
             DocumentRequest expectedDto = DocumentRequest.builder().build();
             when(mapper.toDto(entity)).thenReturn(expectedDto);
 
@@ -123,60 +207,216 @@ public class DocumentServiceImpTest {
 
             InOrder inOrder = inOrder(minioStorageService, elasticsearchService, documentRepository, mapper);
             inOrder.verify(elasticsearchService).updateFilename(TEST_DOC_ID, NEW_FILENAME);
-            inOrder.verify(documentRepository).findById(TEST_DOC_ID);
+            inOrder.verify(documentRepository).findById(TEST_DOC_UUID);
             inOrder.verify(documentRepository).save(entity);
             inOrder.verify(mapper).toDto(entity);
+            verify(documentCache).invalidate(TEST_DOC_ID);
         }
 
         @Test
-        @DisplayName("getFileBytes - file found")
-        void getFileBytesSuccessful() {
-            when(minioStorageService.loadFile(TEST_DOC_ID)).thenReturn(Optional.of(TEST_FILE_BYTES));
-            byte[] result = documentServiceImp.getFileBytes(TEST_DOC_ID);
-            assertThat(result).isNotNull();
-            assertThat(result).isEqualTo(TEST_FILE_BYTES);
+        @DisplayName("getFileInfo - file found")
+        void getFileInfoSuccessful() {
+            StoredObject stored = StoredObject.builder().objectKey(TEST_DOC_ID).size(TEST_FILE_BYTES.length).etag("etag").build();
+            when(minioStorageService.statFile(TEST_DOC_ID)).thenReturn(Optional.of(stored));
+            assertThat(documentServiceImp.getFileInfo(TEST_DOC_ID)).isEqualTo(stored);
+            verify(minioStorageService, never()).loadFile(any());
         }
 
         @Test
         @DisplayName("deleteDocument - successful deletion")
         void deleteDocumentSuccessful() {
             documentServiceImp.deleteDocument(TEST_DOC_ID);
-            InOrder inOrder = inOrder(minioStorageService, documentRepository, elasticsearchService);
+            InOrder inOrder = inOrder(tombstoneDispatcher, minioStorageService, processingEventDispatcher, documentRepository, elasticsearchService);
+            inOrder.verify(processingEventDispatcher).cancelProcessingRequest(TEST_DOC_ID);
+            inOrder.verify(documentRepository).deleteById(TEST_DOC_UUID);
+            inOrder.verify(tombstoneDispatcher).sendTombstone(TEST_DOC_ID);
             inOrder.verify(minioStorageService).deleteFile(TEST_DOC_ID);
-            inOrder.verify(documentRepository).deleteById(TEST_DOC_ID);
             inOrder.verify(elasticsearchService).deleteDocument(TEST_DOC_ID);
+            verify(documentCache).invalidate(TEST_DOC_ID);
+            verify(ocrTextArchive).delete(TEST_DOC_UUID);
+            verify(fileCache).evict(TEST_DOC_ID);
         }
 
         @Test
-        @DisplayName("getDocument - document found")
+        @DisplayName("deleteDocument - file, index and tombstone are only touched after the commit")
+        void deleteDocumentCleansUpAfterCommit() {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                documentServiceImp.deleteDocument(TEST_DOC_ID);
+
+                verify(documentRepository).deleteById(TEST_DOC_UUID);
+                verifyNoInteractions(tombstoneDispatcher, minioStorageService, elasticsearchService, ocrTextArchive);
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            verify(tombstoneDispatcher).sendTombstone(TEST_DOC_ID);
+            verify(minioStorageService).deleteFile(TEST_DOC_ID);
+            verify(elasticsearchService).deleteDocument(TEST_DOC_ID);
+        }
+
+        @Test
+        @DisplayName("deleteDocument - a failing cleanup step does not skip the others")
+        void deleteDocumentContinuesAfterFailedCleanup() {
+            doThrow(new RuntimeException("MinIO unavailable")).when(minioStorageService).deleteFile(TEST_DOC_ID);
+
+            documentServiceImp.deleteDocument(TEST_DOC_ID);
+
+            verify(ocrTextArchive).delete(TEST_DOC_UUID);
+            verify(elasticsearchService).deleteDocument(TEST_DOC_ID);
+        }
+
+        @Test
+        @DisplayName("getCachedFile - fills the cache from the whole stored object")
+        void getCachedFileFillsFromStorage() throws IOException {
+            StoredObject stored = StoredObject.builder().objectKey(TEST_DOC_ID).size(3).etag("etag").build();
+            Path cached = Path.of("cached.cache");
+            InputStream content = new ByteArrayInputStream("pdf".getBytes());
+            when(minioStorageService.openFile(TEST_DOC_ID, 0, null)).thenReturn(content);
+            when(fileCache.get(eq(stored), eq(2L), any())).thenAnswer(invocation -> {
+                assertThat(invocation.getArgument(2, FileCache.FileLoader.class).open()).isSameAs(content);
+                return Optional.of(cached);
+            });
+
+            assertThat(documentServiceImp.getCachedFile(TEST_DOC_ID, stored, 2)).contains(cached);
+        }
+
+        @Test
+        @DisplayName("getDocument - full view adds the separately stored OCR text")
         void getDocumentSuccessful() {
-            DocumentEntity entity = new DocumentEntity();
-            entity.setId(TEST_DOC_ID);
-            entity.setFilename(TEST_FILENAME);
-            when(documentRepository.findById(TEST_DOC_ID)).thenReturn(Optional.of(entity));
-            DocumentRequest expectedDto = DocumentRequest.builder().build();
-            when(mapper.toDto(entity)).thenReturn(expectedDto);
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.of(summary));
+            DocumentRequest expectedDto = DocumentRequest.builder().id(TEST_DOC_ID).build();
+            when(mapper.toSummaryDto(summary)).thenReturn(expectedDto);
+            when(documentTextRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.of(text(TEST_DOC_ID, "text")));
+
+            DocumentRequest result = documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.FULL);
+            assertThat(result.getOcrText()).isEqualTo("text");
+            verify(documentRepository, never()).findById(any());
+            verify(ocrTextArchive, never()).load(any());
+        }
 
-            DocumentRequest result = documentServiceImp.getDocument(TEST_DOC_ID);
-            assertThat(result).isNotNull();
-            verify(documentRepository).findById(TEST_DOC_ID);
-            verify(mapper).toDto(entity);
+        @Test
+        @DisplayName("getDocument - full view fetches offloaded OCR text from the archive")
+        void getDocumentOffloadedText() {
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.of(summary));
+            when(mapper.toSummaryDto(summary)).thenReturn(DocumentRequest.builder().id(TEST_DOC_ID).build());
+            DocumentTextEntity text = text(TEST_DOC_ID, null);
+            text.setOcrTextObjectKey("ocr-text/" + TEST_DOC_ID + ".txt.gz");
+            when(documentTextRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.of(text));
+            when(ocrTextArchive.load("ocr-text/" + TEST_DOC_ID + ".txt.gz")).thenReturn("cold text");
+
+            assertThat(documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.FULL).getOcrText()).isEqualTo("cold text");
+        }
+
+        @Test
+        @DisplayName("getDocument - summary view reads the metadata projection only")
+        void getDocumentSummary() {
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.of(summary));
+            DocumentRequest expectedDto = DocumentRequest.builder().id(TEST_DOC_ID).build();
+            when(mapper.toSummaryDto(summary)).thenReturn(expectedDto);
+
+            assertThat(documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.SUMMARY)).isEqualTo(expectedDto);
+            verify(documentRepository, never()).findById(any());
+            verifyNoInteractions(documentTextRepository);
+        }
+
+        @Test
+        @DisplayName("getDocument - repeated reads are served from the cache until it is invalidated")
+        void getDocumentCached() {
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.of(summary));
+            when(mapper.toSummaryDto(summary)).thenReturn(DocumentRequest.builder().id(TEST_DOC_ID).filename(TEST_FILENAME).build());
+
+            assertThat(documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.SUMMARY).getFilename()).isEqualTo(TEST_FILENAME);
+            assertThat(documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.SUMMARY).getFilename()).isEqualTo(TEST_FILENAME);
+            verify(documentRepository, times(1)).findSummaryById(TEST_DOC_UUID);
+
+            documentCache.invalidate(TEST_DOC_ID);
+            documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.SUMMARY);
+            verify(documentRepository, times(2)).findSummaryById(TEST_DOC_UUID);
         }
 
         @Test
         @DisplayName("searchDocuments - valid query returns results")
         void searchDocumentsSuccessful() {
             when(elasticsearchService.searchIdsByQuery(SEARCH_QUERY_VALID)).thenReturn(Collections.singletonList(TEST_DOC_ID));
-            DocumentEntity entity = new DocumentEntity();
-            entity.setId(TEST_DOC_ID);
-            entity.setFilename(TEST_FILENAME);
-            when(documentRepository.findById(TEST_DOC_ID)).thenReturn(Optional.of(entity));
-            DocumentRequest expectedDto = DocumentRequest.builder().build();
-            when(mapper.toDto(entity)).thenReturn(expectedDto);
-
-            List<DocumentRequest> results = documentServiceImp.searchDocuments(SEARCH_QUERY_VALID);
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(summary.getId()).thenReturn(TEST_DOC_UUID);
+            when(documentRepository.findSummariesByIdIn(List.of(TEST_DOC_UUID))).thenReturn(List.of(summary));
+            DocumentRequest expectedDto = DocumentRequest.builder().id(TEST_DOC_ID).build();
+            when(mapper.toSummaryDto(summary)).thenReturn(expectedDto);
+            when(documentTextRepository.findAllById(List.of(TEST_DOC_UUID))).thenReturn(List.of(text(TEST_DOC_ID, "text")));
+
+            List<DocumentRequest> results = documentServiceImp.searchDocuments(SEARCH_QUERY_VALID, DocumentView.FULL);
             assertThat(results).isNotNull();
             assertThat(results).isNotEmpty().hasSize(1);
+            assertThat(results.get(0).getOcrText()).isEqualTo("text");
+            verify(documentRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("searchDocuments - hits are hydrated with one query and keep the relevance order")
+        void searchDocumentsBatchedInRelevanceOrder() {
+            when(elasticsearchService.searchIdsByQuery(SEARCH_QUERY_VALID)).thenReturn(List.of(DOC_3, DOC_1, DOC_2));
+            DocumentSummary s1 = mock(DocumentSummary.class);
+            DocumentSummary s2 = mock(DocumentSummary.class);
+            DocumentSummary s3 = mock(DocumentSummary.class);
+            when(s1.getId()).thenReturn(UUID.fromString(DOC_1));
+            when(s2.getId()).thenReturn(UUID.fromString(DOC_2));
+            when(s3.getId()).thenReturn(UUID.fromString(DOC_3));
+            when(documentRepository.findSummariesByIdIn(List.of(UUID.fromString(DOC_3), UUID.fromString(DOC_1), UUID.fromString(DOC_2)))).thenReturn(List.of(s1, s2, s3));
+            DocumentRequest dto1 = DocumentRequest.builder().id(DOC_1).build();
+            DocumentRequest dto2 = DocumentRequest.builder().id(DOC_2).build();
+            DocumentRequest dto3 = DocumentRequest.builder().id(DOC_3).build();
+            when(mapper.toSummaryDto(s1)).thenReturn(dto1);
+            when(mapper.toSummaryDto(s2)).thenReturn(dto2);
+            when(mapper.toSummaryDto(s3)).thenReturn(dto3);
+
+            assertThat(documentServiceImp.searchDocuments(SEARCH_QUERY_VALID, DocumentView.SUMMARY)).containsExactly(dto3, dto1, dto2);
+            verify(documentRepository, never()).findSummaryById(any());
+        }
+
+        @Test
+        @DisplayName("searchDocuments - hits missing in the database are skipped")
+        void searchDocumentsSkipsMissing() {
+            when(elasticsearchService.searchIdsByQuery(SEARCH_QUERY_VALID)).thenReturn(List.of(DOC_GONE, TEST_DOC_ID));
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(summary.getId()).thenReturn(TEST_DOC_UUID);
+            when(documentRepository.findSummariesByIdIn(List.of(UUID.fromString(DOC_GONE), TEST_DOC_UUID))).thenReturn(List.of(summary));
+            DocumentRequest expectedDto = DocumentRequest.builder().id(TEST_DOC_ID).build();
+            when(mapper.toSummaryDto(summary)).thenReturn(expectedDto);
+
+            assertThat(documentServiceImp.searchDocuments(SEARCH_QUERY_VALID, DocumentView.SUMMARY)).containsExactly(expectedDto);
+        }
+
+        @Test
+        @DisplayName("searchDocuments - index-only mode serves hits from Elasticsearch without touching the database")
+        void searchDocumentsIndexOnly() {
+            setField(documentServiceImp, "searchIndexOnly", true);
+            DocumentRequest hit = DocumentRequest.builder().id(TEST_DOC_ID).uploadDate(LocalDateTime.now()).build();
+            when(elasticsearchService.searchDocuments(SEARCH_QUERY_VALID, DocumentView.SUMMARY)).thenReturn(List.of(hit));
+
+            assertThat(documentServiceImp.searchDocuments(SEARCH_QUERY_VALID, DocumentView.SUMMARY)).containsExactly(hit);
+            verifyNoInteractions(documentRepository);
+        }
+
+        @Test
+        @DisplayName("searchDocuments - index-only mode hydrates hits indexed without metadata")
+        void searchDocumentsIndexOnlyHydratesIncomplete() {
+            setField(documentServiceImp, "searchIndexOnly", true);
+            DocumentRequest complete = DocumentRequest.builder().id(DOC_1).uploadDate(LocalDateTime.now()).build();
+            DocumentRequest incomplete = DocumentRequest.builder().id(DOC_2).build();
+            when(elasticsearchService.searchDocuments(SEARCH_QUERY_VALID, DocumentView.SUMMARY)).thenReturn(List.of(incomplete, complete));
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(summary.getId()).thenReturn(UUID.fromString(DOC_2));
+            when(documentRepository.findSummariesByIdIn(List.of(UUID.fromString(DOC_2)))).thenReturn(List.of(summary));
+            DocumentRequest hydrated = DocumentRequest.builder().id(DOC_2).filename(TEST_FILENAME).build();
+            when(mapper.toSummaryDto(summary)).thenReturn(hydrated);
+
+            assertThat(documentServiceImp.searchDocuments(SEARCH_QUERY_VALID, DocumentView.SUMMARY)).containsExactly(hydrated, complete);
         }
     }
 
@@ -196,17 +436,17 @@ public class DocumentServiceImpTest {
         @Test
         @DisplayName("renameFile - document not found should throw exception")
         void renameFileDocumentNotFoundThrows() {
-            when(documentRepository.findById(TEST_DOC_ID)).thenReturn(Optional.empty());
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.empty());
             assertThatThrownBy(() -> documentServiceImp.renameFile(TEST_DOC_ID, NEW_FILENAME))
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessageContaining(ERROR_DOCUMENT_NOT_FOUND);
         }
 
         @Test
-        @DisplayName("getFileBytes - file not found should throw exception")
-        void getFileBytesFileNotFoundThrows() {
-            when(minioStorageService.loadFile(TEST_DOC_ID)).thenReturn(Optional.empty());
-            assertThatThrownBy(() -> documentServiceImp.getFileBytes(TEST_DOC_ID))
+        @DisplayName("getFileInfo - file not found should throw exception")
+        void getFileInfoFileNotFoundThrows() {
+            when(minioStorageService.statFile(TEST_DOC_ID)).thenReturn(Optional.empty());
+            assertThatThrownBy(() -> documentServiceImp.getFileInfo(TEST_DOC_ID))
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessageContaining(ERROR_FILE_NOT_FOUND);
         }
@@ -214,8 +454,8 @@ public class DocumentServiceImpTest {
         @Test
         @DisplayName("getDocument - document not found should throw exception")
         void getDocumentNotFoundThrows() {
-            when(documentRepository.findById(TEST_DOC_ID)).thenReturn(Optional.empty());
-            assertThatThrownBy(() -> documentServiceImp.getDocument(TEST_DOC_ID))
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.empty());
+            assertThatThrownBy(() -> documentServiceImp.getDocument(TEST_DOC_ID, DocumentView.FULL))
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessageContaining(ERROR_DOCUMENT_NOT_FOUND);
         }
@@ -224,40 +464,91 @@ public class DocumentServiceImpTest {
         @DisplayName("searchDocuments - null result from Elasticsearch returns empty list")
         void searchDocumentsNullResultReturnsEmptyList() {
             when(elasticsearchService.searchIdsByQuery(SEARCH_QUERY_NON_EXISTENT)).thenReturn(null);
-            List<DocumentRequest> results = documentServiceImp.searchDocuments(SEARCH_QUERY_NON_EXISTENT);
+            List<DocumentRequest> results = documentServiceImp.searchDocuments(SEARCH_QUERY_NON_EXISTENT, DocumentView.SUMMARY);
             assertThat(results).isNotNull().isEmpty();
         }
     }
 
     @Nested
-    @DisplayName("getAllDocuments Tests")
-    class GetAllDocumentsTests {
+    @DisplayName("listDocuments Tests")
+    class ListDocumentsTests {
+
+        private final LocalDateTime uploadDate = LocalDateTime.of(2025, 2, 9, 12, 30);
 
         @Test
-        @DisplayName("getAllDocuments returns list of DocumentRequest")
-        void returnsListOfDocuments() {
-            DocumentEntity e1 = new DocumentEntity();
-            e1.setId("doc1");
-            DocumentEntity e2 = new DocumentEntity();
-            e2.setId("doc2");
-            when(documentRepository.findAll()).thenReturn(List.of(e1, e2));
-            DocumentRequest dto1 = DocumentRequest.builder().id("doc1").build();
-            DocumentRequest dto2 = DocumentRequest.builder().id("doc2").build();
-            when(mapper.toDto(e1)).thenReturn(dto1);
-            when(mapper.toDto(e2)).thenReturn(dto2);
+        @DisplayName("listDocuments returns the first page and a cursor when more documents exist")
+        void firstPageWithCursor() {
+            DocumentSummary s1 = mock(DocumentSummary.class);
+            DocumentSummary s2 = mock(DocumentSummary.class);
+            DocumentSummary s3 = mock(DocumentSummary.class);
+            when(s2.getId()).thenReturn(UUID.fromString(DOC_2));
+            when(s2.getUploadDate()).thenReturn(uploadDate);
+            when(documentRepository.findFirstSummaries(Limit.of(3))).thenReturn(List.of(s1, s2, s3));
+            DocumentRequest dto1 = DocumentRequest.builder().id(DOC_1).build();
+            DocumentRequest dto2 = DocumentRequest.builder().id(DOC_2).build();
+            when(mapper.toSummaryDto(s1)).thenReturn(dto1);
+            when(mapper.toSummaryDto(s2)).thenReturn(dto2);
+
+            DocumentPage page = documentServiceImp.listDocuments(null, 2, DocumentView.SUMMARY);
+
+            assertThat(page.getDocuments()).containsExactly(dto1, dto2);
+            assertThat(DocumentCursor.decode(page.getNextCursor())).isEqualTo(new DocumentCursor(uploadDate, UUID.fromString(DOC_2)));
+        }
+
+        @Test
+        @DisplayName("listDocuments seeks past the cursor and returns no cursor on the last page")
+        void lastPageAfterCursor() {
+            DocumentSummary s3 = mock(DocumentSummary.class);
+            String cursor = new DocumentCursor(uploadDate, UUID.fromString(DOC_2)).encode();
+            when(documentRepository.findSummariesBefore(uploadDate, UUID.fromString(DOC_2), Limit.of(3))).thenReturn(List.of(s3));
+            DocumentRequest dto3 = DocumentRequest.builder().id(DOC_3).build();
+            when(mapper.toSummaryDto(s3)).thenReturn(dto3);
+
+            DocumentPage page = documentServiceImp.listDocuments(cursor, 2, DocumentView.SUMMARY);
+
+            assertThat(page.getDocuments()).containsExactly(dto3);
+            assertThat(page.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("listDocuments returns an empty page when no documents")
+        void returnsEmptyPage() {
+            when(documentRepository.findFirstSummaries(Limit.of(51))).thenReturn(Collections.emptyList());
+            DocumentPage page = documentServiceImp.listDocuments(null, 50, DocumentView.SUMMARY);
+            assertThat(page.getDocuments()).isEmpty();
+            assertThat(page.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("listDocuments caps the page size")
+        void capsPageSize() {
+            when(documentRepository.findFirstSummaries(Limit.of(501))).thenReturn(Collections.emptyList());
+            documentServiceImp.listDocuments(null, 100_000, DocumentView.SUMMARY);
+            verify(documentRepository).findFirstSummaries(Limit.of(501));
+        }
 
-            List<DocumentRequest> result = documentServiceImp.getAllDocuments();
-            assertThat(result).hasSize(2);
-            assertThat(result.get(0)).isEqualTo(dto1);
-            assertThat(result.get(1)).isEqualTo(dto2);
+        @Test
+        @DisplayName("listDocuments with the full view loads the OCR text of the page in one query")
+        void fullViewLoadsTextOfPage() {
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(documentRepository.findFirstSummaries(Limit.of(2))).thenReturn(List.of(summary));
+            DocumentRequest dto = DocumentRequest.builder().id(DOC_1).build();
+            when(mapper.toSummaryDto(summary)).thenReturn(dto);
+            when(documentTextRepository.findAllById(List.of(UUID.fromString(DOC_1)))).thenReturn(List.of(text(DOC_1, "text")));
+
+            DocumentPage page = documentServiceImp.listDocuments(null, 1, DocumentView.FULL);
+
+            assertThat(page.getDocuments()).containsExactly(dto);
+            assertThat(dto.getOcrText()).isEqualTo("text");
+            assertThat(page.getNextCursor()).isNull();
         }
 
         @Test
-        @DisplayName("getAllDocuments returns empty list when no documents")
-        void returnsEmptyList() {
-            when(documentRepository.findAll()).thenReturn(Collections.emptyList());
-            List<DocumentRequest> result = documentServiceImp.getAllDocuments();
-            assertThat(result).isEmpty();
+        @DisplayName("listDocuments rejects a malformed cursor")
+        void rejectsMalformedCursor() {
+            assertThatThrownBy(() -> documentServiceImp.listDocuments("bm90LWEtY3Vyc29y", 10, DocumentView.SUMMARY))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Invalid cursor");
         }
     }
 
@@ -280,4 +571,142 @@ public class DocumentServiceImpTest {
             assertThat(result).isEqualTo(expected);
         }
     }
+
+    @Nested
+    @DisplayName("Direct Transfer Tests")
+    class DirectTransferTests {
+
+        @Test
+        @DisplayName("createUploadTicket - signs a size-limited POST policy for a staged upload of a new document ID")
+        void createUploadTicket() {
+            setField(documentServiceImp, "maxDirectUploadSize", 1024L);
+            when(presignedUrlService.presignUpload(anyString(), eq(1024L))).thenAnswer(invocation -> PresignedPost.builder()
+                    .url("http://minio:9000/documents")
+                    .formFields(Map.of("key", invocation.getArgument(0), "policy", "signed"))
+                    .build());
+            when(presignedUrlService.getExpiry()).thenReturn(Duration.ofMinutes(5));
+
+            UploadTicket ticket = documentServiceImp.createUploadTicket();
+
+            assertThat(UUID.fromString(ticket.getDocumentId()).version()).isEqualTo(7);
+            assertThat(ticket.getUploadUrl()).isEqualTo("http://minio:9000/documents");
+            assertThat(ticket.getMethod()).isEqualTo("POST");
+            assertThat(ticket.getFormFields()).containsEntry("key", "uploads/" + ticket.getDocumentId());
+            assertThat(ticket.getMaxSize()).isEqualTo(1024);
+            assertThat(ticket.getExpiresAt()).isAfter(LocalDateTime.now().plusMinutes(4));
+            verifyNoInteractions(documentRepository, processingEventDispatcher);
+        }
+
+        @Test
+        @DisplayName("finalizeUpload - registers the staged object, moves it to the document key and requests processing")
+        void finalizeUpload() {
+            DocumentEntity entity = new DocumentEntity();
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.empty(), Optional.of(entity));
+            when(minioStorageService.statFile(UPLOAD_KEY)).thenReturn(Optional.of(StoredObject.builder()
+                    .objectKey(UPLOAD_KEY).size(2048).etag("d41d8cd98f00b204e9800998ecf8427e").contentType(MIME_TYPE_PDF).build()));
+            when(documentRepository.insertIfAbsent(eq(TEST_DOC_UUID), eq(TEST_FILENAME), eq(2048L), eq(MIME_TYPE_PDF),
+                    eq("etag:d41d8cd98f00b204e9800998ecf8427e"), any(LocalDateTime.class))).thenReturn(1);
+            when(mapper.toDto(entity)).thenReturn(DocumentRequest.builder().id(TEST_DOC_ID).build());
+
+            assertThat(documentServiceImp.finalizeUpload(TEST_DOC_ID, TEST_FILENAME).getId()).isEqualTo(TEST_DOC_ID);
+
+            InOrder order = inOrder(minioStorageService);
+            order.verify(minioStorageService).copyFile(UPLOAD_KEY, TEST_DOC_ID);
+            order.verify(minioStorageService).deleteFile(UPLOAD_KEY);
+            verify(processingEventDispatcher).sendProcessingRequest(TEST_DOC_ID, TEST_FILENAME, "etag:d41d8cd98f00b204e9800998ecf8427e");
+        }
+
+        @Test
+        @DisplayName("finalizeUpload - normalizes the file name like a rename and serializes on the document ID")
+        void finalizeUploadNormalizesFilename() {
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.empty(), Optional.of(new DocumentEntity()));
+            when(minioStorageService.statFile(UPLOAD_KEY)).thenReturn(Optional.of(StoredObject.builder()
+                    .objectKey(UPLOAD_KEY).size(2048).etag("etag").build()));
+            when(documentRepository.insertIfAbsent(eq(TEST_DOC_UUID), eq("scan.pdf"), eq(2048L), any(), eq("etag:etag"),
+                    any(LocalDateTime.class))).thenReturn(1);
+
+            documentServiceImp.finalizeUpload(TEST_DOC_ID, "scan.pdf.pdf");
+
+            InOrder order = inOrder(documentRepository);
+            order.verify(documentRepository).lockId(TEST_DOC_UUID);
+            order.verify(documentRepository).findById(TEST_DOC_UUID);
+            verify(processingEventDispatcher).sendProcessingRequest(TEST_DOC_ID, "scan.pdf", "etag:etag");
+        }
+
+        @Test
+        @DisplayName("finalizeUpload - finalizing twice returns the registered document")
+        void finalizeUploadIdempotent() {
+            DocumentEntity entity = new DocumentEntity();
+            entity.setId(TEST_DOC_UUID);
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.of(entity));
+            when(mapper.toDto(entity)).thenReturn(DocumentRequest.builder().id(TEST_DOC_ID).build());
+
+            assertThat(documentServiceImp.finalizeUpload(TEST_DOC_ID, TEST_FILENAME).getId()).isEqualTo(TEST_DOC_ID);
+            verifyNoInteractions(minioStorageService, processingEventDispatcher);
+        }
+
+        @Test
+        @DisplayName("finalizeUpload - losing a race to a concurrent finalize returns the row the other request inserted")
+        void finalizeUploadConcurrent() {
+            DocumentEntity entity = new DocumentEntity();
+            entity.setId(TEST_DOC_UUID);
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.empty(), Optional.of(entity));
+            when(minioStorageService.statFile(UPLOAD_KEY)).thenReturn(Optional.of(StoredObject.builder()
+                    .objectKey(UPLOAD_KEY).size(2048).etag("etag").build()));
+            when(documentRepository.insertIfAbsent(eq(TEST_DOC_UUID), eq(TEST_FILENAME), eq(2048L), any(), eq("etag:etag"),
+                    any(LocalDateTime.class))).thenReturn(0);
+            when(mapper.toDto(entity)).thenReturn(DocumentRequest.builder().id(TEST_DOC_ID).build());
+
+            assertThat(documentServiceImp.finalizeUpload(TEST_DOC_ID, TEST_FILENAME).getId()).isEqualTo(TEST_DOC_ID);
+            verify(minioStorageService, never()).copyFile(anyString(), anyString());
+            verify(minioStorageService, never()).deleteFile(anyString());
+            verifyNoInteractions(processingEventDispatcher);
+        }
+
+        @Test
+        @DisplayName("finalizeUpload - without uploaded bytes is rejected")
+        void finalizeUploadMissingObject() {
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.empty());
+            when(minioStorageService.statFile(UPLOAD_KEY)).thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> documentServiceImp.finalizeUpload(TEST_DOC_ID, TEST_FILENAME))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Upload not found");
+            verify(documentRepository, never()).insertIfAbsent(any(), any(), anyLong(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("finalizeUpload - an oversized upload is deleted and rejected")
+        void finalizeUploadTooLarge() {
+            setField(documentServiceImp, "maxDirectUploadSize", 1024L);
+            when(documentRepository.findById(TEST_DOC_UUID)).thenReturn(Optional.empty());
+            when(minioStorageService.statFile(UPLOAD_KEY)).thenReturn(Optional.of(StoredObject.builder()
+                    .objectKey(UPLOAD_KEY).size(2048).etag("etag").build()));
+
+            assertThatThrownBy(() -> documentServiceImp.finalizeUpload(TEST_DOC_ID, TEST_FILENAME))
+                    .isInstanceOf(IllegalArgumentException.class);
+            verify(minioStorageService).deleteFile(UPLOAD_KEY);
+            verify(documentRepository, never()).insertIfAbsent(any(), any(), anyLong(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("getDownloadUrl - signs a URL for a known document")
+        void getDownloadUrl() {
+            DocumentSummary summary = mock(DocumentSummary.class);
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.of(summary));
+            when(mapper.toSummaryDto(summary)).thenReturn(DocumentRequest.builder().id(TEST_DOC_ID).build());
+            when(presignedUrlService.presignDownload(TEST_DOC_ID)).thenReturn("http://minio:9000/documents/" + TEST_DOC_ID + "?X-Amz-Signature=abc");
+
+            assertThat(documentServiceImp.getDownloadUrl(TEST_DOC_ID)).endsWith("X-Amz-Signature=abc");
+        }
+
+        @Test
+        @DisplayName("getDownloadUrl - unknown document is rejected without signing")
+        void getDownloadUrlUnknownDocument() {
+            when(documentRepository.findSummaryById(TEST_DOC_UUID)).thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> documentServiceImp.getDownloadUrl(TEST_DOC_ID)).isInstanceOf(IllegalArgumentException.class);
+            verifyNoInteractions(presignedUrlService);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.DocumentTextRepository;
+import at.fhtw.rest.persistence.DocumentTextTiering;
+import at.fhtw.rest.persistence.OcrTextArchive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class DocumentTextTieringTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_PER_RUN = 5;
+
+    @Mock
+    private DocumentTextRepository documentTextRepository;
+    @Mock
+    private OcrTextArchive ocrTextArchive;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private DocumentTextTiering tiering;
+
+    @BeforeEach
+    void setUp() {
+        tiering = new DocumentTextTiering(documentTextRepository, ocrTextArchive, transactionTemplate,
+                new SimpleMeterRegistry(), 180, BATCH_SIZE, MAX_PER_RUN, 0);
+    }
+
+    private static DocumentTextEntity text(String ocrText) {
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setId(UUID.randomUUID());
+        text.setOcrText(ocrText);
+        return text;
+    }
+
+    private static List<DocumentTextEntity> texts(int count) {
+        return IntStream.range(0, count).mapToObj(i -> text("text " + i)).toList();
+    }
+
+    @Nested
+    @DisplayName("offloadBatch")
+    class OffloadBatchTests {
+
+        @Test
+        @DisplayName("Replaces the inline text with the archive pointer")
+        void replacesTextWithPointer() {
+            DocumentTextEntity text = text("old invoice");
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(180);
+            when(documentTextRepository.lockColdTexts(cutoff, BATCH_SIZE)).thenReturn(List.of(text));
+            when(ocrTextArchive.store(text.getId(), "old invoice")).thenReturn("ocr-text/" + text.getId() + ".txt.gz");
+
+            assertThat(tiering.offloadBatch(cutoff, BATCH_SIZE)).isEqualTo(1);
+
+            assertThat(text.getOcrText()).isNull();
+            assertThat(text.getOcrTextObjectKey()).isEqualTo("ocr-text/" + text.getId() + ".txt.gz");
+            assertThat(text.getOffloadedAt()).isNotNull();
+            assertThat(text.isOffloaded()).isTrue();
+            verify(documentTextRepository).saveAll(List.of(text));
+        }
+
+        @Test
+        @DisplayName("A failed upload leaves the batch inline")
+        void failedUploadKeepsText() {
+            DocumentTextEntity text = text("old invoice");
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(180);
+            when(documentTextRepository.lockColdTexts(cutoff, BATCH_SIZE)).thenReturn(List.of(text));
+            when(ocrTextArchive.store(text.getId(), "old invoice")).thenThrow(new IllegalStateException("MinIO unavailable"));
+
+            assertThatThrownBy(() -> tiering.offloadBatch(cutoff, BATCH_SIZE)).isInstanceOf(IllegalStateException.class);
+
+            assertThat(text.getOcrText()).isEqualTo("old invoice");
+            assertThat(text.getOcrTextObjectKey()).isNull();
+            verify(documentTextRepository, never()).saveAll(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("offloadColdTexts")
+    class OffloadColdTextsTests {
+
+        @BeforeEach
+        void runInline() {
+            when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                    invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        }
+
+        @Test
+        @DisplayName("Stops once fewer cold texts than a batch are left")
+        void stopsWhenDrained() {
+            when(documentTextRepository.lockColdTexts(any(), eq(BATCH_SIZE))).thenReturn(texts(2), texts(1));
+            when(ocrTextArchive.store(any(), any())).thenReturn("key");
+
+            tiering.offloadColdTexts();
+
+            verify(documentTextRepository, times(2)).lockColdTexts(any(), anyInt());
+            verify(ocrTextArchive, times(3)).store(any(), any());
+        }
+
+        @Test
+        @DisplayName("Offloads at most the configured number of texts per run")
+        void respectsRunLimit() {
+            when(documentTextRepository.lockColdTexts(any(), eq(BATCH_SIZE))).thenReturn(texts(2), texts(2));
+            when(documentTextRepository.lockColdTexts(any(), eq(1))).thenReturn(texts(1));
+            when(ocrTextArchive.store(any(), any())).thenReturn("key");
+
+            tiering.offloadColdTexts();
+
+            verify(ocrTextArchive, times(MAX_PER_RUN)).store(any(), any());
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package at.fhtw.rest.unit;
 
+import at.fhtw.rest.api.DocumentRequest;
+import at.fhtw.rest.core.DocumentView;
 import at.fhtw.rest.core.ElasticsearchServiceImp;
+import at.fhtw.rest.core.SearchUnavailableException;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch.core.DeleteRequest;
 import co.elastic.clients.elasticsearch.core.DeleteResponse;
@@ -19,11 +22,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -83,6 +88,22 @@ class ElasticsearchServiceImpTest {
         }
     }
 
+    @Nested
+    @DisplayName("Update Metadata Tests")
+    class UpdateMetadataTests {
+
+        @Test
+        @SuppressWarnings("unchecked")
+        @DisplayName("Should copy the metadata into the index entry")
+        void shouldUpdateMetadata() throws IOException {
+            doReturn(mock(UpdateResponse.class))
+                    .when(esClient)
+                    .update(any(UpdateRequest.class), eq(Map.class));
+            elasticsearchServiceImp.updateMetadata(DOC_ID, 2048L, "application/pdf", LocalDateTime.of(2025, 2, 9, 12, 30));
+            verify(esClient).update(any(UpdateRequest.class), eq(Map.class));
+        }
+    }
+
     @Nested
     @DisplayName("Delete Document Tests")
     class DeleteDocumentTests {
@@ -152,14 +173,63 @@ class ElasticsearchServiceImpTest {
 
         @Test
         @SuppressWarnings("unchecked")
-        @DisplayName("Should handle IOException during search")
+        @DisplayName("Should report an unavailable engine on IOException during search")
         void shouldHandleIOExceptionDuringSearch() throws IOException {
             doThrow(new IOException("Search failed"))
                     .when(esClient)
                     .search(any(Function.class), eq(Map.class));
-            List<String> results = elasticsearchServiceImp.searchIdsByQuery(QUERY_TEST);
-            assertThat(results).isEmpty();
+            assertThatThrownBy(() -> elasticsearchServiceImp.searchIdsByQuery(QUERY_TEST))
+                    .isInstanceOf(SearchUnavailableException.class)
+                    .hasCauseInstanceOf(IOException.class);
             verify(esClient).search(any(Function.class), eq(Map.class));
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Search Documents From Source Tests")
+    class SearchDocumentsTests {
+
+        @Test
+        @DisplayName("Should return empty list for blank query")
+        void shouldReturnEmptyListForBlankQuery() {
+            assertThat(elasticsearchServiceImp.searchDocuments("  ", DocumentView.SUMMARY)).isEmpty();
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        @DisplayName("Should build documents from _source and leave hits without metadata incomplete")
+        void shouldBuildDocumentsFromSource() throws IOException {
+            var mockResponse = mock(SearchResponse.class);
+            var mockHits = mock(HitsMetadata.class);
+            Hit<Map<String, Object>> indexed = mock((Class<Hit<Map<String, Object>>>) (Class<?>) Hit.class);
+            when(indexed.id()).thenReturn(DOC_ID_1);
+            when(indexed.source()).thenReturn(Map.of(
+                    "filename", "file.pdf",
+                    "filesize", 2048,
+                    "filetype", "application/pdf",
+                    "uploadDate", "2025-02-09T12:30",
+                    "ocrJobDone", true));
+            Hit<Map<String, Object>> legacy = mock((Class<Hit<Map<String, Object>>>) (Class<?>) Hit.class);
+            when(legacy.id()).thenReturn(DOC_ID_2);
+            when(legacy.source()).thenReturn(Map.of("filename", "old.pdf"));
+            when(mockResponse.hits()).thenReturn(mockHits);
+            when(mockHits.hits()).thenReturn(List.of(indexed, legacy));
+            doReturn(mockResponse)
+                    .when(esClient)
+                    .search(any(Function.class), eq(Map.class));
+
+            List<DocumentRequest> results = elasticsearchServiceImp.searchDocuments(QUERY_TEST, DocumentView.SUMMARY);
+
+            assertThat(results).hasSize(2);
+            DocumentRequest first = results.get(0);
+            assertThat(first.getId()).isEqualTo(DOC_ID_1);
+            assertThat(first.getFilename()).isEqualTo("file.pdf");
+            assertThat(first.getFilesize()).isEqualTo(2048L);
+            assertThat(first.getUploadDate()).isEqualTo(LocalDateTime.of(2025, 2, 9, 12, 30));
+            assertThat(first.isOcrJobDone()).isTrue();
+            assertThat(first.getOcrText()).isNull();
+            assertThat(results.get(1).getId()).isEqualTo(DOC_ID_2);
+            assertThat(results.get(1).getUploadDate()).isNull();
+        }
+    }
+}
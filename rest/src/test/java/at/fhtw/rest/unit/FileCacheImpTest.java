@@ -0,0 +1,193 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.core.FileCache;
+import at.fhtw.rest.core.FileCacheImp;
+import at.fhtw.rest.persistence.StoredObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileCacheImpTest {
+
+    private static final long MAX_BYTES = 10;
+    private static final long GRACE_MS = 1_000;
+
+    @TempDir
+    private Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FileCacheImp fileCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        fileCache = new FileCacheImp(meterRegistry, true, directory, MAX_BYTES, 8, GRACE_MS);
+        fileCache.init();
+        loads = new AtomicInteger();
+    }
+
+    private static StoredObject object(String key, String content, String etag) {
+        return StoredObject.builder().objectKey(key).size(content.length()).etag(etag).build();
+    }
+
+    private FileCache.FileLoader loader(String content) {
+        return () -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private Optional<Path> get(String key, String content) {
+        return fileCache.get(object(key, content, "etag-" + content), content.length(), loader(content));
+    }
+
+    @Nested
+    @DisplayName("get")
+    class GetTests {
+
+        @Test
+        @DisplayName("A miss fills the cache, the next request is served from disk")
+        void fillThenHit() throws IOException {
+            Path first = get("a", "hello").orElseThrow();
+            Path second = get("a", "hello").orElseThrow();
+
+            assertThat(second).isEqualTo(first);
+            assertThat(Files.readString(second)).isEqualTo("hello");
+            assertThat(loads).hasValue(1);
+            assertThat(fileCache.getHitRatio()).isEqualTo(0.5);
+            assertThat(meterRegistry.get("paperless.cache.files.bytes.saved").counter().count()).isEqualTo(5);
+        }
+
+        @Test
+        @DisplayName("A changed ETag replaces the cached copy")
+        void staleEtag() throws IOException {
+            get("a", "hello");
+            Path refreshed = fileCache.get(object("a", "world", "etag-new"), 5, loader("world")).orElseThrow();
+
+            assertThat(Files.readString(refreshed)).isEqualTo("world");
+            assertThat(loads).hasValue(2);
+            assertThat(fileCache.getCachedBytes()).isEqualTo(5);
+        }
+
+        @Test
+        @DisplayName("Objects above the per-object limit bypass the cache")
+        void tooLarge() {
+            assertThat(get("a", "too large!")).isEmpty();
+            assertThat(loads).hasValue(0);
+            assertThat(meterRegistry.get("paperless.cache.files.requests").tag("result", "bypass").counter().count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("A short read is not cached")
+        void shortRead() throws IOException {
+            assertThat(fileCache.get(object("a", "hello", "etag"), 5, loader("hel"))).isEmpty();
+            assertThat(fileCache.getCachedBytes()).isZero();
+            try (Stream<Path> files = Files.list(directory)) {
+                assertThat(files).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Concurrent misses for one object share a single fill")
+        void singleFlight() throws Exception {
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            StoredObject object = object("a", "hello", "etag");
+            FileCache.FileLoader slowLoader = () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8));
+            };
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Optional<Path>>> results = new ArrayList<>();
+                results.add(executor.submit(() -> fileCache.get(object, 5, slowLoader)));
+                assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+                for (int i = 0; i < 3; i++) {
+                    results.add(executor.submit(() -> fileCache.get(object, 5, slowLoader)));
+                }
+                Thread.sleep(100);
+                release.countDown();
+
+                Path first = results.get(0).get(5, TimeUnit.SECONDS).orElseThrow();
+                for (Future<Optional<Path>> result : results) {
+                    assertThat(result.get(5, TimeUnit.SECONDS)).contains(first);
+                }
+                assertThat(loads).hasValue(1);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("eviction")
+    class EvictionTests {
+
+        @Test
+        @DisplayName("The least recently used files are evicted once the byte budget is exceeded")
+        void lruByBytes() {
+            get("a", "aaaa");
+            get("b", "bbbb");
+            get("a", "aaaa");
+            get("c", "cccc");
+
+            assertThat(fileCache.getCachedBytes()).isEqualTo(8);
+            get("a", "aaaa");
+            get("b", "bbbb");
+            assertThat(loads).hasValue(4);
+        }
+
+        @Test
+        @DisplayName("Evicted files are deleted only after the grace period")
+        void graceBeforeDelete() {
+            Path file = get("a", "hello").orElseThrow();
+            fileCache.evict("a");
+
+            fileCache.purgeRetired(System.currentTimeMillis());
+            assertThat(file).exists();
+            fileCache.purgeRetired(System.currentTimeMillis() + GRACE_MS);
+            assertThat(file).doesNotExist();
+            assertThat(fileCache.getCachedBytes()).isZero();
+        }
+
+        @Test
+        @DisplayName("Leftover cache files are removed on startup, other files are kept")
+        void cleansUpOnStartup() throws IOException {
+            Path leftover = Files.writeString(directory.resolve("old.cache"), "old");
+            Path unrelated = Files.writeString(directory.resolve("notes.txt"), "keep");
+
+            new FileCacheImp(new SimpleMeterRegistry(), true, directory, MAX_BYTES, 8, GRACE_MS).init();
+
+            assertThat(leftover).doesNotExist();
+            assertThat(unrelated).exists();
+        }
+    }
+}
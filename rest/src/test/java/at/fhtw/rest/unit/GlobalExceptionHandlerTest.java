@@ -1,11 +1,13 @@
 package at.fhtw.rest.unit;
 
 import at.fhtw.rest.api.GlobalExceptionHandler;
+import at.fhtw.rest.core.AdmissionRejectedException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -79,4 +81,21 @@ public class GlobalExceptionHandlerTest {
             assertThat(body.get(ERROR_KEY)).isEqualTo(UNEXPECTED_ERROR_MESSAGE);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("handleAdmissionRejected Tests")
+    class AdmissionRejectedTests {
+
+        @Test
+        @DisplayName("should return the rejection status with a Retry-After header")
+        void testHandleAdmissionRejected() {
+            AdmissionRejectedException ex = new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, 42, "OCR backlog too large");
+
+            ResponseEntity<Map<String, String>> response = handler.handleAdmissionRejected(ex);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("42");
+            assertThat(response.getBody()).containsEntry(ERROR_KEY, "OCR backlog too large");
+        }
+    }
+}
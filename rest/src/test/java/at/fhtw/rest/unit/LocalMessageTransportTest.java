@@ -0,0 +1,84 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.journal.LocalJournal;
+import at.fhtw.rest.message.CompletionEventHandler;
+import at.fhtw.rest.message.LocalMessageTransport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class LocalMessageTransportTest {
+
+    private static final String PROCESSING_ROUTING_KEY = "document_routing_key";
+    private static final String SHARDED_EXCHANGE = "document_processing_sharded";
+    private static final String PROCESSING_QUEUE = "document_processing_queue";
+    private static final String RESULT_QUEUE = "document_result_queue";
+
+    @Mock
+    private CompletionEventHandler completionEventHandler;
+
+    @TempDir
+    Path directory;
+
+    private LocalMessageTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        transport = new LocalMessageTransport(completionEventHandler, new SimpleMeterRegistry(), directory.toString(),
+                1024 * 1024, 20, PROCESSING_ROUTING_KEY, SHARDED_EXCHANGE, PROCESSING_QUEUE, RESULT_QUEUE);
+        transport.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.shutdown();
+    }
+
+    @Test
+    @DisplayName("Messages are routed to the journal of the queue the RabbitMQ bindings would choose")
+    void routesLikeBindings() {
+        assertThat(transport.topicFor("document_exchange", PROCESSING_ROUTING_KEY)).isEqualTo(PROCESSING_QUEUE);
+        assertThat(transport.topicFor(SHARDED_EXCHANGE, "doc1")).isEqualTo(PROCESSING_QUEUE);
+        assertThat(transport.topicFor("document_tombstone_exchange", "")).isEqualTo("document_tombstone_exchange");
+        assertThat(transport.topicFor("", "some_queue")).isEqualTo("some_queue");
+    }
+
+    @Test
+    @DisplayName("Published messages are on disk once the future completes")
+    void publishAppendsToJournal() throws Exception {
+        String message = "{\"documentId\":\"doc1\"}";
+        transport.publish("document_exchange", PROCESSING_ROUTING_KEY, message).get();
+
+        try (LocalJournal journal = new LocalJournal(directory.resolve(PROCESSING_QUEUE), 1024 * 1024)) {
+            assertThat(journal.poll("services").getMessage()).isEqualTo(message);
+        }
+    }
+
+    @Test
+    @DisplayName("Results written to the result journal reach the completion handler")
+    void consumesResults() throws IOException {
+        String result = "{\"documentId\":\"doc1\",\"ocrText\":\"text\"}";
+        try (LocalJournal journal = new LocalJournal(directory.resolve(RESULT_QUEUE), 1024 * 1024)) {
+            journal.append(result);
+        }
+
+        verify(completionEventHandler, timeout(2000)).handleCompletion(result);
+    }
+}
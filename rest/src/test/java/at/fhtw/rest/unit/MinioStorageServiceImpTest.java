@@ -2,12 +2,25 @@ package at.fhtw.rest.unit;
 
 import at.fhtw.rest.persistence.MinioStorageServiceImp;
 import at.fhtw.rest.persistence.MinioStorageService;
+import at.fhtw.rest.persistence.MultipartMinioClient;
+import at.fhtw.rest.persistence.StoredObject;
+import com.google.common.hash.Hashing;
 import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
 import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.ObjectWriteResponse;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.SetBucketLifecycleArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
 import io.minio.GetObjectResponse;
 import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.Part;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -22,27 +35,42 @@ import org.springframework.boot.test.system.CapturedOutput;
 import org.springframework.boot.test.system.OutputCaptureExtension;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith({MockitoExtension.class, OutputCaptureExtension.class})
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
 class MinioStorageServiceImpTest {
 
+    private static final int PART_SIZE = 16;
+
     @Mock
     private MinioClient minioClient;
+    @Mock
+    private MultipartMinioClient multipartClient;
 
     private MinioStorageService minioStorageService;
 
     @BeforeEach
     void setUp() {
-        minioStorageService = new MinioStorageServiceImp(minioClient, "documents");
+        minioStorageService = new MinioStorageServiceImp(minioClient, multipartClient, "documents", PART_SIZE, 2, 1);
+    }
+
+    private static ErrorResponseException noSuchBucket() {
+        return new ErrorResponseException(new ErrorResponse("NoSuchBucket", "The specified bucket does not exist",
+                "documents", null, null, null, null), null, null);
     }
 
     @Nested
@@ -52,8 +80,8 @@ class MinioStorageServiceImpTest {
         void testStoreFileSuccess() throws Exception {
             when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(null);
             MultipartFile mockFile = mock(MultipartFile.class);
-            when(mockFile.getSize()).thenReturn(123L);
-            when(mockFile.getBytes()).thenReturn("dummy content".getBytes());
+            when(mockFile.getSize()).thenReturn(13L);
+            when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream("dummy content".getBytes()));
             when(mockFile.getContentType()).thenReturn("application/pdf");
             assertThatCode(() -> minioStorageService.storeFile("someObjectKey", mockFile))
                     .doesNotThrowAnyException();
@@ -65,8 +93,8 @@ class MinioStorageServiceImpTest {
             when(minioClient.putObject(any(PutObjectArgs.class)))
                     .thenThrow(new IOException("Simulated IO failure"));
             MultipartFile mockFile = mock(MultipartFile.class);
-            when(mockFile.getSize()).thenReturn(123L);
-            when(mockFile.getBytes()).thenReturn("dummy content".getBytes());
+            when(mockFile.getSize()).thenReturn(13L);
+            when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream("dummy content".getBytes()));
             when(mockFile.getContentType()).thenReturn("application/pdf");
             assertThatThrownBy(() -> minioStorageService.storeFile("failKey", mockFile))
                     .isInstanceOf(IOException.class);
@@ -77,8 +105,8 @@ class MinioStorageServiceImpTest {
         void testStoreFileWithNullContentType() throws Exception {
             when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(null);
             MultipartFile mockFile = mock(MultipartFile.class);
-            when(mockFile.getSize()).thenReturn(123L);
-            when(mockFile.getBytes()).thenReturn("dummy content".getBytes());
+            when(mockFile.getSize()).thenReturn(13L);
+            when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream("dummy content".getBytes()));
             when(mockFile.getContentType()).thenReturn(null);
             ArgumentCaptor<PutObjectArgs> putObjectArgsCaptor = ArgumentCaptor.forClass(PutObjectArgs.class);
             assertThatCode(() -> minioStorageService.storeFile("testKey", mockFile))
@@ -89,6 +117,115 @@ class MinioStorageServiceImpTest {
         }
     }
 
+    @Nested
+    @DisplayName("Streaming uploads")
+    class StreamingUploadTests {
+
+        private static final byte[] CONTENT = "0123456789abcdef0123456789abcdefXYZXYZXY".getBytes();
+
+        private MultipartFile largeFile() throws IOException {
+            MultipartFile file = mock(MultipartFile.class);
+            when(file.getSize()).thenReturn((long) CONTENT.length);
+            when(file.getContentType()).thenReturn("application/pdf");
+            when(file.getInputStream()).thenReturn(new ByteArrayInputStream(CONTENT));
+            return file;
+        }
+
+        @Test
+        @DisplayName("Files larger than one part become a multipart upload, read part by part")
+        void multipartUpload() throws Exception {
+            MultipartFile file = largeFile();
+            List<String> sentParts = new ArrayList<>();
+            when(multipartClient.startUpload("documents", "large", "application/pdf")).thenReturn(CompletableFuture.completedFuture("upload-1"));
+            when(multipartClient.uploadPart(eq("documents"), eq("large"), eq("upload-1"), anyInt(), any(byte[].class), anyInt()))
+                    .thenAnswer(invocation -> {
+                        int partNumber = invocation.getArgument(3);
+                        sentParts.add(new String(invocation.<byte[]>getArgument(4), 0, invocation.<Integer>getArgument(5)));
+                        return CompletableFuture.completedFuture(new Part(partNumber, "etag-" + partNumber));
+                    });
+            when(multipartClient.completeUpload(eq("documents"), eq("large"), eq("upload-1"), any(Part[].class)))
+                    .thenReturn(CompletableFuture.completedFuture((ObjectWriteResponse) null));
+
+            String digest = minioStorageService.storeFile("large", file);
+
+            assertThat(sentParts).containsExactly("0123456789abcdef", "0123456789abcdef", "XYZXYZXY");
+            assertThat(digest).isEqualTo(Hashing.sha256().hashBytes(CONTENT).toString());
+            ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+            verify(multipartClient).completeUpload(eq("documents"), eq("large"), eq("upload-1"), parts.capture());
+            assertThat(parts.getValue()).extracting(Part::etag).containsExactly("etag-1", "etag-2", "etag-3");
+            verify(file, never()).getBytes();
+            verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        }
+
+        @Test
+        @DisplayName("A failed part aborts the multipart upload")
+        void failedPartAborts() throws Exception {
+            MultipartFile file = largeFile();
+            when(multipartClient.startUpload("documents", "large", "application/pdf")).thenReturn(CompletableFuture.completedFuture("upload-1"));
+            when(multipartClient.uploadPart(eq("documents"), eq("large"), eq("upload-1"), anyInt(), any(byte[].class), anyInt()))
+                    .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+
+            assertThatThrownBy(() -> minioStorageService.storeFile("large", file)).isInstanceOf(IOException.class);
+
+            verify(multipartClient).abortUpload("documents", "large", "upload-1");
+            verify(multipartClient, never()).completeUpload(any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("A missing bucket is created and the upload retried once")
+        void createsMissingBucket() throws Exception {
+            MultipartFile file = mock(MultipartFile.class);
+            when(file.getSize()).thenReturn(13L);
+            when(file.getContentType()).thenReturn("application/pdf");
+            when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream("dummy content".getBytes()));
+            when(minioClient.putObject(any(PutObjectArgs.class))).thenThrow(noSuchBucket()).thenReturn(null);
+            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+
+            assertThatCode(() -> minioStorageService.storeFile("someObjectKey", file)).doesNotThrowAnyException();
+
+            verify(minioClient).makeBucket(any(MakeBucketArgs.class));
+            verify(minioClient, times(2)).putObject(any(PutObjectArgs.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Direct uploads")
+    class DirectUploadTests {
+
+        @Test
+        @DisplayName("Startup configures a lifecycle rule that expires staged uploads")
+        void expiresUnfinishedUploads() throws Exception {
+            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+
+            ((MinioStorageServiceImp) minioStorageService).ensureBucket();
+
+            ArgumentCaptor<SetBucketLifecycleArgs> captor = ArgumentCaptor.forClass(SetBucketLifecycleArgs.class);
+            verify(minioClient).setBucketLifecycle(captor.capture());
+            LifecycleRule rule = captor.getValue().config().rules().get(0);
+            assertThat(rule.filter().prefix()).isEqualTo(MinioStorageService.UPLOAD_PREFIX);
+            assertThat(rule.expiration().days()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("A staged upload is copied to its document key within the bucket")
+        void copiesStagedUpload() throws Exception {
+            StatObjectResponse stat = mock(StatObjectResponse.class);
+            when(stat.size()).thenReturn(5L);
+            when(stat.etag()).thenReturn("etag");
+            when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+            when(minioClient.copyObject(any(CopyObjectArgs.class))).thenReturn(mock(ObjectWriteResponse.class));
+
+            StoredObject copied = minioStorageService.copyFile(MinioStorageService.uploadKey("doc1"), "doc1");
+
+            ArgumentCaptor<CopyObjectArgs> captor = ArgumentCaptor.forClass(CopyObjectArgs.class);
+            verify(minioClient).copyObject(captor.capture());
+            assertThat(captor.getValue().source().object()).isEqualTo("uploads/doc1");
+            assertThat(captor.getValue().object()).isEqualTo("doc1");
+            assertThat(copied.getObjectKey()).isEqualTo("doc1");
+            assertThat(copied.getSize()).isEqualTo(5);
+        }
+    }
+
     @Nested
     class LoadFileTests {
 
@@ -117,7 +254,6 @@ class MinioStorageServiceImpTest {
 
         @Test
         void testDeleteFileSuccess() throws Exception {
-            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
             doNothing().when(minioClient).removeObject(any(RemoveObjectArgs.class));
             assertThatCode(() -> minioStorageService.deleteFile("someObjectKey"))
                     .doesNotThrowAnyException();
@@ -126,7 +262,6 @@ class MinioStorageServiceImpTest {
 
         @Test
         void testDeleteFileFailure() throws Exception {
-            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
             doThrow(new IOException("Simulated delete failure"))
                     .when(minioClient).removeObject(any(RemoveObjectArgs.class));
             assertThatThrownBy(() -> minioStorageService.deleteFile("failKey"))
@@ -137,11 +272,10 @@ class MinioStorageServiceImpTest {
         @Test
         @DisplayName("Should handle non-existent bucket gracefully and log warning")
         void testDeleteFileWithNonExistentBucket(CapturedOutput output) throws Exception {
-            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+            doThrow(noSuchBucket()).when(minioClient).removeObject(any(RemoveObjectArgs.class));
             assertThatCode(() -> minioStorageService.deleteFile("someObjectKey"))
                     .doesNotThrowAnyException();
-            verify(minioClient).bucketExists(any(BucketExistsArgs.class));
-            verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+            verify(minioClient, never()).bucketExists(any(BucketExistsArgs.class));
             String logs = output.getOut();
             assertThat(logs).contains("Bucket 'documents' does not exist");
         }
@@ -153,28 +287,25 @@ class MinioStorageServiceImpTest {
         @Test
         @DisplayName("Should successfully delete file when bucket exists")
         void testDeleteFileSuccess() throws Exception {
-            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
             doNothing().when(minioClient).removeObject(any(RemoveObjectArgs.class));
             assertThatCode(() -> minioStorageService.deleteFile("someObjectKey"))
                     .doesNotThrowAnyException();
-            verify(minioClient).bucketExists(any(BucketExistsArgs.class));
+            verify(minioClient, never()).bucketExists(any(BucketExistsArgs.class));
             verify(minioClient).removeObject(any(RemoveObjectArgs.class));
         }
 
         @Test
         @DisplayName("Should handle non-existent bucket gracefully")
         void testDeleteFileWithNonExistentBucket() throws Exception {
-            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+            doThrow(noSuchBucket()).when(minioClient).removeObject(any(RemoveObjectArgs.class));
             assertThatCode(() -> minioStorageService.deleteFile("someObjectKey"))
                     .doesNotThrowAnyException();
-            verify(minioClient).bucketExists(any(BucketExistsArgs.class));
-            verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+            verify(minioClient, never()).bucketExists(any(BucketExistsArgs.class));
         }
 
         @Test
         @DisplayName("Should throw RuntimeException when delete fails")
         void testDeleteFileFailure() throws Exception {
-            when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
             doThrow(new RuntimeException("Simulated delete failure"))
                     .when(minioClient).removeObject(any(RemoveObjectArgs.class));
             assertThatThrownBy(() -> minioStorageService.deleteFile("failKey"))
@@ -207,8 +338,8 @@ class MinioStorageServiceImpTest {
         void testStoreFileSuccess() throws Exception {
             when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(null);
             MultipartFile mockFile = mock(MultipartFile.class);
-            when(mockFile.getSize()).thenReturn(123L);
-            when(mockFile.getBytes()).thenReturn("dummy content".getBytes());
+            when(mockFile.getSize()).thenReturn(13L);
+            when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream("dummy content".getBytes()));
             when(mockFile.getContentType()).thenReturn("application/pdf");
             assertThatCode(() -> minioStorageService.storeFile("someObjectKey", mockFile))
                     .doesNotThrowAnyException();
@@ -221,8 +352,8 @@ class MinioStorageServiceImpTest {
             when(minioClient.putObject(any(PutObjectArgs.class)))
                     .thenThrow(new IOException("Simulated IO failure"));
             MultipartFile mockFile = mock(MultipartFile.class);
-            when(mockFile.getSize()).thenReturn(123L);
-            when(mockFile.getBytes()).thenReturn("dummy content".getBytes());
+            when(mockFile.getSize()).thenReturn(13L);
+            when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream("dummy content".getBytes()));
             when(mockFile.getContentType()).thenReturn("application/pdf");
             assertThatThrownBy(() -> minioStorageService.storeFile("failKey", mockFile))
                     .isInstanceOf(IOException.class);
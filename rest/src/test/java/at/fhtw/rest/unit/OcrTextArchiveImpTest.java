@@ -0,0 +1,115 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.persistence.DocumentTextEntity;
+import at.fhtw.rest.persistence.OcrTextArchiveImp;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class OcrTextArchiveImpTest {
+
+    private static final UUID DOC_ID = UUID.fromString("0190a6b2-3c4d-7e8f-9a0b-1c2d3e4f5a6b");
+    private static final String OBJECT_KEY = "ocr-text/" + DOC_ID + ".txt.gz";
+
+    @Mock
+    private MinioClient minioClient;
+
+    private OcrTextArchiveImp archive;
+
+    @BeforeEach
+    void setUp() {
+        archive = new OcrTextArchiveImp(minioClient, "documents");
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Stores the text gzip-compressed under a key derived from the document ID")
+    void storesCompressed() throws Exception {
+        String text = "Rechnung Nr. 4711 ".repeat(200);
+
+        assertThat(archive.store(DOC_ID, text)).isEqualTo(OBJECT_KEY);
+
+        ArgumentCaptor<PutObjectArgs> captor = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(minioClient).putObject(captor.capture());
+        PutObjectArgs args = captor.getValue();
+        assertThat(args.object()).isEqualTo(OBJECT_KEY);
+        assertThat(args.objectSize()).isLessThan(text.length());
+        try (InputStream in = new GZIPInputStream(args.stream())) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(text);
+        }
+    }
+
+    @Test
+    @DisplayName("Loads and decompresses an offloaded text")
+    void loadsText() throws Exception {
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of(), "documents", null, OBJECT_KEY, new ByteArrayInputStream(gzip("cold text"))));
+
+        assertThat(archive.load(OBJECT_KEY)).isEqualTo("cold text");
+    }
+
+    @Test
+    @DisplayName("A missing object is an error, not an empty text")
+    void failedLoadThrows() throws Exception {
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenThrow(new IOException("Connection refused"));
+
+        assertThatThrownBy(() -> archive.load(OBJECT_KEY)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Inline texts are returned without touching MinIO")
+    void inlineText() {
+        DocumentTextEntity text = new DocumentTextEntity();
+        text.setOcrText("hot text");
+
+        assertThat(archive.textOf(text)).isEqualTo("hot text");
+        verifyNoInteractions(minioClient);
+    }
+
+    @Test
+    @DisplayName("Deleting the text of a document never fails the document deletion")
+    void deleteIgnoresErrors() throws Exception {
+        doThrow(new IOException("Connection refused")).when(minioClient).removeObject(any(RemoveObjectArgs.class));
+
+        assertThatCode(() -> archive.delete(DOC_ID)).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,120 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.message.OutboxProcessingEventDispatcher;
+import at.fhtw.rest.message.OutboxRelay;
+import at.fhtw.rest.persistence.OutboxEntity;
+import at.fhtw.rest.persistence.OutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class OutboxProcessingEventDispatcherTest {
+
+    private static final UUID DOC_ID = UUID.fromString("0190a1b2-c3d4-7e5f-8a9b-0c1d2e3f4a5b");
+    private static final String DOC = DOC_ID.toString();
+
+    @Mock
+    private OutboxRepository outboxRepository;
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    private OutboxProcessingEventDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OutboxProcessingEventDispatcher(outboxRepository, outboxRelay, new ObjectMapper());
+        setField(dispatcher, "exchangeName", "test_exchange");
+        setField(dispatcher, "routingKey", "test_routing_key");
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @DisplayName("sendProcessingRequest writes an outbox entry instead of publishing")
+    void writesOutboxEntry() {
+        dispatcher.sendProcessingRequest(DOC, "file.pdf", "abc123");
+
+        ArgumentCaptor<OutboxEntity> captor = ArgumentCaptor.forClass(OutboxEntity.class);
+        verify(outboxRepository).save(captor.capture());
+        OutboxEntity entry = captor.getValue();
+        assertThat(entry.getExchange()).isEqualTo("test_exchange");
+        assertThat(entry.getRoutingKey()).isEqualTo("test_routing_key");
+        assertThat(entry.getPayload()).isEqualTo("{\"documentId\":\"" + DOC + "\",\"filename\":\"file.pdf\",\"contentDigest\":\"abc123\"}");
+        assertThat(entry.getCreatedAt()).isNotNull();
+        assertThat(entry.getNextAttemptAt()).isEqualTo(entry.getCreatedAt());
+        assertThat(entry.getAttempts()).isZero();
+        assertThat(entry.getDocumentId()).isEqualTo(DOC_ID);
+        verify(outboxRelay, never()).wakeUp();
+    }
+
+    @Test
+    @DisplayName("Quotes and backslashes in the filename are escaped in the payload")
+    void escapesFilename() throws Exception {
+        dispatcher.sendProcessingRequest(DOC, "my \"scan\"\\1.pdf", "abc123");
+
+        ArgumentCaptor<OutboxEntity> captor = ArgumentCaptor.forClass(OutboxEntity.class);
+        verify(outboxRepository).save(captor.capture());
+        assertThat(new ObjectMapper().readTree(captor.getValue().getPayload()).get("filename").asText())
+                .isEqualTo("my \"scan\"\\1.pdf");
+    }
+
+    @Test
+    @DisplayName("With sharding enabled the entry targets the consistent-hash exchange keyed by document ID")
+    void shardedEntry() {
+        setField(dispatcher, "shardingEnabled", true);
+        setField(dispatcher, "shardedExchangeName", "test_sharded_exchange");
+
+        dispatcher.sendProcessingRequest(DOC, "file.pdf", "abc123");
+
+        ArgumentCaptor<OutboxEntity> captor = ArgumentCaptor.forClass(OutboxEntity.class);
+        verify(outboxRepository).save(captor.capture());
+        assertThat(captor.getValue().getExchange()).isEqualTo("test_sharded_exchange");
+        assertThat(captor.getValue().getRoutingKey()).isEqualTo(DOC);
+    }
+
+    @Test
+    @DisplayName("cancelProcessingRequest removes the document's entries that were not relayed yet")
+    void cancelRemovesPendingEntries() {
+        when(outboxRepository.deleteByDocumentId(DOC_ID)).thenReturn(1);
+
+        dispatcher.cancelProcessingRequest(DOC_ID.toString());
+
+        verify(outboxRepository).deleteByDocumentId(DOC_ID);
+    }
+
+    @Test
+    @DisplayName("Relay is woken up only after the transaction committed")
+    void wakesRelayAfterCommit() {
+        dispatcher.sendProcessingRequest(DOC, "file.pdf", "abc123");
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        synchronizations.get(0).afterCommit();
+        verify(outboxRelay).wakeUp();
+    }
+}
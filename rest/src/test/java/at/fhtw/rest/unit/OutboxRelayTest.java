@@ -0,0 +1,268 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.journal.message.PublisherConfirmTracker;
+import at.fhtw.rest.message.OutboxRelay;
+import at.fhtw.rest.persistence.OutboxDeadLetterEntity;
+import at.fhtw.rest.persistence.OutboxDeadLetterRepository;
+import at.fhtw.rest.persistence.OutboxEntity;
+import at.fhtw.rest.persistence.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class OutboxRelayTest {
+
+    private static final String EXCHANGE = "document_exchange";
+    private static final String ROUTING_KEY = "document_routing_key";
+    private static final int BATCH_SIZE = 2;
+    private static final long CONFIRM_TIMEOUT_MS = 100;
+    private static final long CLAIM_MS = 60_000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_INITIAL_MS = 1_000;
+    private static final long BACKOFF_MAX_MS = 3_000;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+    @Mock
+    private OutboxDeadLetterRepository deadLetterRepository;
+    @Mock
+    private PublisherConfirmTracker confirmTracker;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxRepository, deadLetterRepository, confirmTracker, new TransactionTemplate(transactionManager),
+                new SimpleMeterRegistry(), BATCH_SIZE, CONFIRM_TIMEOUT_MS, CLAIM_MS, MAX_ATTEMPTS, BACKOFF_INITIAL_MS, BACKOFF_MAX_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    private OutboxEntity entry(long id) {
+        OutboxEntity entry = new OutboxEntity();
+        entry.setId(id);
+        entry.setExchange(EXCHANGE);
+        entry.setRoutingKey(ROUTING_KEY);
+        entry.setPayload("{\"documentId\":\"doc" + id + "\",\"filename\":\"file.pdf\"}");
+        entry.setCreatedAt(LocalDateTime.now());
+        entry.setNextAttemptAt(entry.getCreatedAt());
+        return entry;
+    }
+
+    @Nested
+    @DisplayName("relayBatch")
+    class RelayBatchTests {
+
+        @Test
+        @DisplayName("Empty outbox publishes nothing")
+        void emptyOutbox() {
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(Collections.emptyList());
+            assertThat(relay.relayBatch()).isZero();
+            verify(confirmTracker, never()).publish(anyString(), anyString(), anyString());
+            verify(transactionManager, times(1)).commit(any());
+        }
+
+        @Test
+        @DisplayName("Confirmed entries are deleted")
+        void confirmedEntriesDeleted() {
+            OutboxEntity first = entry(1);
+            OutboxEntity second = entry(2);
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of(first, second));
+            when(confirmTracker.publish(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+            assertThat(relay.relayBatch()).isEqualTo(2);
+
+            verify(confirmTracker).publish(EXCHANGE, ROUTING_KEY, first.getPayload());
+            verify(confirmTracker).publish(EXCHANGE, ROUTING_KEY, second.getPayload());
+            verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+            verify(outboxRepository, never()).lockAllById(anyList());
+        }
+
+        @Test
+        @DisplayName("Entries are claimed and the claim committed before they are published")
+        void claimCommittedBeforePublishing() {
+            OutboxEntity entry = entry(1);
+            LocalDateTime before = LocalDateTime.now();
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of(entry));
+            when(confirmTracker.publish(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+            relay.relayBatch();
+
+            assertThat(entry.getNextAttemptAt()).isAfterOrEqualTo(before.plus(Duration.ofMillis(CLAIM_MS)));
+            InOrder order = inOrder(outboxRepository, transactionManager, confirmTracker);
+            order.verify(outboxRepository).lockNextBatch(eq(BATCH_SIZE), any());
+            order.verify(transactionManager).commit(any());
+            order.verify(confirmTracker).publish(EXCHANGE, ROUTING_KEY, entry.getPayload());
+            order.verify(transactionManager).getTransaction(any());
+            order.verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+            order.verify(transactionManager).commit(any());
+        }
+
+        @Test
+        @DisplayName("Nacked and unconfirmed entries stay in the outbox and are retried after a backoff")
+        void unconfirmedEntriesKept() {
+            OutboxEntity acked = entry(1);
+            OutboxEntity nacked = entry(2);
+            LocalDateTime before = LocalDateTime.now();
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of(acked, nacked));
+            when(outboxRepository.lockAllById(List.of(2L))).thenReturn(List.of(nacked));
+            when(confirmTracker.publish(EXCHANGE, ROUTING_KEY, acked.getPayload())).thenReturn(CompletableFuture.completedFuture(null));
+            when(confirmTracker.publish(EXCHANGE, ROUTING_KEY, nacked.getPayload()))
+                    .thenReturn(CompletableFuture.failedFuture(new AmqpException("nack")));
+
+            assertThat(relay.relayBatch()).isEqualTo(1);
+
+            verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+            assertThat(acked.getAttempts()).isZero();
+            assertThat(nacked.getAttempts()).isEqualTo(1);
+            assertThat(nacked.getNextAttemptAt()).isAfterOrEqualTo(before.plus(Duration.ofMillis(BACKOFF_INITIAL_MS)))
+                    .isBefore(before.plus(Duration.ofMillis(CLAIM_MS)));
+            verify(deadLetterRepository, never()).saveAll(anyList());
+        }
+
+        @Test
+        @DisplayName("Entries are moved to the dead letters after the maximum number of attempts")
+        void deadLetteredAfterMaxAttempts() {
+            OutboxEntity entry = entry(1);
+            entry.setAttempts(MAX_ATTEMPTS - 1);
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of(entry));
+            when(outboxRepository.lockAllById(List.of(1L))).thenReturn(List.of(entry));
+            when(confirmTracker.publish(anyString(), anyString(), anyString()))
+                    .thenReturn(CompletableFuture.failedFuture(new AmqpException("returned")));
+
+            assertThat(relay.relayBatch()).isZero();
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<OutboxDeadLetterEntity>> deadLetters = ArgumentCaptor.forClass(List.class);
+            verify(deadLetterRepository).saveAll(deadLetters.capture());
+            assertThat(deadLetters.getValue()).singleElement().satisfies(deadLetter -> {
+                assertThat(deadLetter.getId()).isEqualTo(1L);
+                assertThat(deadLetter.getPayload()).isEqualTo(entry.getPayload());
+                assertThat(deadLetter.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+                assertThat(deadLetter.getFailedAt()).isNotNull();
+            });
+            verify(outboxRepository).deleteAllInBatch(List.of(entry));
+        }
+
+        @Test
+        @DisplayName("Unavailable broker counts an attempt for the whole batch and backs off")
+        void brokerUnavailable() {
+            OutboxEntity first = entry(1);
+            OutboxEntity second = entry(2);
+            LocalDateTime before = LocalDateTime.now();
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of(first, second));
+            when(outboxRepository.lockAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+            when(confirmTracker.publish(anyString(), anyString(), anyString())).thenThrow(new AmqpException("connection refused"));
+
+            assertThat(relay.relayBatch()).isZero();
+
+            verify(confirmTracker, times(1)).publish(anyString(), anyString(), anyString());
+            verify(outboxRepository).deleteAllByIdInBatch(Collections.emptyList());
+            assertThat(List.of(first, second)).allSatisfy(entry -> {
+                assertThat(entry.getAttempts()).isEqualTo(1);
+                assertThat(entry.getNextAttemptAt()).isAfterOrEqualTo(before.plus(Duration.ofMillis(BACKOFF_INITIAL_MS)));
+            });
+            verify(deadLetterRepository, never()).saveAll(anyList());
+        }
+
+        @Test
+        @DisplayName("Entries deleted while they were published are not rescheduled")
+        void deletedWhilePublishing() {
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of(entry(1)));
+            when(outboxRepository.lockAllById(List.of(1L))).thenReturn(Collections.emptyList());
+            when(confirmTracker.publish(anyString(), anyString(), anyString()))
+                    .thenReturn(CompletableFuture.failedFuture(new AmqpException("nack")));
+
+            assertThat(relay.relayBatch()).isZero();
+
+            verify(deadLetterRepository, never()).saveAll(anyList());
+        }
+    }
+
+    @Nested
+    @DisplayName("constructor")
+    class ConstructorTests {
+
+        @Test
+        @DisplayName("Rejects a confirm timeout that is not well below the claim period")
+        void rejectsLongConfirmTimeout() {
+            assertThatThrownBy(() -> new OutboxRelay(outboxRepository, deadLetterRepository, confirmTracker,
+                    new TransactionTemplate(transactionManager), new SimpleMeterRegistry(),
+                    BATCH_SIZE, CLAIM_MS, CLAIM_MS, MAX_ATTEMPTS, BACKOFF_INITIAL_MS, BACKOFF_MAX_MS))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("claim period");
+        }
+    }
+
+    @Nested
+    @DisplayName("backoff")
+    class BackoffTests {
+
+        @Test
+        @DisplayName("Doubles with every attempt up to the maximum")
+        void exponentialAndCapped() {
+            assertThat(relay.backoff(1)).isEqualTo(Duration.ofMillis(1_000));
+            assertThat(relay.backoff(2)).isEqualTo(Duration.ofMillis(2_000));
+            assertThat(relay.backoff(3)).isEqualTo(Duration.ofMillis(BACKOFF_MAX_MS));
+            assertThat(relay.backoff(100)).isEqualTo(Duration.ofMillis(BACKOFF_MAX_MS));
+        }
+    }
+
+    @Nested
+    @DisplayName("drain")
+    class DrainTests {
+
+        @Test
+        @DisplayName("Keeps relaying while full batches are confirmed")
+        void drainsFullBatches() {
+            when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any()))
+                    .thenReturn(List.of(entry(1), entry(2)))
+                    .thenReturn(List.of(entry(3)));
+            when(confirmTracker.publish(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+            relay.drain();
+
+            verify(outboxRepository, times(2)).lockNextBatch(eq(BATCH_SIZE), any());
+            verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+            verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+        }
+    }
+}
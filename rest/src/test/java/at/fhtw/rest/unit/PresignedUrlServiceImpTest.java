@@ -0,0 +1,58 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.persistence.PresignedPost;
+import at.fhtw.rest.persistence.PresignedUrlServiceImp;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PresignedUrlServiceImpTest {
+
+    private static final String DOC_ID = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a40";
+
+    private PresignedUrlServiceImp presignedUrlService;
+
+    @BeforeEach
+    void setUp() {
+        MinioClient presigningClient = MinioClient.builder()
+                .endpoint("https://files.example.com")
+                .region("us-east-1")
+                .credentials("paperless", "paperless")
+                .build();
+        presignedUrlService = new PresignedUrlServiceImp(presigningClient, "documents", "https://files.example.com/", 120);
+    }
+
+    @Test
+    @DisplayName("Download URLs point at the public endpoint and expire after the configured time")
+    void signsDownload() {
+        URI url = URI.create(presignedUrlService.presignDownload(DOC_ID));
+
+        assertThat(url.getHost()).isEqualTo("files.example.com");
+        assertThat(url.getPath()).isEqualTo("/documents/" + DOC_ID);
+        assertThat(url.getQuery()).contains("X-Amz-Expires=120").contains("X-Amz-Signature=");
+        assertThat(presignedUrlService.getExpiry()).isEqualTo(Duration.ofSeconds(120));
+    }
+
+    @Test
+    @DisplayName("Uploads are signed as a POST policy that pins the key and limits the size")
+    void signsUpload() {
+        PresignedPost upload = presignedUrlService.presignUpload("uploads/" + DOC_ID, 1024);
+
+        assertThat(upload.getUrl()).isEqualTo("https://files.example.com/documents");
+        assertThat(upload.getFormFields())
+                .containsEntry("key", "uploads/" + DOC_ID)
+                .containsKeys("policy", "x-amz-signature", "x-amz-credential");
+        String policy = new String(Base64.getDecoder().decode(upload.getFormFields().get("policy")), StandardCharsets.UTF_8);
+        assertThat(policy)
+                .contains("\"uploads/" + DOC_ID + "\"")
+                .contains("[\"content-length-range\",1,1024]");
+    }
+}
@@ -1,6 +1,9 @@
 package at.fhtw.rest.unit;
 
+import at.fhtw.journal.message.MessagePublisher;
 import at.fhtw.rest.message.ProcessingEventDispatcherImp;
+import at.fhtw.journal.message.PublisherConfirmTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,7 +12,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -20,18 +24,19 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.util.ReflectionTestUtils.*;
 
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
 public class ProcessingEventDispatcherImpTest {
 
-    private RabbitTemplate rabbitTemplate;
+    private PublisherConfirmTracker confirmTracker;
     private ProcessingEventDispatcherImp dispatcher;
 
     @BeforeEach
     void setUp() {
-        rabbitTemplate = mock(RabbitTemplate.class);
-        dispatcher = new ProcessingEventDispatcherImp(rabbitTemplate);
+        confirmTracker = mock(PublisherConfirmTracker.class);
+        dispatcher = new ProcessingEventDispatcherImp(confirmTracker, new ObjectMapper());
         setField(dispatcher, "exchangeName", "test_exchange");
         setField(dispatcher, "routingKey", "test_routing_key");
         Validation.buildDefaultValidatorFactory();
@@ -42,16 +47,16 @@ public class ProcessingEventDispatcherImpTest {
     class CoreInitializationTests {
 
         @Test
-        @DisplayName("Constructor properly initializes RabbitTemplate")
+        @DisplayName("Constructor properly initializes PublisherConfirmTracker")
         void testConstructorInitialization() {
-            assertNotNull(dispatcher.getRabbitTemplate(), "RabbitTemplate should be initialized");
-            assertEquals(rabbitTemplate, dispatcher.getRabbitTemplate(), "RabbitTemplate should match the injected instance");
+            assertNotNull(dispatcher.getMessagePublisher(), "PublisherConfirmTracker should be initialized");
+            assertEquals(confirmTracker, dispatcher.getMessagePublisher(), "PublisherConfirmTracker should match the injected instance");
         }
 
         @Test
         @DisplayName("Fields are null before Spring initialization")
         void testFieldsBeforeSpringInitialization() {
-            ProcessingEventDispatcherImp newDispatcher = new ProcessingEventDispatcherImp(rabbitTemplate);
+            ProcessingEventDispatcherImp newDispatcher = new ProcessingEventDispatcherImp(confirmTracker, new ObjectMapper());
             assertNull(newDispatcher.getExchangeName(), "Exchange name should be null before Spring initialization");
             assertNull(newDispatcher.getRoutingKey(), "Routing key should be null before Spring initialization");
         }
@@ -59,7 +64,7 @@ public class ProcessingEventDispatcherImpTest {
         @Test
         @DisplayName("Value annotations set default values correctly")
         void testValueAnnotationDefaults() {
-            ProcessingEventDispatcherImp newDispatcher = new ProcessingEventDispatcherImp(rabbitTemplate);
+            ProcessingEventDispatcherImp newDispatcher = new ProcessingEventDispatcherImp(confirmTracker, new ObjectMapper());
             setField(newDispatcher, "exchangeName", "document_exchange");
             setField(newDispatcher, "routingKey", "document_routing_key");
             assertEquals("document_exchange", newDispatcher.getExchangeName(), "Exchange name should have correct default value");
@@ -95,12 +100,13 @@ public class ProcessingEventDispatcherImpTest {
         @Test
         @DisplayName("sendProcessingRequest sends correctly formatted message")
         void testSendProcessingRequestValid() {
-            String expectedMessage = String.format("{\"documentId\":\"%s\",\"filename\":\"%s\"}", "doc123", "file.pdf");
-            dispatcher.sendProcessingRequest("doc123", "file.pdf");
+            String expectedMessage = String.format("{\"documentId\":\"%s\",\"filename\":\"%s\",\"contentDigest\":\"%s\"}", "doc123", "file.pdf", "abc123");
+            when(confirmTracker.publish(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+            dispatcher.sendProcessingRequest("doc123", "file.pdf", "abc123");
             ArgumentCaptor<String> exchangeCaptor = ArgumentCaptor.forClass(String.class);
             ArgumentCaptor<String> routingCaptor = ArgumentCaptor.forClass(String.class);
             ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
-            verify(rabbitTemplate, times(1)).convertAndSend(exchangeCaptor.capture(), routingCaptor.capture(), messageCaptor.capture());
+            verify(confirmTracker, times(1)).publish(exchangeCaptor.capture(), routingCaptor.capture(), messageCaptor.capture());
             assertEquals("test_exchange", exchangeCaptor.getValue(), "Exchange name must match configured value");
             assertEquals("test_routing_key", routingCaptor.getValue(), "Routing key must match configured value");
             assertEquals(expectedMessage, messageCaptor.getValue(), "Message must be correctly formatted");
@@ -109,10 +115,11 @@ public class ProcessingEventDispatcherImpTest {
         @Test
         @DisplayName("sendProcessingRequest handles special characters correctly")
         void testSendProcessingRequestWithSpecialCharacters() {
-            String expectedMessage = String.format("{\"documentId\":\"%s\",\"filename\":\"%s\"}", "doc-123_@#$", "file name with spaces.pdf");
-            dispatcher.sendProcessingRequest("doc-123_@#$", "file name with spaces.pdf");
+            String expectedMessage = String.format("{\"documentId\":\"%s\",\"filename\":\"%s\",\"contentDigest\":\"%s\"}", "doc-123_@#$", "file name with spaces.pdf", "abc123");
+            when(confirmTracker.publish(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+            dispatcher.sendProcessingRequest("doc-123_@#$", "file name with spaces.pdf", "abc123");
             ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
-            verify(rabbitTemplate).convertAndSend(anyString(), anyString(), messageCaptor.capture());
+            verify(confirmTracker).publish(anyString(), anyString(), messageCaptor.capture());
             assertEquals(expectedMessage, messageCaptor.getValue(), "Message must be correctly formatted");
         }
     }
@@ -122,11 +129,20 @@ public class ProcessingEventDispatcherImpTest {
     class ErrorHandlingTests {
 
         @Test
-        @DisplayName("sendProcessingRequest handles RabbitTemplate exceptions")
+        @DisplayName("sendProcessingRequest handles publish exceptions")
         void testSendProcessingRequestHandlesException() {
             doThrow(new RuntimeException("RabbitMQ Error"))
-                    .when(rabbitTemplate).convertAndSend(anyString(), anyString(), anyString());
-            assertThrows(RuntimeException.class, () -> dispatcher.sendProcessingRequest("doc123", "file.pdf"), "Should propagate RabbitTemplate exceptions");
+                    .when(confirmTracker).publish(anyString(), anyString(), anyString());
+            assertThrows(RuntimeException.class, () -> dispatcher.sendProcessingRequest("doc123", "file.pdf", "abc123"), "Should propagate publish exceptions");
+        }
+
+        @Test
+        @DisplayName("sendProcessingRequest does not throw when the confirm fails later")
+        void testSendProcessingRequestConfirmFailure() {
+            when(confirmTracker.publish(anyString(), anyString(), anyString()))
+                    .thenReturn(CompletableFuture.failedFuture(new RuntimeException("nack")));
+            dispatcher.sendProcessingRequest("doc123", "file.pdf", "abc123");
+            verify(confirmTracker).publish("test_exchange", "test_routing_key", String.format("{\"documentId\":\"%s\",\"filename\":\"%s\",\"contentDigest\":\"%s\"}", "doc123", "file.pdf", "abc123"));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.core.DocumentView;
+import at.fhtw.rest.core.ElasticsearchServiceImp;
+import at.fhtw.rest.core.PostgresSearchServiceImp;
+import at.fhtw.rest.core.SearchRouter;
+import at.fhtw.rest.core.SearchUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class SearchRouterTest {
+
+    private static final String QUERY = "invoice";
+    private static final String DOC_1 = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a41";
+    private static final String DOC_2 = "0190d9a8-2f4c-7a51-9c3e-2b7f5d1e8a42";
+
+    @Mock
+    private ElasticsearchServiceImp elasticsearch;
+    @Mock
+    private PostgresSearchServiceImp postgres;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private SearchRouter create(String engine, boolean fallbackEnabled) {
+        return new SearchRouter(elasticsearch, postgres, meterRegistry, engine, fallbackEnabled, 60_000);
+    }
+
+    private SearchUnavailableException unavailable() {
+        return new SearchUnavailableException("Elasticsearch search failed", new IOException("Connection refused"));
+    }
+
+    @Nested
+    @DisplayName("engine selection")
+    class EngineTests {
+
+        @Test
+        @DisplayName("Elasticsearch answers while it is healthy")
+        void elasticsearchPrimary() {
+            when(elasticsearch.searchIdsByQuery(QUERY)).thenReturn(List.of(DOC_1));
+            assertThat(create("elasticsearch", true).searchIdsByQuery(QUERY)).containsExactly(DOC_1);
+            verifyNoInteractions(postgres);
+        }
+
+        @Test
+        @DisplayName("The Postgres engine handles searches and updates without Elasticsearch")
+        void postgresPrimary() {
+            SearchRouter router = create("postgres", true);
+            when(postgres.searchIdsByQuery(QUERY)).thenReturn(List.of(DOC_2));
+            assertThat(router.searchIdsByQuery(QUERY)).containsExactly(DOC_2);
+            router.updateFilename(DOC_2, "renamed.pdf");
+            router.deleteDocument(DOC_2);
+            verify(postgres).updateFilename(DOC_2, "renamed.pdf");
+            verify(postgres).deleteDocument(DOC_2);
+            verifyNoInteractions(elasticsearch);
+        }
+
+        @Test
+        @DisplayName("An unknown engine is rejected")
+        void unknownEngine() {
+            assertThatThrownBy(() -> create("solr", true))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("solr");
+        }
+    }
+
+    @Nested
+    @DisplayName("fallback")
+    class FallbackTests {
+
+        @Test
+        @DisplayName("A failed Elasticsearch search is answered by Postgres, which keeps answering while degraded")
+        void fallsBackAndStaysDegraded() {
+            SearchRouter router = create("elasticsearch", true);
+            when(elasticsearch.searchIdsByQuery(QUERY)).thenThrow(unavailable());
+            when(postgres.searchIdsByQuery(QUERY)).thenReturn(List.of(DOC_1));
+
+            assertThat(router.searchIdsByQuery(QUERY)).containsExactly(DOC_1);
+            assertThat(router.isElasticsearchDegraded()).isTrue();
+            assertThat(router.searchIdsByQuery(QUERY)).containsExactly(DOC_1);
+
+            verify(elasticsearch, times(1)).searchIdsByQuery(QUERY);
+            verify(postgres, times(2)).searchIdsByQuery(QUERY);
+            assertThat(meterRegistry.get("paperless.search.fallbacks").counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Index-only searches fall back as well")
+        void searchDocumentsFallsBack() {
+            SearchRouter router = create("elasticsearch", true);
+            when(elasticsearch.searchDocuments(QUERY, DocumentView.SUMMARY)).thenThrow(unavailable());
+            when(postgres.searchDocuments(QUERY, DocumentView.SUMMARY)).thenReturn(List.of());
+
+            assertThat(router.searchDocuments(QUERY, DocumentView.SUMMARY)).isEmpty();
+            verify(postgres).searchDocuments(QUERY, DocumentView.SUMMARY);
+        }
+
+        @Test
+        @DisplayName("Without fallback a failed search returns no hits")
+        void fallbackDisabled() {
+            SearchRouter router = create("elasticsearch", false);
+            when(elasticsearch.searchIdsByQuery(QUERY)).thenThrow(unavailable());
+
+            assertThat(router.searchIdsByQuery(QUERY)).isEmpty();
+            assertThat(router.isElasticsearchDegraded()).isFalse();
+            verifyNoInteractions(postgres);
+        }
+    }
+}
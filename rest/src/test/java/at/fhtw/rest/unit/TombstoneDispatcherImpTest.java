@@ -0,0 +1,61 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.journal.message.PublisherConfirmTracker;
+import at.fhtw.rest.message.TombstoneDispatcherImp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class TombstoneDispatcherImpTest {
+
+    private static final String EXCHANGE = "document_tombstone_exchange";
+    private static final String DOC_ID = "doc123";
+    private static final String MESSAGE = "{\"documentId\":\"doc123\"}";
+
+    @Mock
+    private PublisherConfirmTracker confirmTracker;
+
+    private TombstoneDispatcherImp dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new TombstoneDispatcherImp(confirmTracker, EXCHANGE);
+    }
+
+    @Test
+    @DisplayName("Tombstone is published to the fanout exchange")
+    void publishesTombstone() {
+        when(confirmTracker.publish(EXCHANGE, "", MESSAGE)).thenReturn(CompletableFuture.completedFuture(null));
+        dispatcher.sendTombstone(DOC_ID);
+        verify(confirmTracker).publish(EXCHANGE, "", MESSAGE);
+    }
+
+    @Test
+    @DisplayName("Unreachable broker does not fail the deletion")
+    void brokerUnavailable() {
+        when(confirmTracker.publish(EXCHANGE, "", MESSAGE)).thenThrow(new AmqpException("connection refused"));
+        assertThatCode(() -> dispatcher.sendTombstone(DOC_ID)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Unroutable tombstone is only logged")
+    void tombstoneNotConfirmed() {
+        when(confirmTracker.publish(EXCHANGE, "", MESSAGE))
+                .thenReturn(CompletableFuture.failedFuture(new AmqpException("unroutable")));
+        assertThatCode(() -> dispatcher.sendTombstone(DOC_ID)).doesNotThrowAnyException();
+    }
+}
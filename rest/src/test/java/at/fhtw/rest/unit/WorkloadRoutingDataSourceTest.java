@@ -0,0 +1,73 @@
+package at.fhtw.rest.unit;
+
+import at.fhtw.rest.infrastructure.WorkloadRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class WorkloadRoutingDataSourceTest {
+
+    @Mock
+    private DataSource webPool;
+    @Mock
+    private DataSource listenerPool;
+
+    private WorkloadRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        routing = new WorkloadRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                WorkloadRoutingDataSource.Workload.WEB, webPool,
+                WorkloadRoutingDataSource.Workload.LISTENER, listenerPool));
+        routing.setDefaultTargetDataSource(listenerPool);
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("Threads serving an HTTP request use the web pool")
+    void webPool() throws SQLException {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        Connection connection = mock(Connection.class);
+        when(webPool.getConnection()).thenReturn(connection);
+
+        assertThat(routing.getConnection()).isSameAs(connection);
+        verifyNoInteractions(listenerPool);
+    }
+
+    @Test
+    @DisplayName("Listener and background threads use the listener pool")
+    void listenerPool() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(listenerPool.getConnection()).thenReturn(connection);
+
+        assertThat(routing.getConnection()).isSameAs(connection);
+        verifyNoInteractions(webPool);
+    }
+}
@@ -0,0 +1,6 @@
+package at.fhtw.services;
+
+public interface CancellationRegistry {
+    void cancel(String documentId);
+    boolean isCancelled(String documentId);
+}
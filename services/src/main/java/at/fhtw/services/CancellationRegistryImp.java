@@ -0,0 +1,44 @@
+package at.fhtw.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers documents whose processing must be abandoned.
+ *
+ * <p>
+ * Tombstones arrive over the tombstone fanout exchange, so every worker instance holds every cancellation.
+ * They are kept for a retention period, long enough to outlive any processing message still queued for
+ * the document, and then forgotten. The registry holds at most the configured number of tombstones; past
+ * that the oldest are dropped first, and the worker's storage check still catches those documents.
+ * </p>
+ */
+
+@Service
+public class CancellationRegistryImp implements CancellationRegistry {
+    private final Cache<String, Boolean> tombstones;
+
+    public CancellationRegistryImp(
+            @Value("${rabbitmq.tombstone.retention-ms:86400000}") long retentionMs,
+            @Value("${rabbitmq.tombstone.max-entries:100000}") int maxEntries
+    ) {
+        this.tombstones = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(retentionMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public void cancel(String documentId) {
+        tombstones.put(documentId, Boolean.TRUE);
+    }
+
+    @Override
+    public boolean isCancelled(String documentId) {
+        return tombstones.getIfPresent(documentId) != null;
+    }
+}
@@ -0,0 +1,8 @@
+package at.fhtw.services;
+
+public interface DrainCoordinator {
+    boolean isDraining();
+    boolean isGracePeriodOver();
+    void jobStarted();
+    void jobFinished();
+}
@@ -0,0 +1,70 @@
+package at.fhtw.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the shutdown of this worker.
+ *
+ * <p>
+ * Draining starts when the application context is closed, before the listener containers are stopped. From
+ * then on new deliveries are handed back to the broker, while jobs already running may continue for the
+ * grace period. Once it has elapsed, running jobs stop at the next page boundary; their progress is kept by
+ * the {@link OcrCheckpointStore}, so another worker resumes them.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class DrainCoordinatorImp implements DrainCoordinator {
+    private final long gracePeriodMs;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long drainStartedAt = -1;
+
+    public DrainCoordinatorImp(
+            MeterRegistry meterRegistry,
+            @Value("${processing.shutdown.grace-period-ms:60000}") long gracePeriodMs
+    ) {
+        this.gracePeriodMs = gracePeriodMs;
+        Gauge.builder("paperless.ocr.inflight", inFlight, AtomicInteger::get)
+                .description("OCR jobs currently running on this worker")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void startDrain() {
+        drainStartedAt = System.currentTimeMillis();
+        log.info("[REQUEST] Shutdown started, giving {} in-flight OCR jobs {} ms to finish", inFlight.get(), gracePeriodMs);
+    }
+
+    @Override
+    public boolean isDraining() {
+        return drainStartedAt >= 0;
+    }
+
+    @Override
+    public boolean isGracePeriodOver() {
+        return isDraining() && System.currentTimeMillis() - drainStartedAt >= gracePeriodMs;
+    }
+
+    @Override
+    public void jobStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void jobFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -7,4 +7,6 @@ public interface ElasticsearchIndexService {
             String documentId,
             String filename,
             String ocrText) throws IOException;
+
+    void deleteDocument(String documentId) throws IOException;
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package at.fhtw.services;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.DeleteRequest;
+import co.elastic.clients.elasticsearch.core.DeleteResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +40,18 @@ public class ElasticsearchIndexServiceImp implements ElasticsearchIndexService {
         }
     }
 
+    @Override
+    public void deleteDocument(String documentId) throws IOException {
+        log.info("[REQUEST] Entering deleteDocument with documentId: {}", documentId);
+        try {
+            DeleteResponse response = esClient.delete(DeleteRequest.of(d -> d.index(indexName).id(documentId)));
+            log.info("[RESPONSE] Delete of documentId: {} finished with result {}", documentId, response.result());
+        } catch (IOException e) {
+            log.error("[ERROR] deleteDocument failed for documentId: {}. Error: {}", documentId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
     private Map<String, Object> createDocumentMap(String documentId, String filename, String ocrText) {
         Map<String, Object> document = new HashMap<>();
         document.put("documentId", documentId);
@@ -0,0 +1,62 @@
+package at.fhtw.services;
+
+import at.fhtw.journal.LocalJournal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes OCR results to the local result journal instead of RabbitMQ.
+ *
+ * <p>
+ * The journal lives in a directory shared with the REST service, which reads it as its result queue. The
+ * returned future is already complete, because the result is on disk once the append returned.
+ * </p>
+ */
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "local")
+public class LocalMessageBroker implements MessageBroker {
+    private final LocalJournal resultJournal;
+    private final ObjectMapper mapper;
+
+    public LocalMessageBroker(
+            ObjectMapper mapper,
+            @Value("${messaging.local.directory:/var/lib/paperless/journal}") String directory,
+            @Value("${messaging.local.segment-bytes:67108864}") long segmentBytes,
+            @Value("${rabbitmq.queue.result:document_result_queue}") String resultQueue
+    ) throws IOException {
+        this.mapper = mapper;
+        this.resultJournal = new LocalJournal(Path.of(directory, resultQueue), segmentBytes);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendToResultQueue(String documentId, String ocrText, String contentDigest) {
+        try {
+            ObjectNode json = mapper.createObjectNode();
+            json.put("documentId", documentId);
+            json.put("ocrText", ocrText);
+            json.put("contentDigest", contentDigest);
+            resultJournal.append(mapper.writeValueAsString(json));
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            log.error("[ERROR] Result for documentId: {} could not be written to the journal: {}", documentId, e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        resultJournal.close();
+    }
+}
@@ -1,5 +1,7 @@
 package at.fhtw.services;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface MessageBroker {
-    void sendToResultQueue(String documentId, String ocrText);
-}
\ No newline at end of file
+    CompletableFuture<Void> sendToResultQueue(String documentId, String ocrText, String contentDigest);
+}
@@ -1,14 +1,21 @@
 package at.fhtw.services;
 
+import at.fhtw.journal.message.PublisherConfirmTracker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.AmqpException;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
+ * <p>
+ * Results are published through the {@link PublisherConfirmTracker}; a nacked result is re-published
+ * instead of being silently lost. The returned future completes once the broker confirmed the result.
+ * </p>
  * <p>
  * Information on RabbitMQ
  * <a href="https://www.rabbitmq.com/documentation.html">RabbitMQ Documentation</a>.
@@ -17,30 +24,36 @@ import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "rabbitmq", matchIfMissing = true)
 public class MessageBrokerImp implements MessageBroker {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final PublisherConfirmTracker confirmTracker;
     private final String resultQueue;
     private final ObjectMapper mapper;
 
     public MessageBrokerImp(
-            RabbitTemplate rabbitTemplate,
+            PublisherConfirmTracker confirmTracker,
             @Value("${rabbitmq.queue.result:document_result_queue}") String resultQueue,
             ObjectMapper mapper
     ) {
-        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTracker = confirmTracker;
         this.resultQueue = resultQueue;
         this.mapper = mapper;
     }
 
     @Override
-    public void sendToResultQueue(String documentId, String ocrText) {
+    public CompletableFuture<Void> sendToResultQueue(String documentId, String ocrText, String contentDigest) {
         try {
             ObjectNode json = mapper.createObjectNode();
             json.put("documentId", documentId);
             json.put("ocrText", ocrText);
+            json.put("contentDigest", contentDigest);
             String message = mapper.writeValueAsString(json);
-            rabbitTemplate.convertAndSend(resultQueue, message);
+            return confirmTracker.publish("", resultQueue, message).whenComplete((ok, error) -> {
+                if (error != null) {
+                    log.error("[ERROR] Result for documentId: {} was not confirmed by the broker: {}", documentId, error.getMessage());
+                }
+            });
         } catch (AmqpException e) {
             throw e;
         } catch (Exception e) {
@@ -1,7 +1,15 @@
 package at.fhtw.services;
 
 import java.io.File;
+import java.io.IOException;
 
 public interface MinioStorageService {
     File downloadFile(String documentId, String extension) throws Exception;
+
+    /**
+     * Whether the document file is still stored.
+     *
+     * @throws IOException if storage could not be asked
+     */
+    boolean exists(String documentId) throws IOException;
 }
\ No newline at end of file
@@ -2,27 +2,40 @@ package at.fhtw.services;
 
 import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
-import lombok.RequiredArgsConstructor;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 @Slf4j
 @Service
 @Validated
-@RequiredArgsConstructor
 public class MinioStorageServiceImp implements MinioStorageService {
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+
     private final MinioClient minioClient;
+    private final String bucketName;
+
+    public MinioStorageServiceImp(
+            MinioClient minioClient,
+            @Value("${minio.bucket-name:documents}") String bucketName
+    ) {
+        this.minioClient = minioClient;
+        this.bucketName = bucketName;
+    }
 
     @Override
     public File downloadFile(String documentId, String extension) throws Exception {
         log.info("[REQUEST] Entering downloadFile with documentId: {} and extension: {}", documentId, extension);
         File tempFile = new File(System.getProperty("java.io.tmpdir"), documentId + extension);
         try (InputStream inputStream = minioClient.getObject(
-                GetObjectArgs.builder().bucket("documents").object(documentId).build());
+                GetObjectArgs.builder().bucket(bucketName).object(documentId).build());
              FileOutputStream fos = new FileOutputStream(tempFile)) {
             inputStream.transferTo(fos);
             log.info("[RESPONSE] Exiting downloadFile for documentId: {}; file: {}",
@@ -34,4 +47,21 @@ public class MinioStorageServiceImp implements MinioStorageService {
         }
         return tempFile;
     }
+
+    @Override
+    public boolean exists(String documentId) throws IOException {
+        try {
+            minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(documentId).build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if (NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw new IOException("Failed to check document " + documentId + " in bucket " + bucketName, e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to check document " + documentId + " in bucket " + bucketName, e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package at.fhtw.services;
+
+import java.util.List;
+
+public interface OcrCheckpointStore {
+    List<String> loadPages(String documentId, String contentDigest);
+    void savePage(String documentId, String contentDigest, int pageIndex, String text);
+    void delete(String documentId);
+}
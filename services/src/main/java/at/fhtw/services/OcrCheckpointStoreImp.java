@@ -0,0 +1,119 @@
+package at.fhtw.services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the text of every recognised page, so OCR interrupted by a shutdown resumes where it stopped.
+ *
+ * <p>
+ * Each page is one document in a dedicated Elasticsearch index, keyed by document ID, content digest and
+ * page number. Pages are only resumed for the same content digest, so a re-uploaded file starts over.
+ * Checkpointing is best effort: if the index cannot be reached, pages are not saved and the next attempt
+ * starts from the first page.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class OcrCheckpointStoreImp implements OcrCheckpointStore {
+    private final ElasticsearchClient esClient;
+    private final String checkpointIndex;
+    private final int maxPages;
+
+    public OcrCheckpointStoreImp(
+            ElasticsearchClient esClient,
+            @Value("${ocr.checkpoint.index:ocr_checkpoints}") String checkpointIndex,
+            @Value("${ocr.checkpoint.max-pages:10000}") int maxPages
+    ) {
+        this.esClient = esClient;
+        this.checkpointIndex = checkpointIndex;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Returns the consecutive pages checkpointed from the first page on; pages after a gap are ignored.
+     */
+    @Override
+    public List<String> loadPages(String documentId, String contentDigest) {
+        List<String> pages = new ArrayList<>();
+        try {
+            List<Hit<PageCheckpoint>> hits = esClient.search(SearchRequest.of(s -> s
+                    .index(checkpointIndex)
+                    .size(maxPages)
+                    .query(q -> q.bool(b -> b
+                            .filter(f -> f.term(t -> t.field("documentId.keyword").value(documentId)))
+                            .filter(f -> f.term(t -> t.field("contentDigest.keyword").value(contentDigest)))))
+                    .sort(so -> so.field(f -> f.field("page").order(SortOrder.Asc)))), PageCheckpoint.class).hits().hits();
+            for (Hit<PageCheckpoint> hit : hits) {
+                PageCheckpoint checkpoint = hit.source();
+                if (checkpoint == null || checkpoint.getPage() != pages.size()) {
+                    break;
+                }
+                pages.add(checkpoint.getText());
+            }
+        } catch (ElasticsearchException e) {
+            if (e.status() != 404) {
+                log.warn("[ERROR] Could not load OCR checkpoints for documentId: {}, starting from the first page: {}", documentId, e.getMessage());
+            }
+        } catch (IOException e) {
+            log.warn("[ERROR] Could not load OCR checkpoints for documentId: {}, starting from the first page: {}", documentId, e.getMessage());
+        }
+        return pages;
+    }
+
+    @Override
+    public void savePage(String documentId, String contentDigest, int pageIndex, String text) {
+        PageCheckpoint checkpoint = new PageCheckpoint(documentId, contentDigest, pageIndex, text, Instant.now().toString());
+        try {
+            esClient.index(IndexRequest.of(i -> i
+                    .index(checkpointIndex)
+                    .id(documentId + ":" + contentDigest + ":" + pageIndex)
+                    .document(checkpoint)));
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("[ERROR] Could not checkpoint page {} of documentId: {}: {}", pageIndex + 1, documentId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void delete(String documentId) {
+        try {
+            esClient.deleteByQuery(DeleteByQueryRequest.of(d -> d
+                    .index(checkpointIndex)
+                    .query(q -> q.term(t -> t.field("documentId.keyword").value(documentId)))));
+        } catch (ElasticsearchException e) {
+            if (e.status() != 404) {
+                log.warn("[ERROR] Could not delete OCR checkpoints for documentId: {}: {}", documentId, e.getMessage());
+            }
+        } catch (IOException e) {
+            log.warn("[ERROR] Could not delete OCR checkpoints for documentId: {}: {}", documentId, e.getMessage());
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PageCheckpoint {
+        private String documentId;
+        private String contentDigest;
+        private int page;
+        private String text;
+        private String savedAt;
+    }
+}
@@ -0,0 +1,49 @@
+package at.fhtw.services;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Hooks through which a running OCR job resumes earlier work, reports finished pages and learns whether it
+ * has to stop.
+ */
+public interface OcrProgress {
+    OcrProgress NONE = cancelledBy(() -> false);
+
+    /**
+     * Text of the pages recognised by an earlier attempt, starting at the first page.
+     */
+    List<String> completedPages();
+
+    void pageCompleted(int pageIndex, String text);
+
+    boolean isCancelled();
+
+    /**
+     * Whether the job should stop before the next page so the worker can shut down.
+     */
+    boolean shouldSuspend();
+
+    static OcrProgress cancelledBy(BooleanSupplier cancelled) {
+        return new OcrProgress() {
+            @Override
+            public List<String> completedPages() {
+                return List.of();
+            }
+
+            @Override
+            public void pageCompleted(int pageIndex, String text) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled.getAsBoolean();
+            }
+
+            @Override
+            public boolean shouldSuspend() {
+                return false;
+            }
+        };
+    }
+}
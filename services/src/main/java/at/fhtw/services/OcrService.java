@@ -1,7 +1,19 @@
 package at.fhtw.services;
 
 import java.io.File;
+import java.util.function.BooleanSupplier;
 
 public interface OcrService {
     String extractText(File file) throws Exception;
-}
\ No newline at end of file
+
+    default String extractText(File file, BooleanSupplier cancelled) throws Exception {
+        return extractText(file, OcrProgress.cancelledBy(cancelled));
+    }
+
+    default String extractText(File file, OcrProgress progress) throws Exception {
+        if (progress.isCancelled()) {
+            throw new ProcessingCancelledException("OCR cancelled before start: " + file.getName());
+        }
+        return extractText(file);
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -23,6 +24,11 @@ public class OcrServiceImp implements OcrService {
 
     @Override
     public String extractText(File file) throws Exception {
+        return extractText(file, OcrProgress.NONE);
+    }
+
+    @Override
+    public String extractText(File file, OcrProgress progress) throws Exception {
         if (file == null) {
             log.error("OCR extraction failed: Provided file reference is null.");
             throw new NullPointerException("File is null");
@@ -42,19 +48,44 @@ public class OcrServiceImp implements OcrService {
                         throw new IndexOutOfBoundsException("Empty PDF file");
                     }
                     PDFRenderer renderer = new PDFRenderer(doc);
+                    int pageCount = doc.getNumberOfPages();
+                    List<String> completedPages = progress.completedPages();
+                    int firstPage = Math.min(completedPages.size(), pageCount);
                     StringBuilder sb = new StringBuilder();
-                    for (int i = 0; i < doc.getNumberOfPages(); i++) {
+                    completedPages.subList(0, firstPage).forEach(sb::append);
+                    if (firstPage > 0) {
+                        log.info("Resuming OCR extraction for file: {} at page {} of {}",
+                                file.getAbsolutePath(), firstPage + 1, pageCount);
+                    }
+                    for (int i = firstPage; i < pageCount; i++) {
+                        if (progress.isCancelled()) {
+                            log.info("OCR extraction cancelled for file: {} after {} of {} pages",
+                                    file.getAbsolutePath(), i, pageCount);
+                            throw new ProcessingCancelledException("OCR cancelled at page " + (i + 1));
+                        }
+                        if (progress.shouldSuspend()) {
+                            log.info("OCR extraction suspended for file: {} after {} of {} pages",
+                                    file.getAbsolutePath(), i, pageCount);
+                            throw new ProcessingSuspendedException("OCR suspended at page " + (i + 1));
+                        }
                         BufferedImage image = renderer.renderImageWithDPI(i, dpi);
-                        sb.append(tesseract.doOCR(image));
+                        String pageText = tesseract.doOCR(image);
+                        progress.pageCompleted(i, pageText);
+                        sb.append(pageText);
                     }
                     extractedText = sb.toString();
                 }
             } else {
+                if (progress.isCancelled()) {
+                    throw new ProcessingCancelledException("OCR cancelled before start");
+                }
                 extractedText = tesseract.doOCR(file);
             }
             log.info("Completed OCR extraction for file: {}. Extracted text length: {}",
                     file.getAbsolutePath(), extractedText.length());
             return extractedText;
+        } catch (ProcessingCancelledException | ProcessingSuspendedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("OCR extraction failed for file: {}. Error: {}",
                     file.getAbsolutePath(), e.getMessage(), e);
@@ -0,0 +1,10 @@
+package at.fhtw.services;
+
+/**
+ * Thrown when work on a document is abandoned because the document was deleted in the meantime.
+ */
+public class ProcessingCancelledException extends RuntimeException {
+    public ProcessingCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,6 @@
+package at.fhtw.services;
+
+public interface ProcessingLedger {
+    boolean isCompleted(String documentId, String contentDigest);
+    void markCompleted(String documentId, String contentDigest);
+}
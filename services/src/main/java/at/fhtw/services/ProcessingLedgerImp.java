@@ -0,0 +1,157 @@
+package at.fhtw.services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.ExistsRequest;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable record of documents whose OCR result was delivered, keyed by document ID and content digest.
+ *
+ * <p>
+ * Completed work is stored in a dedicated Elasticsearch index and mirrored in an in-memory Bloom filter.
+ * A negative filter answer means the document was never completed and needs no lookup; a positive answer
+ * is confirmed against the index. Until the filter has been loaded from the index after startup, every
+ * check goes to the index. If the index cannot be reached, the document is treated as not completed, so
+ * the worst case is repeating work, never losing it.
+ * </p>
+ *
+ * <p>
+ * For Bloom filters, see:
+ * <a href="https://guava.dev/releases/snapshot-jre/api/docs/com/google/common/hash/BloomFilter.html">Guava BloomFilter</a>.
+ * </p>
+ */
+
+@Slf4j
+@Service
+public class ProcessingLedgerImp implements ProcessingLedger {
+    private static final int WARM_UP_PAGE_SIZE = 1000;
+
+    private final ElasticsearchClient esClient;
+    private final String ledgerIndex;
+    private final BloomFilter<CharSequence> completed;
+    private final Counter duplicates;
+    private volatile boolean warmedUp = false;
+
+    public ProcessingLedgerImp(
+            ElasticsearchClient esClient,
+            MeterRegistry meterRegistry,
+            @Value("${dedup.ledger-index:processing_ledger}") String ledgerIndex,
+            @Value("${dedup.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${dedup.false-positive-probability:0.01}") double falsePositiveProbability
+    ) {
+        this.esClient = esClient;
+        this.ledgerIndex = ledgerIndex;
+        this.completed = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+        this.duplicates = Counter.builder("paperless.dedup.duplicates")
+                .description("Redelivered processing requests skipped because the work was already completed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startWarmUp() {
+        CompletableFuture.runAsync(this::warmUp);
+    }
+
+    /**
+     * Loads every ledger key into the Bloom filter, paging through the index by document order.
+     */
+    public void warmUp() {
+        long loaded = 0;
+        try {
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                List<FieldValue> after = searchAfter;
+                SearchResponse<Void> page = esClient.search(SearchRequest.of(s -> {
+                    s.index(ledgerIndex)
+                            .size(WARM_UP_PAGE_SIZE)
+                            .source(src -> src.fetch(false))
+                            .sort(so -> so.field(f -> f.field("_doc").order(SortOrder.Asc)));
+                    if (after != null) {
+                        s.searchAfter(after);
+                    }
+                    return s;
+                }), Void.class);
+                List<Hit<Void>> hits = page.hits().hits();
+                hits.forEach(hit -> completed.put(hit.id()));
+                loaded += hits.size();
+                if (hits.size() < WARM_UP_PAGE_SIZE) {
+                    break;
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+            warmedUp = true;
+            log.info("[RESPONSE] Processing ledger loaded with {} completed documents", loaded);
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                warmedUp = true;
+                log.info("[RESPONSE] Processing ledger index {} does not exist yet", ledgerIndex);
+            } else {
+                log.warn("[ERROR] Could not load processing ledger, checking the index for every message: {}", e.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("[ERROR] Could not load processing ledger, checking the index for every message: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isCompleted(String documentId, String contentDigest) {
+        String key = key(documentId, contentDigest);
+        if (warmedUp && !completed.mightContain(key)) {
+            return false;
+        }
+        try {
+            boolean exists = esClient.exists(ExistsRequest.of(e -> e.index(ledgerIndex).id(key))).value();
+            if (exists) {
+                duplicates.increment();
+            }
+            return exists;
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("[ERROR] Processing ledger lookup failed for documentId: {}, processing again: {}", documentId, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void markCompleted(String documentId, String contentDigest) {
+        String key = key(documentId, contentDigest);
+        try {
+            Map<String, Object> entry = Map.of(
+                    "documentId", documentId,
+                    "contentDigest", contentDigest,
+                    "completedAt", Instant.now().toString());
+            esClient.index(IndexRequest.of(i -> i.index(ledgerIndex).id(key).document(entry)));
+            completed.put(key);
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("[ERROR] Could not record completion for documentId: {}: {}", documentId, e.getMessage());
+        }
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    private static String key(String documentId, String contentDigest) {
+        return documentId + ":" + contentDigest;
+    }
+}
@@ -0,0 +1,11 @@
+package at.fhtw.services;
+
+/**
+ * Thrown when work on a document is interrupted because the worker shuts down. The message is requeued and
+ * the next attempt resumes from the last checkpointed page.
+ */
+public class ProcessingSuspendedException extends RuntimeException {
+    public ProcessingSuspendedException(String message) {
+        super(message);
+    }
+}
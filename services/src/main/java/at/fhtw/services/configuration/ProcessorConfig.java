@@ -7,16 +7,27 @@ import io.minio.MinioClient;
 import net.sourceforge.tess4j.Tesseract;
 import org.apache.http.HttpHost;
 import org.elasticsearch.client.RestClient;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.CustomExchange;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 @Configuration
@@ -117,6 +128,82 @@ public class ProcessorConfig {
         return BindingBuilder.bind(resultQueue).to(documentExchange).with(routingKey);
     }
 
+    @Bean
+    public FanoutExchange tombstoneExchange(@Value("${rabbitmq.tombstone.exchange:document_tombstone_exchange}") String exchangeName) {
+        return new FanoutExchange(exchangeName);
+    }
+
+    @Bean
+    public Queue tombstoneQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("document_tombstones."));
+    }
+
+    @Bean
+    public Binding bindTombstoneQueue(@Qualifier("tombstoneQueue") Queue tombstoneQueue, @Qualifier("tombstoneExchange") FanoutExchange tombstoneExchange) {
+        return BindingBuilder.bind(tombstoneQueue).to(tombstoneExchange);
+    }
+
+    /**
+     * Consistent-hash exchange routing processing requests by document ID to the shard queues. Every shard
+     * queue allows a single active consumer, so a shard changing hands never has two workers on it.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Declarables shardedProcessingDeclarables(
+            @Value("${rabbitmq.sharding.exchange:document_processing_sharded}") String exchangeName,
+            @Value("${rabbitmq.sharding.shards:4}") int shards,
+            @Value("${rabbitmq.queue.processing:document_processing_queue}") String processingQueue
+    ) {
+        CustomExchange exchange = new CustomExchange(exchangeName, "x-consistent-hash", true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        for (int shard = 0; shard < shards; shard++) {
+            Queue queue = QueueBuilder.durable(shardQueueName(processingQueue, shard)).singleActiveConsumer().build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with("1").noargs());
+        }
+        return new Declarables(declarables);
+    }
+
+    public static String shardQueueName(String processingQueue, int shard) {
+        return processingQueue + ".shard-" + shard;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public FanoutExchange shardMembershipExchange(
+            @Value("${rabbitmq.sharding.membership-exchange:document_processing_members}") String exchangeName
+    ) {
+        return new FanoutExchange(exchangeName);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Queue shardMembershipQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("document_processing_members."));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Binding bindShardMembershipQueue(
+            @Qualifier("shardMembershipQueue") Queue shardMembershipQueue,
+            @Qualifier("shardMembershipExchange") FanoutExchange shardMembershipExchange
+    ) {
+        return BindingBuilder.bind(shardMembershipQueue).to(shardMembershipExchange);
+    }
+
+    /**
+     * Lets listener containers wait on shutdown for in-flight jobs: the drain grace period plus the time the
+     * page being recognised needs to finish.
+     */
+    @Bean
+    public ContainerCustomizer<SimpleMessageListenerContainer> drainingContainerCustomizer(
+            @Value("${processing.shutdown.grace-period-ms:60000}") long gracePeriodMs,
+            @Value("${processing.shutdown.page-timeout-ms:30000}") long pageTimeoutMs
+    ) {
+        return container -> container.setShutdownTimeout(gracePeriodMs + pageTimeoutMs);
+    }
+
     @Bean
     public ElasticsearchClient elasticsearchClient(
             @Value("${spring.elasticsearch.uris:http://elasticsearch:9200}") String esUri
@@ -1,15 +1,44 @@
 package at.fhtw.services.processor;
 
+import at.fhtw.services.CancellationRegistry;
+import at.fhtw.services.DrainCoordinator;
 import at.fhtw.services.ElasticsearchIndexService;
 import at.fhtw.services.MessageBroker;
 import at.fhtw.services.MinioStorageService;
+import at.fhtw.services.OcrCheckpointStore;
+import at.fhtw.services.OcrProgress;
 import at.fhtw.services.OcrService;
+import at.fhtw.services.ProcessingCancelledException;
+import at.fhtw.services.ProcessingLedger;
+import at.fhtw.services.ProcessingSuspendedException;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs OCR for documents from the processing queue.
+ *
+ * <p>
+ * Every recognised page is checkpointed, so a job interrupted by a shutdown resumes at the page where it
+ * stopped instead of starting over. While the worker drains, new deliveries and jobs that exceed the grace
+ * period are handed back to the broker by rethrowing {@link ProcessingSuspendedException}; the listener
+ * container then requeues the message.
+ * </p>
+ *
+ * <p>
+ * A deleted document is recognised by its tombstone in the {@link CancellationRegistry}. Tombstones only
+ * reach workers that were running when the document was deleted, so before OCR and again before indexing
+ * the worker also checks that the document's file is still in storage, which the REST service removes on
+ * delete.
+ * </p>
+ */
 
 @Slf4j
 @Service
@@ -19,28 +48,68 @@ public class DocumentProcessor {
     private final OcrService ocrService;
     private final ElasticsearchIndexService indexService;
     private final MessageBroker messageBroker;
+    private final CancellationRegistry cancellationRegistry;
+    private final ProcessingLedger processingLedger;
+    private final OcrCheckpointStore ocrCheckpointStore;
+    private final DrainCoordinator drainCoordinator;
 
     @RabbitListener(queues = "${rabbitmq.queue.processing}")
     public void processDocument(String message) {
         log.info("[REQUEST] processDocument received message: {}", message);
+        if (drainCoordinator.isDraining()) {
+            log.info("[RESPONSE] Worker is shutting down, returning message to the queue");
+            throw new ProcessingSuspendedException("Worker is shutting down");
+        }
+        drainCoordinator.jobStarted();
         File localFile = null;
         try {
             JSONObject json = new JSONObject(message);
             String documentId = json.getString("documentId");
             String filename = json.getString("filename");
+            String contentDigest = json.optString("contentDigest", null);
             log.info("[REQUEST] Parsed documentId: {} and filename: {}", documentId, filename);
+            ensureNotCancelled(documentId);
+            if (contentDigest != null && processingLedger.isCompleted(documentId, contentDigest)) {
+                log.info("[RESPONSE] Skipping duplicate delivery for already processed documentId: {}", documentId);
+                return;
+            }
+            ensureStored(documentId);
             String fileExtension = ".pdf";
             localFile = storageService.downloadFile(documentId, fileExtension);
             log.info("[RESPONSE] File downloaded for documentId: {}", documentId);
-            String extractedText = ocrService.extractText(localFile);
+            if (contentDigest == null) {
+                contentDigest = digest(localFile);
+                if (processingLedger.isCompleted(documentId, contentDigest)) {
+                    log.info("[RESPONSE] Skipping duplicate delivery for already processed documentId: {}", documentId);
+                    return;
+                }
+            }
+            String extractedText = ocrService.extractText(localFile, checkpointedProgress(documentId, contentDigest));
             log.info("[RESPONSE] OCR extraction completed for documentId: {} (text length: {})", documentId, extractedText.length());
+            ensureNotCancelled(documentId);
+            ensureStored(documentId);
             indexService.indexDocument(documentId, filename, extractedText);
             log.info("[RESPONSE] Document indexed for documentId: {}", documentId);
-            messageBroker.sendToResultQueue(documentId, extractedText);
+            if (cancellationRegistry.isCancelled(documentId)) {
+                indexService.deleteDocument(documentId);
+                throw new ProcessingCancelledException("Document deleted while being indexed: " + documentId);
+            }
+            String completedDigest = contentDigest;
+            messageBroker.sendToResultQueue(documentId, extractedText, completedDigest)
+                    .thenRunAsync(() -> {
+                        processingLedger.markCompleted(documentId, completedDigest);
+                        ocrCheckpointStore.delete(documentId);
+                    });
             log.info("[RESPONSE] Message sent to result queue for documentId: {}", documentId);
+        } catch (ProcessingCancelledException e) {
+            log.info("[RESPONSE] processDocument skipped cancelled document: {}", e.getMessage());
+        } catch (ProcessingSuspendedException e) {
+            log.info("[RESPONSE] processDocument suspended for shutdown, message is requeued: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("[ERROR] processDocument failed. Error: {}", e.getMessage(), e);
         } finally {
+            drainCoordinator.jobFinished();
             if (localFile != null) {
                 if (!localFile.delete()) {
                     log.warn("[ERROR] Could not delete temporary file: {}. Scheduling deletion on exit.", localFile.getAbsolutePath());
@@ -52,4 +121,46 @@ public class DocumentProcessor {
             log.info("[RESPONSE] processDocument completed");
         }
     }
-}
\ No newline at end of file
+
+    private OcrProgress checkpointedProgress(String documentId, String contentDigest) {
+        return new OcrProgress() {
+            @Override
+            public List<String> completedPages() {
+                return ocrCheckpointStore.loadPages(documentId, contentDigest);
+            }
+
+            @Override
+            public void pageCompleted(int pageIndex, String text) {
+                if (!cancellationRegistry.isCancelled(documentId)) {
+                    ocrCheckpointStore.savePage(documentId, contentDigest, pageIndex, text);
+                }
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancellationRegistry.isCancelled(documentId);
+            }
+
+            @Override
+            public boolean shouldSuspend() {
+                return drainCoordinator.isGracePeriodOver();
+            }
+        };
+    }
+
+    private String digest(File file) throws IOException {
+        return Files.asByteSource(file).hash(Hashing.sha256()).toString();
+    }
+
+    private void ensureNotCancelled(String documentId) {
+        if (cancellationRegistry.isCancelled(documentId)) {
+            throw new ProcessingCancelledException("Document was deleted: " + documentId);
+        }
+    }
+
+    private void ensureStored(String documentId) throws IOException {
+        if (!storageService.exists(documentId)) {
+            throw new ProcessingCancelledException("Document file no longer exists: " + documentId);
+        }
+    }
+}
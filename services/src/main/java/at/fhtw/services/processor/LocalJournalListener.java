@@ -0,0 +1,69 @@
+package at.fhtw.services.processor;
+
+import at.fhtw.journal.LocalJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Feeds processing requests and tombstones from the local journals to the same handlers the RabbitMQ
+ * listeners use.
+ *
+ * <p>
+ * A message is committed once its handler returned. A processing request handed back during shutdown stays
+ * in the journal and is processed again after the restart, resuming from its page checkpoints. On shutdown
+ * the listener waits as long as the RabbitMQ listener containers would for the job in progress.
+ * </p>
+ */
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "messaging.transport", havingValue = "local")
+public class LocalJournalListener {
+    public static final String CONSUMER = "services";
+
+    private final DocumentProcessor documentProcessor;
+    private final TombstoneListener tombstoneListener;
+    private final LocalJournal processingJournal;
+    private final LocalJournal tombstoneJournal;
+    private final long pollIntervalMs;
+    private final long shutdownTimeoutMs;
+
+    public LocalJournalListener(
+            DocumentProcessor documentProcessor,
+            TombstoneListener tombstoneListener,
+            @Value("${messaging.local.directory:/var/lib/paperless/journal}") String directory,
+            @Value("${messaging.local.segment-bytes:67108864}") long segmentBytes,
+            @Value("${messaging.local.poll-interval-ms:200}") long pollIntervalMs,
+            @Value("${rabbitmq.queue.processing:document_processing_queue}") String processingQueue,
+            @Value("${rabbitmq.tombstone.exchange:document_tombstone_exchange}") String tombstoneExchange,
+            @Value("${processing.shutdown.grace-period-ms:60000}") long gracePeriodMs,
+            @Value("${processing.shutdown.page-timeout-ms:30000}") long pageTimeoutMs
+    ) throws IOException {
+        this.documentProcessor = documentProcessor;
+        this.tombstoneListener = tombstoneListener;
+        this.processingJournal = new LocalJournal(Path.of(directory, processingQueue), segmentBytes);
+        this.tombstoneJournal = new LocalJournal(Path.of(directory, tombstoneExchange), segmentBytes);
+        this.pollIntervalMs = pollIntervalMs;
+        this.shutdownTimeoutMs = gracePeriodMs + pageTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        tombstoneJournal.subscribe(CONSUMER, pollIntervalMs, tombstoneListener::onTombstone);
+        processingJournal.subscribe(CONSUMER, pollIntervalMs, documentProcessor::processDocument);
+        log.info("[RESPONSE] Consuming processing requests and tombstones from local journals");
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        tombstoneJournal.close(pollIntervalMs * 10);
+        processingJournal.close(shutdownTimeoutMs);
+    }
+}
@@ -0,0 +1,223 @@
+package at.fhtw.services.processor;
+
+import at.fhtw.services.configuration.ProcessorConfig;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads the processing shard queues over the running workers.
+ *
+ * <p>
+ * Workers announce themselves with heartbeats on a fanout exchange; a worker that stops sending them or
+ * announces that it leaves drops out of the membership. Every worker assigns each shard to the member with
+ * the highest hash of member ID and shard (rendezvous hashing), so all workers agree on the owners without
+ * talking to each other, and a joining or leaving worker only moves the shards it gains or loses. A worker
+ * consumes exactly the shards it owns. While views of the membership briefly differ, the single active
+ * consumer setting of the shard queues keeps a shard on one worker until the previous owner let go of it.
+ * </p>
+ */
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+public class ShardCoordinator {
+    private final DocumentProcessor documentProcessor;
+    private final SimpleRabbitListenerContainerFactory containerFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final String processingQueue;
+    private final int shards;
+    private final String membershipExchange;
+    private final long heartbeatIntervalMs;
+    private final long memberTimeoutMs;
+    private final String memberId = UUID.randomUUID().toString();
+    private final Map<String, Long> members = new ConcurrentHashMap<>();
+    private final Map<Integer, SimpleMessageListenerContainer> containers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "shard-coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean started;
+
+    public ShardCoordinator(
+            DocumentProcessor documentProcessor,
+            SimpleRabbitListenerContainerFactory containerFactory,
+            RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.queue.processing:document_processing_queue}") String processingQueue,
+            @Value("${rabbitmq.sharding.shards:4}") int shards,
+            @Value("${rabbitmq.sharding.membership-exchange:document_processing_members}") String membershipExchange,
+            @Value("${rabbitmq.sharding.heartbeat-interval-ms:5000}") long heartbeatIntervalMs,
+            @Value("${rabbitmq.sharding.member-timeout-ms:15000}") long memberTimeoutMs
+    ) {
+        this.documentProcessor = documentProcessor;
+        this.containerFactory = containerFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.processingQueue = processingQueue;
+        this.shards = shards;
+        this.membershipExchange = membershipExchange;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.memberTimeoutMs = memberTimeoutMs;
+        members.put(memberId, Long.MAX_VALUE);
+        Gauge.builder("paperless.shards.owned", containers, Map::size)
+                .description("Processing shards consumed by this worker")
+                .register(meterRegistry);
+        Gauge.builder("paperless.shards.members", members, Map::size)
+                .description("Workers currently sharing the processing shards")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        started = true;
+        scheduler.scheduleWithFixedDelay(this::tick, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("[REQUEST] Worker {} joins the {} processing shards", memberId, shards);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        started = false;
+        scheduler.shutdownNow();
+        try {
+            announce(true);
+        } catch (Exception e) {
+            log.warn("[ERROR] Could not announce leaving the processing shards: {}", e.getMessage());
+        }
+        containers.values().forEach(SimpleMessageListenerContainer::stop);
+        containers.clear();
+    }
+
+    @RabbitListener(queues = "#{shardMembershipQueue.name}")
+    public void onMembership(String message) {
+        try {
+            JSONObject json = new JSONObject(message);
+            String member = json.getString("memberId");
+            if (memberId.equals(member)) {
+                return;
+            }
+            boolean changed = json.optBoolean("leaving", false)
+                    ? members.remove(member) != null
+                    : members.put(member, System.currentTimeMillis()) == null;
+            if (changed) {
+                log.info("[RESPONSE] Shard membership changed, {} workers", members.size());
+                rebalance();
+            }
+        } catch (Exception e) {
+            log.error("[ERROR] onMembership failed. Error: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes members whose last heartbeat is older than the member timeout.
+     *
+     * @return whether a member was removed
+     */
+    public boolean expireMembers(long now) {
+        return members.entrySet().removeIf(entry -> now - entry.getValue() > memberTimeoutMs);
+    }
+
+    public Set<Integer> ownedShards() {
+        Set<Integer> owned = new TreeSet<>();
+        for (int shard = 0; shard < shards; shard++) {
+            if (memberId.equals(owner(shard, members.keySet()))) {
+                owned.add(shard);
+            }
+        }
+        return owned;
+    }
+
+    public String getMemberId() {
+        return memberId;
+    }
+
+    /**
+     * The member owning the shard: the one with the highest hash of member ID and shard.
+     */
+    public static String owner(int shard, Collection<String> members) {
+        String owner = null;
+        long highest = Long.MIN_VALUE;
+        for (String member : members) {
+            long hash = Hashing.murmur3_128().hashString(member + "#" + shard, StandardCharsets.UTF_8).asLong();
+            if (owner == null || hash > highest || (hash == highest && member.compareTo(owner) < 0)) {
+                owner = member;
+                highest = hash;
+            }
+        }
+        return owner;
+    }
+
+    private void tick() {
+        try {
+            announce(false);
+        } catch (Exception e) {
+            log.warn("[ERROR] Could not send shard heartbeat: {}", e.getMessage());
+        }
+        if (expireMembers(System.currentTimeMillis())) {
+            log.info("[RESPONSE] Workers timed out, {} workers share the processing shards", members.size());
+        }
+        rebalance();
+    }
+
+    private void announce(boolean leaving) {
+        String message = new JSONObject().put("memberId", memberId).put("leaving", leaving).toString();
+        rabbitTemplate.convertAndSend(membershipExchange, "", message);
+    }
+
+    private synchronized void rebalance() {
+        if (!started) {
+            return;
+        }
+        Set<Integer> owned = ownedShards();
+        containers.keySet().removeIf(shard -> {
+            if (owned.contains(shard)) {
+                return false;
+            }
+            SimpleMessageListenerContainer container = containers.get(shard);
+            log.info("[RESPONSE] Handing over processing shard {}", shard);
+            container.stop(() -> log.info("[RESPONSE] Processing shard {} released", shard));
+            return true;
+        });
+        for (int shard : owned) {
+            containers.computeIfAbsent(shard, this::startContainer);
+        }
+    }
+
+    private SimpleMessageListenerContainer startContainer(int shard) {
+        String queue = ProcessorConfig.shardQueueName(processingQueue, shard);
+        SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("processing-shard-" + shard);
+        endpoint.setQueueNames(queue);
+        endpoint.setMessageListener((MessageListener) message ->
+                documentProcessor.processDocument(new String(message.getBody(), StandardCharsets.UTF_8)));
+        SimpleMessageListenerContainer container = containerFactory.createListenerContainer(endpoint);
+        container.afterPropertiesSet();
+        container.start();
+        log.info("[RESPONSE] Consuming processing shard {} from queue {}", shard, queue);
+        return container;
+    }
+}
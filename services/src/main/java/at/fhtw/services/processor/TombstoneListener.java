@@ -0,0 +1,44 @@
+package at.fhtw.services.processor;
+
+import at.fhtw.services.CancellationRegistry;
+import at.fhtw.services.ElasticsearchIndexService;
+import at.fhtw.services.OcrCheckpointStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Receives tombstones for deleted documents on this instance's fanout queue.
+ *
+ * <p>
+ * The document is registered as cancelled before its index entry is removed, so a worker that indexes the
+ * document concurrently either sees the cancellation when it checks afterwards and removes the entry
+ * itself, or indexed early enough for this delete to remove it. Page checkpoints of the document are
+ * discarded as well.
+ * </p>
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TombstoneListener {
+    private final CancellationRegistry cancellationRegistry;
+    private final ElasticsearchIndexService indexService;
+    private final OcrCheckpointStore ocrCheckpointStore;
+
+    @RabbitListener(queues = "#{tombstoneQueue.name}")
+    public void onTombstone(String message) {
+        log.info("[REQUEST] onTombstone received message: {}", message);
+        try {
+            String documentId = new JSONObject(message).getString("documentId");
+            cancellationRegistry.cancel(documentId);
+            indexService.deleteDocument(documentId);
+            ocrCheckpointStore.delete(documentId);
+            log.info("[RESPONSE] Processing cancelled for documentId: {}", documentId);
+        } catch (Exception e) {
+            log.error("[ERROR] onTombstone failed. Error: {}", e.getMessage(), e);
+        }
+    }
+}
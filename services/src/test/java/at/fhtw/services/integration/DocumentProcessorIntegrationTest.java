@@ -1,6 +1,9 @@
 package at.fhtw.services.integration;
 
+import at.fhtw.services.CancellationRegistryImp;
+import at.fhtw.services.DrainCoordinatorImp;
 import at.fhtw.services.processor.DocumentProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.json.JSONObject;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -60,7 +63,11 @@ public class DocumentProcessorIntegrationTest extends IntegrationTestBase {
                 dummyMinioStorageService,
                 dummyOcrService,
                 dummyIndexService,
-                dummyMessageBroker
+                dummyMessageBroker,
+                new CancellationRegistryImp(60_000, 1_000),
+                new DummyProcessingLedger(),
+                new DummyOcrCheckpointStore(),
+                new DrainCoordinatorImp(new SimpleMeterRegistry(), 60_000)
         );
     }
 
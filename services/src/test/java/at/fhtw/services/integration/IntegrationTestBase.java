@@ -1,10 +1,15 @@
 package at.fhtw.services.integration;
 
+import at.fhtw.services.CancellationRegistryImp;
+import at.fhtw.services.DrainCoordinatorImp;
 import at.fhtw.services.ElasticsearchIndexService;
 import at.fhtw.services.MessageBroker;
 import at.fhtw.services.MinioStorageService;
+import at.fhtw.services.OcrCheckpointStore;
 import at.fhtw.services.OcrService;
+import at.fhtw.services.ProcessingLedger;
 import at.fhtw.services.processor.DocumentProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.Getter;
 import lombok.Setter;
 import org.json.JSONObject;
@@ -27,9 +32,14 @@ import org.testcontainers.utility.DockerImageName;
 import java.io.File;
 import java.nio.file.Files;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 public abstract class IntegrationTestBase {
@@ -75,6 +85,7 @@ public abstract class IntegrationTestBase {
         public static final int CONCURRENT_THREAD_COUNT = 5;
         public static final String TEST_DOCUMENT_ID = "123";
         public static final String TEST_OCR_TEXT = "Integration Test OCR Text";
+        public static final String CONTENT_DIGEST = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
     }
 
     public static class MinioConstants {
@@ -162,7 +173,8 @@ public abstract class IntegrationTestBase {
                                                    OcrService ocrService,
                                                    ElasticsearchIndexService indexService,
                                                    MessageBroker messageBroker) {
-            return new DocumentProcessor(storageService, ocrService, indexService, messageBroker);
+            return new DocumentProcessor(storageService, ocrService, indexService, messageBroker, new CancellationRegistryImp(60_000, 1_000),
+                    new DummyProcessingLedger(), new DummyOcrCheckpointStore(), new DrainCoordinatorImp(new SimpleMeterRegistry(), 60_000));
         }
     }
 
@@ -182,6 +194,11 @@ public abstract class IntegrationTestBase {
             Files.write(lastDownloadedFile.toPath(), "dummy content".getBytes());
             return lastDownloadedFile;
         }
+
+        @Override
+        public boolean exists(String documentId) {
+            return true;
+        }
     }
 
     public static class DummyOcrService implements OcrService {
@@ -217,6 +234,11 @@ public abstract class IntegrationTestBase {
             indexedText.put(documentId, ocrText);
         }
 
+        @Override
+        public void deleteDocument(String documentId) {
+            indexedText.remove(documentId);
+        }
+
         public String getIndexedText(String documentId) {
             return indexedText.get(documentId);
         }
@@ -227,8 +249,9 @@ public abstract class IntegrationTestBase {
         private final Map<String, String> messages = new HashMap<>();
 
         @Override
-        public void sendToResultQueue(String documentId, String ocrText) {
+        public CompletableFuture<Void> sendToResultQueue(String documentId, String ocrText, String contentDigest) {
             messages.put(documentId, ocrText);
+            return CompletableFuture.completedFuture(null);
         }
 
         public String getMessage(String documentId) {
@@ -236,6 +259,41 @@ public abstract class IntegrationTestBase {
         }
     }
 
+    public static class DummyProcessingLedger implements ProcessingLedger {
+
+        private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean isCompleted(String documentId, String contentDigest) {
+            return completed.contains(documentId + ":" + contentDigest);
+        }
+
+        @Override
+        public void markCompleted(String documentId, String contentDigest) {
+            completed.add(documentId + ":" + contentDigest);
+        }
+    }
+
+    public static class DummyOcrCheckpointStore implements OcrCheckpointStore {
+
+        private final Map<String, List<String>> pages = new ConcurrentHashMap<>();
+
+        @Override
+        public List<String> loadPages(String documentId, String contentDigest) {
+            return new ArrayList<>(pages.getOrDefault(documentId + ":" + contentDigest, List.of()));
+        }
+
+        @Override
+        public void savePage(String documentId, String contentDigest, int pageIndex, String text) {
+            pages.computeIfAbsent(documentId + ":" + contentDigest, key -> new ArrayList<>()).add(text);
+        }
+
+        @Override
+        public void delete(String documentId) {
+            pages.keySet().removeIf(key -> key.startsWith(documentId + ":"));
+        }
+    }
+
     @org.springframework.stereotype.Service
     public static class DummyAspect {
 
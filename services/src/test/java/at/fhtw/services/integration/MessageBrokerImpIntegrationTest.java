@@ -1,8 +1,10 @@
 package at.fhtw.services.integration;
 
+import at.fhtw.journal.message.PublisherConfirmTracker;
 import at.fhtw.services.MessageBrokerImp;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -42,11 +44,13 @@ class MessageBrokerImpIntegrationTest extends IntegrationTestBase {
         connectionFactory = new CachingConnectionFactory(rabbitHost, rabbitPort);
         connectionFactory.setUsername("guest");
         connectionFactory.setPassword("guest");
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
 
         rabbitTemplate = new RabbitTemplate(connectionFactory);
         new RabbitAdmin(connectionFactory).declareQueue(new Queue(QUEUE_NAME, false));
 
-        messageBrokerImp = new MessageBrokerImp(rabbitTemplate, QUEUE_NAME, new ObjectMapper());
+        PublisherConfirmTracker confirmTracker = new PublisherConfirmTracker(rabbitTemplate, new SimpleMeterRegistry(), 256, 5000, 3);
+        messageBrokerImp = new MessageBrokerImp(confirmTracker, QUEUE_NAME, new ObjectMapper());
         objectMapper = new ObjectMapper();
     }
 
@@ -63,7 +67,7 @@ class MessageBrokerImpIntegrationTest extends IntegrationTestBase {
     @Test
     @DisplayName("Given a message broker, when sending a message to the result queue, then the message should be received")
     void testSendToResultQueue() throws Exception {
-        messageBrokerImp.sendToResultQueue(TEST_DOCUMENT_ID, TEST_OCR_TEXT);
+        messageBrokerImp.sendToResultQueue(TEST_DOCUMENT_ID, TEST_OCR_TEXT, CONTENT_DIGEST);
         String received = (String) rabbitTemplate.receiveAndConvert(QUEUE_NAME, RECEIVE_TIMEOUT);
         assertThat(received).isNotNull();
 
@@ -82,7 +86,7 @@ class MessageBrokerImpIntegrationTest extends IntegrationTestBase {
             for (int i = 0; i < CONCURRENT_MESSAGE_COUNT; i++) {
                 final String id = String.valueOf(i);
                 executorService.submit(() -> {
-                    messageBrokerImp.sendToResultQueue(id, "text" + id);
+                    messageBrokerImp.sendToResultQueue(id, "text" + id, CONTENT_DIGEST);
                     latch.countDown();
                 });
             }
@@ -108,7 +112,7 @@ class MessageBrokerImpIntegrationTest extends IntegrationTestBase {
     @DisplayName("Given a message broker, when sending a large message, then the message should be received")
     void testLargeMessage() throws Exception {
         String largeText = "A".repeat(100_000);
-        messageBrokerImp.sendToResultQueue(TEST_DOCUMENT_ID, largeText);
+        messageBrokerImp.sendToResultQueue(TEST_DOCUMENT_ID, largeText, CONTENT_DIGEST);
         String received = (String) rabbitTemplate.receiveAndConvert(QUEUE_NAME, RECEIVE_TIMEOUT);
         assertThat(received).isNotNull();
 
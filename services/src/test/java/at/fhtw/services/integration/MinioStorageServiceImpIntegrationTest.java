@@ -33,7 +33,7 @@ class MinioStorageServiceImpIntegrationTest extends IntegrationTestBase {
                     .endpoint(SharedContainersExtension.getMinioEndpoint())
                     .credentials(SharedContainersExtension.MINIO_USERNAME, SharedContainersExtension.MINIO_PASSWORD)
                     .build();
-            storageService = new MinioStorageServiceImp(minioClient);
+            storageService = new MinioStorageServiceImp(minioClient, BUCKET);
             initializeBucket();
         } catch (Exception e) {
             throw new RuntimeException(EXPECTED_ERROR_RESPONSE_EXCEPTION_MSG , e);
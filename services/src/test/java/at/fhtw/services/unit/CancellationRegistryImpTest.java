@@ -0,0 +1,48 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.services.CancellationRegistryImp;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_DOCUMENT_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CancellationRegistryImpTest extends TestBase {
+
+    @Test
+    @DisplayName("Unknown documents are not cancelled")
+    void unknownDocumentNotCancelled() {
+        CancellationRegistryImp registry = new CancellationRegistryImp(60_000, 10);
+        assertThat(registry.isCancelled(VALID_DOCUMENT_ID)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Cancelled documents stay cancelled within the retention period")
+    void cancelledDocument() {
+        CancellationRegistryImp registry = new CancellationRegistryImp(60_000, 10);
+        registry.cancel(VALID_DOCUMENT_ID);
+        assertThat(registry.isCancelled(VALID_DOCUMENT_ID)).isTrue();
+        assertThat(registry.isCancelled("other")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Tombstones are forgotten after the retention period")
+    void tombstoneExpires() {
+        CancellationRegistryImp registry = new CancellationRegistryImp(0, 10);
+        registry.cancel(VALID_DOCUMENT_ID);
+        assertThat(registry.isCancelled(VALID_DOCUMENT_ID)).isFalse();
+    }
+
+    @Test
+    @DisplayName("The registry never holds more than the entry limit")
+    void boundedBySize() {
+        CancellationRegistryImp registry = new CancellationRegistryImp(60_000, 2);
+        registry.cancel("doc1");
+        registry.cancel("doc2");
+        registry.cancel("doc3");
+        assertThat(Stream.of("doc1", "doc2", "doc3").filter(registry::isCancelled)).hasSize(2);
+        assertThat(registry.isCancelled("doc3")).isTrue();
+    }
+}
@@ -1,9 +1,16 @@
 package at.fhtw.services.unit;
 
+import at.fhtw.services.CancellationRegistry;
+import at.fhtw.services.DrainCoordinator;
 import at.fhtw.services.ElasticsearchIndexService;
 import at.fhtw.services.MessageBroker;
 import at.fhtw.services.MinioStorageService;
+import at.fhtw.services.OcrCheckpointStore;
+import at.fhtw.services.OcrProgress;
 import at.fhtw.services.OcrService;
+import at.fhtw.services.ProcessingCancelledException;
+import at.fhtw.services.ProcessingLedger;
+import at.fhtw.services.ProcessingSuspendedException;
 import at.fhtw.services.processor.DocumentProcessor;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +19,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,8 +30,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static at.fhtw.services.unit.TestBase.DocumentConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +51,14 @@ class DocumentProcessorTest extends TestBase {
     private ElasticsearchIndexService mockIndexService;
     @Mock
     private MessageBroker mockMessageBroker;
+    @Mock
+    private CancellationRegistry mockCancellationRegistry;
+    @Mock
+    private ProcessingLedger mockProcessingLedger;
+    @Mock
+    private OcrCheckpointStore mockCheckpointStore;
+    @Mock
+    private DrainCoordinator mockDrainCoordinator;
 
     @TempDir
     Path tempDir;
@@ -53,8 +73,15 @@ class DocumentProcessorTest extends TestBase {
                 mockStorageService,
                 mockOcrService,
                 mockIndexService,
-                mockMessageBroker
+                mockMessageBroker,
+                mockCancellationRegistry,
+                mockProcessingLedger,
+                mockCheckpointStore,
+                mockDrainCoordinator
         );
+        lenient().when(mockMessageBroker.sendToResultQueue(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(mockStorageService.exists(VALID_DOCUMENT_ID)).thenReturn(true);
         validMessage = createValidDocumentMessage();
         tempFile = Files.createTempFile(tempDir, "doc", ".tmp").toFile();
     }
@@ -66,7 +93,7 @@ class DocumentProcessorTest extends TestBase {
         @BeforeEach
         void setUpValidProcessing() throws Exception {
             when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
-            when(mockOcrService.extractText(tempFile)).thenReturn(VALID_EXTRACTED_TEXT);
+            lenient().when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
         }
 
         @Test
@@ -80,9 +107,9 @@ class DocumentProcessorTest extends TestBase {
                     mockMessageBroker
             );
             inOrder.verify(mockStorageService).downloadFile(VALID_DOCUMENT_ID, fileExtension);
-            inOrder.verify(mockOcrService).extractText(tempFile);
+            inOrder.verify(mockOcrService).extractText(eq(tempFile), any(OcrProgress.class));
             inOrder.verify(mockIndexService).indexDocument(VALID_DOCUMENT_ID, VALID_FILENAME, VALID_EXTRACTED_TEXT);
-            inOrder.verify(mockMessageBroker).sendToResultQueue(VALID_DOCUMENT_ID, VALID_EXTRACTED_TEXT);
+            inOrder.verify(mockMessageBroker).sendToResultQueue(eq(VALID_DOCUMENT_ID), eq(VALID_EXTRACTED_TEXT), anyString());
         }
 
         @Test
@@ -95,10 +122,10 @@ class DocumentProcessorTest extends TestBase {
         @Test
         @DisplayName("Should handle empty OCR result")
         void shouldHandleEmptyOcrResult() throws Exception {
-            when(mockOcrService.extractText(tempFile)).thenReturn("");
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn("");
             documentProcessor.processDocument(validMessage);
             verify(mockIndexService).indexDocument(VALID_DOCUMENT_ID, VALID_FILENAME, "");
-            verify(mockMessageBroker).sendToResultQueue(VALID_DOCUMENT_ID, "");
+            verify(mockMessageBroker).sendToResultQueue(eq(VALID_DOCUMENT_ID), eq(""), anyString());
         }
     }
 
@@ -150,7 +177,7 @@ class DocumentProcessorTest extends TestBase {
         @DisplayName("Should handle OCR service failure")
         void shouldHandleOcrServiceFailure() throws Exception {
             when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
-            when(mockOcrService.extractText(tempFile)).thenThrow(new RuntimeException("OCR service error"));
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenThrow(new RuntimeException("OCR service error"));
             documentProcessor.processDocument(validMessage);
             verifyNoInteractions(mockIndexService, mockMessageBroker);
             assertFileDeleted(tempFile);
@@ -160,7 +187,7 @@ class DocumentProcessorTest extends TestBase {
         @DisplayName("Should handle index service failure")
         void shouldHandleIndexServiceFailure() throws Exception {
             when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
-            when(mockOcrService.extractText(tempFile)).thenReturn(VALID_EXTRACTED_TEXT);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
             doThrow(new RuntimeException("Index service error"))
                     .when(mockIndexService).indexDocument(VALID_DOCUMENT_ID, VALID_FILENAME, VALID_EXTRACTED_TEXT);
             documentProcessor.processDocument(validMessage);
@@ -172,9 +199,9 @@ class DocumentProcessorTest extends TestBase {
         @DisplayName("Should handle message broker failure")
         void shouldHandleMessageBrokerFailure() throws Exception {
             when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
-            when(mockOcrService.extractText(tempFile)).thenReturn(VALID_EXTRACTED_TEXT);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
             doThrow(new RuntimeException("Message broker error"))
-                    .when(mockMessageBroker).sendToResultQueue(VALID_DOCUMENT_ID, VALID_EXTRACTED_TEXT);
+                    .when(mockMessageBroker).sendToResultQueue(eq(VALID_DOCUMENT_ID), eq(VALID_EXTRACTED_TEXT), anyString());
             documentProcessor.processDocument(validMessage);
             verify(mockIndexService).indexDocument(VALID_DOCUMENT_ID, VALID_FILENAME, VALID_EXTRACTED_TEXT);
             assertFileDeleted(tempFile);
@@ -185,12 +212,172 @@ class DocumentProcessorTest extends TestBase {
         void shouldHandleFileDeletionFailure() throws Exception {
             File spyFile = spy(tempFile);
             when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(spyFile);
-            when(mockOcrService.extractText(spyFile)).thenReturn(VALID_EXTRACTED_TEXT);
+            when(mockOcrService.extractText(eq(spyFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
             doReturn(false).when(spyFile).delete();
             documentProcessor.processDocument(validMessage);
             verify(spyFile).deleteOnExit();
             verify(mockIndexService).indexDocument(VALID_DOCUMENT_ID, VALID_FILENAME, VALID_EXTRACTED_TEXT);
-            verify(mockMessageBroker).sendToResultQueue(VALID_DOCUMENT_ID, VALID_EXTRACTED_TEXT);
+            verify(mockMessageBroker).sendToResultQueue(eq(VALID_DOCUMENT_ID), eq(VALID_EXTRACTED_TEXT), anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Cancellation")
+    class Cancellation {
+
+        @Test
+        @DisplayName("Should skip documents deleted before processing started")
+        void shouldSkipCancelledDocument() {
+            when(mockCancellationRegistry.isCancelled(VALID_DOCUMENT_ID)).thenReturn(true);
+            documentProcessor.processDocument(validMessage);
+            verifyNoInteractions(mockStorageService, mockOcrService, mockIndexService, mockMessageBroker);
+        }
+
+        @Test
+        @DisplayName("Should skip documents whose file was deleted even without a tombstone")
+        void shouldSkipDocumentWithoutFile() throws Exception {
+            when(mockStorageService.exists(VALID_DOCUMENT_ID)).thenReturn(false);
+            documentProcessor.processDocument(validMessage);
+            verify(mockStorageService, never()).downloadFile(anyString(), anyString());
+            verifyNoInteractions(mockOcrService, mockIndexService, mockMessageBroker);
+        }
+
+        @Test
+        @DisplayName("Should not index documents whose file was deleted during OCR")
+        void shouldNotIndexWhenFileDeletedDuringOcr() throws Exception {
+            when(mockStorageService.exists(VALID_DOCUMENT_ID)).thenReturn(true, false);
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
+            documentProcessor.processDocument(validMessage);
+            verifyNoInteractions(mockIndexService, mockMessageBroker);
+            assertFileDeleted(tempFile);
+        }
+
+        @Test
+        @DisplayName("Should stop when OCR is cancelled mid-document")
+        void shouldStopWhenOcrCancelled() throws Exception {
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenThrow(new ProcessingCancelledException("OCR cancelled at page 2"));
+            documentProcessor.processDocument(validMessage);
+            verifyNoInteractions(mockIndexService, mockMessageBroker);
+            assertFileDeleted(tempFile);
+        }
+
+        @Test
+        @DisplayName("Should not index documents deleted during OCR")
+        void shouldNotIndexWhenCancelledDuringOcr() throws Exception {
+            when(mockCancellationRegistry.isCancelled(VALID_DOCUMENT_ID)).thenReturn(false, true);
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
+            documentProcessor.processDocument(validMessage);
+            verifyNoInteractions(mockIndexService, mockMessageBroker);
+        }
+
+        @Test
+        @DisplayName("Should remove the index entry when deleted while indexing")
+        void shouldRemoveIndexEntryWhenCancelledDuringIndexing() throws Exception {
+            when(mockCancellationRegistry.isCancelled(VALID_DOCUMENT_ID)).thenReturn(false, false, true);
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
+            documentProcessor.processDocument(validMessage);
+            verify(mockIndexService).indexDocument(VALID_DOCUMENT_ID, VALID_FILENAME, VALID_EXTRACTED_TEXT);
+            verify(mockIndexService).deleteDocument(VALID_DOCUMENT_ID);
+            verifyNoInteractions(mockMessageBroker);
+        }
+    }
+
+    @Nested
+    @DisplayName("Deduplication")
+    class Deduplication {
+
+        private static final String CONTENT_DIGEST = "abc123";
+
+        private String messageWithDigest() {
+            JSONObject json = new JSONObject(validMessage);
+            json.put("contentDigest", CONTENT_DIGEST);
+            return json.toString();
+        }
+
+        @Test
+        @DisplayName("Should acknowledge duplicate deliveries without downloading")
+        void shouldSkipCompletedDocument() {
+            when(mockProcessingLedger.isCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST)).thenReturn(true);
+            documentProcessor.processDocument(messageWithDigest());
+            verifyNoInteractions(mockStorageService, mockOcrService, mockIndexService, mockMessageBroker);
+        }
+
+        @Test
+        @DisplayName("Should record completion with the digest from the message once the result is confirmed")
+        void shouldRecordCompletion() throws Exception {
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
+            documentProcessor.processDocument(messageWithDigest());
+            verify(mockMessageBroker).sendToResultQueue(VALID_DOCUMENT_ID, VALID_EXTRACTED_TEXT, CONTENT_DIGEST);
+            verify(mockProcessingLedger, timeout(1000)).markCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST);
+        }
+
+        @Test
+        @DisplayName("Should compute the digest from the file for messages without one")
+        void shouldComputeDigestWhenMissing() throws Exception {
+            Files.writeString(tempFile.toPath(), "content");
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockProcessingLedger.isCompleted(eq(VALID_DOCUMENT_ID), anyString())).thenReturn(true);
+            documentProcessor.processDocument(validMessage);
+            verify(mockProcessingLedger).isCompleted(VALID_DOCUMENT_ID,
+                    "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73");
+            verifyNoInteractions(mockOcrService, mockIndexService, mockMessageBroker);
+            assertFileDeleted(tempFile);
+        }
+    }
+
+    @Nested
+    @DisplayName("Shutdown")
+    class Shutdown {
+
+        @Test
+        @DisplayName("Should hand new deliveries back to the broker while draining")
+        void shouldRequeueWhileDraining() {
+            when(mockDrainCoordinator.isDraining()).thenReturn(true);
+            assertThatThrownBy(() -> documentProcessor.processDocument(validMessage))
+                    .isInstanceOf(ProcessingSuspendedException.class);
+            verifyNoInteractions(mockStorageService, mockOcrService, mockIndexService, mockMessageBroker);
+            verify(mockDrainCoordinator, never()).jobStarted();
+        }
+
+        @Test
+        @DisplayName("Should rethrow suspended OCR so the message is requeued")
+        void shouldRequeueSuspendedOcr() throws Exception {
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class)))
+                    .thenThrow(new ProcessingSuspendedException("OCR suspended at page 3"));
+            assertThatThrownBy(() -> documentProcessor.processDocument(validMessage))
+                    .isInstanceOf(ProcessingSuspendedException.class);
+            verifyNoInteractions(mockIndexService, mockMessageBroker);
+            verify(mockDrainCoordinator).jobStarted();
+            verify(mockDrainCoordinator).jobFinished();
+            assertFileDeleted(tempFile);
+        }
+
+        @Test
+        @DisplayName("Should resume from and write to the checkpoint store")
+        void shouldCheckpointPages() throws Exception {
+            JSONObject json = new JSONObject(validMessage);
+            json.put("contentDigest", "abc123");
+            when(mockStorageService.downloadFile(VALID_DOCUMENT_ID, fileExtension)).thenReturn(tempFile);
+            when(mockOcrService.extractText(eq(tempFile), any(OcrProgress.class))).thenReturn(VALID_EXTRACTED_TEXT);
+            documentProcessor.processDocument(json.toString());
+
+            ArgumentCaptor<OcrProgress> captor = ArgumentCaptor.forClass(OcrProgress.class);
+            verify(mockOcrService).extractText(eq(tempFile), captor.capture());
+            OcrProgress progress = captor.getValue();
+            when(mockCheckpointStore.loadPages(VALID_DOCUMENT_ID, "abc123")).thenReturn(List.of("page 1"));
+            when(mockDrainCoordinator.isGracePeriodOver()).thenReturn(true);
+
+            assertThat(progress.completedPages()).containsExactly("page 1");
+            progress.pageCompleted(1, "page 2");
+            verify(mockCheckpointStore).savePage(VALID_DOCUMENT_ID, "abc123", 1, "page 2");
+            assertThat(progress.shouldSuspend()).isTrue();
+            verify(mockCheckpointStore, timeout(1000)).delete(VALID_DOCUMENT_ID);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.services.DrainCoordinatorImp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrainCoordinatorImpTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Not draining before the context is closed")
+    void notDrainingInitially() {
+        DrainCoordinatorImp coordinator = new DrainCoordinatorImp(meterRegistry, 0);
+        assertThat(coordinator.isDraining()).isFalse();
+        assertThat(coordinator.isGracePeriodOver()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Running jobs may continue until the grace period has elapsed")
+    void gracePeriod() {
+        DrainCoordinatorImp coordinator = new DrainCoordinatorImp(meterRegistry, 60_000);
+        coordinator.startDrain();
+        assertThat(coordinator.isDraining()).isTrue();
+        assertThat(coordinator.isGracePeriodOver()).isFalse();
+
+        DrainCoordinatorImp impatient = new DrainCoordinatorImp(new SimpleMeterRegistry(), 0);
+        impatient.startDrain();
+        assertThat(impatient.isGracePeriodOver()).isTrue();
+    }
+
+    @Test
+    @DisplayName("In-flight jobs are exposed as a gauge")
+    void inFlightGauge() {
+        DrainCoordinatorImp coordinator = new DrainCoordinatorImp(meterRegistry, 60_000);
+        coordinator.jobStarted();
+        coordinator.jobStarted();
+        coordinator.jobFinished();
+        assertThat(coordinator.getInFlight()).isEqualTo(1);
+        assertThat(meterRegistry.get("paperless.ocr.inflight").gauge().value()).isEqualTo(1.0);
+    }
+}
@@ -4,6 +4,8 @@ import at.fhtw.services.ElasticsearchIndexServiceImp;
 import at.fhtw.services.ElasticsearchIndexService;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch.core.DeleteRequest;
+import co.elastic.clients.elasticsearch.core.DeleteResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
 import jakarta.validation.Validation;
@@ -151,6 +153,33 @@ class ElasticsearchIndexServiceImpTest {
         }
     }
 
+    @Nested
+    @DisplayName("Given a document to delete")
+    class DocumentDeletion {
+
+        @Test
+        @DisplayName("When deleting, then the document is removed from the configured index")
+        void whenDeleting_thenDocumentIsRemovedFromIndex() throws Exception {
+            DeleteResponse deleteResponse = mock(DeleteResponse.class);
+            when(deleteResponse.result()).thenReturn(Result.Deleted);
+            when(esClient.delete(any(DeleteRequest.class))).thenReturn(deleteResponse);
+            ArgumentCaptor<DeleteRequest> captor = ArgumentCaptor.forClass(DeleteRequest.class);
+
+            indexService.deleteDocument(DOCUMENT_ID);
+
+            verify(esClient).delete(captor.capture());
+            assertThat(captor.getValue().index()).isEqualTo(INDEX_NAME);
+            assertThat(captor.getValue().id()).isEqualTo(DOCUMENT_ID);
+        }
+
+        @Test
+        @DisplayName("When ElasticsearchClient throws IOException on delete, it is rethrown")
+        void whenDeleteFails_thenIOExceptionIsRethrown() throws Exception {
+            when(esClient.delete(any(DeleteRequest.class))).thenThrow(new IOException("Simulated delete failure"));
+            assertThrows(IOException.class, () -> indexService.deleteDocument(DOCUMENT_ID));
+        }
+    }
+
     private IndexRequest<Map<String, Object>> captureIndexRequest() throws IOException {
         verify(esClient).index(requestCaptor.capture());
         return requestCaptor.getValue();
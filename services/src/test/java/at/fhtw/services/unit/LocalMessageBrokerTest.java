@@ -0,0 +1,52 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.journal.LocalJournal;
+import at.fhtw.services.LocalMessageBroker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_DOCUMENT_ID;
+import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_EXTRACTED_TEXT;
+import static at.fhtw.services.unit.TestBase.MessageBrokerConstants.CONTENT_DIGEST;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalMessageBrokerTest extends TestBase {
+
+    private static final String RESULT_QUEUE = "document_result_queue";
+
+    @TempDir
+    Path directory;
+
+    private LocalMessageBroker broker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        broker = new LocalMessageBroker(new ObjectMapper(), directory.toString(), 1024 * 1024, RESULT_QUEUE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        broker.shutdown();
+    }
+
+    @Test
+    @DisplayName("Results are written to the result journal and confirmed immediately")
+    void writesResultToJournal() throws Exception {
+        assertThat(broker.sendToResultQueue(VALID_DOCUMENT_ID, VALID_EXTRACTED_TEXT, CONTENT_DIGEST)).isCompleted();
+
+        try (LocalJournal journal = new LocalJournal(directory.resolve(RESULT_QUEUE), 1024 * 1024)) {
+            JSONObject result = new JSONObject(journal.poll("rest").getMessage());
+            assertThat(result.getString("documentId")).isEqualTo(VALID_DOCUMENT_ID);
+            assertThat(result.getString("ocrText")).isEqualTo(VALID_EXTRACTED_TEXT);
+            assertThat(result.getString("contentDigest")).isEqualTo(CONTENT_DIGEST);
+        }
+    }
+}
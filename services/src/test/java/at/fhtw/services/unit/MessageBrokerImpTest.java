@@ -1,5 +1,6 @@
 package at.fhtw.services.unit;
 
+import at.fhtw.journal.message.PublisherConfirmTracker;
 import at.fhtw.services.MessageBrokerImp;
 import at.fhtw.services.MessageBroker;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -25,12 +26,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.amqp.AmqpException;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.validation.beanvalidation.MethodValidationInterceptor;
 
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_DOCUMENT_ID;
@@ -44,7 +45,7 @@ import static org.mockito.Mockito.*;
 class MessageBrokerImpTest {
 
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private PublisherConfirmTracker confirmTracker;
     @Captor
     private ArgumentCaptor<String> queueCaptor;
     @Captor
@@ -57,7 +58,9 @@ class MessageBrokerImpTest {
     void setUp() {
         Locale.setDefault(Locale.ENGLISH);
         mapper = new ObjectMapper();
-        MessageBrokerImp concreteBroker = new MessageBrokerImp(rabbitTemplate, QUEUE_NAME, mapper);
+        lenient().when(confirmTracker.publish(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        MessageBrokerImp concreteBroker = new MessageBrokerImp(confirmTracker, QUEUE_NAME, mapper);
         ReflectionTestUtils.setField(concreteBroker, FIELD_RESULT_QUEUE, QUEUE_NAME);
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         MethodValidationInterceptor interceptor = new MethodValidationInterceptor(factory.getValidator());
@@ -69,7 +72,7 @@ class MessageBrokerImpTest {
 
     @AfterEach
     void tearDown() {
-        verifyNoMoreInteractions(rabbitTemplate);
+        verifyNoMoreInteractions(confirmTracker);
     }
 
     static Stream<Arguments> messagePermutations() {
@@ -86,19 +89,20 @@ class MessageBrokerImpTest {
         @Test
         @DisplayName("Given valid document ID and text, message should be sent correctly")
         void givenValidInputs_whenSendingToQueue_thenMessageIsSentCorrectly() throws Exception {
-            messageBroker.sendToResultQueue(VALID_DOCUMENT_ID, EXTRACTED_TEXT);
-            verify(rabbitTemplate).convertAndSend(queueCaptor.capture(), messageCaptor.capture());
+            messageBroker.sendToResultQueue(VALID_DOCUMENT_ID, EXTRACTED_TEXT, CONTENT_DIGEST);
+            verify(confirmTracker).publish(eq(""), queueCaptor.capture(), messageCaptor.capture());
             assertThat(queueCaptor.getValue()).isEqualTo(QUEUE_NAME);
             JsonNode json = mapper.readTree(messageCaptor.getValue());
             assertThat(json.get(JSON_KEY_DOCUMENT_ID).asText()).isEqualTo(VALID_DOCUMENT_ID);
             assertThat(json.get(JSON_KEY_OCR_TEXT).asText()).isEqualTo(EXTRACTED_TEXT);
+            assertThat(json.get(JSON_KEY_CONTENT_DIGEST).asText()).isEqualTo(CONTENT_DIGEST);
         }
 
         @Test
         @DisplayName("Given a very long document ID, message should be sent with full ID")
         void givenLongDocumentId_whenSendingToQueue_thenEntireIdIsSent() throws Exception {
-            messageBroker.sendToResultQueue(LONG_DOCUMENT_ID, EXTRACTED_TEXT);
-            verify(rabbitTemplate).convertAndSend(queueCaptor.capture(), messageCaptor.capture());
+            messageBroker.sendToResultQueue(LONG_DOCUMENT_ID, EXTRACTED_TEXT, CONTENT_DIGEST);
+            verify(confirmTracker).publish(eq(""), queueCaptor.capture(), messageCaptor.capture());
             assertThat(queueCaptor.getValue()).isEqualTo(QUEUE_NAME);
             JsonNode json = mapper.readTree(messageCaptor.getValue());
             assertThat(json.get(JSON_KEY_DOCUMENT_ID).asText()).isEqualTo(LONG_DOCUMENT_ID);
@@ -109,8 +113,8 @@ class MessageBrokerImpTest {
         @MethodSource("at.fhtw.services.unit.MessageBrokerImpTest#messagePermutations")
         @DisplayName("Given various permutations of document ID and text, message is formatted correctly")
         void testSendToResultQueue_withPermutations(String documentId, String ocrText) throws Exception {
-            messageBroker.sendToResultQueue(documentId, ocrText);
-            verify(rabbitTemplate).convertAndSend(queueCaptor.capture(), messageCaptor.capture());
+            messageBroker.sendToResultQueue(documentId, ocrText, CONTENT_DIGEST);
+            verify(confirmTracker).publish(eq(""), queueCaptor.capture(), messageCaptor.capture());
             assertThat(queueCaptor.getValue()).isEqualTo(QUEUE_NAME);
             JsonNode json = mapper.readTree(messageCaptor.getValue());
             String expectedDocumentId = documentId == null ? "" : documentId.replace("\"", "\\\"");
@@ -123,9 +127,9 @@ class MessageBrokerImpTest {
         @DisplayName("When RabbitTemplate fails, should propagate AmqpException")
         void whenRabbitTemplateFails_thenExceptionIsPropagated() {
             AmqpException simulatedException = new AmqpException(SIMULATED_AMQP_ERROR);
-            doThrow(simulatedException).when(rabbitTemplate).convertAndSend(anyString(), anyString());
+            doThrow(simulatedException).when(confirmTracker).publish(anyString(), anyString(), anyString());
             AmqpException thrown = catchThrowableOfType(
-                    () -> messageBroker.sendToResultQueue(DOC_ID, OCR_TEXT),
+                    () -> messageBroker.sendToResultQueue(DOC_ID, OCR_TEXT, CONTENT_DIGEST),
                     AmqpException.class
             );
             assertThat(thrown).isNotNull();
@@ -135,19 +139,19 @@ class MessageBrokerImpTest {
         @Test
         void testSendToResultQueueSuccess() throws JsonProcessingException {
             ObjectMapper mockMapper = mock(ObjectMapper.class);
-            MessageBrokerImp localBroker = new MessageBrokerImp(rabbitTemplate, QUEUE_NAME, mockMapper);
+            MessageBrokerImp localBroker = new MessageBrokerImp(confirmTracker, QUEUE_NAME, mockMapper);
             ObjectNode node = mock(ObjectNode.class);
             when(mockMapper.createObjectNode()).thenReturn(node);
             when(mockMapper.writeValueAsString(node)).thenReturn("{\"documentId\":\"" + DOC_ID + "\",\"ocrText\":\"" + OCR_TEXT + "\"}");
-            localBroker.sendToResultQueue(DOC_ID, OCR_TEXT);
-            verify(rabbitTemplate).convertAndSend(anyString(), anyString());
+            localBroker.sendToResultQueue(DOC_ID, OCR_TEXT, CONTENT_DIGEST);
+            verify(confirmTracker).publish(anyString(), anyString(), anyString());
         }
 
         @Test
         void testSendToResultQueueThrowsAmqpException() {
-            doThrow(new AmqpException(SIMULATED_AMQP_ERROR)).when(rabbitTemplate).convertAndSend(anyString(), anyString());
+            doThrow(new AmqpException(SIMULATED_AMQP_ERROR)).when(confirmTracker).publish(anyString(), anyString(), anyString());
             AmqpException thrown = catchThrowableOfType(
-                    () -> messageBroker.sendToResultQueue(DOC_ID, OCR_TEXT),
+                    () -> messageBroker.sendToResultQueue(DOC_ID, OCR_TEXT, CONTENT_DIGEST),
                     AmqpException.class
             );
             assertThat(thrown).isNotNull();
@@ -157,12 +161,12 @@ class MessageBrokerImpTest {
         @Test
         void testSendToResultQueueThrowsRuntimeException() throws JsonProcessingException {
             ObjectMapper mockMapper = mock(ObjectMapper.class);
-            MessageBrokerImp localBroker = new MessageBrokerImp(rabbitTemplate, QUEUE_NAME, mockMapper);
+            MessageBrokerImp localBroker = new MessageBrokerImp(confirmTracker, QUEUE_NAME, mockMapper);
             when(mockMapper.createObjectNode()).thenReturn(Mockito.mock(ObjectNode.class));
             when(mockMapper.writeValueAsString(any(ObjectNode.class)))
                     .thenThrow(new JsonProcessingException(SIMULATED_JSON_ERROR) {});
             RuntimeException thrown = catchThrowableOfType(
-                    () -> localBroker.sendToResultQueue(DOC_ID, OCR_TEXT),
+                    () -> localBroker.sendToResultQueue(DOC_ID, OCR_TEXT, CONTENT_DIGEST),
                     RuntimeException.class
             );
             assertThat(thrown).isNotNull();
@@ -4,6 +4,9 @@ import at.fhtw.services.MinioStorageServiceImp;
 import io.minio.GetObjectArgs;
 import io.minio.GetObjectResponse;
 import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
 import okhttp3.Headers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -26,6 +30,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,7 +50,7 @@ class MinioStorageServiceImpTest {
     @BeforeEach
     void setUp() {
         minioClient = org.mockito.Mockito.mock(MinioClient.class);
-        storageService = new MinioStorageServiceImp(minioClient);
+        storageService = new MinioStorageServiceImp(minioClient, BUCKET_NAME);
     }
 
     @AfterEach
@@ -97,4 +102,40 @@ class MinioStorageServiceImpTest {
         );
         assertThat(ASSERT_EXCEPTION_MESSAGE, exception.getMessage(), is(MINIO_ERROR_MESSAGE));
     }
+
+    @Test
+    @DisplayName("Should report a stored document as existing")
+    void shouldReportExistingDocument() throws Exception {
+        assertThat(storageService.exists(DOCUMENT_ID), is(true));
+    }
+
+    @Test
+    @DisplayName("Should report a deleted document as missing")
+    void shouldReportMissingDocument() throws Exception {
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenThrow(errorResponse("NoSuchKey"));
+        assertThat(storageService.exists(DOCUMENT_ID), is(false));
+    }
+
+    @Test
+    @DisplayName("Should check the document in the configured bucket")
+    void shouldCheckConfiguredBucket() throws Exception {
+        new MinioStorageServiceImp(minioClient, "archive").exists(DOCUMENT_ID);
+
+        ArgumentCaptor<StatObjectArgs> captor = ArgumentCaptor.forClass(StatObjectArgs.class);
+        verify(minioClient).statObject(captor.capture());
+        assertThat(captor.getValue().bucket(), is("archive"));
+    }
+
+    @Test
+    @DisplayName("Should report other storage errors from the existence check as IOException")
+    void shouldPropagateExistenceCheckErrors() throws Exception {
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenThrow(errorResponse("AccessDenied"));
+        IOException exception = assertThrows(IOException.class, () -> storageService.exists(DOCUMENT_ID));
+        assertThat(exception.getCause() instanceof ErrorResponseException, is(true));
+    }
+
+    private static ErrorResponseException errorResponse(String code) {
+        return new ErrorResponseException(
+                new ErrorResponse(code, code, BUCKET_NAME, DOCUMENT_ID, "/" + DOCUMENT_ID, "request", "host"), null, null);
+    }
 }
\ No newline at end of file
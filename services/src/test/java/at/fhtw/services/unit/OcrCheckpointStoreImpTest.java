@@ -0,0 +1,111 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.services.OcrCheckpointStoreImp;
+import at.fhtw.services.OcrCheckpointStoreImp.PageCheckpoint;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.List;
+
+import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_DOCUMENT_ID;
+import static at.fhtw.services.unit.TestBase.MessageBrokerConstants.CONTENT_DIGEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class OcrCheckpointStoreImpTest extends TestBase {
+
+    private static final String CHECKPOINT_INDEX = "ocr_checkpoints";
+
+    @Mock
+    private ElasticsearchClient esClient;
+
+    private OcrCheckpointStoreImp store;
+
+    @BeforeEach
+    void setUp() {
+        store = new OcrCheckpointStoreImp(esClient, CHECKPOINT_INDEX, 100);
+    }
+
+    private Hit<PageCheckpoint> hit(int page) {
+        PageCheckpoint checkpoint = new PageCheckpoint(VALID_DOCUMENT_ID, CONTENT_DIGEST, page, "page " + (page + 1), "now");
+        return Hit.of(h -> h.index(CHECKPOINT_INDEX).id(VALID_DOCUMENT_ID + ":" + CONTENT_DIGEST + ":" + page).source(checkpoint));
+    }
+
+    @Test
+    @DisplayName("Loads consecutive pages from the first page and stops at a gap")
+    @SuppressWarnings("unchecked")
+    void loadsConsecutivePages() throws IOException {
+        SearchResponse<PageCheckpoint> response = mock(SearchResponse.class);
+        HitsMetadata<PageCheckpoint> hits = mock(HitsMetadata.class);
+        when(hits.hits()).thenReturn(List.of(hit(0), hit(1), hit(3)));
+        when(response.hits()).thenReturn(hits);
+        when(esClient.search(any(SearchRequest.class), eq(PageCheckpoint.class))).thenReturn(response);
+
+        assertThat(store.loadPages(VALID_DOCUMENT_ID, CONTENT_DIGEST)).containsExactly("page 1", "page 2");
+    }
+
+    @Test
+    @DisplayName("A missing checkpoint index means starting from the first page")
+    void missingIndex() throws IOException {
+        ErrorResponse error = ErrorResponse.of(e -> e.status(404)
+                .error(c -> c.type("index_not_found_exception").reason("no such index")));
+        when(esClient.search(any(SearchRequest.class), eq(PageCheckpoint.class)))
+                .thenThrow(new ElasticsearchException("search", error));
+
+        assertThat(store.loadPages(VALID_DOCUMENT_ID, CONTENT_DIGEST)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Pages are stored under document, digest and page number")
+    void savesPage() throws IOException {
+        store.savePage(VALID_DOCUMENT_ID, CONTENT_DIGEST, 2, "page 3");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<IndexRequest<PageCheckpoint>> captor = ArgumentCaptor.forClass(IndexRequest.class);
+        verify(esClient).index(captor.capture());
+        assertThat(captor.getValue().index()).isEqualTo(CHECKPOINT_INDEX);
+        assertThat(captor.getValue().id()).isEqualTo(VALID_DOCUMENT_ID + ":" + CONTENT_DIGEST + ":2");
+        assertThat(captor.getValue().document().getText()).isEqualTo("page 3");
+    }
+
+    @Test
+    @DisplayName("An unreachable index does not fail the OCR job")
+    @SuppressWarnings("unchecked")
+    void saveFailureIgnored() throws IOException {
+        when(esClient.index(any(IndexRequest.class))).thenThrow(new IOException("connection refused"));
+
+        assertThatCode(() -> store.savePage(VALID_DOCUMENT_ID, CONTENT_DIGEST, 0, "page 1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Deleting removes every checkpoint of the document")
+    void deletesCheckpoints() throws IOException {
+        store.delete(VALID_DOCUMENT_ID);
+
+        ArgumentCaptor<DeleteByQueryRequest> captor = ArgumentCaptor.forClass(DeleteByQueryRequest.class);
+        verify(esClient).deleteByQuery(captor.capture());
+        assertThat(captor.getValue().index()).containsExactly(CHECKPOINT_INDEX);
+    }
+}
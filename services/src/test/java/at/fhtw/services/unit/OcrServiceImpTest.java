@@ -1,7 +1,12 @@
 package at.fhtw.services.unit;
 
+import at.fhtw.services.OcrProgress;
 import at.fhtw.services.OcrServiceImp;
+import at.fhtw.services.ProcessingCancelledException;
+import at.fhtw.services.ProcessingSuspendedException;
 import net.sourceforge.tess4j.Tesseract;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -12,8 +17,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.List;
 
 import static at.fhtw.services.unit.TestBase.OcrConstants.DELETE_FAILED_PREFIX;
 import static at.fhtw.services.unit.TestBase.OcrConstants.MOCK_TEXT;
@@ -21,6 +28,8 @@ import static at.fhtw.services.unit.TestBase.OcrConstants.OCR_FAILED_MESSAGE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -72,6 +81,59 @@ class OcrServiceImpTest {
 
             verify(tesseract).doOCR(tempFile);
         }
+
+        @Test
+        void whenCancelled_thenOcrIsNotStarted() throws Exception {
+            tempFile = File.createTempFile("test-file-", ".txt");
+
+            assertThatThrownBy(() -> ocrServiceImp.extractText(tempFile, () -> true))
+                    .isInstanceOf(ProcessingCancelledException.class);
+
+            verify(tesseract, never()).doOCR(any(File.class));
+        }
+    }
+
+    @Nested
+    class GivenPdfFile {
+
+        @Mock
+        private OcrProgress progress;
+
+        @BeforeEach
+        void createPdf() throws Exception {
+            tempFile = File.createTempFile("test-file-", ".pdf");
+            try (PDDocument doc = new PDDocument()) {
+                for (int i = 0; i < 3; i++) {
+                    doc.addPage(new PDPage());
+                }
+                doc.save(tempFile);
+            }
+        }
+
+        @Test
+        void whenPagesWereCheckpointed_thenOcrResumesAfterThem() throws Exception {
+            when(progress.completedPages()).thenReturn(List.of("one ", "two "));
+            when(tesseract.doOCR(any(BufferedImage.class))).thenReturn("three");
+
+            assertThat(ocrServiceImp.extractText(tempFile, progress)).isEqualTo("one two three");
+
+            verify(tesseract, times(1)).doOCR(any(BufferedImage.class));
+            verify(progress).pageCompleted(2, "three");
+        }
+
+        @Test
+        void whenShutdownIsRequested_thenOcrStopsAtThePageBoundary() throws Exception {
+            when(progress.completedPages()).thenReturn(List.of());
+            when(progress.shouldSuspend()).thenReturn(false, true);
+            when(tesseract.doOCR(any(BufferedImage.class))).thenReturn("one ");
+
+            assertThatThrownBy(() -> ocrServiceImp.extractText(tempFile, progress))
+                    .isInstanceOf(ProcessingSuspendedException.class)
+                    .hasMessageContaining("page 2");
+
+            verify(progress).pageCompleted(0, "one ");
+            verify(progress, never()).pageCompleted(eq(1), anyString());
+        }
     }
 
     @Nested
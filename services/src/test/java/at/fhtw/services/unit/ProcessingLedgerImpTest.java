@@ -0,0 +1,130 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.services.ProcessingLedgerImp;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.ExistsRequest;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_DOCUMENT_ID;
+import static at.fhtw.services.unit.TestBase.MessageBrokerConstants.CONTENT_DIGEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class ProcessingLedgerImpTest extends TestBase {
+
+    private static final String LEDGER_INDEX = "processing_ledger";
+
+    @Mock
+    private ElasticsearchClient esClient;
+
+    private ProcessingLedgerImp ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new ProcessingLedgerImp(esClient, new SimpleMeterRegistry(), LEDGER_INDEX, 1_000, 0.01);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void emptyLedgerIndex() throws IOException {
+        SearchResponse<Void> response = mock(SearchResponse.class);
+        HitsMetadata<Void> hits = mock(HitsMetadata.class);
+        when(hits.hits()).thenReturn(Collections.emptyList());
+        when(response.hits()).thenReturn(hits);
+        when(esClient.search(any(SearchRequest.class), eq(Void.class))).thenReturn(response);
+        ledger.warmUp();
+    }
+
+    @Nested
+    @DisplayName("Before the filter is loaded")
+    class BeforeWarmUp {
+
+        @Test
+        @DisplayName("Every check is answered by the ledger index")
+        void checksIndex() throws IOException {
+            when(esClient.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(true));
+            assertThat(ledger.isWarmedUp()).isFalse();
+            assertThat(ledger.isCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Unreachable index means the work is done again")
+        void indexUnavailable() throws IOException {
+            when(esClient.exists(any(ExistsRequest.class))).thenThrow(new IOException("connection refused"));
+            assertThat(ledger.isCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST)).isFalse();
+        }
+
+        @Test
+        @DisplayName("A missing ledger index counts as an empty ledger")
+        void missingIndex() throws IOException {
+            ErrorResponse error = ErrorResponse.of(e -> e.status(404)
+                    .error(c -> c.type("index_not_found_exception").reason("no such index")));
+            when(esClient.search(any(SearchRequest.class), eq(Void.class)))
+                    .thenThrow(new ElasticsearchException("search", error));
+            ledger.warmUp();
+            assertThat(ledger.isWarmedUp()).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("After the filter is loaded")
+    class AfterWarmUp {
+
+        @BeforeEach
+        void warmUp() throws IOException {
+            emptyLedgerIndex();
+        }
+
+        @Test
+        @DisplayName("Unknown documents are answered from memory")
+        void unknownDocumentSkipsIndex() throws IOException {
+            assertThat(ledger.isCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST)).isFalse();
+            verify(esClient, never()).exists(any(ExistsRequest.class));
+        }
+
+        @Test
+        @DisplayName("Completed documents are recorded and confirmed by the index")
+        void completedDocument() throws IOException {
+            when(esClient.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(true));
+
+            ledger.markCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST);
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<IndexRequest<Object>> captor = ArgumentCaptor.forClass(IndexRequest.class);
+            verify(esClient).index(captor.capture());
+            assertThat(captor.getValue().index()).isEqualTo(LEDGER_INDEX);
+            assertThat(captor.getValue().id()).isEqualTo(VALID_DOCUMENT_ID + ":" + CONTENT_DIGEST);
+            assertThat(ledger.isCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST)).isTrue();
+        }
+
+        @Test
+        @DisplayName("A different content digest is not a duplicate")
+        void differentDigest() {
+            ledger.markCompleted(VALID_DOCUMENT_ID, CONTENT_DIGEST);
+            assertThat(ledger.isCompleted(VALID_DOCUMENT_ID, "other-digest")).isFalse();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.services.processor.DocumentProcessor;
+import at.fhtw.services.processor.ShardCoordinator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class ShardCoordinatorTest {
+
+    private static final int SHARDS = 16;
+    private static final long MEMBER_TIMEOUT_MS = 15_000;
+
+    @Mock
+    private DocumentProcessor documentProcessor;
+    @Mock
+    private SimpleRabbitListenerContainerFactory containerFactory;
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private ShardCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        coordinator = new ShardCoordinator(documentProcessor, containerFactory, rabbitTemplate, new SimpleMeterRegistry(),
+                "document_processing_queue", SHARDS, "document_processing_members", 5_000, MEMBER_TIMEOUT_MS);
+    }
+
+    private static String heartbeat(String memberId) {
+        return "{\"memberId\":\"" + memberId + "\",\"leaving\":false}";
+    }
+
+    @Nested
+    @DisplayName("owner")
+    class OwnerTests {
+
+        @Test
+        @DisplayName("Every shard has exactly one owner, independent of the member order")
+        void deterministic() {
+            List<String> members = List.of("worker-a", "worker-b", "worker-c");
+            List<String> reversed = List.of("worker-c", "worker-b", "worker-a");
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertThat(ShardCoordinator.owner(shard, members))
+                        .isIn(members)
+                        .isEqualTo(ShardCoordinator.owner(shard, reversed));
+            }
+        }
+
+        @Test
+        @DisplayName("Shards are spread over all members")
+        void spread() {
+            List<String> members = List.of("worker-a", "worker-b", "worker-c", "worker-d");
+            Map<String, Integer> counts = new HashMap<>();
+            IntStream.range(0, 256).forEach(shard -> counts.merge(ShardCoordinator.owner(shard, members), 1, Integer::sum));
+            assertThat(counts).containsOnlyKeys(members);
+            assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(32, 96));
+        }
+
+        @Test
+        @DisplayName("A leaving member only moves its own shards")
+        void minimalMovement() {
+            List<String> before = List.of("worker-a", "worker-b", "worker-c");
+            List<String> after = List.of("worker-a", "worker-b");
+            for (int shard = 0; shard < SHARDS; shard++) {
+                String previous = ShardCoordinator.owner(shard, before);
+                if (!previous.equals("worker-c")) {
+                    assertThat(ShardCoordinator.owner(shard, after)).isEqualTo(previous);
+                }
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("membership")
+    class MembershipTests {
+
+        @Test
+        @DisplayName("A single worker owns all shards")
+        void aloneOwnsAll() {
+            assertThat(coordinator.ownedShards()).hasSize(SHARDS);
+        }
+
+        @Test
+        @DisplayName("A joining worker takes over part of the shards")
+        void joinRebalances() {
+            coordinator.onMembership(heartbeat("other-worker"));
+
+            Set<Integer> owned = coordinator.ownedShards();
+            assertThat(owned).isNotEmpty().hasSizeLessThan(SHARDS);
+            owned.forEach(shard -> assertThat(ShardCoordinator.owner(shard, List.of(coordinator.getMemberId(), "other-worker")))
+                    .isEqualTo(coordinator.getMemberId()));
+        }
+
+        @Test
+        @DisplayName("Shards return once the other worker leaves or times out")
+        void leaveAndTimeout() {
+            coordinator.onMembership(heartbeat("leaving-worker"));
+            coordinator.onMembership("{\"memberId\":\"leaving-worker\",\"leaving\":true}");
+            assertThat(coordinator.ownedShards()).hasSize(SHARDS);
+
+            coordinator.onMembership(heartbeat("silent-worker"));
+            assertThat(coordinator.expireMembers(System.currentTimeMillis())).isFalse();
+            assertThat(coordinator.expireMembers(System.currentTimeMillis() + MEMBER_TIMEOUT_MS + 1)).isTrue();
+            assertThat(coordinator.ownedShards()).hasSize(SHARDS);
+        }
+    }
+}
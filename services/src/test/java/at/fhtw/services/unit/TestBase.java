@@ -44,6 +44,8 @@ public abstract class TestBase {
         public static final String EXTRACTED_TEXT = "extracted text";
         public static final String JSON_KEY_DOCUMENT_ID = "documentId";
         public static final String JSON_KEY_OCR_TEXT = "ocrText";
+        public static final String JSON_KEY_CONTENT_DIGEST = "contentDigest";
+        public static final String CONTENT_DIGEST = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
         static final String DOC_1 = "doc1";
         static final String HELLO_WORLD = "Hello World";
         static final String SPECIAL_CHARS = "特殊字符";
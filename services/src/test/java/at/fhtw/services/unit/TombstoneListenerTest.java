@@ -0,0 +1,64 @@
+package at.fhtw.services.unit;
+
+import at.fhtw.services.CancellationRegistry;
+import at.fhtw.services.ElasticsearchIndexService;
+import at.fhtw.services.OcrCheckpointStore;
+import at.fhtw.services.processor.TombstoneListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+
+import static at.fhtw.services.unit.TestBase.DocumentConstants.VALID_DOCUMENT_ID;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+class TombstoneListenerTest extends TestBase {
+
+    @Mock
+    private CancellationRegistry mockCancellationRegistry;
+    @Mock
+    private ElasticsearchIndexService mockIndexService;
+    @Mock
+    private OcrCheckpointStore mockCheckpointStore;
+
+    private TombstoneListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new TombstoneListener(mockCancellationRegistry, mockIndexService, mockCheckpointStore);
+    }
+
+    @Test
+    @DisplayName("Should register the cancellation before removing the index entry")
+    void shouldCancelThenDeleteIndexEntry() throws Exception {
+        listener.onTombstone("{\"documentId\":\"" + VALID_DOCUMENT_ID + "\"}");
+        InOrder inOrder = inOrder(mockCancellationRegistry, mockIndexService);
+        inOrder.verify(mockCancellationRegistry).cancel(VALID_DOCUMENT_ID);
+        inOrder.verify(mockIndexService).deleteDocument(VALID_DOCUMENT_ID);
+        verify(mockCheckpointStore).delete(VALID_DOCUMENT_ID);
+    }
+
+    @Test
+    @DisplayName("Should keep the cancellation when the index is unavailable")
+    void shouldSurviveIndexFailure() throws Exception {
+        doThrow(new IOException("Index unavailable")).when(mockIndexService).deleteDocument(VALID_DOCUMENT_ID);
+        listener.onTombstone("{\"documentId\":\"" + VALID_DOCUMENT_ID + "\"}");
+        verify(mockCancellationRegistry).cancel(VALID_DOCUMENT_ID);
+    }
+
+    @Test
+    @DisplayName("Should ignore malformed tombstones")
+    void shouldIgnoreMalformedTombstone() {
+        listener.onTombstone("invalid json");
+        verifyNoInteractions(mockCancellationRegistry, mockIndexService, mockCheckpointStore);
+    }
+}
@@ -54,8 +54,15 @@ class DocumentAPI {
         }
     }
 
-    async listAllDocuments() {
-        const response = await fetch(this.baseURL);
+    async listDocuments(cursor = null) {
+        const url = cursor ? `${this.baseURL}?cursor=${encodeURIComponent(cursor)}` : this.baseURL;
+        const response = await fetch(url);
+        const documents = await this.handleResponse(response);
+        return { documents, nextCursor: response.headers.get('X-Next-Cursor') };
+    }
+
+    async getDocument(id) {
+        const response = await fetch(`${this.baseURL}/${id}?view=full`);
         return this.handleResponse(response);
     }
 
@@ -63,14 +70,32 @@ class DocumentAPI {
         const response = await fetch(`${this.baseURL}/search?query=${encodeURIComponent(query)}`);
         return this.handleResponse(response);
     }
+
+    subscribeToStatusEvents(onStatus, onReconnect) {
+        const source = new EventSource(`${this.baseURL}/events`);
+        let disconnected = false;
+        source.addEventListener('document-status', (e) => onStatus(JSON.parse(e.data)));
+        source.addEventListener('error', () => {
+            disconnected = true;
+        });
+        source.addEventListener('open', () => {
+            if (disconnected) {
+                disconnected = false;
+                onReconnect();
+            }
+        });
+        return source;
+    }
 }
 
 class DocumentUIController {
     constructor() {
         this.api = new DocumentAPI();
         this.lastDocStates = new Map();
+        this.documents = [];
+        this.nextCursor = null;
         this.initializeUI();
-        this.setupAutoRefresh();
+        this.setupStatusEvents();
     }
 
     initializeUI() {
@@ -81,6 +106,7 @@ class DocumentUIController {
         this.loader = document.getElementById('loader');
         this.progressBar = document.getElementById('progress-bar');
         this.uploadButton = document.getElementById('upload-button');
+        this.loadMoreButton = document.getElementById('load-more-button');
 
         this.searchButton.addEventListener('click', () => this.handleSearch());
         this.searchInput.addEventListener('keypress', (e) => {
@@ -88,11 +114,11 @@ class DocumentUIController {
         });
         this.fileInput.addEventListener('change', (e) => this.handleFileUpload(e));
         this.uploadButton.addEventListener('click', () => this.fileInput.click());
+        this.loadMoreButton.addEventListener('click', () => this.loadMoreDocuments());
         this.tableBody.addEventListener('click', (e) => {
-            const viewOcrButton = e.target.closest('button[data-ocr-text]');
+            const viewOcrButton = e.target.closest('button[data-ocr-id]');
             if (viewOcrButton) {
-                const encodedText = viewOcrButton.dataset.ocrText;
-                this.showOcrText(encodedText);
+                this.showOcrText(viewOcrButton.dataset.ocrId);
             }
         });
         const dropZone = document.querySelector('.upload-area');
@@ -110,10 +136,19 @@ class DocumentUIController {
         this.loadDocuments();
     }
 
-    setupAutoRefresh() {
-        setInterval(() => {
-            this.loadDocuments(false);
-        }, 7000);
+    setupStatusEvents() {
+        this.api.subscribeToStatusEvents(
+            (doc) => this.applyStatusChange(doc),
+            () => this.loadDocuments(false)
+        );
+    }
+
+    applyStatusChange(doc) {
+        const index = this.documents.findIndex(d => d.id === doc.id);
+        if (index === -1) return;
+        this.documents[index] = doc;
+        this.renderDocuments(this.documents);
+        this.checkOcrCompletions(this.documents);
     }
 
     showToast(message, type = 'success') {
@@ -136,9 +171,12 @@ class DocumentUIController {
             const query = resetSearch ? '' : this.searchInput.value.trim();
             let docs;
             if (!query) {
-                docs = await this.api.listAllDocuments();
+                const page = await this.api.listDocuments();
+                docs = page.documents;
+                this.setNextCursor(page.nextCursor);
             } else {
                 docs = await this.api.searchDocuments(query);
+                this.setNextCursor(null);
             }
             this.renderDocuments(docs);
             this.checkOcrCompletions(docs);
@@ -150,6 +188,28 @@ class DocumentUIController {
         }
     }
 
+    async loadMoreDocuments() {
+        if (!this.nextCursor) return;
+        try {
+            this.toggleLoader(true);
+            const page = await this.api.listDocuments(this.nextCursor);
+            this.setNextCursor(page.nextCursor);
+            const docs = this.documents.concat(page.documents);
+            this.renderDocuments(docs);
+            this.checkOcrCompletions(docs);
+        } catch (error) {
+            console.error('Failed to load more documents:', error);
+            this.showToast('Failed to load documents', 'error');
+        } finally {
+            this.toggleLoader(false);
+        }
+    }
+
+    setNextCursor(cursor) {
+        this.nextCursor = cursor;
+        this.loadMoreButton.style.display = cursor ? 'inline-block' : 'none';
+    }
+
     checkOcrCompletions(docs) {
         docs.forEach(doc => {
             const prevState = this.lastDocStates.get(doc.id);
@@ -168,6 +228,7 @@ class DocumentUIController {
         try {
             this.toggleLoader(true);
             const docs = await this.api.searchDocuments(query);
+            this.setNextCursor(null);
             if (!docs || docs.length === 0) {
                 this.showToast('No documents found', 'info');
             }
@@ -238,26 +299,11 @@ class DocumentUIController {
     }
 
     renderDocuments(documents) {
+        this.documents = documents;
         this.tableBody.innerHTML = documents.map(doc => this.createTableRow(doc)).join('');
     }
 
     createTableRow(document) {
-        let encodedOcrText = '';
-        if (document.ocrJobDone && document.ocrText) {
-            try {
-                const normalizedText = document.ocrText.normalize('NFC');
-                encodedOcrText = btoa(
-                    encodeURIComponent(normalizedText)
-                        .replace(/%([0-9A-F]{2})/g,
-                            (match, p1) => String.fromCharCode('0x' + p1)
-                        )
-                );
-            } catch (error) {
-                console.error('Error encoding OCR text:', error);
-                encodedOcrText = '';
-            }
-        }
-
         return `
         <tr>
             <td>${document.filename}</td>
@@ -272,8 +318,8 @@ class DocumentUIController {
             </td>
             <td>
                 <div class="action-buttons">
-                    ${document.ocrJobDone && encodedOcrText
-            ? `<button class="btn btn-success" data-ocr-text="${encodedOcrText}">
+                    ${document.ocrJobDone
+            ? `<button class="btn btn-success" data-ocr-id="${document.id}">
                                View OCR
                            </button>`
             : ''
@@ -293,23 +339,19 @@ class DocumentUIController {
     `;
     }
 
-    showOcrText(encodedText) {
+    async showOcrText(id) {
         try {
-            const decodedText = decodeURIComponent(
-                Array.prototype.map.call(
-                    atob(encodedText),
-                    c => '%' + ('00' + c.charCodeAt(0).toString(16)).slice(-2)
-                ).join('')
-            );
+            const doc = await this.api.getDocument(id);
+            const ocrText = doc.ocrText || '';
 
             const ocrTextElement = document.getElementById('ocrText');
 
-            if (!decodedText) {
+            if (!ocrText) {
                 ocrTextElement.textContent = 'No OCR text available';
                 return;
             }
 
-            ocrTextElement.textContent = decodedText.normalize('NFC');
+            ocrTextElement.textContent = ocrText.normalize('NFC');
             ocrTextElement.style.whiteSpace = 'pre-wrap';
             ocrTextElement.style.maxHeight = '400px';
             ocrTextElement.style.overflowY = 'auto';